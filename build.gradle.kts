@@ -1,5 +1,7 @@
 plugins {
     id("java")
+    id("java-test-fixtures")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "terratale"
@@ -16,6 +18,14 @@ repositories {
     }
 }
 
+// Generador de carga sin Hytale (src/loadtest), ver tasks.register("loadtest")
+val loadtest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations["loadtestImplementation"].extendsFrom(configurations.implementation.get())
+
 dependencies {
     compileOnly(files("libs/HytaleServer.jar"))
     compileOnly("net.cfh.vault:VaultUnlocked:2.18.3")
@@ -25,12 +35,44 @@ dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    // DataSeeder vive en src/testFixtures: lo comparten benchmarks y generador de carga y no va en el jar
+    jmhImplementation("net.cfh.vault:VaultUnlocked:2.18.3")
+    jmhImplementation(testFixtures(project))
+    "loadtestImplementation"("net.cfh.vault:VaultUnlocked:2.18.3")
+    "loadtestImplementation"(testFixtures(project))
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+// Benchmarks (src/jmh): ./gradlew jmh -PjmhUsers=1000,100000 -PjmhIncludes=ModelBenchmark
+// Las bases de datos sembradas se guardan en build/jmh-data y se reutilizan entre ejecuciones
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    jvmArgsAppend.add("-Dterratale.bench.dir=" + layout.buildDirectory.dir("jmh-data").get().asFile.absolutePath)
+    providers.gradleProperty("jmhUsers").orNull?.let {
+        benchmarkParameters.put("users", objects.listProperty<String>().value(it.split(",")))
+    }
+    providers.gradleProperty("jmhIncludes").orNull?.let {
+        includes.add(it)
+    }
+}
+
+// ./gradlew loadtest -Ploadtest.players=200 -Ploadtest.mix=transfer=50,vaultBalance=50 -Ploadtest.dir=build/mysql
+// Las propiedades loadtest.* se pasan tal cual al generador (ver LoadGenerator)
+tasks.register<JavaExec>("loadtest") {
+    group = "verification"
+    description = "Runs the headless economy load generator"
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("terratale.loadtest.LoadGenerator")
+    workingDir = projectDir
+    providers.gradlePropertiesPrefixedBy("loadtest.").get().forEach { (key, value) ->
+        systemProperty(key, value)
+    }
+}
+
 tasks.jar {
     duplicatesStrategy = DuplicatesStrategy.EXCLUDE
     from("src/main/resources")
@@ -0,0 +1,49 @@
+package terratale.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import terratale.models.Invoice;
+
+import java.sql.Date;
+import java.util.concurrent.TimeUnit;
+
+// Eventos de factura en memoria (sin base de datos)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceEventsBenchmark {
+
+    private Invoice generated;
+    private Date dueDate;
+
+    @Setup(Level.Trial)
+    public void create() {
+        dueDate = new Date(System.currentTimeMillis());
+        generated = new Invoice("0000000001", "0000000002", 100, dueDate, "Benchmark", Invoice.GOVERNMENT_SYSTEM);
+    }
+
+    // Factura nueva con sus eventos "created" y "paid" pendientes de guardar
+    @Benchmark
+    public Invoice addEvent() {
+        Invoice invoice = new Invoice("0000000001", "0000000002", 100, dueDate, "Benchmark");
+        invoice.addEvent("paid", "benchmark");
+        return invoice;
+    }
+
+    @Benchmark
+    public boolean hasGeneratedByGovernmentSystem() {
+        return generated.hasGeneratedByGovernmentSystem();
+    }
+}
@@ -0,0 +1,55 @@
+package terratale.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import terratale.Helpers.InvoiceHelper;
+import terratale.database.DataSeeder;
+import terratale.models.Invoice;
+import terratale.responses.InvoicePaymentResponse;
+
+import java.sql.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InvoiceHelper.payInvoice completo: lecturas, bloqueos, transferencia con comisiones y diario. Cada
+ * invocación paga una factura nueva, creada fuera de la medición.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InvoicePaymentBenchmark {
+
+    @State(Scope.Thread)
+    public static class PendingInvoice {
+        int invoiceId;
+        UUID payer;
+
+        @Setup(Level.Invocation)
+        public void create(SeededDatabase db) {
+            int payerIndex = db.randomIndex();
+            int receptorIndex = (payerIndex + 1) % db.users;
+            Invoice invoice = new Invoice(DataSeeder.accountNumber(receptorIndex), DataSeeder.accountNumber(payerIndex),
+                100, new Date(System.currentTimeMillis()), "Benchmark");
+            invoice.save();
+            invoiceId = invoice.getId();
+            payer = DataSeeder.userId(payerIndex);
+        }
+    }
+
+    @Benchmark
+    public InvoicePaymentResponse payInvoice(PendingInvoice pending) {
+        return InvoiceHelper.payInvoice(pending.invoiceId, pending.payer);
+    }
+}
@@ -0,0 +1,65 @@
+package terratale.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import terratale.cache.EntityCache;
+import terratale.database.DataSeeder;
+import terratale.models.BankAccount;
+import terratale.models.User;
+
+import java.util.concurrent.TimeUnit;
+
+// Finders y save de los modelos más usados, con y sin EntityCache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ModelBenchmark {
+
+    @Param({"true", "false"})
+    public boolean entityCache;
+
+    @Setup(Level.Trial)
+    public void configure() {
+        EntityCache.configure(entityCache, 10000, 60000);
+    }
+
+    // Jugador fijo por hilo para medir solo el save
+    @State(Scope.Thread)
+    public static class LoadedUser {
+        User user;
+
+        @Setup(Level.Iteration)
+        public void load(SeededDatabase db) {
+            user = User.find(db.randomUser());
+        }
+    }
+
+    @Benchmark
+    public User userFind(SeededDatabase db) {
+        return User.find(db.randomUser());
+    }
+
+    @Benchmark
+    public void userSave(LoadedUser loaded) {
+        loaded.user.setLastLogin(System.currentTimeMillis());
+        loaded.user.save();
+    }
+
+    @Benchmark
+    public BankAccount bankAccountFindByAccountNumber(SeededDatabase db) {
+        return BankAccount.findByAccountNumber(DataSeeder.accountNumber(db.randomIndex()));
+    }
+}
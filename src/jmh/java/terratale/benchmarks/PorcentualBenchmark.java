@@ -0,0 +1,52 @@
+package terratale.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import terratale.Helpers.PorcentualHelper;
+import terratale.cache.MoneySupply;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// calculatePorcentual con el agregado MoneySupply y con los SUM completos de users y bank_accounts
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PorcentualBenchmark {
+
+    private static final BigDecimal POINTS = new BigDecimal("0.00005");
+
+    @Param({"true", "false"})
+    public boolean moneySupply;
+
+    @Setup(Level.Trial)
+    public void start(SeededDatabase db) {
+        if (moneySupply) {
+            MoneySupply.start(Long.MAX_VALUE / 2, Long.MAX_VALUE / 2); // sin reconciliar durante la medición
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        MoneySupply.stop();
+    }
+
+    @Benchmark
+    public long calculatePorcentual(SeededDatabase db) {
+        return PorcentualHelper.calculatePorcentual(POINTS);
+    }
+}
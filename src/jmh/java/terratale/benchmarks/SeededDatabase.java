@@ -0,0 +1,66 @@
+package terratale.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import terratale.Helpers.PluginConfig;
+import terratale.cache.MoneySupply;
+import terratale.cache.WalletCache;
+import terratale.database.DataSeeder;
+import terratale.models.Model;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Base de datos SQLite sembrada con {@code users} jugadores (ver {@link DataSeeder}).
+ *
+ * Se crea una vez por tamaño en {@code terratale.bench.dir} y se reutiliza: sembrar un millón de jugadores
+ * lleva su tiempo. Los benchmarks que escriben la van cambiando, pero sin añadir ni quitar jugadores.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    public static final long MONEY = 1000000L;       // 10.000 Liras en mano
+    public static final long BALANCE = 100000000L;   // 1.000.000 Liras en la cuenta
+
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        File dir = new File(System.getProperty("terratale.bench.dir", "build/jmh-data"), "users-" + users);
+        PluginConfig config = new PluginConfig(); // sin contraseña de MySQL: SQLite
+        Model.initialize(dir, null, () -> config);
+        if (Model.getPool() == null) {
+            throw new IllegalStateException("Could not open the benchmark database in " + dir);
+        }
+
+        int existing = DataSeeder.countUsers();
+        if (existing == 0) {
+            DataSeeder.seed(users, MONEY, BALANCE, 1000, 0.1, 42L);
+        } else if (existing != users) {
+            throw new IllegalStateException(dir + " has " + existing + " users, expected " + users + "; delete it to reseed");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        WalletCache.stop();
+        MoneySupply.stop();
+        Model.close();
+    }
+
+    public int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(users);
+    }
+
+    public UUID randomUser() {
+        return DataSeeder.userId(randomIndex());
+    }
+}
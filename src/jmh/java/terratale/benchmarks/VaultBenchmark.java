@@ -0,0 +1,71 @@
+package terratale.benchmarks;
+
+import net.milkbowl.vault2.economy.EconomyResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import terratale.cache.WalletCache;
+import terratale.plugin.integrations.vaultUnlocked.TerrataleVaultEconomy;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Llamadas de saldo de VaultUnlocked (lo que usan otros plugins en cada compra), con y sin WalletCache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VaultBenchmark {
+
+    private static final String PLUGIN = "benchmark";
+    private static final BigDecimal ONE = new BigDecimal("1.00");
+
+    @Param({"true", "false"})
+    public boolean walletCache;
+
+    private TerrataleVaultEconomy economy;
+
+    @Setup(Level.Trial)
+    public void start(SeededDatabase db) {
+        if (walletCache) {
+            WalletCache.start(2000, 600000, 500);
+        }
+        economy = new TerrataleVaultEconomy();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        WalletCache.stop();
+    }
+
+    @Benchmark
+    public BigDecimal getBalance(SeededDatabase db) {
+        return economy.getBalance(PLUGIN, db.randomUser());
+    }
+
+    @Benchmark
+    public boolean has(SeededDatabase db) {
+        return economy.has(PLUGIN, db.randomUser(), ONE);
+    }
+
+    // Retira y vuelve a ingresar lo mismo para no vaciar los monederos
+    @Benchmark
+    public EconomyResponse withdrawAndDeposit(SeededDatabase db) {
+        UUID uuid = db.randomUser();
+        economy.withdraw(PLUGIN, uuid, ONE);
+        return economy.deposit(PLUGIN, uuid, ONE);
+    }
+}
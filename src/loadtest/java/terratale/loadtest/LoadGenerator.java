@@ -0,0 +1,372 @@
+package terratale.loadtest;
+
+import terratale.Helpers.ConfigManager;
+import terratale.Helpers.PluginConfig;
+import terratale.cache.EntityCache;
+import terratale.cache.MoneySupply;
+import terratale.cache.SessionManager;
+import terratale.cache.WalletCache;
+import terratale.commands.CommandExecutor;
+import terratale.database.DataSeeder;
+import terratale.database.SlowQueryLog;
+import terratale.database.SqliteWriter;
+import terratale.economy.MoneyAudit;
+import terratale.economy.TransferEngine;
+import terratale.economy.TransferException;
+import terratale.metrics.Histogram;
+import terratale.metrics.Metrics;
+import terratale.models.Model;
+import terratale.plugin.integrations.vaultUnlocked.TerrataleVaultEconomy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de carga sin Hytale: N jugadores simulados (un hilo virtual cada uno) lanzan una mezcla de
+ * operaciones de economía contra SQLite o MySQL y al final se imprime el rendimiento y los percentiles de
+ * latencia de cada operación.
+ *
+ * Se configura con propiedades del sistema ({@code ./gradlew loadtest -Ploadtest.players=200 ...}):
+ * <ul>
+ *   <li>{@code loadtest.players}: jugadores simultáneos (100)</li>
+ *   <li>{@code loadtest.users}: jugadores sembrados en la base de datos (10000, como mínimo players + 1)</li>
+ *   <li>{@code loadtest.duration} y {@code loadtest.warmup}: segundos medidos y de calentamiento (60 y 10)</li>
+ *   <li>{@code loadtest.thinkMs}: pausa media entre operaciones de un jugador, exponencial (200; 0 sin pausa)</li>
+ *   <li>{@code loadtest.mix}: pesos de cada operación, p. ej. {@code withdraw=15,transfer=20,vaultBalance=25}</li>
+ *   <li>{@code loadtest.seed}: semilla de los datos sembrados y de las decisiones de cada jugador (42)</li>
+ *   <li>{@code loadtest.dir}: carpeta de datos; si contiene un config.json se usa, con MySQL si tiene contraseña</li>
+ *   <li>{@code loadtest.reset}: borra la base de datos SQLite de la carpeta antes de empezar (false)</li>
+ *   <li>{@code loadtest.audit}: auditoría completa del dinero al terminar, ver {@link MoneyAudit} (true)</li>
+ *   <li>{@code loadtest.report}: fichero donde guardar también el informe</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+    private static final String DEFAULT_MIX =
+        "withdraw=15,deposit=15,transfer=20,invoice=10,schedule=5,vaultBalance=25,vaultTransfer=10";
+
+    private static final long MONEY = 1000000L;       // 10.000 Liras en mano
+    private static final long BALANCE = 100000000L;   // 1.000.000 Liras en la cuenta
+    private static final int MAX_PRINTED_ERRORS = 5;
+
+    private final int players;
+    private final int users;
+    private final long warmupMs;
+    private final long durationMs;
+    private final long thinkMs;
+    private final long seed;
+    private final File dataDir;
+    private final boolean reset;
+    private final boolean audit;
+    private final String reportPath;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> rejections = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final AtomicInteger printedErrors = new AtomicInteger();
+
+    private PluginConfig config;
+    private volatile long measureFrom;
+    private volatile long measureUntil;
+
+    public LoadGenerator() {
+        players = Integer.getInteger("loadtest.players", 100);
+        users = Math.max(Integer.getInteger("loadtest.users", 10000), players + 1);
+        warmupMs = TimeUnit.SECONDS.toMillis(Long.getLong("loadtest.warmup", 10));
+        durationMs = TimeUnit.SECONDS.toMillis(Long.getLong("loadtest.duration", 60));
+        thinkMs = Long.getLong("loadtest.thinkMs", 200);
+        seed = Long.getLong("loadtest.seed", 42);
+        dataDir = new File(System.getProperty("loadtest.dir", "build/loadtest-data"));
+        reset = Boolean.getBoolean("loadtest.reset");
+        audit = Boolean.parseBoolean(System.getProperty("loadtest.audit", "true"));
+        reportPath = System.getProperty("loadtest.report");
+        mix = parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX));
+        totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Histogram());
+            rejections.put(operation, new AtomicLong());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        try {
+            generator.open();
+            generator.run();
+            generator.report();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /* ---------------------- Preparación ---------------------- */
+
+    private void open() throws Exception {
+        if (reset) {
+            Files.deleteIfExists(new File(dataDir, "terratale.db").toPath());
+            Files.deleteIfExists(new File(dataDir, "terratale.db-wal").toPath());
+            Files.deleteIfExists(new File(dataDir, "terratale.db-shm").toPath());
+        }
+
+        ConfigManager configManager = new ConfigManager(dataDir);
+        configManager.load();
+        config = configManager.getConfig();
+        config.scheduledPaymentsEnabled = false; // los pagos programados creados no se cobran durante la prueba
+
+        Model.initialize(dataDir, null, () -> config);
+        if (Model.getPool() == null) {
+            throw new IllegalStateException("Could not open the database in " + dataDir);
+        }
+
+        int existing = DataSeeder.countUsers();
+        if (existing == 0) {
+            System.out.println("Seeding " + users + " users...");
+            DataSeeder.Summary summary = DataSeeder.seed(users, MONEY, BALANCE, 1000, 0.1, seed);
+            System.out.println("Seeded " + summary.users + " users, " + summary.banks + " banks and "
+                + summary.invoices + " invoices in " + summary.durationMs + "ms");
+        } else if (existing != users) {
+            throw new IllegalStateException("The database has " + existing + " users, expected " + users
+                + "; use -Ploadtest.reset=true or another loadtest.dir");
+        }
+
+        // Mismos servicios que arranca TerratalePlugin (el registro de lentas, tras la siembra)
+        if (config.slowQueryLogEnabled) {
+            SlowQueryLog.start(dataDir, config.slowQueryThresholdMs, config.slowQuerySampleIntervalMs,
+                config.slowQueryRedactUuids, config.slowQueryRedactAmounts, config.slowQueryExplain,
+                config.slowQueryFileMaxKb * 1024L, config.slowQueryFileCount);
+        }
+        WalletCache.start(config.walletFlushIntervalMs, config.walletIdleEvictMs, config.walletFlushBatchSize);
+        MoneySupply.start(config.moneySupplyReconcileIntervalMs, config.moneySupplyPersistIntervalMs);
+        EntityCache.configure(config.entityCacheEnabled, config.entityCacheMaxEntries, config.entityCacheTtlMs);
+        TransferEngine.configure(config.transferLockStripes, config.transferLockTimeoutMs);
+        SessionManager.start();
+        CommandExecutor.start(Model.getPool().getMaxSize(), config.commandQueueTimeoutMs, config.commandTimeoutMs);
+        if (audit) {
+            MoneyAudit.start(0, config.moneyAuditThreads, config.moneyAuditChunkSize, 1);
+        }
+    }
+
+    private void close() {
+        MoneyAudit.stop();
+        CommandExecutor.stop();
+        SessionManager.stop();
+        WalletCache.stop();
+        MoneySupply.stop();
+        SlowQueryLog.stop();
+        Model.close();
+    }
+
+    /* ---------------------- Ejecución ---------------------- */
+
+    private void run() throws InterruptedException {
+        System.out.println("Running " + players + " players against " + (Model.isMySQL ? "MySQL" : "SQLite")
+            + " for " + (warmupMs / 1000) + "s warmup + " + (durationMs / 1000) + "s");
+
+        // Los jugadores "se conectan" antes de empezar, como en el servidor
+        for (int i = 0; i < players; i++) {
+            WalletCache.get().onPlayerJoin(DataSeeder.userId(i));
+            SessionManager.get().onPlayerJoin(DataSeeder.userId(i), "loadtest-" + i);
+        }
+
+        TerrataleVaultEconomy economy = new TerrataleVaultEconomy();
+        long start = System.currentTimeMillis();
+        measureFrom = start + warmupMs;
+        measureUntil = measureFrom + durationMs;
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < players; i++) {
+                Operation.Context ctx = new Operation.Context(i, users, new SplittableRandom(seed + i), economy, 100, 10000);
+                threads.execute(() -> play(ctx));
+            }
+        }
+
+        for (int i = 0; i < players; i++) {
+            SessionManager.get().onPlayerLeave(DataSeeder.userId(i));
+            WalletCache.get().onPlayerLeave(DataSeeder.userId(i));
+        }
+    }
+
+    private void play(Operation.Context ctx) {
+        try {
+            // Arranque escalonado para que no lleguen todos a la vez
+            pause(ctx.random, thinkMs);
+            while (System.currentTimeMillis() < measureUntil) {
+                Operation operation = pick(ctx.random);
+                long startedAt = System.currentTimeMillis();
+                long start = System.nanoTime();
+                boolean failed = execute(operation, ctx);
+                long elapsed = System.nanoTime() - start;
+
+                if (startedAt >= measureFrom && startedAt < measureUntil && !failed) {
+                    latencies.get(operation).record(elapsed);
+                }
+                pause(ctx.random, thinkMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Devuelve true si la operación falló por un error inesperado
+    private boolean execute(Operation operation, Operation.Context ctx) {
+        boolean measured = System.currentTimeMillis() >= measureFrom;
+        try {
+            if (operation.isCommand()) {
+                CommandExecutor.get().submit(operation.getKey(), ctx.uuid, () -> {
+                    operation.run(ctx);
+                    return null;
+                }).join();
+            } else {
+                operation.run(ctx);
+            }
+            return false;
+        } catch (CompletionException e) {
+            return handle(operation, e.getCause() != null ? e.getCause() : e, measured);
+        } catch (RuntimeException e) {
+            return handle(operation, e, measured);
+        }
+    }
+
+    private boolean handle(Operation operation, Throwable error, boolean measured) {
+        // Errores de negocio (saldo insuficiente, factura ya pagada...): la operación se completó igualmente
+        if (error instanceof TransferException || error.getClass() == RuntimeException.class) {
+            if (measured) {
+                rejections.get(operation).incrementAndGet();
+            }
+            return false;
+        }
+
+        if (measured) {
+            errors.get(operation).incrementAndGet();
+        }
+        if (printedErrors.incrementAndGet() <= MAX_PRINTED_ERRORS) {
+            Model.logError("Operation " + operation.getKey() + " failed: " + error.getMessage());
+            error.printStackTrace();
+        }
+        return true;
+    }
+
+    private Operation pick(SplittableRandom random) {
+        int roll = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty operation mix");
+    }
+
+    private static void pause(SplittableRandom random, long meanMs) throws InterruptedException {
+        if (meanMs <= 0) {
+            return;
+        }
+        long sleep = (long) (-meanMs * Math.log(1.0 - random.nextDouble()));
+        Thread.sleep(Math.min(sleep, meanMs * 10));
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry '" + part + "', expected operation=weight");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.fromKey(pair[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The operation mix is empty");
+        }
+        return mix;
+    }
+
+    /* ---------------------- Informe ---------------------- */
+
+    private void report() throws IOException {
+        List<String> lines = new ArrayList<>();
+        double seconds = durationMs / 1000.0;
+
+        lines.add("Backend: " + (Model.isMySQL ? "MySQL" : "SQLite") + " | players " + players + " | users " + users
+            + " | think " + thinkMs + "ms | measured " + (durationMs / 1000) + "s | seed " + seed);
+        lines.add(String.format("%-14s %10s %10s %8s %8s %10s %10s %10s %10s %10s",
+            "operation", "ops", "ops/s", "rejected", "errors", "mean ms", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+
+        Histogram total = new Histogram();
+        long totalRejected = 0;
+        long totalErrors = 0;
+        for (Operation operation : mix.keySet()) {
+            Histogram histogram = latencies.get(operation);
+            long rejected = rejections.get(operation).get();
+            long failed = errors.get(operation).get();
+            lines.add(row(operation.getKey(), histogram, rejected, failed, seconds));
+            total.add(histogram);
+            totalRejected += rejected;
+            totalErrors += failed;
+        }
+        lines.add(row("total", total, totalRejected, totalErrors, seconds));
+
+        lines.add("");
+        lines.addAll(Model.getPool().getStats().describe());
+        SqliteWriter writer = SqliteWriter.get();
+        if (writer != null) {
+            lines.addAll(writer.describe());
+        }
+        lines.addAll(TransferEngine.describe());
+        lines.addAll(CommandExecutor.get().describe());
+        lines.addAll(Metrics.describe("query."));
+
+        // El dinero debe cuadrar después de la carga
+        if (MoneyAudit.get() != null) {
+            try {
+                lines.add("");
+                lines.addAll(MoneyAudit.get().audit(true).describe());
+            } catch (SQLException e) {
+                lines.add("Money audit failed: " + e.getMessage());
+            }
+        }
+
+        for (String line : lines) {
+            System.out.println(line);
+        }
+        if (reportPath != null) {
+            try (PrintWriter out = new PrintWriter(reportPath, StandardCharsets.UTF_8)) {
+                lines.forEach(out::println);
+            }
+            System.out.println("Report written to " + reportPath);
+        }
+    }
+
+    private static String row(String name, Histogram histogram, long rejected, long failed, double seconds) {
+        return String.format("%-14s %10d %10.1f %8d %8d %10.3f %10.3f %10.3f %10.3f %10.3f",
+            name, histogram.getCount(), histogram.getCount() / seconds, rejected, failed,
+            histogram.getMeanNanos() / 1e6, millis(histogram.percentile(50)), millis(histogram.percentile(99)),
+            millis(histogram.percentile(99.9)), millis(histogram.getMaxNanos()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
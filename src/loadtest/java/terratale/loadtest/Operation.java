@@ -0,0 +1,134 @@
+package terratale.loadtest;
+
+import terratale.Helpers.AccountHelper;
+import terratale.Helpers.InvoiceHelper;
+import terratale.Helpers.SchedulePaymentHelper;
+import terratale.database.DataSeeder;
+import terratale.models.Invoice;
+import terratale.plugin.integrations.vaultUnlocked.TerrataleVaultEconomy;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Operaciones que hace un jugador simulado. Las de comando son las mismas llamadas que hacen /account,
+ * /invoice y /schedulepayment (y pasan por CommandExecutor); las de Vault son las que hacen otros plugins.
+ */
+public enum Operation {
+
+    WITHDRAW("withdraw", true) {
+        @Override
+        void run(Context ctx) {
+            AccountHelper.withdraw(ctx.accountNumber, ctx.amount(), ctx.uuid);
+        }
+    },
+    DEPOSIT("deposit", true) {
+        @Override
+        void run(Context ctx) {
+            AccountHelper.deposit(ctx.accountNumber, ctx.amount(), ctx.uuid);
+        }
+    },
+    TRANSFER("transfer", true) {
+        @Override
+        void run(Context ctx) {
+            AccountHelper.transfer(ctx.accountNumber, DataSeeder.accountNumber(ctx.otherIndex()), ctx.amount(), ctx.uuid);
+        }
+    },
+    // Cobra a otro jugador y este paga la factura en el acto
+    INVOICE("invoice", true) {
+        @Override
+        void run(Context ctx) {
+            int payer = ctx.otherIndex();
+            Invoice invoice = InvoiceHelper.createInvoice(ctx.accountNumber, DataSeeder.accountNumber(payer),
+                ctx.amount(), 7, "Carga", ctx.uuid);
+            InvoiceHelper.payInvoice(invoice.getId(), DataSeeder.userId(payer));
+        }
+    },
+    SCHEDULE("schedule", true) {
+        @Override
+        void run(Context ctx) {
+            SchedulePaymentHelper.createSchedulePayment(ctx.accountNumber, DataSeeder.accountNumber(ctx.otherIndex()),
+                ctx.amount(), 1 + ctx.random.nextInt(28), 7, "Carga", ctx.uuid);
+        }
+    },
+    VAULT_BALANCE("vaultBalance", false) {
+        @Override
+        void run(Context ctx) {
+            ctx.economy.getBalance(Context.PLUGIN, ctx.uuid);
+        }
+    },
+    // Retira y vuelve a ingresar lo mismo, como una compra que se reembolsa
+    VAULT_TRANSFER("vaultTransfer", false) {
+        @Override
+        void run(Context ctx) {
+            BigDecimal amount = BigDecimal.valueOf(ctx.amount(), 2);
+            if (ctx.economy.withdraw(Context.PLUGIN, ctx.uuid, amount).transactionSuccess()) {
+                ctx.economy.deposit(Context.PLUGIN, ctx.uuid, amount);
+            }
+        }
+    };
+
+    private final String key;
+    private final boolean command;
+
+    Operation(String key, boolean command) {
+        this.key = key;
+        this.command = command;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    // true si en el servidor llega como comando de un jugador (y pasa por CommandExecutor)
+    public boolean isCommand() {
+        return command;
+    }
+
+    abstract void run(Context ctx);
+
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "'");
+    }
+
+    // Estado de un jugador simulado
+    static final class Context {
+        static final String PLUGIN = "loadtest";
+
+        final int index;
+        final int users;
+        final UUID uuid;
+        final String accountNumber;
+        final SplittableRandom random;
+        final TerrataleVaultEconomy economy;
+        final long minAmount;
+        final long maxAmount;
+
+        Context(int index, int users, SplittableRandom random, TerrataleVaultEconomy economy, long minAmount, long maxAmount) {
+            this.index = index;
+            this.users = users;
+            this.uuid = DataSeeder.userId(index);
+            this.accountNumber = DataSeeder.accountNumber(index);
+            this.random = random;
+            this.economy = economy;
+            this.minAmount = minAmount;
+            this.maxAmount = maxAmount;
+        }
+
+        long amount() {
+            return minAmount + random.nextLong(maxAmount - minAmount + 1);
+        }
+
+        // Cualquier otro jugador sembrado (no solo los simulados)
+        int otherIndex() {
+            int other = random.nextInt(users - 1);
+            return other >= index ? other + 1 : other;
+        }
+    }
+}
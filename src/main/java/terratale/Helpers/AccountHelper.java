@@ -0,0 +1,157 @@
+package terratale.Helpers;
+
+import java.util.UUID;
+
+import terratale.economy.Transfer;
+import terratale.economy.TransferException;
+import terratale.economy.TransferResult;
+import terratale.models.Bank;
+import terratale.models.BankAccount;
+import terratale.models.BankAccountOwner;
+import terratale.models.User;
+import terratale.responses.AccountOperationResponse;
+
+// Operaciones de /account sin tipos de Hytale: las usan los comandos y el generador de carga
+public class AccountHelper {
+
+    public static AccountOperationResponse withdraw(String accountNumber, long amount, UUID playerUUID) {
+        if (amount <= 0) {
+            throw new TransferException("La cantidad debe ser mayor a 0");
+        }
+
+        BankAccount account = BankAccount.findByAccountNumber(accountNumber);
+        if (account == null) {
+            throw new TransferException("Cuenta no encontrada");
+        }
+
+        Bank bank = Bank.find(account.getBankId());
+        if (bank == null) {
+            throw new TransferException("Banco no encontrado");
+        }
+
+        // Verificar que el jugador sea el dueño de la cuenta
+        if (!BankAccountOwner.getOwnersByAccount(account.getId()).contains(playerUUID)) {
+            throw new TransferException("No tienes acceso a esta cuenta");
+        }
+
+        if (account.getBalance() < amount) {
+            throw new TransferException("Balance insuficiente. Balance actual: " + Money.format(account.getBalance()) + " Liras");
+        }
+
+        // Calcular comisión (usar comisión de cuenta o del banco)
+        double withdrawFee = account.getWithdrawFee() != null ?
+            account.getWithdrawFee() : bank.getWithdrawFee();
+        long feeAmount = Money.percentage(amount, withdrawFee);
+        long totalDeducted = Money.add(amount, feeAmount);
+
+        if (account.getBalance() < totalDeducted) {
+            throw new TransferException("Balance insuficiente (incluyendo comisión de " + Money.format(feeAmount) + " Liras)");
+        }
+
+        TransferResult result = new Transfer(playerUUID)
+            .debitAccount(account.getId(), totalDeducted, TransactionTypes.WITHDRAWAL)
+            .creditWallet(playerUUID, amount)
+            .creditBank(bank.getId(), feeAmount, TransactionTypes.WITHDRAWAL_FEE)
+            .execute();
+
+        return new AccountOperationResponse(account, bank, null, amount, withdrawFee, feeAmount,
+            result.accountBalance(account.getId()));
+    }
+
+    public static AccountOperationResponse deposit(String accountNumber, long amount, UUID playerUUID) {
+        if (amount <= 0) {
+            throw new TransferException("La cantidad debe ser mayor a 0");
+        }
+
+        BankAccount account = BankAccount.findByAccountNumber(accountNumber);
+        if (account == null) {
+            throw new TransferException("Cuenta no encontrada");
+        }
+
+        Bank bank = Bank.find(account.getBankId());
+        if (bank == null) {
+            throw new TransferException("Banco no encontrado");
+        }
+
+        // Verificar que el jugador sea el dueño de la cuenta
+        if (!BankAccountOwner.getOwnersByAccount(account.getId()).contains(playerUUID)) {
+            throw new TransferException("No tienes acceso a esta cuenta");
+        }
+
+        // Calcular comisión (usar comisión de cuenta o del banco)
+        double depositFee = account.getDepositFee() != null ?
+            account.getDepositFee() : bank.getDepositFee();
+        long feeAmount = Money.percentage(amount, depositFee);
+        long totalCharged = Money.add(amount, feeAmount);
+
+        User user = User.find(playerUUID);
+        if (user == null) {
+            throw new TransferException("No tienes suficiente dinero para depositar esa cantidad.");
+        }
+        if (user.getMoney() < totalCharged) {
+            throw new TransferException("No tienes suficiente dinero para depositar esa cantidad. Dinero disponible: "
+                + Money.format(user.getMoney()) + " Liras");
+        }
+
+        TransferResult result = new Transfer(playerUUID)
+            .debitWallet(playerUUID, totalCharged)
+            .creditAccount(account.getId(), amount, null)
+            .recordAccount(account.getId(), TransactionTypes.DEPOSIT, totalCharged)
+            .creditBank(bank.getId(), feeAmount, TransactionTypes.DEPOSIT_FEE)
+            .execute();
+
+        return new AccountOperationResponse(account, bank, null, amount, depositFee, feeAmount,
+            result.accountBalance(account.getId()));
+    }
+
+    public static AccountOperationResponse transfer(String fromAccountNumber, String toAccountNumber, long amount, UUID playerUUID) {
+        if (amount <= 0) {
+            throw new TransferException("La cantidad debe ser mayor a 0");
+        }
+
+        BankAccount fromAccount = BankAccount.findByAccountNumber(fromAccountNumber);
+        if (fromAccount == null) {
+            throw new TransferException("Cuenta origen no encontrada");
+        }
+
+        BankAccount toAccount = BankAccount.findByAccountNumber(toAccountNumber);
+        if (toAccount == null) {
+            throw new TransferException("Cuenta destino no encontrada");
+        }
+
+        if (fromAccount.getId().equals(toAccount.getId())) {
+            throw new TransferException("No puedes transferir a la misma cuenta");
+        }
+
+        // Verificar que el jugador tenga acceso a la cuenta origen
+        if (!BankAccountOwner.getOwnersByAccount(fromAccount.getId()).contains(playerUUID)) {
+            throw new TransferException("No tienes acceso a la cuenta origen");
+        }
+
+        Bank fromBank = Bank.find(fromAccount.getBankId());
+        Bank toBank = Bank.find(toAccount.getBankId());
+        if (fromBank == null || toBank == null) {
+            throw new TransferException("Error al encontrar los bancos");
+        }
+
+        // Calcular comisión (usar comisión de cuenta origen o del banco origen)
+        double transferFee = fromAccount.getTransactionsFee() != null ?
+            fromAccount.getTransactionsFee() : fromBank.getTransactionsFee();
+        long feeAmount = Money.percentage(amount, transferFee);
+        long totalDeducted = Money.add(amount, feeAmount);
+
+        if (fromAccount.getBalance() < totalDeducted) {
+            throw new TransferException("Balance insuficiente. Balance actual: " + Money.format(fromAccount.getBalance())
+                + " Liras, cantidad + comisión: " + Money.format(totalDeducted) + " Liras");
+        }
+
+        TransferResult result = new Transfer(playerUUID)
+            .debitAccount(fromAccount.getId(), totalDeducted, TransactionTypes.TRANSFER_WITHDRAWAL)
+            .creditAccount(toAccount.getId(), amount, TransactionTypes.TRANSFER_DEPOSIT)
+            .creditBank(fromBank.getId(), feeAmount, TransactionTypes.TRANSFER_FEE)
+            .execute();
+
+        return new AccountOperationResponse(fromAccount, fromBank, toBank, amount, transferFee, feeAmount,
+            result.accountBalance(fromAccount.getId()));
+    }
+}
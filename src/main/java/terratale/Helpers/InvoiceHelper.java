@@ -1,18 +1,66 @@
 package terratale.Helpers;
 
+import java.sql.Date;
 import java.util.List;
 import java.util.UUID;
 
+import terratale.cache.SessionManager;
+import terratale.economy.StripedLocks;
+import terratale.economy.Transfer;
+import terratale.economy.TransferException;
+import terratale.economy.TransferResult;
 import terratale.models.Bank;
 import terratale.models.BankAccount;
-import terratale.models.BankAccountOwner;
-import terratale.models.BankTransaction;
 import terratale.models.Invoice;
-import terratale.models.Transaction;
-import terratale.plugin.TerratalePlugin;
+import terratale.models.Model;
 import terratale.responses.InvoicePaymentResponse;
 
 public class InvoiceHelper {
+    public static Invoice createInvoice(String receptorAccount, String payerAccount, long amount, int daysUntilDue, String description, UUID playerUUID) {
+        description = description.replace("\"", "");
+        description = description.replace("\'", "");
+
+        // Validar que el monto sea positivo
+        if (amount <= 0) {
+            throw new RuntimeException("El monto debe ser mayor a 0.");
+        }
+
+        // Validar que los días sean positivos
+        if (daysUntilDue <= 0 || daysUntilDue >= 30) {
+            throw new RuntimeException("Los días hasta el vencimiento deben ser mayor a 0 y menor o igual a 30.");
+        }
+
+        // Verificar que las cuentas existan
+        BankAccount receptorAcc = BankAccount.findByAccountNumber(receptorAccount);
+        BankAccount payerAcc = BankAccount.findByAccountNumber(payerAccount);
+
+        if (receptorAcc == null) {
+            throw new RuntimeException("La cuenta receptora no existe.");
+        }
+
+        if (payerAcc == null) {
+            throw new RuntimeException("La cuenta pagadora no existe.");
+        }
+
+        // Verificar que el jugador sea dueño de la cuenta receptora
+        List<Integer> playerAccounts = SessionManager.accountIds(playerUUID);
+        if (!playerAccounts.contains(receptorAcc.getId())) {
+            throw new RuntimeException("No eres dueño de la cuenta receptora.");
+        }
+
+        if (receptorAccount.equals(payerAccount)) {
+            throw new RuntimeException("La cuenta receptora y la cuenta pagadora no pueden ser la misma.");
+        }
+
+        // Calcular fecha de vencimiento
+        long dueTimeMillis = System.currentTimeMillis() + (daysUntilDue * 24L * 60L * 60L * 1000L);
+
+        Invoice invoice = new Invoice(receptorAccount, payerAccount, amount, new Date(dueTimeMillis), description);
+        invoice.save();
+
+        return invoice;
+    }
+
     public static InvoicePaymentResponse payInvoice(int invoiceId, UUID playerUUID) {
         // Obtener las cuentas
         Invoice invoice = Invoice.find(invoiceId);
@@ -26,14 +74,14 @@ public class InvoiceHelper {
 
         BankAccount payerAcc = BankAccount.findByAccountNumber(invoice.getPayerAccountNumber());
         BankAccount receptorAcc = BankAccount.findByAccountNumber(invoice.getReceptorAccountNumber());
-        BankAccount govAccount = BankAccount.findByAccountNumber(TerratalePlugin.get().config().gouvernmentNumberAccount);
+        BankAccount govAccount = BankAccount.findByAccountNumber(Model.config().gouvernmentNumberAccount);
 
         if (payerAcc == null || receptorAcc == null) {
             throw new RuntimeException("Cuenta pagadora o receptora no encontrada.");
         }
 
         // Verificar que el jugador sea dueño de la cuenta pagadora
-        List<Integer> playerAccounts = BankAccountOwner.getAccountsByOwner(playerUUID);
+        List<Integer> playerAccounts = SessionManager.accountIds(playerUUID);
         if (!playerAccounts.contains(payerAcc.getId())) {
             throw new RuntimeException("El jugador no es dueño de la cuenta pagadora.");
         }
@@ -45,81 +93,51 @@ public class InvoiceHelper {
         }
 
         // Calcular comisiones e impuestos
-        int governmentFeePercent = TerratalePlugin.get().config().taxPercentage;
-        double governmentFeeAmount = (invoice.getAmount() * governmentFeePercent) / 100.0;
+        int governmentFeePercent = Model.config().taxPercentage;
+        long governmentFeeAmount = Money.percentage(invoice.getAmount(), governmentFeePercent);
 
         Double bankTransferFeePercent = payerAcc.getTransactionsFee() != null ? 
             payerAcc.getTransactionsFee() : payerBank.getTransactionsFee();
-        double bankTransferFeeAmount = (invoice.getAmount() * bankTransferFeePercent) / 100.0;
+        long bankTransferFeeAmount = Money.fee(invoice.getAmount(), bankTransferFeePercent);
 
         // Total a deducir de la cuenta del pagador
-        double totalDeducted = invoice.getAmount() + bankTransferFeeAmount;
+        long totalDeducted = Money.add(invoice.getAmount(), bankTransferFeeAmount);
 
         // Verificar que haya suficiente saldo en la cuenta del pagador
         if (payerAcc.getBalance() < totalDeducted) {
             throw new RuntimeException("Saldo insuficiente en la cuenta pagadora.");
         }
 
-        // Realizar la transferencia
-        payerAcc.setBalance(payerAcc.getBalance() - totalDeducted);
-        receptorAcc.setBalance(receptorAcc.getBalance() + (invoice.getAmount() - governmentFeeAmount));
-        
-        if (govAccount != null) {
-            govAccount.setBalance(govAccount.getBalance() + governmentFeeAmount);
-            govAccount.save();
-        }
-        
-        // Agregar comisión al banco
-        payerBank.setBalance(payerBank.getBalance() + bankTransferFeeAmount);
-        
-        payerAcc.save();
-        receptorAcc.save();
-        payerBank.save();
-
-        // Registrar transacciones
-        Transaction payerTransaction = new Transaction(
-            payerAcc.getId(),
-            TransactionTypes.INVOICE_WITHDRAWAL,
-            totalDeducted,
-            playerUUID.toString()
-        );
-        payerTransaction.save();
+        // Realizar la transferencia: cargo, abonos, comisiones y estado de la factura en una sola operación
+        long receptorAmount = Money.subtract(invoice.getAmount(), governmentFeeAmount);
+        String paidBy = playerUUID.toString();
 
-        Transaction receptorTransaction = new Transaction(
-            receptorAcc.getId(),
-            TransactionTypes.INVOICE_DEPOSIT,
-            invoice.getAmount() - governmentFeeAmount,
-            playerUUID.toString()
-        );
-        receptorTransaction.save();
+        Transfer transfer = new Transfer(playerUUID)
+            .lock(StripedLocks.invoiceKey(invoice.getId()))
+            .debitAccount(payerAcc.getId(), totalDeducted, TransactionTypes.INVOICE_WITHDRAWAL)
+            .creditAccount(receptorAcc.getId(), receptorAmount, TransactionTypes.INVOICE_DEPOSIT)
+            .creditBank(payerBank.getId(), bankTransferFeeAmount, TransactionTypes.TRANSFER_FEE);
 
         if (govAccount != null) {
-            Transaction govTransaction = new Transaction(
-                govAccount.getId(),
-                TransactionTypes.GOVERNMENT_FEE,
-                governmentFeeAmount,
-                playerUUID.toString()
-            );
-            govTransaction.save();
-        }
-
-        BankTransaction bankTransaction = new BankTransaction(
-            payerBank.getId(),
-            TransactionTypes.TRANSFER_FEE,
-            bankTransferFeeAmount,
-            playerUUID.toString()
-        );
-        bankTransaction.save();
+            transfer.creditAccount(govAccount.getId(), governmentFeeAmount, TransactionTypes.GOVERNMENT_FEE);
+        }
+
+        transfer.andThen(conn -> {
+            if (!invoice.markAsPaid(conn, paidBy)) {
+                throw new TransferException("Esta factura ya fue procesada.");
+            }
+            return null;
+        });
 
-        // Marcar la factura como pagada
-        invoice.markAsPaid(playerUUID.toString());
+        TransferResult result = transfer.execute();
+        SessionManager.invalidateInvoices();
 
         InvoicePaymentResponse response = new InvoicePaymentResponse(
             invoice,
             totalDeducted,
             bankTransferFeeAmount,
             governmentFeeAmount,
-            payerAcc.getBalance()
+            result.accountBalance(payerAcc.getId())
         );
         
         return response;
@@ -146,7 +164,7 @@ public class InvoiceHelper {
         }
 
         // Verificar que el jugador sea dueño de la cuenta pagadora
-        List<Integer> playerAccounts = BankAccountOwner.getAccountsByOwner(playerUUID);
+        List<Integer> playerAccounts = SessionManager.accountIds(playerUUID);
         if (!playerAccounts.contains(payerAcc.getId())) {
             throw new RuntimeException("El jugador no es dueño de la cuenta pagadora.");
         }
@@ -0,0 +1,139 @@
+package terratale.Helpers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importes de dinero como {@code long} en unidades mínimas (céntimos, 2 decimales).
+ *
+ * Toda la aritmética es sobre primitivos y lanza ArithmeticException si se desborda, en lugar de perder
+ * precisión. Los porcentajes (comisiones, impuestos) se pasan a puntos básicos y se redondean de forma
+ * explícita con {@link #FEE_ROUNDING}.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final long ONE = 100L;
+    public static final long ZERO = 0L;
+
+    // Redondeo de comisiones e impuestos: la mitad hacia arriba, igual para todo el ledger
+    public static final RoundingMode FEE_ROUNDING = RoundingMode.HALF_UP;
+
+    private Money() {
+    }
+
+    /* ---------------------- Aritmética ---------------------- */
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long multiply(long amount, long times) {
+        return Math.multiplyExact(amount, times);
+    }
+
+    /**
+     * {@code percent}% de {@code amount}. El porcentaje se toma con 2 decimales (puntos básicos),
+     * así 2.5% y 10% dan siempre el mismo resultado independientemente de cómo se guardó el double.
+     */
+    public static long percentage(long amount, double percent, RoundingMode rounding) {
+        long basisPoints = Math.round(percent * 100.0);
+        return divide(Math.multiplyExact(amount, basisPoints), 10_000L, rounding);
+    }
+
+    public static long percentage(long amount, double percent) {
+        return percentage(amount, percent, FEE_ROUNDING);
+    }
+
+    public static long percentage(long amount, int percent) {
+        return divide(Math.multiplyExact(amount, (long) percent), 100L, FEE_ROUNDING);
+    }
+
+    // Comisión de un porcentaje nullable (comisión de cuenta sin definir = 0)
+    public static long fee(long amount, Double percent) {
+        if (percent == null || percent == 0.0) {
+            return 0L;
+        }
+        return percentage(amount, percent, FEE_ROUNDING);
+    }
+
+    // División entera con el redondeo indicado, sin pasar por BigDecimal
+    public static long divide(long dividend, long divisor, RoundingMode rounding) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        int signum = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        long twiceRemainder = Math.abs(remainder) * 2;
+        long absDivisor = Math.abs(divisor);
+        boolean awayFromZero = switch (rounding) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> signum > 0;
+            case FLOOR -> signum < 0;
+            case HALF_UP -> twiceRemainder >= absDivisor;
+            case HALF_DOWN -> twiceRemainder > absDivisor;
+            case HALF_EVEN -> twiceRemainder > absDivisor || (twiceRemainder == absDivisor && (quotient & 1) != 0);
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+        return awayFromZero ? quotient + signum : quotient;
+    }
+
+    /* ---------------------- Conversiones ---------------------- */
+
+    // "12", "12.5", "12.50" -> 1250. Más de 2 decimales o valores fuera de rango lanzan NumberFormatException.
+    public static long parse(String text) {
+        if (text == null) {
+            throw new NumberFormatException("Amount is null");
+        }
+        try {
+            return new BigDecimal(text.trim()).setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+    }
+
+    public static long fromDouble(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new ArithmeticException("Invalid amount: " + value);
+        }
+        double scaled = value * ONE;
+        if (Math.abs(scaled) >= Long.MAX_VALUE) {
+            throw new ArithmeticException("Amount out of range: " + value);
+        }
+        return Math.round(scaled);
+    }
+
+    public static long fromBigDecimal(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static double toDouble(long minor) {
+        return minor / (double) ONE;
+    }
+
+    // 1250 -> "12.50", -5 -> "-0.05"
+    public static String format(long minor) {
+        StringBuilder sb = new StringBuilder(24);
+        if (minor < 0) {
+            sb.append('-');
+        }
+        long major = Math.abs(minor / ONE);
+        long cents = Math.abs(minor % ONE);
+        sb.append(major).append('.');
+        if (cents < 10) {
+            sb.append('0');
+        }
+        return sb.append(cents).toString();
+    }
+}
@@ -11,4 +11,83 @@ public class PluginConfig {
     public String sqlDatabaseName = "terratale";
     public String sqlUsername = "root";
     public String sqlPassword = "";
-}
\ No newline at end of file
+
+    // Pool de conexiones
+    public int sqlPoolMaxSize = 10;
+    public int sqlitePoolMaxSize = 4;
+    public int poolMinIdle = 2;
+    public long poolBorrowTimeoutMs = 5000;
+    public long poolIdleTimeoutMs = 600000;
+    public long poolValidationIntervalMs = 30000;
+    public long poolLeakDetectionMs = 60000;
+    public boolean poolLeakStackTraces = false; // pila de cada préstamo en el aviso de fuga; solo para depurar
+    public int statementCacheSize = 64; // por conexión; 0 la desactiva
+
+    // Modo rendimiento de SQLite (sin efecto con MySQL)
+    public boolean sqliteWalEnabled = true;
+    public String sqliteSynchronous = "NORMAL"; // OFF, NORMAL, FULL o EXTRA
+    public int sqliteCacheSizeKb = 16384;
+    public long sqliteMmapSizeBytes = 268435456L;
+    public int sqliteBusyTimeoutMs = 5000;
+    public boolean sqliteWriterEnabled = true; // un hilo hace todas las transacciones y agrupa los commits
+    public int sqliteWriterMaxBatch = 256;
+
+    // Caché de monederos (dinero en mano)
+    public long walletFlushIntervalMs = 2000;
+    public long walletIdleEvictMs = 600000;
+    public int walletFlushBatchSize = 500;
+
+    // Agregado de dinero total en circulación
+    public long moneySupplyReconcileIntervalMs = 900000;
+    public long moneySupplyPersistIntervalMs = 30000;
+
+    // Caché de lectura de bancos y cuentas
+    public boolean entityCacheEnabled = true;
+    public int entityCacheMaxEntries = 10000; // por tipo de entidad
+    public long entityCacheTtlMs = 60000;
+
+    // Motor de transferencias
+    public int transferLockStripes = 256;
+    public long transferLockTimeoutMs = 5000;
+
+    // Instantáneas de saldos para consultas a una fecha
+    public boolean balanceSnapshotsEnabled = true;
+    public long balanceSnapshotIntervalMs = 3600000;
+
+    // Auditoría de conservación del dinero (incremental cada intervalo, completa cada moneyAuditFullEvery)
+    public boolean moneyAuditEnabled = true;
+    public long moneyAuditIntervalMs = 3600000;
+    public int moneyAuditFullEvery = 24;
+    public int moneyAuditThreads = 4;
+    public int moneyAuditChunkSize = 10000; // filas por trozo
+
+    // Métricas (/terratale stats) y su volcado periódico a metrics.log en la carpeta de datos
+    public boolean metricsEnabled = true; // false: no se escribe el fichero ni se miden las sentencias SQL (salvo para el registro de lentas)
+    public long metricsDumpIntervalMs = 300000; // 0 lo desactiva
+    public int metricsFileMaxKb = 1024; // al pasar de este tamaño rota a metrics.1.log...
+    public int metricsFileCount = 5;
+
+    // Registro de consultas lentas (slow-queries.log en la carpeta de datos)
+    public boolean slowQueryLogEnabled = true;
+    public long slowQueryThresholdMs = 100;
+    public long slowQuerySampleIntervalMs = 60000; // como mucho una entrada por consulta en este intervalo
+    public boolean slowQueryRedactUuids = true;
+    public boolean slowQueryRedactAmounts = true;
+    public boolean slowQueryExplain = true; // añade el plan de IndexAdvisor a cada entrada
+    public int slowQueryFileMaxKb = 1024;
+    public int slowQueryFileCount = 5;
+
+    // Ejecución de comandos en hilos virtuales (tantos a la vez en la base de datos como conexiones del pool)
+    public long commandQueueTimeoutMs = 5000; // espera máxima por una conexión antes de rechazar el comando
+    public long commandTimeoutMs = 10000; // después se avisa al jugador y el comando sigue en segundo plano
+
+    // Borrado de bancos en segundo plano (filas o cuentas por transacción)
+    public int bankDeletionChunkSize = 1000;
+
+    // Pagos programados automáticos
+    public boolean scheduledPaymentsEnabled = true;
+    public long scheduleTickMs = 60000;
+    public int scheduleWorkers = 2;
+    public int scheduleBatchSize = 100;
+    public int scheduleCatchUpDays = 31; // cuántos días atrás se recuperan tras un apagado
+}
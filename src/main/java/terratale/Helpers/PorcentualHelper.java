@@ -1,18 +1,27 @@
 package terratale.Helpers;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
+import terratale.cache.MoneySupply;
 import terratale.models.BankAccount;
 import terratale.models.User;
 
 public abstract class PorcentualHelper {
-    public static Double calculatePorcentual(BigDecimal porcentualPoints) {
-        Double total = getAllMoneyBank();
+    // Porcentaje del dinero total en circulación, redondeado hacia abajo a unidades enteras (en céntimos)
+    public static long calculatePorcentual(BigDecimal porcentualPoints) {
+        long total = getAllMoneyBank();
 
-        return Math.floor(porcentualPoints.multiply(BigDecimal.valueOf(total)).doubleValue());
+        BigDecimal whole = porcentualPoints.multiply(Money.toBigDecimal(total)).setScale(0, RoundingMode.FLOOR);
+        return Money.fromBigDecimal(whole);
     } 
 
-    public static Double getAllMoneyBank () {
-        return User.getAllMoney() + BankAccount.getAllAccountsMoney();
+    // Dinero total en circulación: del agregado incremental si está arrancado, si no con un SUM completo
+    public static long getAllMoneyBank () {
+        MoneySupply supply = MoneySupply.get();
+        if (supply != null) {
+            return supply.getTotal();
+        }
+        return Money.add(User.getAllMoney(), BankAccount.getAllAccountsMoney());
     }
 }
@@ -0,0 +1,65 @@
+package terratale.Helpers;
+
+import java.util.List;
+import java.util.UUID;
+
+import terratale.cache.SessionManager;
+import terratale.models.BankAccount;
+import terratale.models.SchedulePayment;
+import terratale.scheduler.PaymentScheduler;
+
+public class SchedulePaymentHelper {
+    public static SchedulePayment createSchedulePayment(String receptorAccount, String payerAccount, long amount, int dayOfMonth, int daysUntilDue, String description, UUID playerUUID) {
+        description = description.replace("\"", "");
+        description = description.replace("\'", "");
+
+        // Validar que el monto sea positivo
+        if (amount <= 0) {
+            throw new RuntimeException("El monto debe ser mayor a 0.");
+        }
+
+        // Validar día del mes
+        if (dayOfMonth < 1 || dayOfMonth > 28) {
+            throw new RuntimeException("El día del mes debe estar entre 1 y 28.");
+        }
+
+        // Validar días hasta vencimiento
+        if (daysUntilDue <= 0 || daysUntilDue > 30) {
+            throw new RuntimeException("Los días hasta el vencimiento deben estar entre 1 y 30.");
+        }
+
+        // Verificar que las cuentas existan
+        BankAccount receptorAcc = BankAccount.findByAccountNumber(receptorAccount);
+        if (receptorAcc == null) {
+            throw new RuntimeException("La cuenta receptora no existe.");
+        }
+
+        BankAccount payerAcc = BankAccount.findByAccountNumber(payerAccount);
+        if (payerAcc == null) {
+            throw new RuntimeException("La cuenta pagadora no existe.");
+        }
+
+        // Verificar si la cuenta que recibe pertenece al jugador
+        List<Integer> userAccountsIds = SessionManager.accountIds(playerUUID);
+        if (!userAccountsIds.contains(receptorAcc.getId())) {
+            throw new RuntimeException("No estas autorizado a utilizar la cuenta " + receptorAccount + ".");
+        }
+
+        SchedulePayment schedulePayment = new SchedulePayment(
+            receptorAccount,
+            payerAccount,
+            description,
+            daysUntilDue,
+            amount,
+            dayOfMonth
+        );
+        schedulePayment.save();
+
+        PaymentScheduler scheduler = PaymentScheduler.get();
+        if (scheduler != null) {
+            scheduler.onScheduleSaved(schedulePayment);
+        }
+
+        return schedulePayment;
+    }
+}
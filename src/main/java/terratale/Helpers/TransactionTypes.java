@@ -15,4 +15,7 @@ public class TransactionTypes {
     public static final String BANK_CREATION_FEE = "BANK_CREATION_FEE";
     public static final String GOVERNMENT_DISTRIBUTION = "GOVERNMENT_DISTRIBUTION";
     public static final String BANK_DELETION = "BANK_DELETION";
+    public static final String ACCOUNT_DELETION = "ACCOUNT_DELETION";
+    public static final String WALLET_ADJUSTMENT = "WALLET_ADJUSTMENT";
+    public static final String USER_DELETION = "USER_DELETION";
 }
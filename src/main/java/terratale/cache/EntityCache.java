@@ -0,0 +1,226 @@
+package terratale.cache;
+
+import terratale.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché de lectura para entidades que se leen mucho y cambian poco (Bank, BankAccount).
+ *
+ * Se indexa por id y por una clave secundaria (nombre del banco, número de cuenta). Es acotada: expulsa la
+ * entrada usada hace más tiempo al pasar de {@code maxEntries} y descarta las que superan {@code ttlMs}.
+ * Se guarda y se devuelve siempre una copia, así que los llamadores pueden modificar el objeto sin tocar la
+ * caché. Los modelos invalidan la entrada en save()/delete() y TransferEngine tras mover saldos.
+ *
+ * Las lecturas de la base de datos se hacen fuera del lock; si mientras tanto hubo una invalidación, el
+ * resultado no se guarda (podría ser anterior al cambio).
+ */
+public class EntityCache<V> {
+
+    private static final List<EntityCache<?>> CACHES = new CopyOnWriteArrayList<>();
+
+    private static volatile boolean enabled = true;
+    private static volatile int maxEntries = 10000;
+    private static volatile long ttlMs = 60000;
+
+    private static final class Entry<V> {
+        final V value;
+        final String key;
+        final long loadedAt;
+
+        Entry(V value, String key, long loadedAt) {
+            this.value = value;
+            this.key = key;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final String name;
+    private final ToIntFunction<V> idOf;
+    private final Function<V, String> keyOf;
+    private final UnaryOperator<V> copier;
+
+    private final LinkedHashMap<Integer, Entry<V>> byId = new LinkedHashMap<>(16, 0.75f, true); // orden de acceso
+    private final Map<String, Integer> idByKey = new HashMap<>();
+    private long generation = 0; // aumenta en cada invalidación
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public EntityCache(String name, ToIntFunction<V> idOf, Function<V, String> keyOf, UnaryOperator<V> copier) {
+        this.name = name;
+        this.idOf = idOf;
+        this.keyOf = keyOf;
+        this.copier = copier;
+        CACHES.add(this);
+        Metrics.gauge("cache." + name + ".hits", this::getHits);
+        Metrics.gauge("cache." + name + ".misses", this::getMisses);
+        Metrics.gauge("cache." + name + ".size", this::getSize);
+    }
+
+    public static void configure(boolean enabled, int maxEntries, long ttlMs) {
+        EntityCache.enabled = enabled;
+        EntityCache.maxEntries = Math.max(1, maxEntries);
+        EntityCache.ttlMs = Math.max(0, ttlMs);
+        for (EntityCache<?> cache : CACHES) {
+            cache.invalidateAll();
+        }
+    }
+
+    // Tras cambiar saldos con sentencias masivas (reconstrucción del diario)
+    public static void invalidateAllCaches() {
+        for (EntityCache<?> cache : CACHES) {
+            cache.invalidateAll();
+        }
+    }
+
+    public V getById(int id, IntFunction<V> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> entry = fresh(id);
+            if (entry != null) {
+                hits++;
+                return copier.apply(entry.value);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        return store(loader.apply(id), loadGeneration);
+    }
+
+    public V getByKey(String key, Function<String, V> loader) {
+        if (!enabled || key == null) {
+            return loader.apply(key);
+        }
+
+        long loadGeneration;
+        synchronized (this) {
+            Integer id = idByKey.get(key);
+            Entry<V> entry = id != null ? fresh(id) : null;
+            if (entry != null) {
+                hits++;
+                return copier.apply(entry.value);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        return store(loader.apply(key), loadGeneration);
+    }
+
+    public synchronized void invalidate(int id) {
+        generation++;
+        Entry<V> removed = byId.remove(id);
+        if (removed != null) {
+            invalidations++;
+            removeKey(removed, id);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations += byId.size();
+        byId.clear();
+        idByKey.clear();
+    }
+
+    // Entrada vigente o null; la caducada se elimina
+    private Entry<V> fresh(int id) {
+        Entry<V> entry = byId.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt > ttlMs) {
+            byId.remove(id);
+            removeKey(entry, id);
+            expirations++;
+            return null;
+        }
+        return entry;
+    }
+
+    private V store(V loaded, long loadGeneration) {
+        if (loaded == null) {
+            return null; // no se guardan las búsquedas sin resultado
+        }
+
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                int id = idOf.applyAsInt(loaded);
+                String key = keyOf.apply(loaded);
+                Entry<V> previous = byId.put(id, new Entry<>(copier.apply(loaded), key, System.currentTimeMillis()));
+                if (previous != null) {
+                    removeKey(previous, id);
+                }
+                if (key != null) {
+                    idByKey.put(key, id);
+                }
+                evictOverflow();
+            }
+        }
+        return loaded;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Integer, Entry<V>>> iterator = byId.entrySet().iterator();
+        while (byId.size() > maxEntries && iterator.hasNext()) {
+            Map.Entry<Integer, Entry<V>> eldest = iterator.next();
+            iterator.remove();
+            removeKey(eldest.getValue(), eldest.getKey());
+            evictions++;
+        }
+    }
+
+    private void removeKey(Entry<V> entry, int id) {
+        if (entry.key != null) {
+            idByKey.remove(entry.key, id);
+        }
+    }
+
+    /* ---------------------- Métricas ---------------------- */
+
+    private synchronized long getHits() {
+        return hits;
+    }
+
+    private synchronized long getMisses() {
+        return misses;
+    }
+
+    private synchronized long getSize() {
+        return byId.size();
+    }
+
+    private synchronized String describeLine() {
+        long total = hits + misses;
+        return "  " + name + ": " + byId.size() + " entradas, aciertos " + hits + "/" + total
+            + " (" + String.format("%.1f%%", total == 0 ? 0.0 : hits * 100.0 / total) + "), expulsadas " + evictions
+            + ", caducadas " + expirations + ", invalidadas " + invalidations;
+    }
+
+    public static List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Caché de entidades: " + (enabled ? "activa" : "desactivada") + " (máx. " + maxEntries
+            + " por tipo, TTL " + ttlMs + "ms)");
+        for (EntityCache<?> cache : CACHES) {
+            lines.add(cache.describeLine());
+        }
+        return lines;
+    }
+}
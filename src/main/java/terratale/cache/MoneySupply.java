@@ -0,0 +1,218 @@
+package terratale.cache;
+
+import terratale.Helpers.Money;
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Total de dinero en circulación (users.money + bank_accounts.balance), mantenido de forma incremental.
+ *
+ * Cada mutación de saldo llama a {@link #adjust(long)} con su diferencia, así que leer el total es O(1)
+ * en vez de dos SUM sobre tablas enteras. Periódicamente se recalcula con un SUM completo para corregir
+ * posibles desviaciones, y el valor se guarda en la tabla economy_aggregates para no tener que escanear
+ * al arrancar.
+ *
+ * Quien cambia un saldo lo hace dentro de {@link #change()}, desde la escritura hasta el adjust(). Así
+ * reconcile puede fijar su instantánea en un momento sin cambios a medias y comparar los SUM con el total
+ * de ese momento; lo ajustado después ya no está en la instantánea y se conserva.
+ */
+public class MoneySupply {
+
+    private static final String AGGREGATE_NAME = "money_supply";
+
+    private static MoneySupply instance;
+
+    // Compartido: cambios de saldo en curso. Exclusivo: reconcile fijando su instantánea.
+    private static final ReentrantReadWriteLock GATE = new ReentrantReadWriteLock();
+    private static final Section SECTION = new Section();
+
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong lastPersisted = new AtomicLong(Long.MIN_VALUE);
+    private final ScheduledExecutorService scheduler;
+    private volatile long lastReconcileAt = 0;
+    private volatile long lastDrift = 0;
+
+    private MoneySupply(long reconcileIntervalMs, long persistIntervalMs) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TerraEconomy-money-supply");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Long stored = readPersisted();
+        if (stored != null) {
+            total.set(stored);
+            lastPersisted.set(stored);
+            // El valor guardado puede estar desfasado si el servidor no se apagó bien
+            scheduler.execute(this::reconcile);
+        } else {
+            reconcile();
+        }
+
+        long reconcileEvery = Math.max(60000L, reconcileIntervalMs);
+        long persistEvery = Math.max(1000L, persistIntervalMs);
+        scheduler.scheduleWithFixedDelay(this::reconcile, reconcileEvery, reconcileEvery, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::persistIfChanged, persistEvery, persistEvery, TimeUnit.MILLISECONDS);
+    }
+
+    public static void start(long reconcileIntervalMs, long persistIntervalMs) {
+        stop();
+        instance = new MoneySupply(reconcileIntervalMs, persistIntervalMs);
+    }
+
+    public static MoneySupply get() {
+        return instance;
+    }
+
+    public static void stop() {
+        if (instance != null) {
+            instance.scheduler.shutdownNow();
+            instance.persistIfChanged();
+            instance = null;
+        }
+    }
+
+    // Tramo de un cambio de saldo, de la escritura al adjust(). Se toma después de los locks de TransferEngine
+    // y antes de los de los monederos, como hace TransferEngine.
+    public static final class Section implements AutoCloseable {
+        private Section() {
+        }
+
+        @Override
+        public void close() {
+            GATE.readLock().unlock();
+        }
+    }
+
+    public static Section change() {
+        GATE.readLock().lock();
+        return SECTION;
+    }
+
+    // Registrar un cambio de saldo; no hace nada si el agregado no está arrancado
+    public static void adjust(long delta) {
+        MoneySupply supply = instance;
+        if (supply != null && delta != 0) {
+            supply.total.addAndGet(delta);
+        }
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    public long getLastDrift() {
+        return lastDrift;
+    }
+
+    public long getLastReconcileAt() {
+        return lastReconcileAt;
+    }
+
+    // Recalcula el total con un SUM completo y corrige la desviación acumulada
+    public synchronized void reconcile() {
+        try {
+            // [0] dinero en la instantánea, [1] total registrado en ese mismo momento
+            long[] snapshot = Model.inReadTransaction(conn -> {
+                long atSnapshot;
+                long unflushed;
+                GATE.writeLock().lock();
+                try {
+                    // Con ningún cambio a medias: la primera lectura fija la instantánea de la transacción
+                    try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM economy_aggregates")) {
+                        pstmt.executeQuery().close();
+                    }
+                    atSnapshot = total.get();
+                    WalletCache wallets = WalletCache.get();
+                    unflushed = wallets != null ? wallets.getUnflushedTotal() : 0L;
+                } finally {
+                    GATE.writeLock().unlock();
+                }
+
+                long scanned = Money.add(sum(conn, "SELECT COALESCE(SUM(money), 0) FROM users"),
+                    sum(conn, "SELECT COALESCE(SUM(balance), 0) FROM bank_accounts"));
+                return new long[] { Money.add(scanned, unflushed), atSnapshot };
+            });
+            long drift = snapshot[0] - snapshot[1];
+
+            // Los adjust() posteriores a la instantánea no están en los SUM: se corrige solo la diferencia
+            total.addAndGet(drift);
+            lastDrift = drift;
+            lastReconcileAt = System.currentTimeMillis();
+
+            if (drift != 0) {
+                Model.logInfo("Money supply reconciled: drift of " + Money.format(drift) + " corrected (total "
+                    + Money.format(total.get()) + ")");
+            }
+            persistIfChanged();
+        } catch (Exception e) {
+            Model.logError("Failed to reconcile money supply: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static long sum(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    private void persistIfChanged() {
+        long value = total.get();
+        if (lastPersisted.get() == value) {
+            return;
+        }
+
+        String sql;
+        if (Model.isMySQL) {
+            sql = """
+                INSERT INTO economy_aggregates (name, value, updated_at) VALUES (?, ?, ?)
+                ON DUPLICATE KEY UPDATE value = VALUES(value), updated_at = VALUES(updated_at)
+            """;
+        } else {
+            sql = """
+                INSERT INTO economy_aggregates (name, value, updated_at) VALUES (?, ?, ?)
+                ON CONFLICT(name) DO UPDATE SET value = excluded.value, updated_at = excluded.updated_at
+            """;
+        }
+
+        try {
+            Model.write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, AGGREGATE_NAME);
+                    pstmt.setLong(2, value);
+                    pstmt.setLong(3, System.currentTimeMillis());
+                    return pstmt.executeUpdate();
+                }
+            });
+            lastPersisted.set(value);
+        } catch (SQLException e) {
+            Model.logError("Failed to persist money supply: " + e.getMessage());
+        }
+    }
+
+    private static Long readPersisted() {
+        String sql = "SELECT value FROM economy_aggregates WHERE name = ?";
+
+        try (Connection conn = Model.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, AGGREGATE_NAME);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong("value");
+            }
+        } catch (SQLException e) {
+            Model.logError("Failed to read money supply: " + e.getMessage());
+        }
+        return null;
+    }
+}
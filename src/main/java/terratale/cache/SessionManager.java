@@ -0,0 +1,232 @@
+package terratale.cache;
+
+import terratale.models.BankAccount;
+import terratale.models.BankAccountOwner;
+import terratale.models.Invoice;
+import terratale.models.Model;
+import terratale.models.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Datos de los jugadores conectados: su User, las cuentas de las que son dueños y sus facturas pendientes.
+ *
+ * Se cargan una vez al conectarse (en un hilo aparte, no en el evento) y se descartan al desconectarse;
+ * last_login y el nombre se escriben solo en esa carga. Los comandos leen de aquí en vez de llamar a
+ * User.findOrCreate y BankAccountOwner.getAccountsByOwner en cada uso. El dinero en mano se toma siempre
+ * de WalletCache, que es quien lo tiene al día.
+ *
+ * BankAccountOwner e Invoice invalidan las listas al cambiar; la siguiente lectura las vuelve a cargar.
+ * Una lectura que empezó antes de una invalidación no se guarda, como en EntityCache.
+ */
+public class SessionManager {
+
+    private static SessionManager instance;
+
+    // Aumentan en cada invalidación; un valor cargado con una generación anterior no se guarda
+    private static final AtomicLong accountsGeneration = new AtomicLong();
+    private static final AtomicLong invoicesGeneration = new AtomicLong();
+
+    private static final class Session {
+        volatile User user;
+        volatile List<Integer> accountIds; // null = hay que recargar
+        volatile long accountsLoadedAt = -1;
+        volatile List<Invoice> pendingInvoices;
+        volatile long invoicesLoadedAt = -1;
+    }
+
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+    private final ExecutorService loader;
+
+    private SessionManager() {
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "TerraEconomy-sessions");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void start() {
+        stop();
+        instance = new SessionManager();
+    }
+
+    public static SessionManager get() {
+        return instance;
+    }
+
+    public static void stop() {
+        if (instance != null) {
+            instance.loader.shutdownNow();
+            instance.sessions.clear();
+            instance = null;
+        }
+    }
+
+    /* ---------------------- Ciclo de vida del jugador ---------------------- */
+
+    public void onPlayerJoin(UUID uuid, String username) {
+        online.add(uuid);
+        loader.execute(() -> {
+            try {
+                Session session = open(uuid, username);
+                accountIds(session, uuid);
+                pendingInvoices(session, uuid);
+            } catch (RuntimeException e) {
+                Model.logError("Failed to preload session for " + uuid + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    }
+
+    public void onPlayerLeave(UUID uuid) {
+        online.remove(uuid);
+        sessions.remove(uuid);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    // La sesión del jugador; si aún no existe (comando antes de terminar la precarga) se crea ya
+    private Session open(UUID uuid, String username) {
+        Session session = sessions.get(uuid);
+        if (session != null) {
+            return session;
+        }
+
+        User user = User.findOrCreate(uuid, username);
+        if (user == null) {
+            return null;
+        }
+        Session created = new Session();
+        created.user = user;
+        Session existing = sessions.putIfAbsent(uuid, created);
+        if (existing != null) {
+            return existing;
+        }
+        // Una precarga que termina después de onPlayerLeave dejaría la sesión para siempre: se usa y se descarta
+        if (!online.contains(uuid)) {
+            sessions.remove(uuid, created);
+        }
+        return created;
+    }
+
+    /* ---------------------- Lecturas ---------------------- */
+
+    /**
+     * User del jugador, con el dinero en mano actual. Sin SessionManager arrancado equivale a
+     * User.findOrCreate. Puede devolver null si no existe la cuenta del gobierno.
+     */
+    public static User user(UUID uuid, String username) {
+        SessionManager manager = instance;
+        if (manager == null) {
+            return User.findOrCreate(uuid, username);
+        }
+
+        Session session = manager.open(uuid, username);
+        if (session == null) {
+            return null;
+        }
+        WalletCache wallets = WalletCache.get();
+        Long money = wallets != null ? wallets.getBalance(uuid) : null;
+        if (money != null) {
+            session.user.setMoney(money);
+        } else {
+            User fresh = User.find(uuid);
+            if (fresh != null) {
+                session.user = fresh;
+            }
+        }
+        return session.user;
+    }
+
+    // Ids de las cuentas de las que el jugador es dueño
+    public static List<Integer> accountIds(UUID uuid) {
+        SessionManager manager = instance;
+        Session session = manager != null ? manager.sessions.get(uuid) : null;
+        if (session == null) {
+            return BankAccountOwner.getAccountsByOwner(uuid);
+        }
+        return accountIds(session, uuid);
+    }
+
+    public static List<BankAccount> accounts(UUID uuid) {
+        List<BankAccount> accounts = new ArrayList<>();
+        for (int accountId : accountIds(uuid)) {
+            BankAccount account = BankAccount.find(accountId); // pasa por EntityCache
+            if (account != null) {
+                accounts.add(account);
+            }
+        }
+        return accounts;
+    }
+
+    // Facturas pendientes en las que paga o cobra alguna cuenta del jugador
+    public static List<Invoice> pendingInvoices(UUID uuid) {
+        SessionManager manager = instance;
+        Session session = manager != null ? manager.sessions.get(uuid) : null;
+        if (session == null) {
+            return loadPendingInvoices(uuid);
+        }
+        return pendingInvoices(session, uuid);
+    }
+
+    private static List<Integer> accountIds(Session session, UUID uuid) {
+        List<Integer> ids = session.accountIds;
+        if (ids != null && session.accountsLoadedAt == accountsGeneration.get()) {
+            return ids;
+        }
+        long generation = accountsGeneration.get();
+        ids = Collections.unmodifiableList(BankAccountOwner.getAccountsByOwner(uuid));
+        if (generation == accountsGeneration.get()) {
+            session.accountIds = ids;
+            session.accountsLoadedAt = generation;
+        }
+        return ids;
+    }
+
+    private static List<Invoice> pendingInvoices(Session session, UUID uuid) {
+        List<Invoice> invoices = session.pendingInvoices;
+        if (invoices != null && session.invoicesLoadedAt == invoicesGeneration.get()) {
+            return invoices;
+        }
+        long generation = invoicesGeneration.get();
+        invoices = Collections.unmodifiableList(loadPendingInvoices(uuid));
+        if (generation == invoicesGeneration.get()) {
+            session.pendingInvoices = invoices;
+            session.invoicesLoadedAt = generation;
+        }
+        return invoices;
+    }
+
+    private static List<Invoice> loadPendingInvoices(UUID uuid) {
+        List<String> accountNumbers = new ArrayList<>();
+        for (BankAccount account : accounts(uuid)) {
+            accountNumbers.add(account.getAccountNumber());
+        }
+        return Invoice.findPendingByAccounts(accountNumbers);
+    }
+
+    /* ---------------------- Invalidación ---------------------- */
+
+    // Cambió algún dueño de cuenta; no siempre se sabe de quién (deleteByAccount), así que se recargan todas
+    public static void invalidateAccounts() {
+        accountsGeneration.incrementAndGet();
+        invoicesGeneration.incrementAndGet(); // dependen de las cuentas
+    }
+
+    public static void invalidateInvoices() {
+        invoicesGeneration.incrementAndGet();
+    }
+}
@@ -0,0 +1,509 @@
+package terratale.cache;
+
+import terratale.Helpers.Money;
+import terratale.Helpers.TransactionTypes;
+import terratale.economy.Ledger;
+import terratale.metrics.Metrics;
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché en memoria del dinero en mano de los jugadores (columna users.money).
+ *
+ * Mientras un monedero está cargado, el valor en memoria es el autoritativo: las operaciones se aplican
+ * de forma atómica por jugador y se acumulan como variación pendiente. Un hilo de fondo agrupa los cambios y
+ * los escribe con UPDATE users SET money = money + ? en lotes cada {@code flushIntervalMs}, y al apagar el
+ * plugin; al ser relativos no pisan lo que otras operaciones hayan escrito en la fila entretanto. Cada lote
+ * se apunta en el {@link Ledger} en la misma transacción: un asiento con un apunte por monedero, contra la emisión.
+ */
+public class WalletCache {
+
+    private static WalletCache instance;
+
+    private final Map<UUID, Wallet> wallets = new ConcurrentHashMap<>();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher;
+    private final long idleEvictMs;
+    private final int batchSize;
+    private final Object flushLock = new Object();
+
+    private WalletCache(long flushIntervalMs, long idleEvictMs, int batchSize) {
+        this.idleEvictMs = idleEvictMs;
+        this.batchSize = Math.max(1, batchSize);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TerraEconomy-wallet-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(100L, flushIntervalMs);
+        flusher.scheduleWithFixedDelay(this::flushAndEvict, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static void start(long flushIntervalMs, long idleEvictMs, int batchSize) {
+        if (instance != null) {
+            instance.shutdown();
+        }
+        instance = new WalletCache(flushIntervalMs, idleEvictMs, batchSize);
+        Metrics.gauge("wallet.loaded", () -> instance != null ? instance.getLoadedCount() : 0);
+        Metrics.gauge("wallet.dirty", () -> instance != null ? instance.getDirtyCount() : 0);
+    }
+
+    // null si la caché no está arrancada (por ejemplo, sin base de datos)
+    public static WalletCache get() {
+        return instance;
+    }
+
+    public static void stop() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    // Resultado de una operación sobre el monedero
+    public static class WalletResult {
+        public final boolean success;
+        public final long balance;
+        public final String error;
+
+        public WalletResult(boolean success, long balance, String error) {
+            this.success = success;
+            this.balance = balance;
+            this.error = error;
+        }
+    }
+
+    private static class Wallet {
+        private long money;
+        private long unflushed; // variación aún no escrita en users.money
+        private int pinned; // transferencias en curso que escriben la fila ellas mismas; no se expulsa mientras tanto
+        private boolean dirty;
+        private boolean evicted;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Wallet(long money) {
+            this.money = money;
+        }
+    }
+
+    /* ---------------------- Ciclo de vida del jugador ---------------------- */
+
+    // Se carga en el hilo del flusher para no bloquear el evento de conexión
+    public void onPlayerJoin(UUID uuid) {
+        online.add(uuid);
+        flusher.execute(() -> load(uuid));
+    }
+
+    public void onPlayerLeave(UUID uuid) {
+        online.remove(uuid);
+    }
+
+    /* ---------------------- Operaciones ---------------------- */
+
+    // Devuelve el monedero cargado, leyéndolo de la base de datos la primera vez. null si el usuario no existe.
+    private Wallet load(UUID uuid) {
+        Wallet wallet = wallets.get(uuid);
+        if (wallet != null) {
+            wallet.lastAccess = System.currentTimeMillis();
+            return wallet;
+        }
+
+        Long money = readMoney(uuid);
+        if (money == null) {
+            return null;
+        }
+
+        Wallet loaded = new Wallet(money);
+        Wallet existing = wallets.putIfAbsent(uuid, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    public boolean isLoaded(UUID uuid) {
+        return wallets.containsKey(uuid);
+    }
+
+    // Saldo actual, o null si el usuario no existe
+    public Long getBalance(UUID uuid) {
+        Wallet wallet = load(uuid);
+        if (wallet == null) {
+            return null;
+        }
+        synchronized (wallet) {
+            return wallet.money;
+        }
+    }
+
+    // Saldo en caché sin tocar la base de datos; null si no está cargado
+    public Long peek(UUID uuid) {
+        Wallet wallet = wallets.get(uuid);
+        if (wallet == null) {
+            return null;
+        }
+        synchronized (wallet) {
+            return wallet.money;
+        }
+    }
+
+    public boolean has(UUID uuid, long amount) {
+        Long balance = getBalance(uuid);
+        return balance != null && balance >= amount;
+    }
+
+    public WalletResult withdraw(UUID uuid, long amount) {
+        if (amount < 0) {
+            return new WalletResult(false, 0, "Amount must be positive");
+        }
+
+        while (true) {
+            Wallet wallet = load(uuid);
+            if (wallet == null) {
+                return new WalletResult(false, 0, "Account not found");
+            }
+
+            try (MoneySupply.Section change = MoneySupply.change()) {
+                synchronized (wallet) {
+                    if (wallet.evicted) {
+                        continue;
+                    }
+                    if (wallet.money < amount) {
+                        return new WalletResult(false, wallet.money, "Insufficient funds");
+                    }
+                    wallet.money = Money.subtract(wallet.money, amount);
+                    wallet.unflushed = Money.subtract(wallet.unflushed, amount);
+                    markDirty(uuid, wallet);
+                    MoneySupply.adjust(-amount);
+                    return new WalletResult(true, wallet.money, null);
+                }
+            }
+        }
+    }
+
+    public WalletResult deposit(UUID uuid, long amount) {
+        if (amount < 0) {
+            return new WalletResult(false, 0, "Amount must be positive");
+        }
+
+        while (true) {
+            Wallet wallet = load(uuid);
+            if (wallet == null) {
+                return new WalletResult(false, 0, "Account not found");
+            }
+
+            try (MoneySupply.Section change = MoneySupply.change()) {
+                synchronized (wallet) {
+                    if (wallet.evicted) {
+                        continue;
+                    }
+                    wallet.money = Money.add(wallet.money, amount);
+                    wallet.unflushed = Money.add(wallet.unflushed, amount);
+                    markDirty(uuid, wallet);
+                    MoneySupply.adjust(amount);
+                    return new WalletResult(true, wallet.money, null);
+                }
+            }
+        }
+    }
+
+    // Fija el saldo (/money set): la diferencia se calcula con el monedero bloqueado y se escribe como variación
+    public WalletResult set(UUID uuid, long money) {
+        if (money < 0) {
+            return new WalletResult(false, 0, "Amount must be positive");
+        }
+
+        while (true) {
+            Wallet wallet = load(uuid);
+            if (wallet == null) {
+                return new WalletResult(false, 0, "Account not found");
+            }
+
+            try (MoneySupply.Section change = MoneySupply.change()) {
+                synchronized (wallet) {
+                    if (wallet.evicted) {
+                        continue;
+                    }
+                    long delta = Money.subtract(money, wallet.money);
+                    wallet.money = money;
+                    wallet.unflushed = Money.add(wallet.unflushed, delta);
+                    markDirty(uuid, wallet);
+                    MoneySupply.adjust(delta);
+                    return new WalletResult(true, wallet.money, null);
+                }
+            }
+        }
+    }
+
+    /* ---------------------- Transferencias ---------------------- */
+
+    // TransferEngine escribe los movimientos del monedero en users.money dentro de su transacción, así que aquí
+    // solo se actualiza el valor en memoria (sin variación pendiente ni ajuste del dinero total, que hace él).
+    // Entre pin y unpin el monedero no se expulsa: si se releyera de la tabla antes del commit se perdería el cargo.
+
+    // Carga y fija el monedero; false si el usuario no existe
+    public boolean pin(UUID uuid) {
+        while (true) {
+            Wallet wallet = load(uuid);
+            if (wallet == null) {
+                return false;
+            }
+            synchronized (wallet) {
+                if (wallet.evicted) {
+                    continue;
+                }
+                wallet.pinned++;
+                return true;
+            }
+        }
+    }
+
+    public void unpin(UUID uuid) {
+        Wallet wallet = wallets.get(uuid);
+        if (wallet != null) {
+            synchronized (wallet) {
+                wallet.pinned = Math.max(0, wallet.pinned - 1);
+                wallet.lastAccess = System.currentTimeMillis();
+            }
+        }
+    }
+
+    // Retira el importe de un monedero fijado antes de la transacción; es la comprobación de saldo del cargo
+    public WalletResult reserve(UUID uuid, long amount) {
+        Wallet wallet = wallets.get(uuid);
+        if (wallet == null) {
+            return new WalletResult(false, 0, "Account not found");
+        }
+        synchronized (wallet) {
+            if (wallet.money < amount) {
+                return new WalletResult(false, wallet.money, "Insufficient funds");
+            }
+            wallet.money = Money.subtract(wallet.money, amount);
+            return new WalletResult(true, wallet.money, null);
+        }
+    }
+
+    // Aplica en memoria un movimiento ya confirmado en la tabla (abonos tras el commit, o devolver una reserva
+    // si la transacción falla). Devuelve el saldo, o null si el monedero ya no está cargado.
+    public Long applyTransfer(UUID uuid, long delta) {
+        Wallet wallet = wallets.get(uuid);
+        if (wallet == null) {
+            return null;
+        }
+        synchronized (wallet) {
+            wallet.money = Money.add(wallet.money, delta);
+            wallet.lastAccess = System.currentTimeMillis();
+            return wallet.money;
+        }
+    }
+
+    // Descarta el monedero sin guardarlo (por ejemplo, al borrar el usuario). Devuelve su saldo, o null si no estaba.
+    public Long evict(UUID uuid) {
+        Wallet wallet = wallets.remove(uuid);
+        dirty.remove(uuid);
+        if (wallet == null) {
+            return null;
+        }
+        synchronized (wallet) {
+            wallet.evicted = true;
+            wallet.dirty = false;
+            wallet.unflushed = 0L;
+            return wallet.money;
+        }
+    }
+
+    private void markDirty(UUID uuid, Wallet wallet) {
+        wallet.dirty = true;
+        wallet.lastAccess = System.currentTimeMillis();
+        dirty.add(uuid);
+    }
+
+    /* ---------------------- Persistencia ---------------------- */
+
+    private static Long readMoney(UUID uuid) {
+        String sql = "SELECT money FROM users WHERE uuid = ?";
+
+        try (Connection conn = Model.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, uuid.toString());
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong("money");
+            }
+        } catch (SQLException e) {
+            Model.logError("Failed to load wallet: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // Escribe todos los cambios pendientes. Devuelve cuántos monederos se guardaron.
+    public int flush() {
+        // La variación sale del monedero antes de llegar a la tabla: MoneySupply.reconcile no debe verla a medias
+        try (MoneySupply.Section change = MoneySupply.change()) {
+            return flushPending();
+        }
+    }
+
+    private int flushPending() {
+        synchronized (flushLock) {
+            if (dirty.isEmpty()) {
+                return 0;
+            }
+
+            List<UUID> uuids = new ArrayList<>();
+            List<Long> deltas = new ArrayList<>();
+
+            Iterator<UUID> it = dirty.iterator();
+            while (it.hasNext()) {
+                UUID uuid = it.next();
+                it.remove();
+
+                Wallet wallet = wallets.get(uuid);
+                if (wallet == null) {
+                    continue;
+                }
+                synchronized (wallet) {
+                    if (!wallet.dirty) {
+                        continue;
+                    }
+                    wallet.dirty = false;
+                    if (wallet.unflushed == 0) {
+                        continue;
+                    }
+                    uuids.add(uuid);
+                    deltas.add(wallet.unflushed);
+                    wallet.unflushed = 0L;
+                }
+            }
+
+            int written = 0;
+            for (int from = 0; from < uuids.size(); from += batchSize) {
+                int to = Math.min(uuids.size(), from + batchSize);
+                if (writeBatch(uuids.subList(from, to), deltas.subList(from, to))) {
+                    written += to - from;
+                } else {
+                    // Devolver la variación al monedero para el siguiente intento
+                    for (int i = from; i < to; i++) {
+                        UUID uuid = uuids.get(i);
+                        Wallet wallet = wallets.get(uuid);
+                        if (wallet != null) {
+                            synchronized (wallet) {
+                                wallet.unflushed = Money.add(wallet.unflushed, deltas.get(i));
+                                markDirty(uuid, wallet);
+                            }
+                        }
+                    }
+                }
+            }
+            return written;
+        }
+    }
+
+    private boolean writeBatch(List<UUID> uuids, List<Long> deltas) {
+        String sql = "UPDATE users SET money = money + ? WHERE uuid = ?";
+
+        try {
+            Model.inTransaction(conn -> {
+                int[] counts;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < uuids.size(); i++) {
+                        pstmt.setLong(1, deltas.get(i));
+                        pstmt.setString(2, uuids.get(i).toString());
+                        pstmt.addBatch();
+                    }
+                    counts = pstmt.executeBatch();
+                }
+
+                // Un usuario borrado entretanto no tiene fila: su variación no llega a la tabla ni al diario
+                Ledger.Entry entry = new Ledger.Entry(TransactionTypes.WALLET_ADJUSTMENT, null);
+                for (int i = 0; i < uuids.size(); i++) {
+                    if (i >= counts.length || counts[i] != 0) {
+                        entry.wallet(uuids.get(i), deltas.get(i));
+                    }
+                }
+                if (!entry.isEmpty()) {
+                    Ledger.append(conn, entry.balanceWith(Ledger.ISSUANCE));
+                }
+                return null;
+            });
+            return true;
+        } catch (SQLException e) {
+            Model.logError("Failed to flush " + uuids.size() + " wallet(s): " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void flushAndEvict() {
+        try {
+            flush();
+
+            // Sacar de memoria los monederos de jugadores desconectados que llevan tiempo sin usarse. Con el lock
+            // del flush: un monedero cuyo lote aún se está escribiendo se volvería a leer sin su variación.
+            synchronized (flushLock) {
+                long now = System.currentTimeMillis();
+                for (Map.Entry<UUID, Wallet> entry : wallets.entrySet()) {
+                    UUID uuid = entry.getKey();
+                    Wallet wallet = entry.getValue();
+                    if (online.contains(uuid) || now - wallet.lastAccess < idleEvictMs) {
+                        continue;
+                    }
+                    synchronized (wallet) {
+                        if (!wallet.dirty && wallet.unflushed == 0 && wallet.pinned == 0
+                                && now - wallet.lastAccess >= idleEvictMs) {
+                            wallet.evicted = true;
+                            wallets.remove(uuid, wallet);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Model.logError("Wallet flush failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int written = flush();
+        if (written > 0) {
+            Model.logInfo("Flushed " + written + " wallet(s) on shutdown");
+        }
+    }
+
+    // Suma de las variaciones aún no escritas (MoneySupply.reconcile la añade a los SUM de la tabla)
+    public long getUnflushedTotal() {
+        long total = 0L;
+        for (Wallet wallet : wallets.values()) {
+            synchronized (wallet) {
+                total = Money.add(total, wallet.unflushed);
+            }
+        }
+        return total;
+    }
+
+    public int getLoadedCount() {
+        return wallets.size();
+    }
+
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+}
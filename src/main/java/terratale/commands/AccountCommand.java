@@ -1,15 +1,18 @@
 package terratale.commands;
 
-import terratale.Helpers.TransactionTypes;
+import terratale.Helpers.AccountHelper;
+import terratale.Helpers.Money;
+import terratale.cache.SessionManager;
+import terratale.economy.BalanceSnapshots;
+import terratale.economy.TransferException;
 import terratale.models.AccountInvitation;
 import terratale.models.Bank;
 import terratale.models.BankAccount;
 import terratale.models.BankAccountOwner;
 import terratale.models.BankInvitation;
-import terratale.models.Transaction;
-import terratale.models.BankTransaction;
 import terratale.models.User;
 import terratale.pages.AccountsPage;
+import terratale.responses.AccountOperationResponse;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.protocol.packets.interface_.CustomPageLifetime;
@@ -17,7 +20,6 @@ import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
-import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractCommandCollection;
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
 import com.hypixel.hytale.server.core.entity.entities.Player;
@@ -26,7 +28,14 @@ import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import javax.annotation.Nonnull;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -44,11 +53,12 @@ public class AccountCommand extends AbstractCommandCollection {
         addSubCommand(new AccountInviteAcceptSubCommand());
         addSubCommand(new AccountInvitesSubCommand());
         addSubCommand(new AccountRemoveSubCommand());
+        addSubCommand(new AccountBalanceAtSubCommand());
     }
 }
 
 // Subcomando: /account create <bank_name>
-class AccountCreateSubCommand extends AbstractAsyncCommand {
+class AccountCreateSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> bankNameArg;
 
@@ -59,7 +69,7 @@ class AccountCreateSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -129,41 +139,46 @@ class AccountListSubCommand extends AbstractPlayerCommand {
 
         UUID playerUUID = context.sender().getUuid();
         Player player = (Player) context.sender();
-        String playerName = player.getDisplayName();
 
-        User user = User.findOrCreate(playerUUID, playerName);
-        List<BankAccount> accounts = user.getBankAccounts();
+        // Cuentas y nombres de sus bancos se cargan fuera del hilo del mundo
+        CommandExecutor.runOnWorld("account list", context.sender(), world, () -> {
+            Map<BankAccount, String> bankNames = new LinkedHashMap<>();
+            for (BankAccount account : SessionManager.accounts(playerUUID)) {
+                Bank bank = Bank.find(account.getBankId());
+                bankNames.put(account, bank != null ? bank.getName() : "Desconocido");
+            }
+            return bankNames;
+        }, bankNames -> {
+            List<BankAccount> accounts = new ArrayList<>(bankNames.keySet());
 
-        if (player != null) {
             if (accounts.isEmpty()) {
                 player.sendMessage(Message.raw("No tienes cuentas bancarias."));
                 player.sendMessage(Message.raw("Usa /account create <banco> para crear una."));
             } else {
                 player.sendMessage(Message.raw("=== Tus Cuentas Bancarias ==="));
                 for (BankAccount account : accounts) {
-                    Bank bank = Bank.find(account.getBankId());
-                    String bankName = bank != null ? bank.getName() : "Desconocido";
+                    String bankName = bankNames.get(account);
                     String accountNumber = account.getAccountNumber();
                     
                     player.sendMessage(Message.raw("Cuenta: " + accountNumber + 
                         " - " + bankName + 
-                        " (Balance: " + String.format("%.2f", account.getBalance()) + " Liras)"));
+                        " (Balance: " + Money.format(account.getBalance()) + " Liras)"));
                 }
             }
-        }
 
-        AccountsPage page = new AccountsPage(
-            playerRef,
-            CustomPageLifetime.CanDismiss,
-            accounts
-        );
+            AccountsPage page = new AccountsPage(
+                playerRef,
+                CustomPageLifetime.CanDismiss,
+                accounts
+            );
 
-        player.getPageManager().openCustomPage(ref, store, page);
+            player.getPageManager().openCustomPage(ref, store, page);
+        });
     }
 }
 
 // Subcomando: /account withdraw <account_id> <amount>
-class AccountWithdrawSubCommand extends AbstractAsyncCommand {
+class AccountWithdrawSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> accountIdArg;
     private final RequiredArg<String> amountArg;
@@ -176,132 +191,46 @@ class AccountWithdrawSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
         }
 
-        String accountIdStr = accountIdArg.get(context);
+        String accountNumber = accountIdArg.get(context);
         String amountStr = amountArg.get(context);
-        
+
         UUID playerUUID = context.sender().getUuid();
         Player player = (Player) context.sender();
 
-        // Parsear ID de cuenta
-        String accountNumber = accountIdArg.get(context);
-
         // Parsear cantidad
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
-            if (amount <= 0) {
-                if (player != null) {
-                    player.sendMessage(Message.raw("La cantidad debe ser mayor a 0"));
-                }
-                return CompletableFuture.completedFuture(null);
-            }
+            amount = Money.parse(amountStr);
         } catch (NumberFormatException e) {
-            if (player != null) {
-                player.sendMessage(Message.raw("Cantidad inválida"));
-            }
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Buscar cuenta
-        BankAccount account = BankAccount.findByAccountNumber(accountNumber);
-        if (account == null) {
-            if (player != null) {
-                player.sendMessage(Message.raw("Cuenta no encontrada"));
-            }
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Buscar banco
-        Bank bank = Bank.find(account.getBankId());
-        if (bank == null) {
-            if (player != null) {
-                player.sendMessage(Message.raw("Banco no encontrado"));
-            }
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar que el jugador sea el dueño de la cuenta
-        if (!BankAccountOwner.getOwnersByAccount(account.getId()).contains(playerUUID)) {
-            if (player != null) {
-                player.sendMessage(Message.raw("No tienes acceso a esta cuenta"));
-            }
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar que hay suficiente balance
-        if (account.getBalance() < amount) {
-            if (player != null) {
-                player.sendMessage(Message.raw("Balance insuficiente"));
-                player.sendMessage(Message.raw("Balance actual: " + String.format("%.2f", account.getBalance()) + " Liras"));
-            }
+            player.sendMessage(Message.raw("Cantidad inválida"));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Calcular comisión (usar comisión de cuenta o del banco)
-        double withdrawFee = account.getWithdrawFee() != null ? 
-            account.getWithdrawFee() : bank.getWithdrawFee();
-        double feeAmount = amount * (withdrawFee / 100.0);
-        double totalDeducted = amount + feeAmount;
-
-        // Verificar que puede pagar la comisión
-        if (account.getBalance() < totalDeducted) {
-            if (player != null) {
-                player.sendMessage(Message.raw("Balance insuficiente (incluyendo comisión de " + String.format("%.2f", feeAmount) + " Liras)"));
-            }
+        AccountOperationResponse response;
+        try {
+            response = AccountHelper.withdraw(accountNumber, amount, playerUUID);
+        } catch (TransferException e) {
+            player.sendMessage(Message.raw(e.getMessage()));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Realizar retiro
-        account.setBalance(account.getBalance() - totalDeducted);
-        account.save();
-
-        User user = User.find(playerUUID);
-        if (user != null) {
-            user.setMoney(user.getMoney() + amount);
-            user.save();
-        }
-
-        Transaction transaction = new Transaction(
-            account.getId(),
-            TransactionTypes.WITHDRAWAL,
-            totalDeducted,
-            playerUUID.toString()
-        );
-        transaction.save();
-
-        Double newBankBalance = bank.getBalance() + feeAmount;
-        bank.setBalance(newBankBalance);
-        bank.save();
-
-        if (withdrawFee > 0) {
-            BankTransaction bankTransaction = new BankTransaction(
-                bank.getId(),
-                TransactionTypes.WITHDRAWAL_FEE,
-                totalDeducted,
-                playerUUID.toString()
-            );
-            bankTransaction.save();
-        }
-
-        if (player != null) {
-            player.sendMessage(Message.raw("Retiro exitoso!"));
-            player.sendMessage(Message.raw("Cantidad retirada: " + String.format("%.2f", amount) + " Liras"));
-            player.sendMessage(Message.raw("Comisión (" + withdrawFee + "%): " + String.format("%.2f", feeAmount) + " Liras"));
-            player.sendMessage(Message.raw("Nuevo balance: " + String.format("%.2f", account.getBalance()) + " Liras"));
-        }
+        player.sendMessage(Message.raw("Retiro exitoso!"));
+        player.sendMessage(Message.raw("Cantidad retirada: " + Money.format(amount) + " Liras"));
+        player.sendMessage(Message.raw("Comisión (" + response.getFeePercent() + "%): " + Money.format(response.getFeeAmount()) + " Liras"));
+        player.sendMessage(Message.raw("Nuevo balance: " + Money.format(response.getNewBalance()) + " Liras"));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // Subcomando: /account deposit <account_id> <amount>
-class AccountDepositSubCommand extends AbstractAsyncCommand {
+class AccountDepositSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> accountIdArg;
     private final RequiredArg<String> amountArg;
@@ -314,7 +243,7 @@ class AccountDepositSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -322,115 +251,39 @@ class AccountDepositSubCommand extends AbstractAsyncCommand {
 
         String accountNumber = accountIdArg.get(context);
         String amountStr = amountArg.get(context);
-        
+
         UUID playerUUID = context.sender().getUuid();
         Player player = (Player) context.sender();
 
         // Parsear cantidad
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
-            if (amount <= 0) {
-                if (player != null) {
-                    player.sendMessage(Message.raw("La cantidad debe ser mayor a 0"));
-                }
-                return CompletableFuture.completedFuture(null);
-            }
+            amount = Money.parse(amountStr);
         } catch (NumberFormatException e) {
-            if (player != null) {
-                player.sendMessage(Message.raw("Cantidad inválida"));
-            }
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Buscar cuenta
-        BankAccount account = BankAccount.findByAccountNumber(accountNumber);
-        if (account == null) {
-            if (player != null) {
-                player.sendMessage(Message.raw("Cuenta no encontrada"));
-            }
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Buscar banco
-        Bank bank = Bank.find(account.getBankId());
-        if (bank == null) {
-            if (player != null) {
-                player.sendMessage(Message.raw("Banco no encontrado"));
-            }
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar que el jugador sea el dueño de la cuenta
-        if (!BankAccountOwner.getOwnersByAccount(account.getId()).contains(playerUUID)) {
-            if (player != null) {
-                player.sendMessage(Message.raw("No tienes acceso a esta cuenta"));
-            }
+            player.sendMessage(Message.raw("Cantidad inválida"));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Calcular comisión (usar comisión de cuenta o del banco)
-        double depositFee = account.getDepositFee() != null ? 
-            account.getDepositFee() : bank.getDepositFee();
-        double feeAmount = amount * (depositFee / 100.0);
-        double netDeposit = amount;
-
-        User user = User.find(playerUUID);
-        if (user == null || user.getMoney() < amount + feeAmount) {
-            if (player != null) {
-                player.sendMessage(Message.raw("No tienes suficiente dinero para depositar esa cantidad."));
-                if (user != null) {
-                    player.sendMessage(Message.raw("Dinero disponible: " + String.format("%.2f", user.getMoney()) + " Liras"));
-                }
-            }
+        AccountOperationResponse response;
+        try {
+            response = AccountHelper.deposit(accountNumber, amount, playerUUID);
+        } catch (TransferException e) {
+            player.sendMessage(Message.raw(e.getMessage()));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Deduct money from user
-        user.setMoney(user.getMoney() - (amount + feeAmount));
-        user.save();
-        user.saveMoney();
-
-        // Realizar depósito
-        account.setBalance(account.getBalance() + netDeposit);
-        account.save();
-
-        Transaction transaction = new Transaction(
-            account.getId(),
-            TransactionTypes.DEPOSIT,
-            netDeposit + feeAmount,
-            playerUUID.toString()
-        );
-        transaction.save();
-
-        Double newBankBalance = bank.getBalance() + feeAmount;
-        bank.setBalance(newBankBalance);
-        bank.save();
-
-        if (depositFee > 0) {
-            BankTransaction bankTransaction = new BankTransaction(
-                bank.getId(),
-                TransactionTypes.DEPOSIT_FEE,
-                feeAmount,
-                playerUUID.toString()
-            );
-            bankTransaction.save();
-        }
-
-        if (player != null) {
-            player.sendMessage(Message.raw("Depósito exitoso!"));
-            player.sendMessage(Message.raw("Cantidad depositada: " + String.format("%.2f", amount) + " Liras"));
-            player.sendMessage(Message.raw("Comisión (" + depositFee + "%): " + String.format("%.2f", feeAmount) + " Liras"));
-            player.sendMessage(Message.raw("Monto neto: " + String.format("%.2f", netDeposit) + " Liras"));
-            player.sendMessage(Message.raw("Nuevo balance: " + String.format("%.2f", account.getBalance()) + " Liras"));
-        }
+        player.sendMessage(Message.raw("Depósito exitoso!"));
+        player.sendMessage(Message.raw("Cantidad depositada: " + Money.format(amount) + " Liras"));
+        player.sendMessage(Message.raw("Comisión (" + response.getFeePercent() + "%): " + Money.format(response.getFeeAmount()) + " Liras"));
+        player.sendMessage(Message.raw("Monto neto: " + Money.format(amount) + " Liras"));
+        player.sendMessage(Message.raw("Nuevo balance: " + Money.format(response.getNewBalance()) + " Liras"));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // Subcomando: /account transfer <from_account> <to_account> <amount>
-class AccountTransferSubCommand extends AbstractAsyncCommand {
+class AccountTransferSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> fromAccountArg;
     private final RequiredArg<String> toAccountArg;
@@ -445,7 +298,7 @@ class AccountTransferSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -454,123 +307,40 @@ class AccountTransferSubCommand extends AbstractAsyncCommand {
         String fromAccountNumber = fromAccountArg.get(context);
         String toAccountNumber = toAccountArg.get(context);
         String amountStr = amountArg.get(context);
-        
+
         UUID playerUUID = context.sender().getUuid();
         Player player = (Player) context.sender();
 
         // Parsear cantidad
-        double amount;
+        long amount;
         try {
-            amount = Double.parseDouble(amountStr);
-            if (amount <= 0) {
-                player.sendMessage(Message.raw("La cantidad debe ser mayor a 0"));
-                return CompletableFuture.completedFuture(null);
-            }
+            amount = Money.parse(amountStr);
         } catch (NumberFormatException e) {
             player.sendMessage(Message.raw("Cantidad inválida"));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Buscar cuenta origen
-        BankAccount fromAccount = BankAccount.findByAccountNumber(fromAccountNumber);
-        if (fromAccount == null) {
-            player.sendMessage(Message.raw("Cuenta origen no encontrada"));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Buscar cuenta destino
-        BankAccount toAccount = BankAccount.findByAccountNumber(toAccountNumber);
-        if (toAccount == null) {
-            player.sendMessage(Message.raw("Cuenta destino no encontrada"));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar que no sea la misma cuenta
-        if (fromAccount.getId().equals(toAccount.getId())) {
-            player.sendMessage(Message.raw("No puedes transferir a la misma cuenta"));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar que el jugador tenga acceso a la cuenta origen
-        if (!BankAccountOwner.getOwnersByAccount(fromAccount.getId()).contains(playerUUID)) {
-            player.sendMessage(Message.raw("No tienes acceso a la cuenta origen"));
+        AccountOperationResponse response;
+        try {
+            response = AccountHelper.transfer(fromAccountNumber, toAccountNumber, amount, playerUUID);
+        } catch (TransferException e) {
+            player.sendMessage(Message.raw(e.getMessage()));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Buscar bancos
-        Bank fromBank = Bank.find(fromAccount.getBankId());
-        Bank toBank = Bank.find(toAccount.getBankId());
-        
-        if (fromBank == null || toBank == null) {
-            player.sendMessage(Message.raw("Error al encontrar los bancos"));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Calcular comisión (usar comisión de cuenta origen o del banco origen)
-        double transferFee = fromAccount.getTransactionsFee() != null ? 
-            fromAccount.getTransactionsFee() : fromBank.getTransactionsFee();
-        double feeAmount = amount * (transferFee / 100.0);
-        double totalDeducted = amount + feeAmount;
-
-        // Verificar que hay suficiente balance
-        if (fromAccount.getBalance() < totalDeducted) {
-            player.sendMessage(Message.raw("Balance insuficiente"));
-            player.sendMessage(Message.raw("Balance actual: " + String.format("%.2f", fromAccount.getBalance()) + " Liras"));
-            player.sendMessage(Message.raw("Cantidad + comisión: " + String.format("%.2f", totalDeducted) + " Liras"));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Realizar transferencia
-        fromAccount.setBalance(fromAccount.getBalance() - totalDeducted);
-        fromAccount.save();
-
-        toAccount.setBalance(toAccount.getBalance() + amount);
-        toAccount.save();
-
-        // Registrar transacciones
-        Transaction withdrawTransaction = new Transaction(
-            fromAccount.getId(),
-            TransactionTypes.TRANSFER_WITHDRAWAL,
-            totalDeducted,
-            playerUUID.toString()
-        );
-        withdrawTransaction.save();
-
-        Transaction depositTransaction = new Transaction(
-            toAccount.getId(),
-            TransactionTypes.TRANSFER_DEPOSIT,
-            amount,
-            playerUUID.toString()
-        );
-        depositTransaction.save();
-
-        // Agregar comisión al balance del banco origen
-        fromBank.setBalance(fromBank.getBalance() + feeAmount);
-        fromBank.save();
-
-        if (transferFee > 0) {
-            BankTransaction bankTransaction = new BankTransaction(
-                fromBank.getId(),
-                TransactionTypes.TRANSFER_FEE,
-                feeAmount,
-                playerUUID.toString()
-            );
-            bankTransaction.save();
-        }
-
         player.sendMessage(Message.raw("Transferencia exitosa!"));
-        player.sendMessage(Message.raw("De: " + fromAccountNumber + " (" + fromBank.getName() + ")"));
-        player.sendMessage(Message.raw("A: " + toAccountNumber + " (" + toBank.getName() + ")"));
-        player.sendMessage(Message.raw("Cantidad transferida: " + String.format("%.2f", amount) + " Liras"));
-        player.sendMessage(Message.raw("Comisión (" + transferFee + "%): " + String.format("%.2f", feeAmount) + " Liras"));
-        player.sendMessage(Message.raw("Nuevo balance cuenta origen: " + String.format("%.2f", fromAccount.getBalance()) + " Liras"));
+        player.sendMessage(Message.raw("De: " + fromAccountNumber + " (" + response.getBank().getName() + ")"));
+        player.sendMessage(Message.raw("A: " + toAccountNumber + " (" + response.getTargetBank().getName() + ")"));
+        player.sendMessage(Message.raw("Cantidad transferida: " + Money.format(amount) + " Liras"));
+        player.sendMessage(Message.raw("Comisión (" + response.getFeePercent() + "%): " + Money.format(response.getFeeAmount()) + " Liras"));
+        player.sendMessage(Message.raw("Nuevo balance cuenta origen: " + Money.format(response.getNewBalance()) + " Liras"));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // Subcomando: /account invite <account_id> <username>
-class AccountInviteSubCommand extends AbstractAsyncCommand {
+class AccountInviteSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> accountIdArg;
     private final RequiredArg<String> usernameArg;
@@ -583,7 +353,7 @@ class AccountInviteSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -654,7 +424,7 @@ class AccountInviteSubCommand extends AbstractAsyncCommand {
 }
 
 // Subcomando: /account invite accept <account_id>
-class AccountInviteAcceptSubCommand extends AbstractAsyncCommand {
+class AccountInviteAcceptSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> accountIdArg;
 
@@ -665,7 +435,7 @@ class AccountInviteAcceptSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -710,7 +480,7 @@ class AccountInviteAcceptSubCommand extends AbstractAsyncCommand {
 }
 
 // Subcomando: /account invites
-class AccountInvitesSubCommand extends AbstractAsyncCommand {
+class AccountInvitesSubCommand extends EconomyCommand {
 
     public AccountInvitesSubCommand() {
         super("invites", "List your pending account invitations");
@@ -718,7 +488,7 @@ class AccountInvitesSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -757,7 +527,7 @@ class AccountInvitesSubCommand extends AbstractAsyncCommand {
 }
 
 // Subcomando: /account remove <account_number>
-class AccountRemoveSubCommand extends AbstractAsyncCommand {
+class AccountRemoveSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> accountNumberArg;
 
@@ -768,7 +538,7 @@ class AccountRemoveSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -802,26 +572,74 @@ class AccountRemoveSubCommand extends AbstractAsyncCommand {
         // Verificar que la cuenta tenga balance 0
         if (account.getBalance() > 0) {
             player.sendMessage(Message.raw("No puedes eliminar una cuenta con fondos"));
-            player.sendMessage(Message.raw("Balance actual: " + String.format("%.2f", account.getBalance()) + " Liras"));
+            player.sendMessage(Message.raw("Balance actual: " + Money.format(account.getBalance()) + " Liras"));
             player.sendMessage(Message.raw("Retira todos los fondos antes de eliminar la cuenta"));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Eliminar vínculos de propietarios
-        BankAccountOwner.deleteByAccount(account.getId());
-
-        // Eliminar invitaciones pendientes
-        List<AccountInvitation> invitations = AccountInvitation.findByAccount(account.getId());
-        for (AccountInvitation invitation : invitations) {
-            invitation.delete();
+        // Eliminar la cuenta con sus propietarios e invitaciones; el saldo se vuelve a comprobar bloqueado
+        if (!account.delete(playerUUID)) {
+            player.sendMessage(Message.raw("No se pudo eliminar la cuenta: puede que haya recibido fondos"));
+            player.sendMessage(Message.raw("Retira todos los fondos antes de eliminar la cuenta"));
+            return CompletableFuture.completedFuture(null);
         }
 
-        // Eliminar la cuenta
-        account.delete();
-
         player.sendMessage(Message.raw("Cuenta " + accountNumber + " eliminada exitosamente"));
         player.sendMessage(Message.raw("Banco: " + bank.getName()));
 
         return CompletableFuture.completedFuture(null);
     }
 }
+
+// /account balanceat <account_number> <fecha>
+class AccountBalanceAtSubCommand extends EconomyCommand {
+
+    private final RequiredArg<String> accountNumberArg;
+    private final RequiredArg<String> dateArg;
+
+    public AccountBalanceAtSubCommand() {
+        super("balanceat", "Show an account balance at the end of a given day");
+        accountNumberArg = withRequiredArg("account_number", "Account Number", ArgTypes.STRING);
+        dateArg = withRequiredArg("date", "Date (yyyy-MM-dd)", ArgTypes.STRING);
+    }
+
+    @Override
+    @Nonnull
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
+        if (!(context.sender() instanceof Player)) {
+            context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        LocalDate date;
+        try {
+            date = LocalDate.parse(dateArg.get(context));
+        } catch (DateTimeParseException e) {
+            context.sender().sendMessage(Message.raw("Fecha inválida. Usa el formato aaaa-mm-dd"));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        BankAccount account = BankAccount.findByAccountNumber(accountNumberArg.get(context));
+        if (account == null) {
+            context.sender().sendMessage(Message.raw("Cuenta no encontrada"));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (!BankAccountOwner.getOwnersByAccount(account.getId()).contains(context.sender().getUuid())) {
+            context.sender().sendMessage(Message.raw("No tienes acceso a esta cuenta"));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Fin del día en la hora del servidor
+        long endOfDay = date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+        try {
+            long balance = BalanceSnapshots.accountBalanceAt(account.getId(), endOfDay);
+            context.sender().sendMessage(Message.raw("Saldo de la cuenta " + account.getAccountNumber() + " al final del "
+                + date + ": " + Money.format(balance) + " Liras"));
+        } catch (SQLException e) {
+            context.sender().sendMessage(Message.raw("Error al consultar el saldo: " + e.getMessage()));
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+}
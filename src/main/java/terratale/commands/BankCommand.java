@@ -1,13 +1,16 @@
 package terratale.commands;
 
+import terratale.Helpers.Money;
 import terratale.Helpers.PorcentualHelper;
 import terratale.Helpers.TransactionTypes;
+import terratale.cache.SessionManager;
+import terratale.economy.BankDeletionJob;
+import terratale.economy.Transfer;
+import terratale.economy.TransferException;
+import terratale.economy.TransferResult;
 import terratale.models.Bank;
 import terratale.models.BankAccount;
-import terratale.models.BankAccountOwner;
 import terratale.models.BankInvitation;
-import terratale.models.BankTransaction;
-import terratale.models.Transaction;
 import terratale.models.User;
 import terratale.plugin.TerratalePlugin;
 
@@ -15,7 +18,6 @@ import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
-import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractCommandCollection;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 
@@ -42,7 +44,7 @@ public class BankCommand extends AbstractCommandCollection {
 }
 
 // /bank create <name>
-class BankCreateSubCommand extends AbstractAsyncCommand {
+class BankCreateSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> nameArg;
 
@@ -53,14 +55,14 @@ class BankCreateSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
         }
 
-        List<Bank> userBanks = User.findOrCreate(context.sender().getUuid(), context.sender().getDisplayName()).getBanks();
+        List<Bank> userBanks = SessionManager.user(context.sender().getUuid(), context.sender().getDisplayName()).getBanks();
 
         if (userBanks.size() >= 1) {
             context.sender().sendMessage(Message.raw("No puedes crear más de 1 banco."));
@@ -72,27 +74,34 @@ class BankCreateSubCommand extends AbstractAsyncCommand {
         UUID playerUUID = context.sender().getUuid();
         String playerName = context.sender().getDisplayName();
 
-        User user = User.findOrCreate(playerUUID, playerName);
-        Double bankCost = PorcentualHelper.calculatePorcentual(TerratalePlugin.get().config().bankCreationCost);
+        User user = SessionManager.user(playerUUID, playerName);
+        long bankCost = PorcentualHelper.calculatePorcentual(TerratalePlugin.get().config().bankCreationCost);
 
         if (user.getMoney() < bankCost) {
-            context.sender().sendMessage(Message.raw("No tienes suficientes Liras para crear un banco. Costo: " + bankCost + " Liras."));
+            context.sender().sendMessage(Message.raw("No tienes suficientes Liras para crear un banco. Costo: " + Money.format(bankCost) + " Liras."));
             return CompletableFuture.completedFuture(null);
         }
 
-        Bank bank = new Bank(bankName, playerUUID);
-        bank.save();
-
+        // Cobrar la creación antes de crear el banco
         String gouvernmentAccount = TerratalePlugin.get().config().gouvernmentNumberAccount;
         BankAccount govAccount = BankAccount.findByAccountNumber(gouvernmentAccount);
+
+        Transfer payment = new Transfer(playerUUID).debitWallet(playerUUID, bankCost);
         if (govAccount != null) {
-            govAccount.setBalance(govAccount.getBalance() + bankCost);
-            govAccount.save();
+            payment.creditAccount(govAccount.getId(), bankCost, null)
+                .recordBank(govAccount.getBankId(), TransactionTypes.BANK_CREATION_FEE, bankCost);
+        }
 
-            BankTransaction govTransaction = new BankTransaction(govAccount.getBankId(), TransactionTypes.BANK_CREATION_FEE, bankCost, playerUUID.toString());
-            govTransaction.save();
+        try {
+            payment.execute();
+        } catch (TransferException e) {
+            context.sender().sendMessage(Message.raw(e.getMessage()));
+            return CompletableFuture.completedFuture(null);
         }
 
+        Bank bank = new Bank(bankName, playerUUID);
+        bank.save();
+
         context.sender().sendMessage(Message.raw("Banco creado exitosamente!"));
         context.sender().sendMessage(Message.raw("Nombre: " + bankName));
         context.sender().sendMessage(Message.raw("ID: #" + bank.getId()));
@@ -102,7 +111,7 @@ class BankCreateSubCommand extends AbstractAsyncCommand {
 }
 
 // /bank set <bank_id> <fee_type> <value>
-class BankSetSubCommand extends AbstractAsyncCommand {
+class BankSetSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> bankIdArg;
     private final RequiredArg<String> feeTypeArg;
@@ -118,7 +127,7 @@ class BankSetSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
@@ -191,7 +200,7 @@ class BankSetSubCommand extends AbstractAsyncCommand {
 }
 
 // /bank balance <bank_id>
-class BankBalanceSubCommand extends AbstractAsyncCommand {
+class BankBalanceSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> bankIdArg;
 
@@ -202,7 +211,7 @@ class BankBalanceSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
@@ -225,7 +234,7 @@ class BankBalanceSubCommand extends AbstractAsyncCommand {
         }
 
         context.sender().sendMessage(Message.raw("=== " + bank.getName() + " ==="));
-        context.sender().sendMessage(Message.raw("Balance: " + String.format("%.2f", bank.getBalance()) + " Liras"));
+        context.sender().sendMessage(Message.raw("Balance: " + Money.format(bank.getBalance()) + " Liras"));
         context.sender().sendMessage(Message.raw("Comisiones:"));
         context.sender().sendMessage(Message.raw("  - Retiro: " + bank.getWithdrawFee() + "%"));
         context.sender().sendMessage(Message.raw("  - Depósito: " + bank.getDepositFee() + "%"));
@@ -235,7 +244,7 @@ class BankBalanceSubCommand extends AbstractAsyncCommand {
 }
 
 // /bank list
-class BankListSubCommand extends AbstractAsyncCommand {
+class BankListSubCommand extends EconomyCommand {
 
     public BankListSubCommand() {
         super("list", "List your banks");
@@ -243,7 +252,7 @@ class BankListSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
@@ -253,7 +262,7 @@ class BankListSubCommand extends AbstractAsyncCommand {
         UUID playerUUID = context.sender().getUuid();
         String playerName = context.sender().getDisplayName();
 
-        User user = User.findOrCreate(playerUUID, playerName);
+        User user = SessionManager.user(playerUUID, playerName);
         List<Bank> banks = user.getBanks();
 
         if (banks.isEmpty()) {
@@ -268,7 +277,7 @@ class BankListSubCommand extends AbstractAsyncCommand {
             context.sender().sendMessage(Message.raw(
                 "#" + bank.getId() +
                 " - " + bank.getName() +
-                " (Balance: " + String.format("%.2f", bank.getBalance()) + " Liras)"
+                " (Balance: " + Money.format(bank.getBalance()) + " Liras)"
             ));
         }
 
@@ -276,7 +285,7 @@ class BankListSubCommand extends AbstractAsyncCommand {
     }
 }
 
-class AccountsListSubCommand extends AbstractAsyncCommand {
+class AccountsListSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> bankIdArg;
 
@@ -287,7 +296,7 @@ class AccountsListSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -296,7 +305,7 @@ class AccountsListSubCommand extends AbstractAsyncCommand {
             UUID playerUUID = context.sender().getUuid();
             String playerName = context.sender().getDisplayName();
     
-            User user = User.findOrCreate(playerUUID, playerName);
+            User user = SessionManager.user(playerUUID, playerName);
             Bank bank = Bank.find(bankIdArg.get(context));
 
             if (bank == null) {
@@ -323,7 +332,7 @@ class AccountsListSubCommand extends AbstractAsyncCommand {
                 context.sender().sendMessage(Message.raw(
                     "Cuenta:" + accountNumber +
                     " - Banco ID: " + acc.getBankId() +
-                    " (Balance: " + String.format("%.2f", acc.getBalance()) + " Liras)"
+                    " (Balance: " + Money.format(acc.getBalance()) + " Liras)"
                 ));
             }
         return CompletableFuture.completedFuture(null);
@@ -331,7 +340,7 @@ class AccountsListSubCommand extends AbstractAsyncCommand {
 }
 
 // /bank deposit <bank_id> <amount>
-class BankDepositSubCommand extends AbstractAsyncCommand {
+class BankDepositSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> bankIdArg;
     private final RequiredArg<Double> amountArg;
@@ -344,7 +353,7 @@ class BankDepositSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
@@ -352,7 +361,7 @@ class BankDepositSubCommand extends AbstractAsyncCommand {
         }
 
         int bankId = bankIdArg.get(context);
-        double amount = amountArg.get(context);
+        long amount = Money.fromDouble(amountArg.get(context));
 
         if (amount <= 0) {
             context.sender().sendMessage(Message.raw("La cantidad debe ser positiva."));
@@ -384,34 +393,33 @@ class BankDepositSubCommand extends AbstractAsyncCommand {
         }
 
         double depositFee = bank.getDepositFee();
-        double feeAmount = amount * (depositFee / 100.0);
-        double actualDeposit = amount - feeAmount;
-
-        // Update balances
-        user.setMoney(user.getMoney() - amount);
-        bank.setBalance(bank.getBalance() + actualDeposit);
-
-        // Save changes
-        user.saveMoney();
-        bank.save();
-
-        // Record transaction
-        BankTransaction transaction = new BankTransaction(bankId, TransactionTypes.DEPOSIT, actualDeposit, playerUUID.toString());
-        transaction.save();
+        long feeAmount = Money.percentage(amount, depositFee);
+        long actualDeposit = Money.subtract(amount, feeAmount);
+
+        TransferResult result;
+        try {
+            result = new Transfer(playerUUID)
+                .debitWallet(playerUUID, amount)
+                .creditBank(bankId, actualDeposit, TransactionTypes.DEPOSIT)
+                .execute();
+        } catch (TransferException e) {
+            context.sender().sendMessage(Message.raw(e.getMessage()));
+            return CompletableFuture.completedFuture(null);
+        }
 
         context.sender().sendMessage(Message.raw("Depósito realizado exitosamente!"));
-        context.sender().sendMessage(Message.raw("Cantidad depositada: " + String.format("%.2f", actualDeposit) + " Liras"));
+        context.sender().sendMessage(Message.raw("Cantidad depositada: " + Money.format(actualDeposit) + " Liras"));
         if (feeAmount > 0) {
-            context.sender().sendMessage(Message.raw("Comisión aplicada: " + String.format("%.2f", feeAmount) + " Liras (" + depositFee + "%)"));
+            context.sender().sendMessage(Message.raw("Comisión aplicada: " + Money.format(feeAmount) + " Liras (" + depositFee + "%)"));
         }
-        context.sender().sendMessage(Message.raw("Nuevo balance del banco: " + String.format("%.2f", bank.getBalance()) + " Liras"));
+        context.sender().sendMessage(Message.raw("Nuevo balance del banco: " + Money.format(result.bankBalance(bankId)) + " Liras"));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // /bank withdraw <bank_id> <amount>
-class BankWithdrawSubCommand extends AbstractAsyncCommand {
+class BankWithdrawSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> bankIdArg;
     private final RequiredArg<Double> amountArg;
@@ -424,7 +432,7 @@ class BankWithdrawSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
@@ -432,7 +440,7 @@ class BankWithdrawSubCommand extends AbstractAsyncCommand {
         }
 
         int bankId = bankIdArg.get(context);
-        double amount = amountArg.get(context);
+        long amount = Money.fromDouble(amountArg.get(context));
 
         if (amount <= 0) {
             context.sender().sendMessage(Message.raw("La cantidad debe ser positiva."));
@@ -459,38 +467,37 @@ class BankWithdrawSubCommand extends AbstractAsyncCommand {
         }
 
         double withdrawFee = bank.getWithdrawFee();
-        double feeAmount = amount * (withdrawFee / 100.0);
-        double actualWithdraw = amount - feeAmount;
+        long feeAmount = Money.percentage(amount, withdrawFee);
+        long actualWithdraw = Money.subtract(amount, feeAmount);
 
         if (bank.getBalance() < actualWithdraw) {
             context.sender().sendMessage(Message.raw("El banco no tiene suficientes fondos."));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Update balances
-        bank.setBalance(bank.getBalance() - actualWithdraw);
-        user.setMoney(user.getMoney() + actualWithdraw);
-
-        // Save changes
-        bank.save();
-        user.saveMoney();
-
-        // Record transaction
-        BankTransaction transaction = new BankTransaction(bankId, TransactionTypes.WITHDRAWAL, actualWithdraw, playerUUID.toString());
-        transaction.save();
+        TransferResult result;
+        try {
+            result = new Transfer(playerUUID)
+                .debitBank(bankId, actualWithdraw, TransactionTypes.WITHDRAWAL)
+                .creditWallet(playerUUID, actualWithdraw)
+                .execute();
+        } catch (TransferException e) {
+            context.sender().sendMessage(Message.raw(e.getMessage()));
+            return CompletableFuture.completedFuture(null);
+        }
 
         context.sender().sendMessage(Message.raw("Retiro realizado exitosamente!"));
-        context.sender().sendMessage(Message.raw("Cantidad retirada: " + String.format("%.2f", actualWithdraw) + " Liras"));
+        context.sender().sendMessage(Message.raw("Cantidad retirada: " + Money.format(actualWithdraw) + " Liras"));
         if (feeAmount > 0) {
-            context.sender().sendMessage(Message.raw("Comisión aplicada: " + String.format("%.2f", feeAmount) + " Liras (" + withdrawFee + "%)"));
+            context.sender().sendMessage(Message.raw("Comisión aplicada: " + Money.format(feeAmount) + " Liras (" + withdrawFee + "%)"));
         }
-        context.sender().sendMessage(Message.raw("Nuevo balance del banco: " + String.format("%.2f", bank.getBalance()) + " Liras"));
+        context.sender().sendMessage(Message.raw("Nuevo balance del banco: " + Money.format(result.bankBalance(bankId)) + " Liras"));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
-class BankInviteSubCommand extends AbstractAsyncCommand {
+class BankInviteSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> bankIdArg;
     private final RequiredArg<String> targetPlayerArg;
@@ -503,7 +510,7 @@ class BankInviteSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
@@ -536,7 +543,7 @@ class BankInviteSubCommand extends AbstractAsyncCommand {
 }
 
 // /bank delete <bank_id>
-class BankDeleteSubCommand extends AbstractAsyncCommand {
+class BankDeleteSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> bankIdArg;
 
@@ -547,7 +554,7 @@ class BankDeleteSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
@@ -573,59 +580,24 @@ class BankDeleteSubCommand extends AbstractAsyncCommand {
             return CompletableFuture.completedFuture(null);
         }
 
-        // Obtener todas las cuentas del banco
-        List<BankAccount> accounts = bank.getAccounts();
-        double totalTransferred = 0.0;
-
-        // Procesar cada cuenta
-        for (BankAccount account : accounts) {
-            // Transferir el balance de la cuenta al gobierno
-            if (account.getBalance() > 0) {
-                totalTransferred += account.getBalance();
-                govAccount.setBalance(govAccount.getBalance() + account.getBalance());
-            }
-
-            // Eliminar los owners de la cuenta
-            BankAccountOwner.deleteByAccount(account.getId());
-
-            // Eliminar las transacciones de la cuenta
-            List<Transaction> transactions = Transaction.findByAccount(account.getId());
-            for (Transaction transaction : transactions) {
-                transaction.delete();
-            }
-
-            // Eliminar la cuenta
-            account.delete();
-        }
-
-        // Guardar la cuenta del gobierno con el nuevo balance
-        if (totalTransferred > 0) {
-            govAccount.save();
-            
-            // Registrar transacción en la cuenta del gobierno
-            BankTransaction govTransaction = new BankTransaction(
-                govAccount.getBankId(), 
-                TransactionTypes.BANK_DELETION, 
-                totalTransferred, 
-                playerUUID.toString()
-            );
-            govTransaction.save();
-        }
-
-        // Eliminar todas las transacciones del banco
-        List<BankTransaction> bankTransactions = BankTransaction.findByBank(bankId);
-        for (BankTransaction transaction : bankTransactions) {
-            transaction.delete();
-        }
-
-        // Eliminar el banco
-        bank.delete();
-
-        context.sender().sendMessage(Message.raw("Banco eliminado exitosamente!"));
-        context.sender().sendMessage(Message.raw("Cuentas eliminadas: " + accounts.size()));
-        if (totalTransferred > 0) {
-            context.sender().sendMessage(Message.raw("Fondos transferidos al gobierno: " + String.format("%.2f", totalTransferred) + " Liras"));
-        }
+        // El borrado va en segundo plano y por bloques; el avance se envía al jugador
+        context.sender().sendMessage(Message.raw("Eliminando el banco #" + bankId + " en segundo plano..."));
+        BankDeletionJob.submit(bankId, govAccount, playerUUID, TerratalePlugin.get().config().bankDeletionChunkSize,
+                message -> context.sender().sendMessage(Message.raw(message)))
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    context.sender().sendMessage(Message.raw(cause instanceof TransferException
+                        ? cause.getMessage() : "Error al eliminar el banco: " + cause.getMessage()));
+                    return;
+                }
+                context.sender().sendMessage(Message.raw("Banco eliminado exitosamente!"));
+                context.sender().sendMessage(Message.raw("Cuentas eliminadas: " + result.accounts));
+                context.sender().sendMessage(Message.raw("Movimientos eliminados: " + (result.transactions + result.bankTransactions)));
+                if (result.swept > 0) {
+                    context.sender().sendMessage(Message.raw("Fondos transferidos al gobierno: " + Money.format(result.swept) + " Liras"));
+                }
+            });
 
         return CompletableFuture.completedFuture(null);
     }
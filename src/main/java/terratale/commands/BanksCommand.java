@@ -1,5 +1,6 @@
 package terratale.commands;
 
+import terratale.Helpers.Money;
 import terratale.models.Bank;
 import terratale.models.User;
 import terratale.pages.BanksPage;
@@ -17,7 +18,10 @@ import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 public class BanksCommand extends AbstractPlayerCommand {
@@ -36,37 +40,47 @@ public class BanksCommand extends AbstractPlayerCommand {
             @Nonnull World world
     ) {
 
-        List<Bank> banks = Bank.findAllPublics();
         Player player = (Player) context.sender();
 
-        if (banks.isEmpty()) {
-            context.sender().sendMessage(Message.raw("No hay bancos creados."));
-        }
+        // Bancos y nombres de los dueños se cargan fuera del hilo del mundo
+        CommandExecutor.runOnWorld("banks", context.sender(), world, () -> {
+            Map<Bank, String> owners = new LinkedHashMap<>();
+            for (Bank bank : Bank.findAllPublics()) {
+                User owner = User.find(bank.getOwnerUuid());
+                owners.put(bank, (owner != null) ? owner.getUsername() : "Desconocido");
+            }
+            return owners;
+        }, owners -> {
+            List<Bank> banks = new ArrayList<>(owners.keySet());
 
-        context.sender().sendMessage(Message.raw("=== Bancos Disponibles ==="));
-        context.sender().sendMessage(Message.raw("Total: " + banks.size()));
-        context.sender().sendMessage(Message.raw(""));
+            if (banks.isEmpty()) {
+                context.sender().sendMessage(Message.raw("No hay bancos creados."));
+            }
 
-        for (Bank bank : banks) {
-            User owner = User.find(bank.getOwnerUuid());
-            String ownerName = (owner != null) ? owner.getUsername() : "Desconocido";
-            
-            context.sender().sendMessage(Message.raw("ID: #" + bank.getId()));
-            context.sender().sendMessage(Message.raw("  Nombre: " + bank.getName()));
-            context.sender().sendMessage(Message.raw("  Propietario: " + ownerName));
-            context.sender().sendMessage(Message.raw("  Balance: $" + String.format("%.2f", bank.getBalance())));
-            context.sender().sendMessage(Message.raw("  Comisiones:"));
-            context.sender().sendMessage(Message.raw("    - Retiro: " + bank.getWithdrawFee() + "%"));
-            context.sender().sendMessage(Message.raw("    - Depósito: " + bank.getDepositFee() + "%"));
-            context.sender().sendMessage(Message.raw("    - Transferencia: " + bank.getTransactionsFee() + "%"));
+            context.sender().sendMessage(Message.raw("=== Bancos Disponibles ==="));
+            context.sender().sendMessage(Message.raw("Total: " + banks.size()));
             context.sender().sendMessage(Message.raw(""));
-        }
 
-        BanksPage banksPage = new BanksPage(
-            playerRef, 
-            CustomPageLifetime.CanDismiss, 
-            banks);
+            for (Bank bank : banks) {
+                String ownerName = owners.get(bank);
 
-        player.getPageManager().openCustomPage(ref, store, banksPage);
+                context.sender().sendMessage(Message.raw("ID: #" + bank.getId()));
+                context.sender().sendMessage(Message.raw("  Nombre: " + bank.getName()));
+                context.sender().sendMessage(Message.raw("  Propietario: " + ownerName));
+                context.sender().sendMessage(Message.raw("  Balance: $" + Money.format(bank.getBalance())));
+                context.sender().sendMessage(Message.raw("  Comisiones:"));
+                context.sender().sendMessage(Message.raw("    - Retiro: " + bank.getWithdrawFee() + "%"));
+                context.sender().sendMessage(Message.raw("    - Depósito: " + bank.getDepositFee() + "%"));
+                context.sender().sendMessage(Message.raw("    - Transferencia: " + bank.getTransactionsFee() + "%"));
+                context.sender().sendMessage(Message.raw(""));
+            }
+
+            BanksPage banksPage = new BanksPage(
+                playerRef, 
+                CustomPageLifetime.CanDismiss, 
+                banks);
+
+            player.getPageManager().openCustomPage(ref, store, banksPage);
+        });
     }
 }
@@ -1,5 +1,6 @@
 package terratale.commands;
 
+import terratale.Helpers.Money;
 import terratale.Helpers.PorcentualHelper;
 import terratale.models.Bank;
 import terratale.models.User;
@@ -52,12 +53,14 @@ public class CheckPorcentualCommand extends AbstractPlayerCommand {
             return;
         }
 
-        Double amount = PorcentualHelper.calculatePorcentual(porcentualPoints);
-        Double totalMoney = PorcentualHelper.getAllMoneyBank();
-
-        context.sender().sendMessage(Message.raw("=== Porcentual Calculation ==="));
-        context.sender().sendMessage(Message.raw("Points: " + porcentualPoints));
-        context.sender().sendMessage(Message.raw("Amount: " + amount));
-        context.sender().sendMessage(Message.raw("Total Money in Banks: " + String.format("%.2f", totalMoney)));
+        // Las dos sumas recorren tablas enteras: fuera del hilo del mundo
+        CommandExecutor.runOnWorld("checkporcentual", context.sender(), world,
+            () -> new long[] {PorcentualHelper.calculatePorcentual(porcentualPoints), PorcentualHelper.getAllMoneyBank()},
+            totals -> {
+                context.sender().sendMessage(Message.raw("=== Porcentual Calculation ==="));
+                context.sender().sendMessage(Message.raw("Points: " + porcentualPoints));
+                context.sender().sendMessage(Message.raw("Amount: " + Money.format(totals[0])));
+                context.sender().sendMessage(Message.raw("Total Money in Banks: " + Money.format(totals[1])));
+            });
     }
 }
@@ -0,0 +1,331 @@
+package terratale.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.universe.world.World;
+import terratale.metrics.Histogram;
+import terratale.metrics.Metrics;
+import terratale.models.Model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta el trabajo de base de datos de los comandos fuera del hilo del mundo.
+ *
+ * Los AbstractPlayerCommand se llaman en el hilo del mundo, así que una consulta lenta (p. ej. las sumas
+ * de /checkporcentual) retrasaba el tick. Con {@link #runOnWorld} la carga se hace en un hilo virtual y
+ * solo el envío de mensajes y la apertura de páginas vuelven al mundo. Los AbstractAsyncCommand pasan
+ * por aquí a través de {@link EconomyCommand}.
+ *
+ * Cada tarea es un hilo virtual, así que una ráfaga de comandos solo ocupa memoria mientras espera. Para
+ * usar la base de datos necesita un permiso (tantos como conexiones tiene el pool): las que no lo consiguen
+ * en {@code queueTimeoutMs} se rechazan con un aviso, y las de un jugador que se desconecta mientras
+ * esperan se cancelan. Una vez empezada, una tarea no se interrumpe (podría dejar una transferencia a
+ * medias); si tarda más de {@code timeoutMs} se avisa al jugador y sigue en segundo plano.
+ *
+ * Se guardan, por comando, la latencia, la espera y los rechazos, y el número de tareas en cola y en
+ * ejecución (/terratale commands).
+ */
+public class CommandExecutor {
+
+    private static CommandExecutor instance;
+
+    private final ExecutorService executor;
+    private final Semaphore dbPermits;
+    private final int maxPermits;
+    private final long queueTimeoutMs;
+    private final long timeoutMs;
+    private final Map<UUID, Set<Thread>> waiting = new ConcurrentHashMap<>(); // hilos esperando permiso, por jugador
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+
+    private static final class Stats {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong waitNanos = new AtomicLong();  // desde el envío hasta que empieza
+        final AtomicLong totalNanos = new AtomicLong(); // desde el envío hasta que termina (incluida la vuelta al mundo)
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();  // sin permiso a tiempo
+        final AtomicLong cancelled = new AtomicLong(); // el jugador se desconectó esperando
+        final AtomicLong timeouts = new AtomicLong();  // respondieron tarde al servidor
+        final Histogram latency;                       // lo mismo que totalNanos, en /terratale stats
+        final Metrics.Counter failures;
+
+        Stats(String command) {
+            latency = Metrics.timer("command." + command);
+            failures = Metrics.counter("command." + command + ".errors");
+        }
+    }
+
+    // Sin permiso de base de datos en queueTimeoutMs
+    public static class BusyException extends RuntimeException {
+        public BusyException() {
+            super("El servidor está ocupado, inténtalo de nuevo en unos segundos.");
+        }
+    }
+
+    private CommandExecutor(int dbPermits, long queueTimeoutMs, long timeoutMs) {
+        // Java 24+ ya no fija el hilo virtual al portador dentro de synchronized (drivers JDBC)
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("TerraEconomy-command-", 0).factory());
+        this.maxPermits = Math.max(1, dbPermits);
+        this.dbPermits = new Semaphore(maxPermits, true);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public static void start(int dbPermits, long queueTimeoutMs, long timeoutMs) {
+        stop();
+        instance = new CommandExecutor(dbPermits, queueTimeoutMs, timeoutMs);
+        Metrics.gauge("command.queued", () -> instance != null ? instance.queued.get() : 0);
+        Metrics.gauge("command.running", () -> instance != null ? instance.running.get() : 0);
+    }
+
+    public static CommandExecutor get() {
+        return instance;
+    }
+
+    public static void stop() {
+        if (instance != null) {
+            instance.executor.shutdown();
+            try {
+                if (!instance.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    instance.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                instance.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            instance = null;
+        }
+    }
+
+    /* ---------------------- Ejecución ---------------------- */
+
+    public <T> CompletableFuture<T> submit(String command, UUID owner, Supplier<T> work) {
+        long submittedAt = System.nanoTime();
+        Stats commandStats = stats.computeIfAbsent(command, Stats::new);
+        return execute(commandStats, submittedAt, owner, work)
+            .whenComplete((result, error) -> record(commandStats, submittedAt, error != null));
+    }
+
+    /**
+     * Ejecuta el cuerpo de un AbstractAsyncCommand. El futuro que se devuelve al servidor se completa
+     * cuando termina el cuerpo (incluido el futuro que devuelva) o, como mucho, a los {@code timeoutMs}.
+     */
+    CompletableFuture<Void> dispatch(String command, CommandSender sender, Supplier<CompletableFuture<Void>> body) {
+        long submittedAt = System.nanoTime();
+        Stats commandStats = stats.computeIfAbsent(command, Stats::new);
+
+        CompletableFuture<Void> reply = new CompletableFuture<>();
+        execute(commandStats, submittedAt, sender.getUuid(), body)
+            .thenCompose(future -> future != null ? future : CompletableFuture.<Void>completedFuture(null))
+            .whenComplete((result, error) -> {
+                record(commandStats, submittedAt, error != null && !isCancellation(error));
+                if (error != null) {
+                    reject(command, sender, error);
+                }
+                reply.complete(null);
+            });
+
+        CompletableFuture.delayedExecutor(timeoutMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (reply.complete(null)) {
+                commandStats.timeouts.incrementAndGet();
+                Model.logError("Command " + command + " is still running after " + timeoutMs + "ms");
+                sender.sendMessage(Message.raw("El comando está tardando más de lo normal; terminará en segundo plano."));
+            }
+        });
+        return reply;
+    }
+
+    private <T> CompletableFuture<T> execute(Stats commandStats, long submittedAt, UUID owner, Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+
+        executor.execute(() -> {
+            boolean acquired;
+            try {
+                acquired = acquire(owner);
+            } catch (InterruptedException e) {
+                queued.decrementAndGet();
+                commandStats.cancelled.incrementAndGet();
+                result.cancel(false);
+                return;
+            }
+            queued.decrementAndGet();
+            if (!acquired) {
+                commandStats.rejected.incrementAndGet();
+                result.completeExceptionally(new BusyException());
+                return;
+            }
+
+            running.incrementAndGet();
+            commandStats.waitNanos.addAndGet(System.nanoTime() - submittedAt);
+            try {
+                result.complete(work.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                running.decrementAndGet();
+                dbPermits.release();
+            }
+        });
+        return result;
+    }
+
+    // Espera un permiso; mientras tanto el hilo queda registrado para cancelarlo si el jugador se va
+    private boolean acquire(UUID owner) throws InterruptedException {
+        if (owner == null) {
+            return dbPermits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        Thread thread = Thread.currentThread();
+        Set<Thread> threads = waiting.computeIfAbsent(owner, k -> new HashSet<>());
+        synchronized (threads) {
+            threads.add(thread);
+        }
+
+        boolean acquired = false;
+        try {
+            acquired = dbPermits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            boolean stillWaiting;
+            synchronized (threads) {
+                stillWaiting = threads.remove(thread);
+            }
+            // Si onPlayerLeave ya lo quitó, también lo interrumpió (o está a punto): se cancela
+            if (!stillWaiting || Thread.interrupted()) {
+                if (acquired) {
+                    dbPermits.release();
+                }
+                throw new InterruptedException();
+            }
+        }
+        return acquired;
+    }
+
+    // Cancela los comandos del jugador que aún esperan permiso; los que ya se ejecutan terminan
+    public void onPlayerLeave(UUID uuid) {
+        Set<Thread> threads = waiting.remove(uuid);
+        if (threads == null) {
+            return;
+        }
+        synchronized (threads) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            threads.clear();
+        }
+    }
+
+    /**
+     * Carga los datos con {@code load} fuera del hilo del mundo y los muestra con {@code render} de vuelta
+     * en él. Sin CommandExecutor arrancado (base de datos no inicializada) todo se hace en el momento.
+     */
+    public static <T> void runOnWorld(String command, CommandSender sender, World world, Supplier<T> load, Consumer<T> render) {
+        CommandExecutor commands = instance;
+        if (commands == null) {
+            render.accept(load.get());
+            return;
+        }
+
+        long submittedAt = System.nanoTime();
+        Stats commandStats = commands.stats.computeIfAbsent(command, Stats::new);
+        commands.execute(commandStats, submittedAt, sender.getUuid(), load).whenComplete((data, error) -> {
+            if (error != null) {
+                commands.record(commandStats, submittedAt, !isCancellation(error));
+                reject(command, sender, error);
+                return;
+            }
+            world.execute(() -> {
+                boolean failed = false;
+                try {
+                    render.accept(data);
+                } catch (RuntimeException e) {
+                    failed = true;
+                    fail(command, sender, e);
+                } finally {
+                    commands.record(commandStats, submittedAt, failed);
+                }
+            });
+        });
+    }
+
+    private static boolean isCancellation(Throwable error) {
+        return error instanceof CancellationException || error.getCause() instanceof CancellationException;
+    }
+
+    // Avisa al jugador según por qué no se pudo ejecutar el comando
+    private static void reject(String command, CommandSender sender, Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        if (isCancellation(error)) {
+            return; // el jugador ya no está
+        }
+        if (cause instanceof BusyException) {
+            sender.sendMessage(Message.raw(cause.getMessage()));
+            return;
+        }
+        fail(command, sender, cause);
+    }
+
+    private static void fail(String command, CommandSender sender, Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        Model.logError("Command " + command + " failed: " + cause.getMessage());
+        cause.printStackTrace();
+        sender.sendMessage(Message.raw("Ha ocurrido un error al ejecutar el comando."));
+    }
+
+    private void record(Stats commandStats, long submittedAt, boolean failed) {
+        long elapsed = System.nanoTime() - submittedAt;
+        commandStats.count.incrementAndGet();
+        commandStats.totalNanos.addAndGet(elapsed);
+        commandStats.maxNanos.accumulateAndGet(elapsed, Math::max);
+        commandStats.latency.record(elapsed);
+        if (failed) {
+            commandStats.errors.incrementAndGet();
+            commandStats.failures.increment();
+        }
+    }
+
+    /* ---------------------- Estadísticas ---------------------- */
+
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Comandos: " + queued.get() + " en cola (máx " + peakQueued.get() + "), " + running.get() + " en ejecución, "
+            + dbPermits.availablePermits() + "/" + maxPermits + " permisos de base de datos libres");
+
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(stats.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Stats> e) -> e.getValue().totalNanos.get()).reversed());
+        for (Map.Entry<String, Stats> entry : entries) {
+            Stats s = entry.getValue();
+            long count = Math.max(1, s.count.get());
+            lines.add("  " + entry.getKey() + ": " + s.count.get() + " ejecuciones, media "
+                + formatMs(s.totalNanos.get() / count) + ", máx " + formatMs(s.maxNanos.get())
+                + ", espera media " + formatMs(s.waitNanos.get() / count) + ", errores " + s.errors.get()
+                + ", rechazados " + s.rejected.get() + ", cancelados " + s.cancelled.get() + ", lentos " + s.timeouts.get());
+        }
+        return lines;
+    }
+
+    private static String formatMs(long nanos) {
+        return String.format("%.1fms", nanos / 1_000_000.0);
+    }
+}
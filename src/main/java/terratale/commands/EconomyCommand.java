@@ -0,0 +1,33 @@
+package terratale.commands;
+
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Comando asíncrono cuyo cuerpo usa la base de datos: se ejecuta en un hilo virtual de
+ * {@link CommandExecutor}, con un permiso de base de datos y cancelable si el jugador se desconecta
+ * antes de empezar. Sin CommandExecutor arrancado se ejecuta en el hilo que llama, como antes.
+ */
+public abstract class EconomyCommand extends AbstractAsyncCommand {
+
+    protected EconomyCommand(String name, String description) {
+        super(name, description);
+    }
+
+    @Override
+    @Nonnull
+    protected final CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+        CommandExecutor commands = CommandExecutor.get();
+        if (commands == null) {
+            return executeBlocking(context);
+        }
+        return commands.dispatch(getClass().getSimpleName(), context.sender(), () -> executeBlocking(context));
+    }
+
+    // Cuerpo del comando; puede bloquear (JDBC, bloqueos de transferencias...)
+    @Nonnull
+    protected abstract CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context);
+}
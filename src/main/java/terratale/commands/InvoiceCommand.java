@@ -1,7 +1,6 @@
 package terratale.commands;
 
-import terratale.models.BankAccount;
-import terratale.models.BankAccountOwner;
+import terratale.Helpers.Money;
 import terratale.models.Invoice;
 import terratale.Helpers.InvoiceHelper;
 import terratale.responses.InvoicePaymentResponse;
@@ -10,13 +9,10 @@ import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
-import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractCommandCollection;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 
 import javax.annotation.Nonnull;
-import java.sql.Date;
-import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -32,7 +28,7 @@ public class InvoiceCommand extends AbstractCommandCollection {
 }
 
 // /invoice create <receptor_account> <payer_account> <amount> <days_until_due> <description>
-class InvoiceCreateSubCommand extends AbstractAsyncCommand {
+class InvoiceCreateSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> receptorAccountArg;
     private final RequiredArg<String> payerAccountArg;
@@ -51,7 +47,7 @@ class InvoiceCreateSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -59,75 +55,33 @@ class InvoiceCreateSubCommand extends AbstractAsyncCommand {
 
         String receptorAccount = receptorAccountArg.get(context);
         String payerAccount = payerAccountArg.get(context);
-        double amount = amountArg.get(context);
+        long amount = Money.fromDouble(amountArg.get(context));
         int daysUntilDue = daysArg.get(context);
         String description = descriptionArg.get(context);
         UUID playerUUID = context.sender().getUuid();
+        Invoice invoice;
 
-        description = description.replace("\"", "");
-        description = description.replace("\'", "");
-
-        // Validar que el monto sea positivo
-        if (amount <= 0) {
-            context.sender().sendMessage(Message.raw("El monto debe ser mayor a 0."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Validar que los días sean positivos
-        if (daysUntilDue <= 0 || daysUntilDue >= 30) {
-            context.sender().sendMessage(Message.raw("Los días hasta el vencimiento deben ser mayor a 0 y menor o igual a 30."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar que las cuentas existan
-        BankAccount receptorAcc = BankAccount.findByAccountNumber(receptorAccount);
-        BankAccount payerAcc = BankAccount.findByAccountNumber(payerAccount);
-
-        if (receptorAcc == null) {
-            context.sender().sendMessage(Message.raw("La cuenta receptora no existe."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        if (payerAcc == null) {
-            context.sender().sendMessage(Message.raw("La cuenta pagadora no existe."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar que el jugador sea dueño de la cuenta receptora
-        List<Integer> playerAccounts = BankAccountOwner.getAccountsByOwner(playerUUID);
-        if (!playerAccounts.contains(receptorAcc.getId())) {
-            context.sender().sendMessage(Message.raw("No eres dueño de la cuenta receptora."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        if (receptorAccount.equals(payerAccount)) {
-            context.sender().sendMessage(Message.raw("La cuenta receptora y la cuenta pagadora no pueden ser la misma."));
+        try {
+            invoice = InvoiceHelper.createInvoice(receptorAccount, payerAccount, amount, daysUntilDue, description, playerUUID);
+        } catch (RuntimeException e) {
+            context.sender().sendMessage(Message.raw(e.getMessage()));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Calcular fecha de vencimiento
-        long currentTimeMillis = System.currentTimeMillis();
-        long dueTimeMillis = currentTimeMillis + (daysUntilDue * 24L * 60L * 60L * 1000L);
-        Date dueDate = new Date(dueTimeMillis);
-
-        // Crear la factura
-        Invoice invoice = new Invoice(receptorAccount, payerAccount, amount, dueDate, description);
-        invoice.save();
-
         context.sender().sendMessage(Message.raw("Factura creada exitosamente!"));
         context.sender().sendMessage(Message.raw("ID: #" + invoice.getId()));
         context.sender().sendMessage(Message.raw("Cuenta Receptora: " + receptorAccount));
         context.sender().sendMessage(Message.raw("Cuenta Pagadora: " + payerAccount));
-        context.sender().sendMessage(Message.raw("Monto: $" + String.format("%.2f", amount)));
-        context.sender().sendMessage(Message.raw("Vencimiento: " + dueDate.toString()));
-        context.sender().sendMessage(Message.raw("Descripción: " + description));
+        context.sender().sendMessage(Message.raw("Monto: $" + Money.format(amount)));
+        context.sender().sendMessage(Message.raw("Vencimiento: " + invoice.getDueDate().toString()));
+        context.sender().sendMessage(Message.raw("Descripción: " + invoice.getDescription()));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // /invoice pay <invoice_id>
-class InvoicePaySubCommand extends AbstractAsyncCommand {
+class InvoicePaySubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> invoiceIdArg;
 
@@ -138,7 +92,7 @@ class InvoicePaySubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -157,17 +111,17 @@ class InvoicePaySubCommand extends AbstractAsyncCommand {
 
         context.sender().sendMessage(Message.raw("Factura pagada exitosamente!"));
         context.sender().sendMessage(Message.raw("ID: #" + invoiceId));
-        context.sender().sendMessage(Message.raw("Monto factura: $" + String.format("%.2f", response.getInvoice().getAmount())));
-        context.sender().sendMessage(Message.raw("Comisión bancaria: $" + String.format("%.2f", response.getBankTransferFee())));
-        context.sender().sendMessage(Message.raw("Total deducido: $" + String.format("%.2f", response.getTotalDeducted())));
-        context.sender().sendMessage(Message.raw("Nuevo saldo: $" + String.format("%.2f", response.getNewBalance())));
+        context.sender().sendMessage(Message.raw("Monto factura: $" + Money.format(response.getInvoice().getAmount())));
+        context.sender().sendMessage(Message.raw("Comisión bancaria: $" + Money.format(response.getBankTransferFee())));
+        context.sender().sendMessage(Message.raw("Total deducido: $" + Money.format(response.getTotalDeducted())));
+        context.sender().sendMessage(Message.raw("Nuevo saldo: $" + Money.format(response.getNewBalance())));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // /invoice reject <invoice_id>
-class InvoiceRejectSubCommand extends AbstractAsyncCommand {
+class InvoiceRejectSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> invoiceIdArg;
 
@@ -178,7 +132,7 @@ class InvoiceRejectSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
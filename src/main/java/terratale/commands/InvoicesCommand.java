@@ -1,7 +1,7 @@
 package terratale.commands;
 
+import terratale.cache.SessionManager;
 import terratale.models.BankAccount;
-import terratale.models.BankAccountOwner;
 import terratale.models.Invoice;
 import terratale.pages.InvoicesPage;
 
@@ -44,38 +44,42 @@ public class InvoicesCommand extends AbstractPlayerCommand {
         Player player = (Player) context.sender();
         UUID playerUUID = playerRef.getUuid();
 
-        // Obtener todas las cuentas del jugador
-        List<Integer> playerAccountIds = BankAccountOwner.getAccountsByOwner(playerUUID);
+        String accNumber = accountNumberArg.get(context);
 
-        if (playerAccountIds.isEmpty()) {
-            context.sender().sendMessage(Message.raw("No tienes cuentas bancarias."));
-        }
+        CommandExecutor.runOnWorld("invoices", context.sender(), world, () -> {
+            // Obtener todas las cuentas del jugador
+            List<Integer> playerAccountIds = SessionManager.accountIds(playerUUID);
 
-        // Obtener todas las facturas relacionadas con las cuentas del jugador
-        List<Invoice> allInvoices = new ArrayList<>();
-
-        if (accountNumberArg.get(context) != null) {
-            String accNumber = accountNumberArg.get(context);
-            BankAccount account = BankAccount.findByAccountNumber(accNumber);
-            if (account == null || !playerAccountIds.contains(account.getId())) {
-                context.sender().sendMessage(Message.raw("No tienes una cuenta con ese número."));
+            if (playerAccountIds.isEmpty()) {
+                context.sender().sendMessage(Message.raw("No tienes cuentas bancarias."));
             }
-            // Facturas recibidas y enviadas
-            allInvoices.addAll(Invoice.findByPayerAccount(accNumber));
-            allInvoices.addAll(Invoice.findByReceptorAccount(accNumber));
-        } else {
-            for (Integer accountId : playerAccountIds) {
-                BankAccount account = BankAccount.find(accountId);
-                if (account != null) {
-                    String accountNumber = account.getAccountNumber();
-                    allInvoices.addAll(Invoice.findByPayerAccount(accountNumber));
-                    allInvoices.addAll(Invoice.findByReceptorAccount(accountNumber));
+
+            // Obtener todas las facturas relacionadas con las cuentas del jugador
+            List<Invoice> allInvoices = new ArrayList<>();
+
+            if (accNumber != null) {
+                BankAccount account = BankAccount.findByAccountNumber(accNumber);
+                if (account == null || !playerAccountIds.contains(account.getId())) {
+                    context.sender().sendMessage(Message.raw("No tienes una cuenta con ese número."));
+                }
+                // Facturas recibidas y enviadas
+                allInvoices.addAll(Invoice.findByPayerAccount(accNumber));
+                allInvoices.addAll(Invoice.findByReceptorAccount(accNumber));
+            } else {
+                for (Integer accountId : playerAccountIds) {
+                    BankAccount account = BankAccount.find(accountId);
+                    if (account != null) {
+                        String accountNumber = account.getAccountNumber();
+                        allInvoices.addAll(Invoice.findByPayerAccount(accountNumber));
+                        allInvoices.addAll(Invoice.findByReceptorAccount(accountNumber));
+                    }
                 }
             }
-        }
-
-        // Abrir la interfaz gráfica con todas las facturas
-        InvoicesPage page = new InvoicesPage(playerRef, CustomPageLifetime.CanDismiss, allInvoices, playerUUID);
-        player.getPageManager().openCustomPage(ref, store, page);
+            return allInvoices;
+        }, allInvoices -> {
+            // Abrir la interfaz gráfica con todas las facturas
+            InvoicesPage page = new InvoicesPage(playerRef, CustomPageLifetime.CanDismiss, allInvoices, playerUUID);
+            player.getPageManager().openCustomPage(ref, store, page);
+        });
     }
 }
@@ -4,7 +4,6 @@ import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
-import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractCommandCollection;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 // import com.hypixel.hytale.server.core.inventory.Inventory;
@@ -13,6 +12,9 @@ import com.hypixel.hytale.server.core.entity.entities.Player;
 // import java.util.List;
 // import java.util.ArrayList;
 
+import terratale.Helpers.Money;
+import terratale.cache.SessionManager;
+import terratale.cache.WalletCache;
 import terratale.models.User;
 
 import javax.annotation.Nonnull;
@@ -32,7 +34,7 @@ public class MoneyCommand extends AbstractCommandCollection {
 }
 
 // /money balance - mostrar balance propio
-class MoneyBalanceSubCommand extends AbstractAsyncCommand {
+class MoneyBalanceSubCommand extends EconomyCommand {
 
     public MoneyBalanceSubCommand() {
         super("balance", "Check your money balance");
@@ -40,7 +42,7 @@ class MoneyBalanceSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -50,17 +52,17 @@ class MoneyBalanceSubCommand extends AbstractAsyncCommand {
         Player player = (Player) context.sender();
         String playerName = player.getDisplayName();
 
-        User user = User.findOrCreate(playerUUID, playerName);
+        User user = SessionManager.user(playerUUID, playerName);
 
-        double balance = user.getMoney();
-        player.sendMessage(Message.raw("Tu balance en el bolsillo es: " + String.format("%.2f", balance) + " Liras"));
+        long balance = user.getMoney();
+        player.sendMessage(Message.raw("Tu balance en el bolsillo es: " + Money.format(balance) + " Liras"));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // /money set <username> <amount>
-class MoneySetSubCommand extends AbstractAsyncCommand {
+class MoneySetSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> usernameArg;
     private final RequiredArg<Double> amountArg;
@@ -73,9 +75,9 @@ class MoneySetSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         String targetUsername = usernameArg.get(context);
-        double amount = amountArg.get(context);
+        long amount = Money.fromDouble(amountArg.get(context));
 
         if (amount < 0) {
             context.sender().sendMessage(Message.raw("La cantidad no puede ser negativa"));
@@ -89,17 +91,20 @@ class MoneySetSubCommand extends AbstractAsyncCommand {
             return CompletableFuture.completedFuture(null);
         }
 
-        targetUser.setMoney(amount);
-        targetUser.saveMoney();
+        WalletCache.WalletResult result = User.setBalance(targetUser.getUuid(), amount);
+        if (!result.success) {
+            context.sender().sendMessage(Message.raw("No se pudo establecer el balance de " + targetUsername));
+            return CompletableFuture.completedFuture(null);
+        }
 
-        context.sender().sendMessage(Message.raw("Balance de " + targetUsername + " establecido a " + String.format("%.2f", amount) + " Liras"));
+        context.sender().sendMessage(Message.raw("Balance de " + targetUsername + " establecido a " + Money.format(amount) + " Liras"));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // /money withdraw <amount>
-// class MoneyWithdrawSubCommand extends AbstractAsyncCommand {
+// class MoneyWithdrawSubCommand extends EconomyCommand {
 
 //     private final RequiredArg<Double> amountArg;
 
@@ -116,7 +121,7 @@ class MoneySetSubCommand extends AbstractAsyncCommand {
 
 //     @Override
 //     @Nonnull
-//     protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+//     protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 //         if (!(context.sender() instanceof Player)) {
 //             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
 //             return CompletableFuture.completedFuture(null);
@@ -172,7 +177,7 @@ class MoneySetSubCommand extends AbstractAsyncCommand {
 //     }
 // }
 
-// class MoneyDepositSubCommand extends AbstractAsyncCommand {
+// class MoneyDepositSubCommand extends EconomyCommand {
 
 //     private static final String COIN_ITEM_ID = "Terratale_Coin";
 //     private static final String CENT_ITEM_ID = "Terratale_Cent";
@@ -183,7 +188,7 @@ class MoneySetSubCommand extends AbstractAsyncCommand {
 
 //     @Override
 //     @Nonnull
-//     protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+//     protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 //         if (!(context.sender() instanceof Player)) {
 //             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
 //             return CompletableFuture.completedFuture(null);
@@ -1,25 +1,23 @@
 package terratale.commands;
 
+import terratale.Helpers.Money;
+import terratale.Helpers.SchedulePaymentHelper;
 import terratale.models.BankAccount;
-import terratale.models.BankAccountOwner;
-import terratale.models.Invoice;
 import terratale.models.SchedulePayment;
 import terratale.models.User;
 import terratale.models.ScheduleLog;
 import terratale.plugin.TerratalePlugin;
+import terratale.scheduler.PaymentScheduler;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.system.OptionalArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
-import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractCommandCollection;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 
 import javax.annotation.Nonnull;
-import java.sql.Date;
-import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -38,7 +36,7 @@ public class SchedulePaymentCommand extends AbstractCommandCollection {
 }
 
 // /schedulepayment create <receptor_account> <payer_account> <amount> <day_of_month> <days_until_due> <description>
-class SchedulePaymentCreateSubCommand extends AbstractAsyncCommand {
+class SchedulePaymentCreateSubCommand extends EconomyCommand {
 
     private final RequiredArg<String> receptorAccountArg;
     private final RequiredArg<String> payerAccountArg;
@@ -59,7 +57,7 @@ class SchedulePaymentCreateSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -67,75 +65,30 @@ class SchedulePaymentCreateSubCommand extends AbstractAsyncCommand {
 
         String receptorAccount = receptorAccountArg.get(context);
         String payerAccount = payerAccountArg.get(context);
-        double amount = amountArg.get(context);
+        long amount = Money.fromDouble(amountArg.get(context));
         int dayOfMonth = dayOfMonthArg.get(context);
         int daysUntilDue = daysUntilDueArg.get(context);
         String description = descriptionArg.get(context);
         UUID playerUUID = context.sender().getUuid();
-        List<Integer> userAccountsIds = BankAccountOwner.getAccountsByOwner(playerUUID);
 
-        description = description.replace("\"", "");
-        description = description.replace("\'", "");
-
-        // Validar que el monto sea positivo
-        if (amount <= 0) {
-            context.sender().sendMessage(Message.raw("El monto debe ser mayor a 0."));
+        try {
+            SchedulePaymentHelper.createSchedulePayment(receptorAccount, payerAccount, amount, dayOfMonth, daysUntilDue, description, playerUUID);
+        } catch (RuntimeException e) {
+            context.sender().sendMessage(Message.raw(e.getMessage()));
             return CompletableFuture.completedFuture(null);
         }
 
-        // Validar día del mes
-        if (dayOfMonth < 1 || dayOfMonth > 28) {
-            context.sender().sendMessage(Message.raw("El día del mes debe estar entre 1 y 28."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Validar días hasta vencimiento
-        if (daysUntilDue <= 0 || daysUntilDue > 30) {
-            context.sender().sendMessage(Message.raw("Los días hasta el vencimiento deben estar entre 1 y 30."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar que las cuentas existan
-        BankAccount receptorAcc = BankAccount.findByAccountNumber(receptorAccount);
-        if (receptorAcc == null) {
-            context.sender().sendMessage(Message.raw("La cuenta receptora no existe."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        BankAccount payerAcc = BankAccount.findByAccountNumber(payerAccount);
-        if (payerAcc == null) {
-            context.sender().sendMessage(Message.raw("La cuenta pagadora no existe."));
-            return CompletableFuture.completedFuture(null);
-        }
-
-        // Verificar si la cuenta que recibe pertenece al jugador
-        if (!userAccountsIds.contains(receptorAcc.getId())) {
-            context.sender().sendMessage(Message.raw("No estas autorizado a utilizar la cuenta " + receptorAccount + "."));
-            return CompletableFuture.completedFuture(null);
-        }
-        
-        // Crear el pago programado
-        SchedulePayment schedulePayment = new SchedulePayment(
-            receptorAccount,
-            payerAccount,
-            description,
-            daysUntilDue,
-            amount,
-            dayOfMonth
-        );
-        schedulePayment.save();
-
         context.sender().sendMessage(Message.raw("Pago programado creado exitosamente!"));
         context.sender().sendMessage(Message.raw("- Día de cobro: " + dayOfMonth + " de cada mes"));
         context.sender().sendMessage(Message.raw("- Días para pagar: " + daysUntilDue + " días"));
-        context.sender().sendMessage(Message.raw("- Monto: $" + amount));
+        context.sender().sendMessage(Message.raw("- Monto: $" + Money.format(amount)));
 
         return CompletableFuture.completedFuture(null);
     }
 }
 
 // /schedulepayment list [account]
-class SchedulePaymentListSubCommand extends AbstractAsyncCommand {
+class SchedulePaymentListSubCommand extends EconomyCommand {
 
     private final OptionalArg<String> accountArg;
 
@@ -146,7 +99,7 @@ class SchedulePaymentListSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -176,7 +129,7 @@ class SchedulePaymentListSubCommand extends AbstractAsyncCommand {
                         "§7- ID: " + sp.getId() + 
                         " | Día: " + sp.getDayOfMonth() + 
                         " | A: " + sp.getReceptorAccountNumber() +
-                        " | $" + sp.getAmount() +
+                        " | $" + Money.format(sp.getAmount()) +
                         " | Estado: " + sp.getStatus()
                     ));
                 }
@@ -189,7 +142,7 @@ class SchedulePaymentListSubCommand extends AbstractAsyncCommand {
                         "§7- ID: " + sp.getId() + 
                         " | Día: " + sp.getDayOfMonth() + 
                         " | De: " + sp.getPayerAccountNumber() +
-                        " | $" + sp.getAmount() +
+                        " | $" + Money.format(sp.getAmount()) +
                         " | Estado: " + sp.getStatus()
                     ));
                 }
@@ -208,7 +161,7 @@ class SchedulePaymentListSubCommand extends AbstractAsyncCommand {
                         " | Día: " + sp.getDayOfMonth() + 
                         " | De: " + sp.getPayerAccountNumber() +
                         " → " + sp.getReceptorAccountNumber() +
-                        " | $" + sp.getAmount() +
+                        " | $" + Money.format(sp.getAmount()) +
                         " | " + sp.getStatus()
                     ));
                 }
@@ -220,7 +173,7 @@ class SchedulePaymentListSubCommand extends AbstractAsyncCommand {
 }
 
 // /schedulepayment delete <id>
-class SchedulePaymentDeleteSubCommand extends AbstractAsyncCommand {
+class SchedulePaymentDeleteSubCommand extends EconomyCommand {
 
     private final RequiredArg<Integer> idArg;
 
@@ -231,7 +184,7 @@ class SchedulePaymentDeleteSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -246,6 +199,11 @@ class SchedulePaymentDeleteSubCommand extends AbstractAsyncCommand {
         }
 
         schedulePayment.delete();
+
+        PaymentScheduler scheduler = PaymentScheduler.get();
+        if (scheduler != null) {
+            scheduler.onScheduleDeleted(id);
+        }
         context.sender().sendMessage(Message.raw("§aPago programado eliminado exitosamente."));
 
         return CompletableFuture.completedFuture(null);
@@ -253,107 +211,45 @@ class SchedulePaymentDeleteSubCommand extends AbstractAsyncCommand {
 }
 
 // /schedulepayment process
-class SchedulePaymentProcessSubCommand extends AbstractAsyncCommand {
+class SchedulePaymentProcessSubCommand extends EconomyCommand {
 
     public SchedulePaymentProcessSubCommand() {
-        super("process", "Process today's scheduled payments and create invoices");
+        super("process", "Generate pending scheduled payment invoices now");
     }
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
-        // Obtener día actual
-        LocalDate today = LocalDate.now();
-        int currentDayOfMonth = today.getDayOfMonth();
-
-        // Buscar pagos programados para hoy
-        List<SchedulePayment> todayPayments = SchedulePayment.findByDayOfMonth(currentDayOfMonth);
-
-        if (todayPayments.isEmpty()) {
-            context.sender().sendMessage(Message.raw("No hay pagos programados para el día " + currentDayOfMonth + "."));
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
+        // Las facturas se generan solas; esto solo fuerza una pasada inmediata (por ejemplo, tras cambiar datos a mano)
+        PaymentScheduler scheduler = PaymentScheduler.get();
+        if (scheduler == null) {
+            context.sender().sendMessage(Message.raw("El planificador de pagos no está activo."));
             return CompletableFuture.completedFuture(null);
         }
 
-        context.sender().sendMessage(Message.raw("=== Procesando Pagos del Día " + currentDayOfMonth + " ==="));
-        
-        int processed = 0;
-        int failed = 0;
+        context.sender().sendMessage(Message.raw("Procesando pagos programados pendientes..."));
 
-        for (SchedulePayment sp : todayPayments) {
-            try {
-                // Verificar que las cuentas aún existan
-                BankAccount receptorAcc = BankAccount.findByAccountNumber(sp.getReceptorAccountNumber());
-                BankAccount payerAcc = BankAccount.findByAccountNumber(sp.getPayerAccountNumber());
-
-                if (receptorAcc == null || payerAcc == null) {
-                    String errorMsg = "Una o ambas cuentas no existen";
-                    context.sender().sendMessage(Message.raw(
-                        "- ID " + sp.getId() + ": " + errorMsg
-                    ));
-                    
-                    // Registrar log de error
-                    ScheduleLog log = new ScheduleLog(sp.getId(), null, "failed", errorMsg);
-                    log.save();
-                    
-                    failed++;
-                    continue;
-                }
-
-                // Calcular fecha de vencimiento usando los días configurados
-                LocalDate dueDate = today.plusDays(sp.getDueDays());
-
-                // Crear factura
-                Invoice invoice = new Invoice(
-                    sp.getReceptorAccountNumber(),
-                    sp.getPayerAccountNumber(),
-                    sp.getAmount(),
-                    Date.valueOf(dueDate),
-                    sp.getDescription()
-                );
-                invoice.save();
-
-                invoice.addEvent("generated_by", "gouvernement_system");
-                invoice.save();
-
-                // Registrar log de éxito
-                String successMsg = "Factura #" + invoice.getId() + " creada exitosamente";
-                ScheduleLog log = new ScheduleLog(sp.getId(), invoice.getId(), "success", successMsg);
-                log.save();
-
-                context.sender().sendMessage(Message.raw(
-                    "- ID " + sp.getId() + ": " + successMsg + " - " +
-                    sp.getPayerAccountNumber() + " → " + sp.getReceptorAccountNumber() + 
-                    " | $" + sp.getAmount() + " | Vence: " + dueDate
-                ));
-                
-                processed++;
-
-            } catch (Exception e) {
-                String errorMsg = "Error al procesar: " + e.getMessage();
-                context.sender().sendMessage(Message.raw(
-                    "- ID " + sp.getId() + ": " + errorMsg
-                ));
-                
-                // Registrar log de error
-                ScheduleLog log = new ScheduleLog(sp.getId(), null, "failed", errorMsg);
-                log.save();
-                
-                failed++;
+        return scheduler.runNow().handle((summary, error) -> {
+            if (error != null) {
+                context.sender().sendMessage(Message.raw("Error al procesar los pagos: " + error.getMessage()));
+                return null;
             }
-        }
-
-        context.sender().sendMessage(Message.raw("================================="));
-        context.sender().sendMessage(Message.raw("Facturas creadas: " + processed));
-        if (failed > 0) {
-            context.sender().sendMessage(Message.raw("Fallidas: " + failed));
-        }
-
-        return CompletableFuture.completedFuture(null);
+            context.sender().sendMessage(Message.raw("================================="));
+            context.sender().sendMessage(Message.raw("Facturas creadas: " + summary.generated));
+            if (summary.skipped > 0) {
+                context.sender().sendMessage(Message.raw("Ya generadas anteriormente: " + summary.skipped));
+            }
+            if (summary.failed > 0) {
+                context.sender().sendMessage(Message.raw("Fallidas: " + summary.failed + " (ver /schedulepayment logs)"));
+            }
+            context.sender().sendMessage(Message.raw("Tiempos: " + summary.timings()));
+            return null;
+        });
     }
 }
 
 // /schedulepayment logs [schedule_payment_id] [limit]
-class SchedulePaymentLogsSubCommand extends AbstractAsyncCommand {
+class SchedulePaymentLogsSubCommand extends EconomyCommand {
 
     private final OptionalArg<Integer> schedulePaymentIdArg;
     private final OptionalArg<Integer> limitArg;
@@ -366,7 +262,7 @@ class SchedulePaymentLogsSubCommand extends AbstractAsyncCommand {
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
         if (!(context.sender() instanceof Player)) {
             context.sender().sendMessage(Message.raw("Este comando solo puede usarse en juego."));
             return CompletableFuture.completedFuture(null);
@@ -2,34 +2,180 @@ package terratale.commands;
 
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.OptionalArg;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
-import com.hypixel.hytale.server.core.command.system.basecommands.AbstractAsyncCommand;
+import terratale.Helpers.PluginConfig;
+import terratale.cache.EntityCache;
+import terratale.database.ConnectionPool;
+import terratale.database.IndexAdvisor;
+import terratale.database.SqliteWriter;
+import terratale.economy.BalanceSnapshots;
+import terratale.economy.Ledger;
+import terratale.economy.MoneyAudit;
+import terratale.economy.TransferEngine;
+import terratale.metrics.Metrics;
+import terratale.models.Model;
 import terratale.plugin.TerratalePlugin;
+import terratale.scheduler.PaymentScheduler;
 
 import javax.annotation.Nonnull;
+import java.sql.SQLException;
 import java.util.concurrent.CompletableFuture;
 
-public class TerrataleCommand extends AbstractAsyncCommand {
+public class TerrataleCommand extends EconomyCommand {
 
     private final RequiredArg<String> action;
+    private final OptionalArg<String> filter;
 
     public TerrataleCommand() {
         super("terratale", "Reload plugin configuration");
         action = withRequiredArg("action", "Action to perform", ArgTypes.STRING);
+        filter = withOptionalArg("filter", "Metric name prefix (stats)", ArgTypes.STRING);
     }
 
     @Override
     @Nonnull
-    protected CompletableFuture<Void> executeAsync(@Nonnull CommandContext context) {
+    protected CompletableFuture<Void> executeBlocking(@Nonnull CommandContext context) {
 
-        if (!action.get(context).equalsIgnoreCase("reload")) {
-            context.sender().sendMessage(Message.raw("Acción desconocida. Usa: /terratale reload"));
+        String selected = action.get(context);
+
+        if (selected.equalsIgnoreCase("pool")) {
+            ConnectionPool pool = Model.getPool();
+            if (pool == null) {
+                context.sender().sendMessage(Message.raw("La base de datos no está inicializada."));
+                return CompletableFuture.completedFuture(null);
+            }
+            for (String line : pool.getStats().describe()) {
+                context.sender().sendMessage(Message.raw(line));
+            }
+            SqliteWriter writer = SqliteWriter.get();
+            if (writer != null) {
+                for (String line : writer.describe()) {
+                    context.sender().sendMessage(Message.raw(line));
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("locks")) {
+            for (String line : TransferEngine.describe()) {
+                context.sender().sendMessage(Message.raw(line));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("cache")) {
+            for (String line : EntityCache.describe()) {
+                context.sender().sendMessage(Message.raw(line));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("explain")) {
+            if (Model.getPool() == null) {
+                context.sender().sendMessage(Message.raw("La base de datos no está inicializada."));
+                return CompletableFuture.completedFuture(null);
+            }
+            for (String line : IndexAdvisor.explainAll()) {
+                context.sender().sendMessage(Message.raw(line));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("ledger") || selected.equalsIgnoreCase("ledger-rebuild")) {
+            if (Model.getPool() == null) {
+                context.sender().sendMessage(Message.raw("La base de datos no está inicializada."));
+                return CompletableFuture.completedFuture(null);
+            }
+            if (selected.equalsIgnoreCase("ledger-rebuild")) {
+                try {
+                    int fixed = Ledger.rebuild();
+                    context.sender().sendMessage(Message.raw("Saldos reconstruidos desde el diario: " + fixed + " corregidos"));
+                } catch (SQLException | RuntimeException e) {
+                    context.sender().sendMessage(Message.raw("Error al reconstruir los saldos: " + e.getMessage()));
+                    return CompletableFuture.completedFuture(null);
+                }
+            }
+            for (String line : Ledger.verify()) {
+                context.sender().sendMessage(Message.raw(line));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("audit")) {
+            MoneyAudit audit = MoneyAudit.get();
+            if (audit == null) {
+                context.sender().sendMessage(Message.raw("La auditoría de dinero no está activa."));
+                return CompletableFuture.completedFuture(null);
+            }
+            try {
+                for (String line : audit.audit(true).describe()) {
+                    context.sender().sendMessage(Message.raw(line));
+                }
+            } catch (SQLException | RuntimeException e) {
+                context.sender().sendMessage(Message.raw("Error en la auditoría: " + e.getMessage()));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("snapshot")) {
+            BalanceSnapshots snapshots = BalanceSnapshots.get();
+            if (snapshots == null) {
+                context.sender().sendMessage(Message.raw("Las instantáneas de saldos no están activas."));
+                return CompletableFuture.completedFuture(null);
+            }
+            try {
+                BalanceSnapshots.Summary summary = snapshots.take();
+                context.sender().sendMessage(Message.raw("Instantánea #" + summary.snapshotId + ": " + summary.changed
+                    + " de " + summary.holders + " saldos cambiados (" + summary.durationMs + "ms)"));
+            } catch (SQLException | RuntimeException e) {
+                context.sender().sendMessage(Message.raw("Error al tomar la instantánea: " + e.getMessage()));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("stats")) {
+            for (String line : Metrics.describe(filter.get(context))) {
+                context.sender().sendMessage(Message.raw(line));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("commands")) {
+            CommandExecutor commands = CommandExecutor.get();
+            if (commands == null) {
+                context.sender().sendMessage(Message.raw("El ejecutor de comandos no está activo."));
+                return CompletableFuture.completedFuture(null);
+            }
+            for (String line : commands.describe()) {
+                context.sender().sendMessage(Message.raw(line));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (selected.equalsIgnoreCase("scheduler")) {
+            PaymentScheduler scheduler = PaymentScheduler.get();
+            if (scheduler == null) {
+                context.sender().sendMessage(Message.raw("El planificador de pagos no está activo."));
+                return CompletableFuture.completedFuture(null);
+            }
+            for (String line : scheduler.describe()) {
+                context.sender().sendMessage(Message.raw(line));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (!selected.equalsIgnoreCase("reload")) {
+            context.sender().sendMessage(Message.raw("Acción desconocida. Usa: /terratale <reload|pool|locks|cache|commands|scheduler|explain|ledger|ledger-rebuild|audit|snapshot|stats [filtro]>"));
             return CompletableFuture.completedFuture(null);
         }
         try {
             // Recargar la configuración
             TerratalePlugin.get().getConfigManager().load();
+            PluginConfig config = TerratalePlugin.get().config();
+            EntityCache.configure(config.entityCacheEnabled, config.entityCacheMaxEntries, config.entityCacheTtlMs);
+            TerratalePlugin.get().startSlowQueryLog();
 
             // Enviar mensaje de confirmación
             context.sender().sendMessage(Message.raw("Configuración recargada exitosamente!"));
@@ -0,0 +1,543 @@
+package terratale.database;
+
+import terratale.metrics.Histogram;
+import terratale.metrics.Metrics;
+import terratale.models.Model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool de conexiones JDBC acotado.
+ *
+ * - Como máximo {@code maxSize} conexiones prestadas a la vez; el resto espera hasta {@code borrowTimeoutMs}.
+ * - Las conexiones ociosas más de {@code idleTimeoutMs} se cierran (respetando {@code minIdle}).
+ * - Al prestar una conexión que lleva ociosa más de {@code validationIntervalMs} se valida con isValid().
+ * - Si una conexión sigue prestada tras {@code leakDetectionMs} se registra el hilo que la pidió. La pila del
+ *   préstamo solo se guarda con {@code leakStackTraces}: capturarla en cada préstamo cuesta más que el préstamo.
+ *
+ * Las conexiones entregadas son proxies: close() las devuelve al pool en vez de cerrarlas.
+ * Si {@code statementCacheSize} es mayor que 0, cada conexión guarda sus PreparedStatements en una caché LRU.
+ */
+public class ConnectionPool {
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final String name;
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+    private final long leakDetectionMs;
+    private final boolean leakStackTraces;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Métricas
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final Histogram borrowWait = Metrics.timer("pool.borrowWait");
+    private final long startedAt = System.nanoTime();
+    private long busyNanos = 0;
+    private long lastUtilizationChange = System.nanoTime();
+
+    public ConnectionPool(String name, ConnectionFactory factory, int maxSize, int minIdle,
+                          long borrowTimeoutMs, long idleTimeoutMs, long validationIntervalMs, long leakDetectionMs,
+                          boolean leakStackTraces, int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be >= 1");
+        }
+        this.name = name;
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.minIdle = Math.max(0, Math.min(minIdle, maxSize));
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.leakDetectionMs = leakDetectionMs;
+        this.leakStackTraces = leakStackTraces;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TerraEconomy-" + name + "-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(
+            idleTimeoutMs > 0 ? idleTimeoutMs / 2 : Long.MAX_VALUE,
+            leakDetectionMs > 0 ? leakDetectionMs / 2 : 30000L));
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+        registerMetrics();
+    }
+
+    // Indicadores de /terratale stats; un pool nuevo (reinicio) reemplaza los del anterior
+    private void registerMetrics() {
+        Metrics.gauge("pool.active", borrowed::size);
+        Metrics.gauge("pool.idle", () -> {
+            synchronized (idle) {
+                return idle.size();
+            }
+        });
+        Metrics.gauge("pool.waiting", permits::getQueueLength);
+        Metrics.gauge("pool.borrows", borrows::sum);
+        Metrics.gauge("pool.timeouts", timeouts::sum);
+        Metrics.gauge("pool.created", created::sum);
+        Metrics.gauge("pool.leaks", leaks::sum);
+        Metrics.gauge("statements.hits", StatementCache::getHits);
+        Metrics.gauge("statements.misses", StatementCache::getMisses);
+        Metrics.gauge("statements.evictions", StatementCache::getEvictions);
+    }
+
+    // Abrir las conexiones mínimas al arrancar, para que el primer comando no pague la conexión
+    public void warmUp() throws SQLException {
+        List<PooledConnection> opened = new ArrayList<>();
+        for (int i = 0; i < minIdle; i++) {
+            opened.add(new PooledConnection(factory.create()));
+            created.increment();
+        }
+        synchronized (idle) {
+            idle.addAll(opened);
+        }
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool '" + name + "' is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.add(waited);
+        borrowWait.record(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (!acquired) {
+            timeouts.increment();
+            throw new SQLTimeoutException("Timed out after " + borrowTimeoutMs + "ms waiting for a connection from pool '"
+                + name + "' (" + maxSize + " in use)");
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.create());
+                created.increment();
+            }
+
+            pooled.onBorrow(leakDetectionMs > 0 && leakStackTraces ? new Throwable("Connection borrowed here") : null);
+            updateUtilization();
+            borrowed.add(pooled);
+            borrows.increment();
+            peakActive.accumulateAndGet(borrowed.size(), Math::max);
+            return pooled.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        while (true) {
+            PooledConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+
+            long idleFor = System.currentTimeMillis() - candidate.lastUsedAt;
+            if (idleFor < validationIntervalMs || candidate.validate()) {
+                return candidate;
+            }
+
+            validationFailures.increment();
+            destroy(candidate);
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        if (!borrowed.contains(pooled)) {
+            return;
+        }
+        updateUtilization();
+        borrowed.remove(pooled);
+
+        boolean healthy = pooled.reset();
+
+        if (closed || !healthy) {
+            destroy(pooled);
+        } else {
+            synchronized (idle) {
+                idle.addFirst(pooled);
+            }
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyed.increment();
+        if (pooled.statements != null) {
+            pooled.statements.closeAll();
+        }
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            detectLeaks();
+        } catch (Exception e) {
+            Model.logError("Connection pool '" + name + "' housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        if (idleTimeoutMs <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (idle) {
+            // Las más antiguas están al final (LIFO)
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() - expired.size() > minIdle) {
+                PooledConnection candidate = it.next();
+                if (now - candidate.lastUsedAt > idleTimeoutMs) {
+                    expired.add(candidate);
+                }
+            }
+            idle.removeAll(expired);
+        }
+
+        for (PooledConnection pooled : expired) {
+            destroy(pooled);
+        }
+    }
+
+    private void detectLeaks() {
+        if (leakDetectionMs <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : borrowed) {
+            Throwable site = pooled.borrowSite;
+            if (!pooled.leakReported && !pooled.returned && now - pooled.borrowedAt > leakDetectionMs) {
+                pooled.leakReported = true;
+                leaks.increment();
+                Model.logError("Possible connection leak in pool '" + name + "': connection held for "
+                    + (now - pooled.borrowedAt) + "ms by thread " + pooled.borrowThread
+                    + (site != null ? "\n" + stackTraceOf(site) : " (enable poolLeakStackTraces to log where it was borrowed)"));
+            }
+        }
+    }
+
+    private static String stackTraceOf(Throwable t) {
+        StringBuilder sb = new StringBuilder();
+        for (StackTraceElement element : t.getStackTrace()) {
+            sb.append("    at ").append(element).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private synchronized void updateUtilization() {
+        // Se llama justo antes de cambiar borrowed, así que size() es el valor del intervalo que termina
+        long now = System.nanoTime();
+        busyNanos += (now - lastUtilizationChange) * borrowed.size();
+        lastUtilizationChange = now;
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        List<PooledConnection> toClose;
+        synchronized (idle) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+
+        if (!borrowed.isEmpty()) {
+            Model.logError("Connection pool '" + name + "' closed with " + borrowed.size()
+                + " connection(s) still borrowed; they will be closed when returned");
+        }
+    }
+
+    public Stats getStats() {
+        int active = borrowed.size();
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+
+        double averageUtilization;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long busy = busyNanos + (now - lastUtilizationChange) * active;
+            long elapsed = Math.max(1, now - startedAt);
+            averageUtilization = (double) busy / ((double) elapsed * maxSize);
+        }
+
+        long borrowCount = borrows.sum();
+        return new Stats(
+            name,
+            maxSize,
+            active,
+            idleCount,
+            permits.getQueueLength(),
+            peakActive.get(),
+            borrowCount,
+            timeouts.sum(),
+            created.sum(),
+            destroyed.sum(),
+            validationFailures.sum(),
+            leaks.sum(),
+            borrowCount == 0 ? 0.0 : totalWaitNanos.sum() / 1_000_000.0 / borrowCount,
+            maxWaitNanos.get() / 1_000_000.0,
+            (double) active / maxSize,
+            averageUtilization,
+            statementCacheSize,
+            StatementCache.getHits(),
+            StatementCache.getMisses(),
+            StatementCache.getEvictions(),
+            StatementCache.getHitRate()
+        );
+    }
+
+    public String getName() { return name; }
+    public int getMaxSize() { return maxSize; }
+
+    public static class Stats {
+        public final String name;
+        public final int maxSize;
+        public final int active;
+        public final int idle;
+        public final int waiting;
+        public final int peakActive;
+        public final long borrows;
+        public final long timeouts;
+        public final long created;
+        public final long destroyed;
+        public final long validationFailures;
+        public final long leaks;
+        public final double averageWaitMs;
+        public final double maxWaitMs;
+        public final double utilization;
+        public final double averageUtilization;
+        public final int statementCacheSize;
+        public final long statementHits;
+        public final long statementMisses;
+        public final long statementEvictions;
+        public final double statementHitRate;
+
+        Stats(String name, int maxSize, int active, int idle, int waiting, int peakActive, long borrows,
+              long timeouts, long created, long destroyed, long validationFailures, long leaks,
+              double averageWaitMs, double maxWaitMs, double utilization, double averageUtilization,
+              int statementCacheSize, long statementHits, long statementMisses, long statementEvictions,
+              double statementHitRate) {
+            this.name = name;
+            this.maxSize = maxSize;
+            this.active = active;
+            this.idle = idle;
+            this.waiting = waiting;
+            this.peakActive = peakActive;
+            this.borrows = borrows;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.leaks = leaks;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.utilization = utilization;
+            this.averageUtilization = averageUtilization;
+            this.statementCacheSize = statementCacheSize;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.statementEvictions = statementEvictions;
+            this.statementHitRate = statementHitRate;
+        }
+
+        public List<String> describe() {
+            List<String> lines = new ArrayList<>();
+            lines.add("Pool '" + name + "': " + active + "/" + maxSize + " en uso, " + idle + " ociosas, "
+                + waiting + " esperando (pico: " + peakActive + ")");
+            lines.add("  Utilización: actual " + String.format("%.0f%%", utilization * 100)
+                + ", media " + String.format("%.1f%%", averageUtilization * 100));
+            lines.add("  Espera: media " + String.format("%.2f", averageWaitMs) + "ms, máxima "
+                + String.format("%.2f", maxWaitMs) + "ms, timeouts " + timeouts);
+            lines.add("  Préstamos: " + borrows + " | creadas " + created + " | cerradas " + destroyed
+                + " | inválidas " + validationFailures + " | fugas " + leaks);
+            if (statementCacheSize > 0) {
+                lines.add("  Caché de statements (" + statementCacheSize + "/conexión): aciertos "
+                    + String.format("%.1f%%", statementHitRate * 100) + " (" + statementHits + " hits, "
+                    + statementMisses + " misses, " + statementEvictions + " expulsados)");
+            } else {
+                lines.add("  Caché de statements desactivada");
+            }
+            return lines;
+        }
+    }
+
+    private final class PooledConnection implements InvocationHandler {
+
+        private final Connection physical;
+        private final Connection proxy;
+        private final StatementCache statements;
+        private volatile boolean returned = true;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile String borrowThread;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                this
+            );
+            this.statements = statementCacheSize > 0 ? new StatementCache(physical, proxy, statementCacheSize) : null;
+        }
+
+        void onBorrow(Throwable site) {
+            returned = false;
+            borrowedAt = System.currentTimeMillis();
+            borrowSite = site;
+            borrowThread = Thread.currentThread().getName();
+            leakReported = false;
+        }
+
+        boolean validate() {
+            try {
+                return physical.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // Deja la conexión como nueva para el siguiente préstamo; false si hay que descartarla
+        boolean reset() {
+            lastUsedAt = System.currentTimeMillis();
+            borrowSite = null;
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxyInstance == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxyInstance);
+                }
+                case "toString" -> {
+                    return "Pooled[" + name + "] " + physical;
+                }
+                case "prepareStatement" -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (statements != null && args.length == 1) {
+                        return statements.prepare((String) args[0], -1);
+                    }
+                    if (statements != null && args.length == 2 && args[1] instanceof Integer keys) {
+                        return statements.prepare((String) args[0], keys);
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
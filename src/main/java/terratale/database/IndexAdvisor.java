@@ -0,0 +1,147 @@
+package terratale.database;
+
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ejecuta EXPLAIN (MySQL) o EXPLAIN QUERY PLAN (SQLite) sobre cada consulta registrada con
+ * Model.registerQuery y marca las que recorren la tabla entera o necesitan ordenar en memoria.
+ * Los parámetros se rellenan con valores de ejemplo: solo importa el plan, no el resultado.
+ */
+public final class IndexAdvisor {
+
+    // Los modelos registran sus consultas al cargarse la clase
+    private static final String[] MODEL_CLASSES = {
+        "terratale.models.User",
+        "terratale.models.Bank",
+        "terratale.models.BankAccount",
+        "terratale.models.BankAccountOwner",
+        "terratale.models.Transaction",
+        "terratale.models.BankTransaction",
+        "terratale.models.Invoice",
+        "terratale.models.InvoiceEvent",
+        "terratale.models.SchedulePayment",
+        "terratale.models.ScheduleLog",
+        "terratale.models.AccountInvitation",
+        "terratale.models.BankInvitation",
+    };
+
+    private IndexAdvisor() {
+    }
+
+    public static List<String> explainAll() {
+        for (String className : MODEL_CLASSES) {
+            try {
+                Class.forName(className, true, IndexAdvisor.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                Model.logError("Index advisor could not load " + className);
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        int flagged = 0;
+        Map<String, String> queries = Model.getRegisteredQueries();
+
+        try (Connection conn = Model.getConnection()) {
+            for (Map.Entry<String, String> query : queries.entrySet()) {
+                try {
+                    List<String> problems = new ArrayList<>();
+                    String plan = Model.isMySQL
+                        ? explainMySQL(conn, query.getValue(), problems)
+                        : explainSQLite(conn, query.getValue(), problems);
+                    if (problems.isEmpty()) {
+                        lines.add("[OK] " + query.getKey() + ": " + plan);
+                    } else {
+                        flagged++;
+                        lines.add("[!!] " + query.getKey() + ": " + String.join(", ", problems) + " -> " + plan);
+                    }
+                } catch (SQLException e) {
+                    flagged++;
+                    lines.add("[ERROR] " + query.getKey() + ": " + e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            lines.add("No se pudo obtener una conexión: " + e.getMessage());
+            return lines;
+        }
+
+        lines.add(0, "Planes de " + queries.size() + " consultas (" + (Model.isMySQL ? "MySQL" : "SQLite") + "): "
+            + flagged + " con problemas");
+        return lines;
+    }
+
+    // Plan de una sola sentencia (registro de consultas lentas), con los problemas delante si los hay
+    public static String explain(Connection conn, String sql) throws SQLException {
+        List<String> problems = new ArrayList<>();
+        String plan = Model.isMySQL ? explainMySQL(conn, sql, problems) : explainSQLite(conn, sql, problems);
+        return problems.isEmpty() ? plan : "[!!] " + String.join(", ", problems) + " -> " + plan;
+    }
+
+    // Columnas type/key/rows/Extra: type ALL es un recorrido completo, index recorre el índice entero
+    private static String explainMySQL(Connection conn, String sql, List<String> problems) throws SQLException {
+        List<String> parts = new ArrayList<>();
+        try (PreparedStatement pstmt = prepare(conn, "EXPLAIN " + sql); ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String table = rs.getString("table");
+                String type = rs.getString("type");
+                String key = rs.getString("key");
+                String extra = rs.getString("Extra");
+                parts.add(table + " " + type + (key != null ? " (" + key + ")" : "") + " ~" + rs.getLong("rows") + " filas");
+
+                if ("ALL".equalsIgnoreCase(type)) {
+                    problems.add("recorrido completo de " + table);
+                } else if ("index".equalsIgnoreCase(type)) {
+                    problems.add("recorre todo el índice de " + table);
+                }
+                if (extra != null && extra.contains("Using filesort")) {
+                    problems.add("ordena en memoria (" + table + ")");
+                }
+            }
+        }
+        return String.join("; ", parts);
+    }
+
+    // Columna detail: "SCAN t" sin índice es un recorrido completo; "USE TEMP B-TREE" ordena en memoria
+    private static String explainSQLite(Connection conn, String sql, List<String> problems) throws SQLException {
+        List<String> parts = new ArrayList<>();
+        try (PreparedStatement pstmt = prepare(conn, "EXPLAIN QUERY PLAN " + sql); ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String detail = rs.getString("detail");
+                parts.add(detail);
+
+                if (detail.startsWith("SCAN") && !detail.contains("USING INDEX") && !detail.contains("USING COVERING INDEX")) {
+                    problems.add("recorrido completo (" + detail + ")");
+                } else if (detail.contains("USE TEMP B-TREE")) {
+                    problems.add("ordena en memoria");
+                }
+            }
+        }
+        return String.join("; ", parts);
+    }
+
+    // Un texto de ejemplo sirve para columnas numéricas y de texto sin impedir el uso del índice; LIMIT necesita un número
+    private static PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sql);
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) != '?') {
+                continue;
+            }
+            index++;
+            String before = sql.substring(0, i).trim().toUpperCase();
+            if (before.endsWith("LIMIT") || before.endsWith("OFFSET")) {
+                pstmt.setInt(index, 10);
+            } else {
+                pstmt.setString(index, "0");
+            }
+        }
+        return pstmt;
+    }
+}
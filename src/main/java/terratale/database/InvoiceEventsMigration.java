@@ -0,0 +1,106 @@
+package terratale.database;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import terratale.models.Invoice;
+import terratale.models.InvoiceEvent;
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pasa el historial de las facturas del JSON de invoices.events a la tabla invoice_events y rellena la
+ * columna invoices.generated_by_system.
+ *
+ * Se procesa por bloques de {@code CHUNK} facturas, cada uno en su transacción (MigrationRunner): se
+ * insertan sus eventos y se deja events a NULL. Las facturas con events NULL ya están migradas, así que si el servidor se para a
+ * mitad la siguiente ejecución continúa donde se quedó.
+ */
+public final class InvoiceEventsMigration {
+
+    private static final String INDEX_NAME = "idx_invoice_events_invoice";
+    private static final int CHUNK = 500;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private InvoiceEventsMigration() {
+    }
+
+    // Columna e índice; el traspaso de datos es backfillChunk, que MigrationRunner repite por bloques
+    public static void run(boolean mysql) throws SQLException {
+        try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement()) {
+            DatabaseMetaData metaData = conn.getMetaData();
+
+            if (!SchedulePeriodMigration.hasColumn(metaData, conn.getCatalog(), "invoices", "generated_by_system")) {
+                Model.logInfo("Añadiendo invoices.generated_by_system...");
+                stmt.execute("ALTER TABLE invoices ADD COLUMN generated_by_system "
+                    + (mysql ? "BOOLEAN NOT NULL DEFAULT FALSE" : "INTEGER NOT NULL DEFAULT 0"));
+            }
+
+            if (!SchedulePeriodMigration.hasIndex(metaData, conn.getCatalog(), "invoice_events", INDEX_NAME)) {
+                stmt.execute("CREATE INDEX " + INDEX_NAME + " ON invoice_events(invoice_id)");
+                Model.logInfo("Índice " + INDEX_NAME + " creado");
+            }
+        }
+    }
+
+    // Devuelve cuántas facturas se han migrado (0 = no queda ninguna)
+    public static int backfillChunk(Connection conn) throws SQLException {
+        Map<Integer, String> pending = new LinkedHashMap<>();
+        String select = "SELECT id, events FROM invoices WHERE events IS NOT NULL ORDER BY id LIMIT " + CHUNK;
+        try (PreparedStatement pstmt = conn.prepareStatement(select)) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                pending.put(rs.getInt("id"), rs.getString("events"));
+            }
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<InvoiceEvent> events = new ArrayList<>();
+        String update = "UPDATE invoices SET generated_by_system = ?, events = NULL WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+            for (Map.Entry<Integer, String> entry : pending.entrySet()) {
+                boolean generatedBySystem = false;
+                for (JsonNode node : parseEvents(entry.getKey(), entry.getValue())) {
+                    String type = node.path("type").asText();
+                    String by = node.hasNonNull("by") ? node.get("by").asText() : null;
+                    events.add(new InvoiceEvent(entry.getKey(), type, by, node.path("timestamp").asLong()));
+                    if ("generated_by".equals(type) && Invoice.GOVERNMENT_SYSTEM.equals(by)) {
+                        generatedBySystem = true;
+                    }
+                }
+
+                pstmt.setBoolean(1, generatedBySystem);
+                pstmt.setInt(2, entry.getKey());
+                pstmt.addBatch();
+            }
+            InvoiceEvent.insertBatch(conn, events);
+            pstmt.executeBatch();
+        }
+        return pending.size();
+    }
+
+    // Un JSON corrupto no debe bloquear la migración: la factura se queda sin historial
+    private static List<JsonNode> parseEvents(int invoiceId, String json) {
+        List<JsonNode> nodes = new ArrayList<>();
+        try {
+            JsonNode eventsNode = MAPPER.readTree(json).get("events");
+            if (eventsNode != null && eventsNode.isArray()) {
+                eventsNode.forEach(nodes::add);
+            }
+        } catch (Exception e) {
+            Model.logError("Invoice " + invoiceId + " has unreadable events JSON, skipping its history: " + e.getMessage());
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,97 @@
+package terratale.database;
+
+import terratale.economy.Ledger;
+import terratale.models.Model;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Asiento de apertura del diario: los saldos que ya había en bank_accounts y banks antes del diario se
+ * apuntan contra el titular de sistema "opening", para que la suma de apuntes de cada cuenta y banco
+ * coincida con su saldo desde el primer arranque. Es un único INSERT ... SELECT por tabla.
+ *
+ * {@link #runWallets()} hace lo mismo con el dinero en mano, que antes solo se apuntaba en las transferencias:
+ * cada jugador recibe la diferencia entre users.money y sus apuntes, y los apuntes de jugadores borrados se saldan.
+ */
+public final class LedgerOpeningMigration {
+
+    private LedgerOpeningMigration() {
+    }
+
+    public static void run() throws SQLException {
+        Model.inTransaction(conn -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) AS entries FROM ledger_entries")) {
+                if (rs.next() && rs.getLong("entries") > 0) {
+                    return null; // el diario ya tiene asientos
+                }
+            }
+
+            long entryId = Ledger.append(conn, new Ledger.Entry("OPENING", null));
+            String insert = "INSERT INTO ledger_postings (entry_id, holder_type, holder_id, amount) "
+                + "SELECT ?, ?, CAST(id AS CHAR), balance FROM %s WHERE balance <> 0";
+            for (String[] table : new String[][] {{"bank_accounts", Ledger.ACCOUNT}, {"banks", Ledger.BANK}}) {
+                try (PreparedStatement pstmt = conn.prepareStatement(String.format(insert, table[0]))) {
+                    pstmt.setLong(1, entryId);
+                    pstmt.setString(2, table[1]);
+                    pstmt.executeUpdate();
+                }
+            }
+
+            // Contrapartida para que el asiento cuadre
+            String counter = "INSERT INTO ledger_postings (entry_id, holder_type, holder_id, amount) "
+                + "SELECT ?, ?, ?, -COALESCE(SUM(amount), 0) FROM ledger_postings WHERE entry_id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(counter)) {
+                pstmt.setLong(1, entryId);
+                pstmt.setString(2, Ledger.SYSTEM);
+                pstmt.setString(3, "opening");
+                pstmt.setLong(4, entryId);
+                pstmt.executeUpdate();
+            }
+            Model.logInfo("Ledger opened with the existing account and bank balances");
+            return null;
+        });
+    }
+
+    public static void runWallets() throws SQLException {
+        String journal = "COALESCE((SELECT SUM(p.amount) FROM ledger_postings p WHERE p.holder_type = '" + Ledger.WALLET
+            + "' AND p.holder_id = u.uuid), 0)";
+        String orphans = "SELECT holder_id, SUM(amount) AS journal FROM ledger_postings WHERE holder_type = '" + Ledger.WALLET
+            + "' AND holder_id NOT IN (SELECT uuid FROM users) GROUP BY holder_id HAVING SUM(amount) <> 0";
+
+        Model.inTransaction(conn -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT (SELECT COUNT(*) FROM users u WHERE u.money <> " + journal
+                     + ") + (SELECT COUNT(*) FROM (" + orphans + ") o) AS pending")) {
+                if (rs.next() && rs.getLong("pending") == 0) {
+                    return null;
+                }
+            }
+
+            long entryId = Ledger.append(conn, new Ledger.Entry("OPENING", null));
+            String insert = "INSERT INTO ledger_postings (entry_id, holder_type, holder_id, amount) SELECT ?, ?, holder_id, amount FROM ("
+                + "SELECT u.uuid AS holder_id, u.money - " + journal + " AS amount FROM users u WHERE u.money <> " + journal
+                + " UNION ALL SELECT holder_id, -journal AS amount FROM (" + orphans + ") o) pending";
+            try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+                pstmt.setLong(1, entryId);
+                pstmt.setString(2, Ledger.WALLET);
+                pstmt.executeUpdate();
+            }
+
+            String counter = "INSERT INTO ledger_postings (entry_id, holder_type, holder_id, amount) "
+                + "SELECT ?, ?, ?, -COALESCE(SUM(amount), 0) FROM ledger_postings WHERE entry_id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(counter)) {
+                pstmt.setLong(1, entryId);
+                pstmt.setString(2, Ledger.SYSTEM);
+                pstmt.setString(3, "opening");
+                pstmt.setLong(4, entryId);
+                pstmt.executeUpdate();
+            }
+            Model.logInfo("Ledger opened with the existing wallet balances");
+            return null;
+        });
+    }
+}
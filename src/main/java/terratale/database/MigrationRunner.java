@@ -0,0 +1,347 @@
+package terratale.database;
+
+import terratale.models.Model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ejecuta las migraciones pendientes y las registra en schema_version (id, checksum, duración).
+ *
+ * Cada migración se ejecuta una sola vez: en los arranques siguientes basta con una consulta a
+ * schema_version. Hay tres tipos:
+ * - SQL: /migrations/{mysql|sqlite}_{id}.sql, separado en sentencias. Si el fichero no existe para el
+ *   dialecto, se registra como aplicada sin hacer nada.
+ * - Java: pasos que miran el esquema antes de tocarlo (MoneyColumnsMigration, SchedulePeriodMigration...).
+ * - Backfill: copia de datos por bloques, cada bloque en su transacción, hasta que un bloque devuelve 0.
+ *   Si el servidor se para a mitad, el siguiente arranque sigue desde donde se quedó.
+ *
+ * Una migración que falla no se registra y se reintenta en el próximo arranque; las demás siguen. En una base
+ * de datos anterior al runner, los ficheros que ya ejecutaba el arranque antiguo pueden fallar con "ya existe"
+ * (se ejecutaban en cada arranque); esas sentencias se saltan. Cualquier otro error hace fallar la migración.
+ * Las migraciones nuevas se añaden al final de {@link #migrations}; nunca se cambia el id de una existente.
+ */
+public final class MigrationRunner {
+
+    @FunctionalInterface
+    public interface Step {
+        void run() throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Backfill {
+        // Procesa un bloque y devuelve cuántas filas ha tratado (0 = terminado)
+        int runChunk(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final String id;
+        final Step step;
+        final Backfill backfill;
+        final boolean legacy; // fichero que ya ejecutaba el arranque anterior al runner
+
+        Migration(String id, Step step, Backfill backfill) {
+            this(id, step, backfill, false);
+        }
+
+        Migration(String id, Step step, Backfill backfill, boolean legacy) {
+            this.id = id;
+            this.step = step;
+            this.backfill = backfill;
+            this.legacy = legacy;
+        }
+    }
+
+    private MigrationRunner() {
+    }
+
+    private static List<Migration> migrations(boolean mysql) {
+        List<Migration> migrations = new ArrayList<>();
+        for (String file : new String[] {
+            "users",
+            "banks",
+            "bank_accounts",
+            "add_key_to_bank_accounts",
+            "bank_accounts_owners",
+            "transactions",
+            "bank_transactions",
+            "account_invitations",
+            "bank_invitations",
+            "invoices",
+            "invoice_events",
+            "schedule_payments",
+            "schedule_logs",
+            "economy_aggregates",
+        }) {
+            // sqlite_add_key_to_bank_accounts.sql llegó con el runner: antes no existía y no se ejecutaba
+            boolean legacy = mysql || !file.equals("add_key_to_bank_accounts");
+            migrations.add(new Migration(file, null, null, legacy));
+        }
+
+        // Columnas de dinero REAL/DECIMAL -> enteros en céntimos
+        migrations.add(new Migration("money_columns", () -> MoneyColumnsMigration.run(mysql), null));
+        // Clave de idempotencia de los pagos programados
+        migrations.add(new Migration("schedule_period", () -> SchedulePeriodMigration.run(mysql), null));
+        // Historial de facturas: JSON de invoices.events -> tabla invoice_events
+        migrations.add(new Migration("invoice_events_columns", () -> InvoiceEventsMigration.run(mysql), null));
+        migrations.add(new Migration("invoice_events_backfill", null, InvoiceEventsMigration::backfillChunk));
+        migrations.add(new Migration("secondary_indexes", null, null));
+        // Diario de partida doble y asiento de apertura con los saldos actuales
+        migrations.add(new Migration("ledger", null, null));
+        migrations.add(new Migration("ledger_opening", LedgerOpeningMigration::run, null));
+        migrations.add(new Migration("balance_snapshots", null, null));
+        // El dinero en mano entra en el diario: apertura con los saldos actuales de users.money
+        migrations.add(new Migration("ledger_wallets_opening", LedgerOpeningMigration::runWallets, null));
+        return migrations;
+    }
+
+    public static void run(boolean mysql) {
+        String dialect = mysql ? "mysql" : "sqlite";
+        Map<String, String> applied;
+        boolean baseline;
+
+        try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement()) {
+            boolean hadVersionTable = hasTable(conn, "schema_version");
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                + "id VARCHAR(100) PRIMARY KEY, "
+                + "checksum VARCHAR(64), "
+                + "duration_ms BIGINT NOT NULL, "
+                + "applied_at BIGINT NOT NULL)");
+            applied = loadApplied(conn);
+
+            // Base de datos anterior al runner: sus ficheros ya se ejecutaban en cada arranque, así que las
+            // sentencias de esos ficheros que fallen por "ya existe" se saltan (ver runSql)
+            baseline = !hadVersionTable && hasTable(conn, "users");
+        } catch (SQLException e) {
+            Model.logError("No se pudo leer schema_version; no se ejecutan migraciones: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        int ran = 0;
+        int failed = 0;
+        for (Migration migration : migrations(mysql)) {
+            String checksum = null;
+            String sql = null;
+            if (migration.step == null && migration.backfill == null) {
+                sql = readMigration(dialect + "_" + migration.id + ".sql");
+                checksum = sql != null ? sha256(sql) : "none";
+            }
+
+            if (applied.containsKey(migration.id)) {
+                String previous = applied.get(migration.id);
+                if (checksum != null && previous != null && !checksum.equals(previous)) {
+                    Model.logError("Migration " + migration.id + " changed after being applied (checksum mismatch); "
+                        + "create a new migration instead of editing it");
+                }
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                if (migration.backfill != null) {
+                    runBackfill(migration);
+                } else if (migration.step != null) {
+                    migration.step.run();
+                } else if (sql != null) {
+                    runSql(migration.id, sql, baseline && migration.legacy);
+                }
+                record(migration.id, checksum, (System.nanoTime() - start) / 1_000_000);
+                ran++;
+            } catch (SQLException | RuntimeException e) {
+                failed++;
+                Model.logError("Migración FALLÓ (se reintentará en el próximo arranque): " + migration.id + " -> " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        if (ran > 0 || failed > 0) {
+            Model.logInfo("Migraciones: " + ran + " aplicadas, " + failed + " fallidas, " + applied.size() + " ya estaban aplicadas");
+        }
+    }
+
+    /* ---------------------- Ejecución ---------------------- */
+
+    private static void runSql(String id, String sql, boolean baseline) throws SQLException {
+        List<String> statements = splitStatements(sql);
+
+        try (Connection conn = Model.getConnection()) {
+            boolean originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false); // en MySQL el DDL hace commit implícito; en SQLite es atómico
+            try (Statement stmt = conn.createStatement()) {
+                for (String statement : statements) {
+                    try {
+                        stmt.execute(statement);
+                    } catch (SQLException e) {
+                        if (!alreadyApplied(e) && !(baseline && alreadyExists(e))) {
+                            throw e;
+                        }
+                        Model.logInfo("Migración " + id + ": sentencia ya aplicada (" + e.getMessage() + ")");
+                    }
+                }
+                conn.commit();
+                Model.logInfo("Migración OK: " + id + " (" + statements.size() + " sentencias)");
+            } catch (SQLException e) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw e;
+            } finally {
+                try { conn.setAutoCommit(originalAutoCommit); } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    // En MySQL el DDL no es transaccional: si un fichero falló a mitad, al reintentarlo las sentencias que sí
+    // se aplicaron fallan con "ya existe" (1050 tabla, 1060 columna, 1061 índice) y se pueden saltar
+    private static boolean alreadyApplied(SQLException e) {
+        int code = e.getErrorCode();
+        return code == 1050 || code == 1060 || code == 1061;
+    }
+
+    // SQLite no tiene códigos propios para "ya existe" (todo es SQLITE_ERROR): se mira el mensaje
+    private static boolean alreadyExists(SQLException e) {
+        String message = e.getMessage();
+        return message != null && (message.contains("already exists") || message.contains("duplicate column name"));
+    }
+
+    private static void runBackfill(Migration migration) throws SQLException {
+        long total = 0;
+        int chunks = 0;
+        int rows;
+        while ((rows = Model.inTransaction(migration.backfill::runChunk)) > 0) {
+            total += rows;
+            if (++chunks % 20 == 0) {
+                Model.logInfo("Migración " + migration.id + ": " + total + " filas procesadas...");
+            }
+        }
+        if (total > 0) {
+            Model.logInfo("Migración " + migration.id + ": " + total + " filas procesadas en " + chunks + " bloques");
+        }
+    }
+
+    /**
+     * Separa un fichero en sentencias por ';', ignorando los que están dentro de comillas, identificadores
+     * entre comillas invertidas y comentarios (-- y /* *\/). Los comentarios no se envían a la base de datos.
+     */
+    static List<String> splitStatements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int length = sql.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = sql.charAt(i);
+            char next = i + 1 < length ? sql.charAt(i + 1) : '\0';
+
+            if (c == '-' && next == '-') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            }
+            if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                current.append(' ');
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = i + 1;
+                while (end < length) {
+                    if (sql.charAt(end) == c) {
+                        if (end + 1 < length && sql.charAt(end + 1) == c) {
+                            end += 2; // comilla escapada duplicándola
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                current.append(sql, i, Math.min(end + 1, length));
+                i = end + 1;
+                continue;
+            }
+            if (c == ';') {
+                addStatement(statements, current);
+                i++;
+                continue;
+            }
+            current.append(c);
+            i++;
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+
+    /* ---------------------- schema_version ---------------------- */
+
+    private static Map<String, String> loadApplied(Connection conn) throws SQLException {
+        Map<String, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT id, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getString("id"), rs.getString("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private static void record(String id, String checksum, long durationMs) throws SQLException {
+        String sql = "INSERT INTO schema_version (id, checksum, duration_ms, applied_at) VALUES (?, ?, ?, ?)";
+        try (Connection conn = Model.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, id);
+            pstmt.setString(2, checksum);
+            pstmt.setLong(3, durationMs);
+            pstmt.setLong(4, System.currentTimeMillis());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static boolean hasTable(Connection conn, String table) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getTables(conn.getCatalog(), null, table, null)) {
+            return rs.next();
+        }
+    }
+
+    private static String readMigration(String fileName) {
+        try (InputStream is = MigrationRunner.class.getResourceAsStream("/migrations/" + fileName)) {
+            if (is == null) {
+                return null;
+            }
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Model.logError("Error leyendo migración " + fileName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
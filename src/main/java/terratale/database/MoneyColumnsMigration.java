@@ -0,0 +1,118 @@
+package terratale.database;
+
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Convierte las columnas de dinero antiguas (REAL / DECIMAL / DOUBLE, en unidades) a enteros en céntimos.
+ *
+ * Por cada columna: se añade {@code <col>_minor}, se copia ROUND(col * 100), se borra la original y se
+ * renombra la nueva. Cada paso se detecta mirando el esquema, así que si el servidor se para a mitad
+ * (en MySQL los ALTER hacen commit implícito) la siguiente ejecución continúa donde se quedó.
+ * Las columnas que ya son enteras no se tocan.
+ */
+public final class MoneyColumnsMigration {
+
+    private static final String[][] MONEY_COLUMNS = {
+        { "users", "money" },
+        { "banks", "balance" },
+        { "bank_accounts", "balance" },
+        { "transactions", "amount" },
+        { "bank_transactions", "amount" },
+        { "invoices", "amount" },
+        { "schedule_payments", "amount" },
+    };
+
+    private MoneyColumnsMigration() {
+    }
+
+    // Intenta todas las columnas; si alguna falla lanza la excepción al final para que se reintente
+    public static void run(boolean mysql) throws SQLException {
+        SQLException failure = null;
+        for (String[] column : MONEY_COLUMNS) {
+            try {
+                migrateColumn(column[0], column[1], mysql);
+            } catch (SQLException e) {
+                Model.logError("Migración de dinero FALLÓ (se reintentará en el próximo arranque): "
+                    + column[0] + "." + column[1] + " -> " + e.getMessage());
+                e.printStackTrace();
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void migrateColumn(String table, String column, boolean mysql) throws SQLException {
+        String minorColumn = column + "_minor";
+        String integerType = mysql ? "BIGINT" : "INTEGER";
+
+        try (Connection conn = Model.getConnection()) {
+            Map<String, String> columns = getColumnTypes(conn, table);
+            if (columns.isEmpty()) {
+                return; // la tabla no existe en este dialecto
+            }
+
+            String currentType = columns.get(column);
+            boolean hasMinor = columns.containsKey(minorColumn);
+
+            if (currentType != null && isIntegerType(currentType) && !hasMinor) {
+                return; // ya migrada
+            }
+
+            Model.logInfo("Convirtiendo " + table + "." + column + " a céntimos...");
+
+            boolean originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                if (currentType != null) {
+                    if (!hasMinor) {
+                        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + minorColumn + " " + integerType
+                            + " DEFAULT 0 NOT NULL");
+                    }
+                    int rows = stmt.executeUpdate("UPDATE " + table + " SET " + minorColumn + " = ROUND(" + column + " * 100)");
+                    stmt.execute("ALTER TABLE " + table + " DROP COLUMN " + column);
+                    Model.logInfo("  " + rows + " filas convertidas en " + table);
+                }
+
+                if (mysql) {
+                    stmt.execute("ALTER TABLE " + table + " CHANGE " + minorColumn + " " + column + " BIGINT DEFAULT 0 NOT NULL");
+                } else {
+                    stmt.execute("ALTER TABLE " + table + " RENAME COLUMN " + minorColumn + " TO " + column);
+                }
+
+                conn.commit();
+                Model.logInfo("Migración de dinero OK: " + table + "." + column);
+            } catch (SQLException e) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw e;
+            } finally {
+                try { conn.setAutoCommit(originalAutoCommit); } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    private static Map<String, String> getColumnTypes(Connection conn, String table) throws SQLException {
+        Map<String, String> columns = new HashMap<>();
+        DatabaseMetaData metaData = conn.getMetaData();
+
+        try (ResultSet rs = metaData.getColumns(conn.getCatalog(), null, table, null)) {
+            while (rs.next()) {
+                columns.put(rs.getString("COLUMN_NAME").toLowerCase(), rs.getString("TYPE_NAME"));
+            }
+        }
+        return columns;
+    }
+
+    private static boolean isIntegerType(String typeName) {
+        return typeName != null && typeName.toUpperCase().contains("INT");
+    }
+}
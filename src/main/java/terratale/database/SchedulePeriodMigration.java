@@ -0,0 +1,62 @@
+package terratale.database;
+
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Añade schedule_logs.period y la clave única (schedule_payment_id, period) a bases de datos creadas antes
+ * del planificador automático. Gracias a esa clave, generar dos veces la factura del mismo mes es imposible
+ * aunque dos procesos lo intenten a la vez. Los logs antiguos quedan con period NULL, que no choca.
+ */
+public final class SchedulePeriodMigration {
+
+    private static final String INDEX_NAME = "uq_schedule_period";
+
+    private SchedulePeriodMigration() {
+    }
+
+    public static void run(boolean mysql) throws SQLException {
+        try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement()) {
+            DatabaseMetaData metaData = conn.getMetaData();
+
+            if (!hasColumn(metaData, conn.getCatalog(), "schedule_logs", "period")) {
+                Model.logInfo("Añadiendo schedule_logs.period...");
+                stmt.execute("ALTER TABLE schedule_logs ADD COLUMN period " + (mysql ? "VARCHAR(7)" : "TEXT") + " NULL");
+            }
+
+            if (!hasIndex(metaData, conn.getCatalog(), "schedule_logs", INDEX_NAME)) {
+                stmt.execute("CREATE UNIQUE INDEX " + INDEX_NAME + " ON schedule_logs(schedule_payment_id, period)");
+                Model.logInfo("Índice único " + INDEX_NAME + " creado");
+            }
+        }
+    }
+
+    static boolean hasColumn(DatabaseMetaData metaData, String catalog, String table, String column)
+            throws SQLException {
+        try (ResultSet rs = metaData.getColumns(catalog, null, table, null)) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean hasIndex(DatabaseMetaData metaData, String catalog, String table, String index)
+            throws SQLException {
+        try (ResultSet rs = metaData.getIndexInfo(catalog, null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,226 @@
+package terratale.database;
+
+import terratale.metrics.RotatingFile;
+import terratale.models.Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Registro de consultas lentas (slow-queries.log en la carpeta de datos).
+ *
+ * {@link TimedConnection} avisa de cada sentencia que pasa de {@code thresholdMs}; en las SELECT cuenta también
+ * el tiempo dentro de ResultSet.next(), que es donde SQLite recorre la tabla. Se apuntan el SQL, los parámetros
+ * enlazados (los UUID y las cantidades se pueden ocultar), las filas y, si se pide, el plan de {@link IndexAdvisor}.
+ *
+ * Para no inundar el fichero se escribe como mucho una entrada por consulta cada {@code sampleIntervalMs}: las
+ * demás se cuentan en la siguiente entrada y en query.&lt;nombre&gt;.slow. El EXPLAIN y la escritura se hacen en
+ * un hilo aparte con una cola acotada, así que el comando que fue lento no espera además al disco.
+ */
+public final class SlowQueryLog {
+
+    private static final int QUEUE_SIZE = 100; // entradas pendientes de escribir; las que no caben se descartan
+    private static final int MAX_VALUE_LENGTH = 100;
+    private static final Pattern UUID_TEXT = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static volatile SlowQueryLog instance;
+
+    private final long thresholdNanos;
+    private final long sampleIntervalMs;
+    private final boolean redactUuids;
+    private final boolean redactAmounts;
+    private final boolean explain;
+    private final RotatingFile file;
+    private final ThreadPoolExecutor writer;
+    private volatile Thread writerThread;
+    private final Map<String, Sample> samples = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Última entrada escrita de una consulta y cuántas lentas se han omitido desde entonces
+    private static final class Sample {
+        long lastLoggedAt;
+        long skipped;
+    }
+
+    private SlowQueryLog(File dataFolder, long thresholdMs, long sampleIntervalMs, boolean redactUuids,
+                         boolean redactAmounts, boolean explain, long maxFileBytes, int files) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, thresholdMs));
+        this.sampleIntervalMs = Math.max(0, sampleIntervalMs);
+        this.redactUuids = redactUuids;
+        this.redactAmounts = redactAmounts;
+        this.explain = explain;
+        this.file = new RotatingFile(dataFolder, "slow-queries", maxFileBytes, files);
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+            Thread t = new Thread(r, "TerraEconomy-slow-queries");
+            t.setDaemon(true);
+            writerThread = t;
+            return t;
+        }, (task, executor) -> dropped.incrementAndGet());
+    }
+
+    public static void start(File dataFolder, long thresholdMs, long sampleIntervalMs, boolean redactUuids,
+                             boolean redactAmounts, boolean explain, long maxFileBytes, int files) {
+        stop();
+        instance = new SlowQueryLog(dataFolder, thresholdMs, sampleIntervalMs, redactUuids, redactAmounts, explain,
+            maxFileBytes, files);
+    }
+
+    // null si está desactivado; entonces TimedConnection tampoco guarda los parámetros
+    public static SlowQueryLog get() {
+        return instance;
+    }
+
+    // Escribe lo que quede en cola
+    public static void stop() {
+        SlowQueryLog current = instance;
+        if (current == null) {
+            return;
+        }
+        instance = null;
+        current.writer.shutdown();
+        try {
+            if (!current.writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                current.writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (current.dropped.get() > 0) {
+            Model.logError("Slow query log dropped " + current.dropped.get() + " entries (queue full)");
+        }
+    }
+
+    /* ---------------------- Registro ---------------------- */
+
+    // El EXPLAIN del propio hilo escritor no se registra (podría volver a entrar aquí)
+    boolean isSlow(long nanos) {
+        return nanos >= thresholdNanos && Thread.currentThread() != writerThread;
+    }
+
+    void record(TimedConnection.Query query, String sql, Object[] parameters, long nanos, long rows, Throwable error) {
+        query.slow.increment();
+
+        long skipped;
+        Sample sample = samples.computeIfAbsent(query.name, k -> new Sample());
+        synchronized (sample) {
+            long now = System.currentTimeMillis();
+            if (sample.lastLoggedAt != 0 && now - sample.lastLoggedAt < sampleIntervalMs) {
+                sample.skipped++;
+                return;
+            }
+            sample.lastLoggedAt = now;
+            skipped = sample.skipped;
+            sample.skipped = 0;
+        }
+
+        // Los parámetros se formatean ya: el statement los reutiliza en cuanto se devuelve a la caché
+        StringBuilder entry = new StringBuilder();
+        entry.append("=== ").append(LocalDateTime.now().format(TIMESTAMP))
+            .append(" | ").append(String.format(Locale.ROOT, "%.1f ms", nanos / 1_000_000.0))
+            .append(" | ").append(query.name)
+            .append(" | ").append(Thread.currentThread().getName()).append(" ===").append(System.lineSeparator());
+        String statement = sql != null ? sql.replaceAll("\\s+", " ").trim() : "(unknown)";
+        line(entry, "SQL: " + statement);
+        line(entry, "Params: " + formatParameters(parameters));
+        line(entry, "Rows: " + (rows >= 0 ? String.valueOf(rows) : "?"));
+        if (error != null) {
+            line(entry, "Error: " + error.getMessage());
+        }
+        if (skipped > 0) {
+            line(entry, "Skipped: " + skipped + " slow executions of this query since the previous entry");
+        }
+
+        boolean withPlan = explain && sql != null && isExplainable(statement);
+        writer.execute(() -> write(entry, withPlan ? statement : null));
+    }
+
+    private void write(StringBuilder entry, String explainSql) {
+        if (explainSql != null) {
+            try (Connection conn = Model.getConnection()) {
+                String plan = IndexAdvisor.explain(conn, explainSql);
+                line(entry, "Plan: " + (plan.isEmpty() ? "(empty)" : plan));
+            } catch (SQLException | RuntimeException e) {
+                line(entry, "Plan: unavailable (" + e.getMessage() + ")");
+            }
+        }
+
+        try {
+            file.append(entry.toString());
+        } catch (IOException | RuntimeException e) {
+            Model.logError("Failed to write slow query log: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void line(StringBuilder entry, String text) {
+        entry.append(text).append(System.lineSeparator());
+    }
+
+    private static boolean isExplainable(String sql) {
+        String verb = sql.split(" ", 2)[0].toLowerCase(Locale.ROOT);
+        return verb.equals("select") || verb.equals("insert") || verb.equals("update") || verb.equals("delete")
+            || verb.equals("replace") || verb.equals("with");
+    }
+
+    /* ---------------------- Parámetros ---------------------- */
+
+    // "[1] <uuid>, [2] <amount>, [3] 'ACC-0001'"; los huecos sin enlazar no se muestran
+    private String formatParameters(Object[] parameters) {
+        if (parameters == null) {
+            return "(none)";
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i < parameters.length; i++) {
+            if (parameters[i] == null) {
+                continue;
+            }
+            if (!text.isEmpty()) {
+                text.append(", ");
+            }
+            text.append('[').append(i).append("] ").append(formatValue(parameters[i]));
+        }
+        return text.isEmpty() ? "(none)" : text.toString();
+    }
+
+    // Las cantidades son long (unidades mínimas) o BigDecimal; los int son ids, límites y días y se muestran
+    private String formatValue(Object value) {
+        if (value == TimedConnection.NULL) {
+            return "NULL";
+        }
+        if (value instanceof UUID || (value instanceof String text && UUID_TEXT.matcher(text).matches())) {
+            return redactUuids ? "<uuid>" : "'" + value + "'";
+        }
+        if (value instanceof Long || value instanceof BigDecimal || value instanceof BigInteger
+                || value instanceof Double || value instanceof Float) {
+            return redactAmounts ? "<amount>" : value.toString();
+        }
+        if (value instanceof String text) {
+            return "'" + (text.length() > MAX_VALUE_LENGTH ? text.substring(0, MAX_VALUE_LENGTH) + "..." : text) + "'";
+        }
+        if (value instanceof byte[] bytes) {
+            return "<" + bytes.length + " bytes>";
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Date) {
+            return value.toString();
+        }
+        return "<" + value.getClass().getSimpleName() + ">";
+    }
+}
@@ -0,0 +1,46 @@
+package terratale.database;
+
+import terratale.Helpers.PluginConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * PRAGMAs de rendimiento para SQLite, aplicados a cada conexión nueva.
+ *
+ * Con WAL los lectores no bloquean al escritor ni al revés, y con synchronous=NORMAL el commit no hace
+ * fsync (solo el checkpoint): ante un corte de luz se pueden perder las últimas transacciones, pero la
+ * base de datos nunca queda corrupta. journal_mode es persistente en el fichero; el resto es por conexión.
+ */
+public final class SqliteTuning {
+
+    private SqliteTuning() {
+    }
+
+    public static void apply(Connection conn, PluginConfig config) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + Math.max(0, config.sqliteBusyTimeoutMs));
+            if (config.sqliteWalEnabled) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+            }
+            stmt.execute("PRAGMA synchronous = " + synchronous(config.sqliteSynchronous));
+            stmt.execute("PRAGMA cache_size = -" + Math.max(0, config.sqliteCacheSizeKb)); // negativo = KiB
+            stmt.execute("PRAGMA mmap_size = " + Math.max(0, config.sqliteMmapSizeBytes));
+            stmt.execute("PRAGMA temp_store = MEMORY");
+        }
+    }
+
+    // Solo valores válidos: el PRAGMA no admite parámetros
+    private static String synchronous(String value) {
+        if (value != null) {
+            switch (value.trim().toUpperCase()) {
+                case "OFF", "NORMAL", "FULL", "EXTRA":
+                    return value.trim().toUpperCase();
+                default:
+                    break;
+            }
+        }
+        return "NORMAL";
+    }
+}
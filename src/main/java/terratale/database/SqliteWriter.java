@@ -0,0 +1,258 @@
+package terratale.database;
+
+import terratale.metrics.Histogram;
+import terratale.metrics.Metrics;
+import terratale.models.Model;
+import terratale.models.Model.SqlWork;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hilo escritor único para SQLite.
+ *
+ * SQLite admite un solo escritor a la vez, así que en vez de que cada transacción compita por el lock del
+ * fichero (y haga su propio commit), {@link Model#inTransaction} y {@link Model#write} las encolan aquí. El hilo toma todas las que
+ * haya en la cola (hasta {@code maxBatch}), ejecuta cada una dentro de un SAVEPOINT sobre su propia
+ * conexión y hace un único commit para el grupo. Si una falla, solo se deshace su savepoint y el llamador
+ * recibe su excepción; las demás del grupo se confirman igualmente.
+ *
+ * Las lecturas siguen yendo por el pool: con WAL no bloquean al escritor.
+ */
+public class SqliteWriter {
+
+    private static SqliteWriter instance;
+
+    private static final class Job<T> {
+        final SqlWork<T> work;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        T value;
+
+        Job(SqlWork<T> work) {
+            this.work = work;
+        }
+
+        void run(Connection conn) throws SQLException {
+            value = work.run(conn);
+        }
+
+        void complete() {
+            result.complete(value);
+        }
+    }
+
+    private final ConnectionPool.ConnectionFactory factory;
+    private final BlockingQueue<Job<?>> queue = new LinkedBlockingQueue<>();
+    private final int maxBatch;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private Connection conn;
+
+    // Métricas
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong commitNanos = new AtomicLong();
+    private final Histogram commitLatency = Metrics.timer("writer.commit");
+    private volatile int largestGroup = 0;
+
+    private SqliteWriter(ConnectionPool.ConnectionFactory factory, int maxBatch) throws SQLException {
+        this.factory = factory;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.conn = openConnection();
+        this.thread = new Thread(this::loop, "TerraEconomy-sqlite-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public static void start(ConnectionPool.ConnectionFactory factory, int maxBatch) throws SQLException {
+        stop();
+        instance = new SqliteWriter(factory, maxBatch);
+        Metrics.gauge("writer.queued", () -> instance != null ? instance.queue.size() : 0);
+        Metrics.gauge("writer.commits", () -> instance != null ? instance.groups.get() : 0);
+        Metrics.gauge("writer.transactions", () -> instance != null ? instance.writes.get() : 0);
+    }
+
+    // null si no se usa (MySQL o desactivado en la configuración)
+    public static SqliteWriter get() {
+        return instance;
+    }
+
+    // Termina lo que haya en cola y cierra la conexión del escritor
+    public static void stop() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    /**
+     * Ejecuta el trabajo en el hilo escritor y espera a su commit. Las excepciones del trabajo llegan tal
+     * cual al llamador. Si se llama desde el propio hilo escritor (transacción anidada) se ejecuta ya, en un
+     * savepoint dentro del grupo en curso.
+     */
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        if (Thread.currentThread() == thread) {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                T value = work.run(conn);
+                conn.releaseSavepoint(savepoint);
+                return value;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback(savepoint);
+                throw e;
+            }
+        }
+        if (!running) {
+            throw new SQLException("SQLite writer is stopped");
+        }
+
+        Job<T> job = new Job<>(work);
+        queue.add(job);
+        try {
+            while (true) {
+                try {
+                    return job.result.get(1, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    // Encolado justo cuando el escritor se paraba: nadie lo va a ejecutar
+                    if (!thread.isAlive() && queue.remove(job)) {
+                        throw new SQLException("SQLite writer is stopped");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the SQLite writer", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    private void loop() {
+        List<Job<?>> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Job<?> first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxBatch - 1);
+                runGroup(group);
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Throwable t) {
+                Model.logError("SQLite writer error: " + t.getMessage());
+                t.printStackTrace();
+                for (Job<?> job : group) {
+                    job.result.completeExceptionally(t);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+
+        // Lo que quede tras la parada ya no se ejecutará
+        Job<?> job;
+        while ((job = queue.poll()) != null) {
+            job.result.completeExceptionally(new SQLException("SQLite writer is stopped"));
+        }
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void runGroup(List<Job<?>> group) throws SQLException {
+        ensureConnection();
+        conn.setAutoCommit(false);
+        List<Job<?>> succeeded = new ArrayList<>(group.size());
+        try {
+            for (Job<?> job : group) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    job.run(conn);
+                    conn.releaseSavepoint(savepoint);
+                    succeeded.add(job);
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback(savepoint);
+                    failures.incrementAndGet();
+                    job.result.completeExceptionally(e);
+                }
+            }
+
+            long start = System.nanoTime();
+            conn.commit();
+            long elapsed = System.nanoTime() - start;
+            commitNanos.addAndGet(elapsed);
+            commitLatency.record(elapsed);
+        } catch (SQLException | RuntimeException e) {
+            try { conn.rollback(); } catch (SQLException ignored) {}
+            for (Job<?> job : succeeded) {
+                job.result.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            try { conn.setAutoCommit(true); } catch (SQLException ignored) {}
+        }
+
+        groups.incrementAndGet();
+        writes.addAndGet(group.size());
+        if (group.size() > largestGroup) {
+            largestGroup = group.size();
+        }
+        for (Job<?> job : succeeded) {
+            job.complete();
+        }
+    }
+
+    private void ensureConnection() throws SQLException {
+        if (conn == null || conn.isClosed()) {
+            conn = openConnection();
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        return factory.create();
+    }
+
+    private void shutdown() {
+        running = false;
+        try {
+            thread.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public List<String> describe() {
+        long groupCount = groups.get();
+        long writeCount = writes.get();
+        List<String> lines = new ArrayList<>();
+        lines.add("Escritor SQLite: " + writeCount + " transacciones en " + groupCount + " commits (media "
+            + String.format("%.1f", groupCount == 0 ? 0.0 : writeCount / (double) groupCount) + ", máx. " + largestGroup
+            + " por commit), " + failures.get() + " fallidas, " + queue.size() + " en cola");
+        lines.add("  Commit: media " + String.format("%.2f", groupCount == 0 ? 0.0 : commitNanos.get() / (double) groupCount / 1_000_000.0) + "ms");
+        return lines;
+    }
+}
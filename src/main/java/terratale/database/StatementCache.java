@@ -0,0 +1,195 @@
+package terratale.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU de PreparedStatements de una conexión física.
+ *
+ * Los modelos siguen usando try-with-resources: close() sobre el statement devuelto solo cierra sus
+ * ResultSets y limpia los parámetros, y el statement queda listo para la siguiente llamada con el mismo SQL.
+ * Una conexión solo la usa un hilo a la vez (la presta el pool), así que no hace falta sincronizar.
+ */
+final class StatementCache {
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+
+    private final Connection physical;
+    private final Connection owner;
+    private final int maxSize;
+    private final LinkedHashMap<String, CachedStatement> entries;
+
+    StatementCache(Connection physical, Connection owner, int maxSize) {
+        this.physical = physical;
+        this.owner = owner;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                evictions.increment();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys + ":" + sql;
+        CachedStatement cached = entries.get(key);
+
+        if (cached != null && !cached.inUse && !cached.statement.isClosed()) {
+            hits.increment();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+
+        misses.increment();
+        PreparedStatement statement = autoGeneratedKeys == -1
+            ? physical.prepareStatement(sql)
+            : physical.prepareStatement(sql, autoGeneratedKeys);
+        CachedStatement created = new CachedStatement(statement);
+        created.inUse = true;
+
+        // Si el mismo SQL ya está abierto (consultas anidadas) el nuevo no se cachea
+        if (cached == null || cached.statement.isClosed()) {
+            entries.put(key, created);
+        } else {
+            created.evicted = true;
+        }
+        return created.proxy;
+    }
+
+    void closeAll() {
+        for (CachedStatement cached : entries.values()) {
+            cached.evict();
+        }
+        entries.clear();
+    }
+
+    static long getHits() { return hits.sum(); }
+    static long getMisses() { return misses.sum(); }
+    static long getEvictions() { return evictions.sum(); }
+
+    static double getHitRate() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    private final class CachedStatement implements InvocationHandler {
+
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                this
+            );
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+        private void release() throws SQLException {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+
+            for (ResultSet rs : openResults) {
+                try {
+                    rs.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            openResults.clear();
+
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                // Statement en mal estado: se saca de la caché
+                evicted = true;
+                entries.values().remove(this);
+                closeQuietly();
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    release();
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !inUse || statement.isClosed();
+                }
+                case "getConnection" -> {
+                    return owner;
+                }
+                case "equals" -> {
+                    return proxyInstance == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxyInstance);
+                }
+                case "toString" -> {
+                    return "Cached " + statement;
+                }
+                default -> {
+                    if (!inUse) {
+                        throw new SQLException("PreparedStatement is closed");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof ResultSet rs) {
+                        openResults.add(rs);
+                    }
+                    return result;
+                }
+            }
+        }
+    }
+}
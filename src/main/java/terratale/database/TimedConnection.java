@@ -0,0 +1,352 @@
+package terratale.database;
+
+import terratale.metrics.Histogram;
+import terratale.metrics.Metrics;
+import terratale.models.Model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Conexión física que mide cada sentencia en el registro de métricas (query.&lt;nombre&gt;).
+ *
+ * El nombre es el de la consulta registrada en Model (el mismo de /terratale explain) o, si no lo está,
+ * "verbo tabla" (p. ej. "update users"). Se resuelve una vez por SQL al preparar el statement, así que
+ * ejecutar solo añade dos System.nanoTime(). De executeQuery se mide hasta tener el ResultSet, no su lectura.
+ *
+ * Model la pone por debajo del pool y del escritor SQLite, así que la caché de statements guarda los ya medidos.
+ *
+ * Con {@link SlowQueryLog} activo además guarda los parámetros enlazados y envuelve los ResultSet para sumar el
+ * tiempo de next() y contar las filas; al cerrar el ResultSet (o al terminar un UPDATE) le pasa las lentas.
+ */
+public final class TimedConnection implements InvocationHandler {
+
+    private static final int MAX_CACHED_SQL = 1000; // SQL distintos con nombre resuelto; el resto se nombra cada vez
+    private static final Map<String, Query> QUERIES = new ConcurrentHashMap<>();
+    static final Object NULL = new Object(); // parámetro enlazado con setNull (un hueco null es que no se enlazó)
+
+    private final Connection physical;
+
+    static final class Query {
+        final String name;
+        final Histogram latency;
+        final Metrics.Counter errors;
+        final Metrics.Counter slow;
+
+        Query(String name) {
+            this.name = name;
+            this.latency = Metrics.timer("query." + name);
+            this.errors = Metrics.counter("query." + name + ".errors");
+            this.slow = Metrics.counter("query." + name + ".slow");
+        }
+    }
+
+    private TimedConnection(Connection physical) {
+        this.physical = physical;
+    }
+
+    public static Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            new TimedConnection(physical)
+        );
+    }
+
+    /* ---------------------- Nombres ---------------------- */
+
+    static Query resolve(String sql) {
+        Query query = QUERIES.get(sql);
+        if (query != null) {
+            return query;
+        }
+        if (QUERIES.size() >= MAX_CACHED_SQL) {
+            return new Query(nameFromSql(sql)); // el histograma es el mismo: Metrics lo busca por nombre
+        }
+        query = new Query(nameOf(sql));
+        QUERIES.put(sql, query);
+        return query;
+    }
+
+    private static String nameOf(String sql) {
+        for (Map.Entry<String, String> entry : Model.getRegisteredQueries().entrySet()) {
+            if (sql.equals(entry.getValue())) {
+                return entry.getKey();
+            }
+        }
+        return nameFromSql(sql);
+    }
+
+    // "select bank_accounts", "insert ledger_entries"...; la tabla es la primera tras FROM/INTO (o tras UPDATE)
+    static String nameFromSql(String sql) {
+        String[] tokens = sql.trim().split("\\s+");
+        String verb = tokens[0].toLowerCase(Locale.ROOT);
+        String marker = switch (verb) {
+            case "select", "delete" -> "from";
+            case "insert", "replace" -> "into";
+            case "update" -> "update";
+            default -> null;
+        };
+        if (marker == null) {
+            return verb;
+        }
+
+        for (int i = 0; i < tokens.length - 1; i++) {
+            if (tokens[i].equalsIgnoreCase(marker)) {
+                String table = tokens[i + 1].split("\\(", 2)[0].replaceAll("[`\"\\[\\];,]", "").toLowerCase(Locale.ROOT);
+                return table.isEmpty() ? verb : verb + " " + table;
+            }
+        }
+        return verb;
+    }
+
+    /* ---------------------- Proxies ---------------------- */
+
+    @Override
+    public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals" -> {
+                return proxyInstance == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxyInstance);
+            }
+            case "toString" -> {
+                return "Timed " + physical;
+            }
+            case "prepareStatement" -> {
+                PreparedStatement statement = (PreparedStatement) call(physical, method, args);
+                String sql = (String) args[0];
+                return timed(PreparedStatement.class, new TimedStatement(statement, resolve(sql), sql, proxyInstance));
+            }
+            case "createStatement" -> {
+                Statement statement = (Statement) call(physical, method, args);
+                return timed(Statement.class, new TimedStatement(statement, null, null, proxyInstance));
+            }
+            default -> {
+                return call(physical, method, args);
+            }
+        }
+    }
+
+    private static Object timed(Class<?> type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // PreparedStatement con su consulta ya resuelta, o Statement que recibe el SQL en cada execute
+    private static final class TimedStatement implements InvocationHandler {
+
+        private final Statement statement;
+        private final Query query;
+        private final String sql;
+        private final Object connection;
+        private Object[] parameters; // solo con SlowQueryLog activo; índice = posición JDBC
+        private TimedResults openResults;
+
+        TimedStatement(Statement statement, Query query, String sql, Object connection) {
+            this.statement = statement;
+            this.query = query;
+            this.sql = sql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals" -> {
+                    return proxyInstance == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxyInstance);
+                }
+                case "toString" -> {
+                    return "Timed " + statement;
+                }
+                case "getConnection" -> {
+                    return connection;
+                }
+                case "close" -> {
+                    finishResults();
+                    return call(statement, method, args);
+                }
+                case "clearParameters" -> {
+                    parameters = null;
+                    return call(statement, method, args);
+                }
+                default -> {
+                    if (name.startsWith("execute")) {
+                        return execute(proxyInstance, method, args);
+                    }
+                    // setString(1, ...), setLong(2, ...), setNull(3, Types.X)...
+                    if (sql != null && name.startsWith("set") && args != null && args.length >= 2
+                            && args[0] instanceof Integer index && SlowQueryLog.get() != null) {
+                        bind(index, name.equals("setNull") ? NULL : args[1]);
+                    }
+                    return call(statement, method, args);
+                }
+            }
+        }
+
+        private Object execute(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            finishResults();
+            boolean direct = args != null && args.length > 0 && args[0] instanceof String;
+            String text = direct ? (String) args[0] : sql;
+            Query target = direct ? resolve(text) : query != null ? query : resolve("batch");
+            Object[] bound = direct || parameters == null ? null : parameters.clone();
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(statement, method, args);
+            } catch (Throwable e) {
+                long elapsed = System.nanoTime() - start;
+                target.errors.increment();
+                target.latency.record(elapsed);
+                SlowQueryLog slow = SlowQueryLog.get();
+                if (slow != null && slow.isSlow(elapsed)) {
+                    slow.record(target, text, bound, elapsed, -1, e);
+                }
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            target.latency.record(elapsed);
+
+            SlowQueryLog slow = SlowQueryLog.get();
+            if (slow == null) {
+                return result;
+            }
+            if (result instanceof ResultSet results) {
+                // Se decide al cerrarlo, con el tiempo de next() sumado
+                openResults = new TimedResults(results, proxyInstance, target, text, bound, elapsed);
+                return timed(ResultSet.class, openResults);
+            }
+            if (slow.isSlow(elapsed)) {
+                slow.record(target, text, bound, elapsed, rowsOf(result), null);
+            }
+            return result;
+        }
+
+        private long rowsOf(Object result) throws Exception {
+            if (result instanceof Number count) {
+                return count.longValue();
+            }
+            if (result instanceof int[] counts) {
+                return Arrays.stream(counts).filter(c -> c >= 0).asLongStream().sum();
+            }
+            if (result instanceof long[] counts) {
+                return Arrays.stream(counts).filter(c -> c >= 0).sum();
+            }
+            if (Boolean.FALSE.equals(result)) {
+                return statement.getUpdateCount();
+            }
+            return -1;
+        }
+
+        private void bind(int index, Object value) {
+            if (parameters == null || parameters.length <= index) {
+                parameters = Arrays.copyOf(parameters == null ? new Object[0] : parameters, Math.max(index + 1, 8));
+            }
+            parameters[index] = value;
+        }
+
+        // El ResultSet anterior se cierra solo al cerrar o volver a ejecutar el statement
+        private void finishResults() {
+            if (openResults != null) {
+                openResults.finish();
+                openResults = null;
+            }
+        }
+    }
+
+    // ResultSet de una consulta con SlowQueryLog activo: suma el tiempo dentro de next() y cuenta las filas
+    private static final class TimedResults implements InvocationHandler {
+
+        private final ResultSet results;
+        private final Object statement;
+        private final Query query;
+        private final String sql;
+        private final Object[] parameters;
+        private long nanos;
+        private long rows;
+        private boolean finished;
+
+        TimedResults(ResultSet results, Object statement, Query query, String sql, Object[] parameters, long executeNanos) {
+            this.results = results;
+            this.statement = statement;
+            this.query = query;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.nanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next" -> {
+                    long start = System.nanoTime();
+                    try {
+                        Object more = call(results, method, args);
+                        if (Boolean.TRUE.equals(more)) {
+                            rows++;
+                        }
+                        return more;
+                    } finally {
+                        nanos += System.nanoTime() - start;
+                    }
+                }
+                case "close" -> {
+                    try {
+                        return call(results, method, args);
+                    } finally {
+                        finish();
+                    }
+                }
+                case "getStatement" -> {
+                    return statement;
+                }
+                case "equals" -> {
+                    return proxyInstance == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxyInstance);
+                }
+                case "toString" -> {
+                    return "Timed " + results;
+                }
+                default -> {
+                    return call(results, method, args);
+                }
+            }
+        }
+
+        void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            SlowQueryLog slow = SlowQueryLog.get();
+            if (slow != null && slow.isSlow(nanos)) {
+                slow.record(query, sql, parameters, nanos, rows, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package terratale.economy;
+
+import terratale.Helpers.Money;
+import terratale.cache.WalletCache;
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instantáneas periódicas de los saldos (users.money, bank_accounts.balance, banks.balance).
+ *
+ * Cada instantánea guarda solo los titulares cuyo saldo cambió desde la anterior (un saldo que desaparece
+ * se guarda como 0), junto con el último asiento del {@link Ledger} que incluye. El saldo de un titular en
+ * un momento T es el de su fila más reciente hasta la última instantánea anterior a T, más sus apuntes del
+ * diario posteriores a esa instantánea y anteriores a T: como mucho un intervalo de apuntes, en vez de
+ * todo el historial.
+ *
+ * Los saldos se leen en una sola transacción de lectura cuya instantánea se fija leyendo el último asiento
+ * con todas las transferencias bloqueadas (solo durante esa lectura), así que cada instantánea coincide
+ * exactamente con su asiento sin parar la economía durante los escaneos. Los cambios del dinero en mano llegan
+ * al diario cuando WalletCache los escribe en users.money, así que su saldo en T puede ir un flush por detrás.
+ */
+public class BalanceSnapshots {
+
+    private static BalanceSnapshots instance;
+
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Long> lastValues = new HashMap<>(); // "A:12" -> saldo en la última instantánea
+    private boolean loaded = false;
+
+    // Resultado de una instantánea
+    public static class Summary {
+        public final long snapshotId;
+        public final int holders;
+        public final int changed;
+        public final long durationMs;
+
+        Summary(long snapshotId, int holders, int changed, long durationMs) {
+            this.snapshotId = snapshotId;
+            this.holders = holders;
+            this.changed = changed;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private BalanceSnapshots(long intervalMs) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TerraEconomy-balance-snapshots");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long interval = Math.max(60000L, intervalMs);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                take();
+            } catch (Exception e) {
+                Model.logError("Failed to take balance snapshot: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static void start(long intervalMs) {
+        stop();
+        instance = new BalanceSnapshots(intervalMs);
+    }
+
+    public static BalanceSnapshots get() {
+        return instance;
+    }
+
+    public static void stop() {
+        if (instance != null) {
+            instance.scheduler.shutdownNow();
+            instance = null;
+        }
+    }
+
+    /* ---------------------- Instantáneas ---------------------- */
+
+    public synchronized Summary take() throws SQLException {
+        long start = System.currentTimeMillis();
+        if (!loaded) {
+            loadLastValues();
+            loaded = true;
+        }
+
+        WalletCache wallets = WalletCache.get();
+        if (wallets != null) {
+            wallets.flush();
+        }
+
+        Map<String, Long> changed = new HashMap<>();
+        // [0] último asiento incluido, [1] momento de la instantánea, [2] titulares
+        long[] read = Model.inReadTransaction(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                // Sin transferencias a medias mientras se fija la instantánea: en MySQL los id de los asientos no
+                // se confirman en orden, y uno anterior al máximo podría no estar aún en los saldos
+                long lastEntryId;
+                long takenAt;
+                try (StripedLocks.Held held = TransferEngine.getLocks().lockEverything(30000);
+                     ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) AS last_id FROM ledger_entries")) {
+                    lastEntryId = rs.next() ? rs.getLong("last_id") : 0;
+                    // Todo asiento hasta lastEntryId se creó antes de este momento: balanceAt(T) no cuenta dos veces
+                    takenAt = System.currentTimeMillis();
+                }
+
+                Set<String> seen = new HashSet<>();
+                collect(stmt, "SELECT uuid AS holder_id, money AS balance FROM users", Ledger.WALLET, seen, changed);
+                collect(stmt, "SELECT id AS holder_id, balance FROM bank_accounts", Ledger.ACCOUNT, seen, changed);
+                collect(stmt, "SELECT id AS holder_id, balance FROM banks", Ledger.BANK, seen, changed);
+
+                // Titulares borrados desde la última instantánea
+                for (String key : lastValues.keySet()) {
+                    if (!seen.contains(key)) {
+                        changed.put(key, 0L);
+                    }
+                }
+                return new long[] { lastEntryId, takenAt, seen.size() };
+            }
+        });
+        long lastEntryId = read[0];
+        long takenAt = read[1];
+        int holders = (int) read[2];
+
+        long snapshotId = Model.inTransaction(conn -> write(conn, takenAt, lastEntryId, holders, changed));
+
+        for (Map.Entry<String, Long> entry : changed.entrySet()) {
+            if (entry.getValue() == 0L) {
+                lastValues.remove(entry.getKey());
+            } else {
+                lastValues.put(entry.getKey(), entry.getValue());
+            }
+        }
+        long durationMs = System.currentTimeMillis() - start;
+        Model.logInfo("Balance snapshot " + snapshotId + ": " + changed.size() + " of " + holders + " balances changed ("
+            + durationMs + "ms)");
+        return new Summary(snapshotId, holders, changed.size(), durationMs);
+    }
+
+    private void collect(Statement stmt, String sql, String holderType, Set<String> seen, Map<String, Long> changed)
+            throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                String key = holderType + ":" + rs.getString("holder_id");
+                long balance = rs.getLong("balance");
+                seen.add(key);
+                if (balance != lastValues.getOrDefault(key, 0L)) {
+                    changed.put(key, balance);
+                }
+            }
+        }
+    }
+
+    private long write(Connection conn, long takenAt, long lastEntryId, int holders, Map<String, Long> changed)
+            throws SQLException {
+        long snapshotId;
+        String sql = "INSERT INTO balance_snapshots (taken_at, last_entry_id, holders, changed) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setLong(1, takenAt);
+            pstmt.setLong(2, lastEntryId);
+            pstmt.setInt(3, holders);
+            pstmt.setInt(4, changed.size());
+            pstmt.executeUpdate();
+
+            ResultSet rs = pstmt.getGeneratedKeys();
+            if (!rs.next()) {
+                throw new SQLException("No id returned for balance snapshot");
+            }
+            snapshotId = rs.getLong(1);
+        }
+
+        sql = "INSERT INTO balance_snapshot_values (snapshot_id, holder_type, holder_id, balance) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Map.Entry<String, Long> entry : changed.entrySet()) {
+                String key = entry.getKey();
+                pstmt.setLong(1, snapshotId);
+                pstmt.setString(2, key.substring(0, 1));
+                pstmt.setString(3, key.substring(2));
+                pstmt.setLong(4, entry.getValue());
+                pstmt.addBatch();
+                if (++pending == 1000) {
+                    pstmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+            }
+        }
+        return snapshotId;
+    }
+
+    // Último valor guardado de cada titular (la fila con mayor snapshot_id)
+    private void loadLastValues() throws SQLException {
+        String sql = """
+            SELECT v.holder_type, v.holder_id, v.balance FROM balance_snapshot_values v
+            JOIN (SELECT holder_type, holder_id, MAX(snapshot_id) AS snapshot_id FROM balance_snapshot_values
+                  GROUP BY holder_type, holder_id) m
+            ON m.holder_type = v.holder_type AND m.holder_id = v.holder_id AND m.snapshot_id = v.snapshot_id
+        """;
+        try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                long balance = rs.getLong("balance");
+                if (balance != 0) {
+                    lastValues.put(rs.getString("holder_type") + ":" + rs.getString("holder_id"), balance);
+                }
+            }
+        }
+    }
+
+    /* ---------------------- Consultas ---------------------- */
+
+    public static long accountBalanceAt(int accountId, long timestamp) throws SQLException {
+        return balanceAt(Ledger.ACCOUNT, String.valueOf(accountId), timestamp);
+    }
+
+    public static long bankBalanceAt(int bankId, long timestamp) throws SQLException {
+        return balanceAt(Ledger.BANK, String.valueOf(bankId), timestamp);
+    }
+
+    public static long walletBalanceAt(UUID uuid, long timestamp) throws SQLException {
+        return balanceAt(Ledger.WALLET, uuid.toString(), timestamp);
+    }
+
+    /**
+     * Saldo del titular en {@code timestamp}: instantánea más reciente anterior más los apuntes del diario
+     * hasta ese momento. Sin instantáneas anteriores se suma el diario desde el asiento de apertura.
+     */
+    public static long balanceAt(String holderType, String holderId, long timestamp) throws SQLException {
+        try (Connection conn = Model.getConnection()) {
+            long baseEntryId = 0;
+            String sql = "SELECT last_entry_id FROM balance_snapshots WHERE taken_at <= ? ORDER BY taken_at DESC LIMIT 1";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, timestamp);
+                ResultSet rs = pstmt.executeQuery();
+                if (rs.next()) {
+                    baseEntryId = rs.getLong("last_entry_id");
+                }
+            }
+
+            long balance = 0;
+            if (baseEntryId > 0) {
+                sql = "SELECT v.balance FROM balance_snapshot_values v JOIN balance_snapshots s ON s.id = v.snapshot_id "
+                    + "WHERE v.holder_type = ? AND v.holder_id = ? AND s.taken_at <= ? ORDER BY v.snapshot_id DESC LIMIT 1";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, holderType);
+                    pstmt.setString(2, holderId);
+                    pstmt.setLong(3, timestamp);
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next()) {
+                        balance = rs.getLong("balance");
+                    }
+                }
+            }
+
+            sql = "SELECT COALESCE(SUM(p.amount), 0) AS delta FROM ledger_postings p JOIN ledger_entries e ON e.id = p.entry_id "
+                + "WHERE p.holder_type = ? AND p.holder_id = ? AND p.entry_id > ? AND e.created_at <= ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, holderType);
+                pstmt.setString(2, holderId);
+                pstmt.setLong(3, baseEntryId);
+                pstmt.setLong(4, timestamp);
+                ResultSet rs = pstmt.executeQuery();
+                if (rs.next()) {
+                    balance = Money.add(balance, rs.getLong("delta"));
+                }
+            }
+            return balance;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package terratale.economy;
+
+import terratale.Helpers.Money;
+import terratale.Helpers.TransactionTypes;
+import terratale.cache.MoneySupply;
+import terratale.cache.SessionManager;
+import terratale.models.Bank;
+import terratale.models.BankAccount;
+import terratale.models.BankTransaction;
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Borrado de un banco en segundo plano (/bank delete).
+ *
+ * Todo se hace con sentencias por conjuntos y en bloques, cada bloque en su propia transacción, así que la
+ * memoria no depende del tamaño del banco y nunca se bloquea la base de datos durante mucho tiempo:
+ * 1. Historial de las cuentas (transactions) y del banco (bank_transactions), de {@code chunkSize} en
+ *    {@code chunkSize} filas.
+ * 2. Cuentas, por rangos de id: en la misma transacción se suma el saldo positivo con un único SELECT, se
+ *    abona a la cuenta del gobierno y se borran los owners, invitaciones y las cuentas. El dinero nunca
+ *    queda fuera de una cuenta aunque el servidor se pare a mitad.
+ * 3. Invitaciones del banco y el propio banco, solo si ya no le quedan cuentas: las abiertas durante el
+ *    borrado se barren en otra pasada.
+ *
+ * Si se interrumpe, volver a lanzar el borrado continúa donde se quedó. Los borrados van de uno en uno.
+ */
+public class BankDeletionJob {
+
+    private static ExecutorService executor;
+    private static final Set<Integer> running = ConcurrentHashMap.newKeySet();
+
+    private static final long PROGRESS_INTERVAL_MS = 2000;
+
+    public static class Result {
+        public int accounts;
+        public long transactions;
+        public long bankTransactions;
+        public long swept;
+        public long elapsedMs;
+    }
+
+    private final int bankId;
+    private final BankAccount govAccount;
+    private final String actor;
+    private final int chunkSize;
+    private final Consumer<String> progress;
+    private final Result result = new Result();
+    private long lastProgressAt = System.currentTimeMillis();
+
+    private BankDeletionJob(int bankId, BankAccount govAccount, UUID actor, int chunkSize, Consumer<String> progress) {
+        this.bankId = bankId;
+        this.govAccount = govAccount;
+        this.actor = actor != null ? actor.toString() : null;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.progress = progress;
+    }
+
+    /**
+     * Encola el borrado del banco. {@code progress} recibe los mensajes de avance (desde el hilo del
+     * trabajo). Falla con TransferException si el banco ya se está borrando o contiene la cuenta del gobierno.
+     */
+    public static synchronized CompletableFuture<Result> submit(int bankId, BankAccount govAccount, UUID actor,
+            int chunkSize, Consumer<String> progress) {
+        if (govAccount.getBankId() == bankId) {
+            return CompletableFuture.failedFuture(new TransferException("No se puede eliminar el banco de la cuenta del gobierno."));
+        }
+        if (!running.add(bankId)) {
+            return CompletableFuture.failedFuture(new TransferException("Este banco ya se está eliminando."));
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "TerraEconomy-bank-deletion");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        BankDeletionJob job = new BankDeletionJob(bankId, govAccount, actor, chunkSize, progress);
+        try {
+            return CompletableFuture.supplyAsync(job::run, executor)
+                .whenComplete((result, error) -> running.remove(bankId));
+        } catch (RuntimeException e) {
+            running.remove(bankId);
+            throw e;
+        }
+    }
+
+    // Un bloque a medias se deshace con su transacción; el resto se retoma al volver a borrar el banco
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    private Result run() {
+        long start = System.currentTimeMillis();
+        try {
+            report("Eliminando el historial de movimientos...", true);
+            result.transactions = deleteInChunks(Model.isMySQL
+                ? "DELETE FROM transactions WHERE account_id IN (SELECT id FROM bank_accounts WHERE bank_id = ?) LIMIT ?"
+                : "DELETE FROM transactions WHERE id IN (SELECT t.id FROM transactions t "
+                    + "JOIN bank_accounts a ON a.id = t.account_id WHERE a.bank_id = ? LIMIT ?)", "movimientos de cuentas");
+            result.bankTransactions = deleteInChunks(Model.isMySQL
+                ? "DELETE FROM bank_transactions WHERE bank_id = ? LIMIT ?"
+                : "DELETE FROM bank_transactions WHERE id IN (SELECT id FROM bank_transactions WHERE bank_id = ? LIMIT ?)",
+                "movimientos del banco");
+
+            report("Transfiriendo saldos al gobierno y eliminando cuentas...", true);
+            boolean deleted;
+            do {
+                int lastId = 0;
+                List<Integer> ids;
+                while (!(ids = nextAccountIds(lastId)).isEmpty()) {
+                    deleteAccounts(lastId, ids);
+                    lastId = ids.get(ids.size() - 1);
+                    report("Cuentas eliminadas: " + result.accounts + " (" + Money.format(result.swept) + " Liras transferidas)", false);
+                }
+
+                try (StripedLocks.Held held = TransferEngine.getLocks().lockAll(List.of(StripedLocks.bankKey(bankId)), 30000)) {
+                    deleted = Model.inTransaction(conn -> {
+                        // Cuentas abiertas en el banco después del barrido: se vuelve a barrer antes de borrarlo
+                        if (hasAccounts(conn)) {
+                            return false;
+                        }
+                        closeBankBalance(conn);
+                        execute(conn, "DELETE FROM bank_invitations WHERE bank_id = ?");
+                        execute(conn, "DELETE FROM banks WHERE id = ?");
+                        return true;
+                    });
+                } finally {
+                    Bank.invalidateCache(bankId);
+                }
+            } while (!deleted);
+
+            result.elapsedMs = System.currentTimeMillis() - start;
+            Model.logInfo("Bank " + bankId + " deleted in " + result.elapsedMs + "ms: " + result.accounts + " accounts, "
+                + (result.transactions + result.bankTransactions) + " transactions, " + result.swept + " swept to government");
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            Model.logError("Bank deletion " + bankId + " stopped: " + e.getMessage());
+            e.printStackTrace();
+            throw e instanceof TransferException transferException ? transferException
+                : new TransferException("Error al eliminar el banco; vuelve a ejecutar el comando para continuar.", e);
+        }
+    }
+
+    // Repite el DELETE ... LIMIT hasta que no quede nada
+    private long deleteInChunks(String sql, String label) throws SQLException {
+        long total = 0;
+        int deleted;
+        do {
+            checkInterrupted();
+            deleted = Model.inTransaction(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, bankId);
+                    pstmt.setInt(2, chunkSize);
+                    return pstmt.executeUpdate();
+                }
+            });
+            total += deleted;
+            if (deleted > 0) {
+                report("Eliminados " + total + " " + label, false);
+            }
+        } while (deleted > 0);
+        return total;
+    }
+
+    private List<Integer> nextAccountIds(int afterId) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        String sql = "SELECT id FROM bank_accounts WHERE bank_id = ? AND id > ? ORDER BY id LIMIT ?";
+        try (Connection conn = Model.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bankId);
+            pstmt.setInt(2, afterId);
+            pstmt.setInt(3, chunkSize);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getInt("id"));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Barre y borra las cuentas del rango (afterId, último id]. Las cuentas se bloquean como en una
+     * transferencia para que ningún movimiento en curso quede a medias entre la suma y el borrado.
+     */
+    private void deleteAccounts(int afterId, List<Integer> ids) throws SQLException {
+        checkInterrupted();
+        int lastId = ids.get(ids.size() - 1);
+        List<String> keys = new ArrayList<>(ids.size() + 1);
+        keys.add(StripedLocks.accountKey(govAccount.getId()));
+        for (int id : ids) {
+            keys.add(StripedLocks.accountKey(id));
+        }
+
+        long[] balances;
+        try (StripedLocks.Held held = TransferEngine.getLocks().lockAll(keys, 30000);
+                MoneySupply.Section change = MoneySupply.change()) {
+            balances = Model.inTransaction(conn -> {
+                // [0] saldo positivo que pasa al gobierno, [1] saldo negativo que desaparece con la cuenta
+                long[] sums = new long[2];
+                String sql = "SELECT COALESCE(SUM(CASE WHEN balance > 0 THEN balance ELSE 0 END), 0) AS swept, "
+                    + "COALESCE(SUM(CASE WHEN balance < 0 THEN balance ELSE 0 END), 0) AS negative "
+                    + "FROM bank_accounts WHERE bank_id = ? AND id > ? AND id <= ?" + (Model.isMySQL ? " FOR UPDATE" : "");
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    bindRange(pstmt, 1, afterId, lastId);
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next()) {
+                        sums[0] = rs.getLong("swept");
+                        sums[1] = rs.getLong("negative");
+                    }
+                }
+
+                if (sums[0] > 0) {
+                    try (PreparedStatement pstmt = conn.prepareStatement("UPDATE bank_accounts SET balance = balance + ? WHERE id = ?")) {
+                        pstmt.setLong(1, sums[0]);
+                        pstmt.setInt(2, govAccount.getId());
+                        if (pstmt.executeUpdate() != 1) {
+                            throw new TransferException("Error: No se encontró la cuenta del gobierno.");
+                        }
+                    }
+                    new BankTransaction(govAccount.getBankId(), TransactionTypes.BANK_DELETION, sums[0], actor).save(conn);
+                }
+
+                // Asiento: cada cuenta queda a 0, el gobierno recibe lo positivo y el negativo se da por emitido
+                if (sums[0] != 0 || sums[1] != 0) {
+                    long entryId = Ledger.append(conn, new Ledger.Entry(TransactionTypes.BANK_DELETION, actor)
+                        .account(govAccount.getId(), sums[0])
+                        .system(Ledger.ISSUANCE, sums[1]));
+                    try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO ledger_postings "
+                            + "(entry_id, holder_type, holder_id, amount) SELECT ?, '" + Ledger.ACCOUNT + "', CAST(id AS CHAR), -balance "
+                            + "FROM bank_accounts WHERE bank_id = ? AND id > ? AND id <= ? AND balance <> 0")) {
+                        pstmt.setLong(1, entryId);
+                        bindRange(pstmt, 2, afterId, lastId);
+                        pstmt.executeUpdate();
+                    }
+                }
+
+                String accountsInRange = "SELECT id FROM bank_accounts WHERE bank_id = ? AND id > ? AND id <= ?";
+                // Movimientos hechos mientras se borraba el historial
+                executeRange(conn, "DELETE FROM transactions WHERE account_id IN (" + accountsInRange + ")", afterId, lastId);
+                executeRange(conn, "DELETE FROM bank_accounts_owners WHERE account_id IN (" + accountsInRange + ")", afterId, lastId);
+                executeRange(conn, "DELETE FROM account_invitations WHERE account_id IN (" + accountsInRange + ")", afterId, lastId);
+                executeRange(conn, "DELETE FROM bank_accounts WHERE bank_id = ? AND id > ? AND id <= ?", afterId, lastId);
+                return sums;
+            });
+
+            // El saldo positivo solo cambia de cuenta; el negativo deja de contar
+            MoneySupply.adjust(-balances[1]);
+        } finally {
+            for (int id : ids) {
+                BankAccount.invalidateCache(id);
+            }
+            BankAccount.invalidateCache(govAccount.getId());
+            SessionManager.invalidateAccounts();
+        }
+
+        result.swept = Money.add(result.swept, balances[0]);
+        result.accounts += ids.size();
+    }
+
+    // En MySQL el FOR UPDATE bloquea también el hueco del índice por bank_id: no entran cuentas nuevas hasta el commit
+    private boolean hasAccounts(Connection conn) throws SQLException {
+        String sql = "SELECT id FROM bank_accounts WHERE bank_id = ? LIMIT 1" + (Model.isMySQL ? " FOR UPDATE" : "");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bankId);
+            return pstmt.executeQuery().next();
+        }
+    }
+
+    // Los fondos propios del banco desaparecen con él (no cuentan en el dinero en circulación): se saldan contra
+    // la emisión para que sus apuntes B en el libro no queden sin titular
+    private void closeBankBalance(Connection conn) throws SQLException {
+        long balance = 0L;
+        String sql = "SELECT balance FROM banks WHERE id = ?" + (Model.isMySQL ? " FOR UPDATE" : "");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bankId);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                balance = rs.getLong("balance");
+            }
+        }
+        if (balance != 0) {
+            Ledger.append(conn, new Ledger.Entry(TransactionTypes.BANK_DELETION, actor)
+                .bank(bankId, -balance)
+                .balanceWith(Ledger.ISSUANCE));
+        }
+    }
+
+    private int execute(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bankId);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    private void executeRange(Connection conn, String sql, int afterId, int lastId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindRange(pstmt, 1, afterId, lastId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void bindRange(PreparedStatement pstmt, int index, int afterId, int lastId) throws SQLException {
+        pstmt.setInt(index, bankId);
+        pstmt.setInt(index + 1, afterId);
+        pstmt.setInt(index + 2, lastId);
+    }
+
+    private void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new TransferException("Borrado interrumpido; vuelve a ejecutar el comando para continuar.");
+        }
+    }
+
+    // Los mensajes de avance se limitan a uno cada PROGRESS_INTERVAL_MS salvo los de cambio de fase
+    private void report(String message, boolean always) {
+        long now = System.currentTimeMillis();
+        if (always || now - lastProgressAt >= PROGRESS_INTERVAL_MS) {
+            lastProgressAt = now;
+            try {
+                progress.accept(message);
+            } catch (RuntimeException e) {
+                Model.logError("Bank deletion progress message failed: " + e.getMessage());
+            }
+        }
+    }
+}
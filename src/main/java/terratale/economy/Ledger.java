@@ -0,0 +1,283 @@
+package terratale.economy;
+
+import terratale.Helpers.Money;
+import terratale.cache.EntityCache;
+import terratale.cache.MoneySupply;
+import terratale.cache.WalletCache;
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Diario de partida doble (ledger_entries + ledger_postings), solo de escritura.
+ *
+ * Cada operación que mueve dinero añade un asiento cuyos apuntes suman 0: lo que sale de un titular entra
+ * en otro. El dinero que se crea o se destruye (sueldos del gobierno, cuentas borradas en negativo...) se
+ * apunta contra el titular de sistema, así que el asiento siempre cuadra y la suma del sistema es el total
+ * emitido. Los saldos de bank_accounts, banks y users.money son proyecciones del diario: se actualizan en
+ * la misma transacción y se pueden reconstruir con {@link #rebuild()}.
+ *
+ * El dinero en mano que cambia fuera de una transferencia (VaultUnlocked, /money set) se apunta al escribirlo
+ * en users.money: WalletCache pone un asiento por lote del flush, contra la emisión.
+ */
+public final class Ledger {
+
+    public static final String ACCOUNT = "A";
+    public static final String BANK = "B";
+    public static final String WALLET = "U";
+    public static final String SYSTEM = "S";
+
+    // Titular de sistema que recibe la diferencia de los asientos que crean o destruyen dinero
+    public static final String ISSUANCE = "issuance";
+
+    private Ledger() {
+    }
+
+    // Asiento en construcción; los apuntes del mismo titular se acumulan en uno solo
+    public static final class Entry {
+        final String type;
+        final String actor;
+        final List<String[]> holders = new ArrayList<>();
+        final List<Long> amounts = new ArrayList<>();
+
+        public Entry(String type, String actor) {
+            this.type = type;
+            this.actor = actor;
+        }
+
+        public Entry account(int accountId, long amount) {
+            return post(ACCOUNT, String.valueOf(accountId), amount);
+        }
+
+        public Entry bank(int bankId, long amount) {
+            return post(BANK, String.valueOf(bankId), amount);
+        }
+
+        public Entry wallet(UUID uuid, long amount) {
+            return post(WALLET, uuid.toString(), amount);
+        }
+
+        public Entry system(String name, long amount) {
+            return post(SYSTEM, name, amount);
+        }
+
+        // Lleva lo que falte para cuadrar al titular de sistema indicado
+        public Entry balanceWith(String systemName) {
+            long sum = 0L;
+            for (long amount : amounts) {
+                sum = Money.add(sum, amount);
+            }
+            return system(systemName, -sum);
+        }
+
+        public boolean isEmpty() {
+            return holders.isEmpty();
+        }
+
+        private Entry post(String holderType, String holderId, long amount) {
+            if (amount == 0) {
+                return this;
+            }
+            for (int i = 0; i < holders.size(); i++) {
+                String[] holder = holders.get(i);
+                if (holder[0].equals(holderType) && holder[1].equals(holderId)) {
+                    amounts.set(i, Money.add(amounts.get(i), amount));
+                    return this;
+                }
+            }
+            holders.add(new String[] {holderType, holderId});
+            amounts.add(amount);
+            return this;
+        }
+    }
+
+    /**
+     * Escribe el asiento y todos sus apuntes en un único lote, con la conexión de la transacción que mueve
+     * los saldos. Devuelve el id del asiento (para añadir apuntes con INSERT ... SELECT).
+     */
+    public static long append(Connection conn, Entry entry) throws SQLException {
+        long entryId;
+        String sql = "INSERT INTO ledger_entries (type, actor, created_at) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, entry.type);
+            pstmt.setString(2, entry.actor);
+            pstmt.setLong(3, System.currentTimeMillis());
+            pstmt.executeUpdate();
+
+            ResultSet rs = pstmt.getGeneratedKeys();
+            if (!rs.next()) {
+                throw new SQLException("No id returned for ledger entry");
+            }
+            entryId = rs.getLong(1);
+        }
+
+        if (!entry.isEmpty()) {
+            sql = "INSERT INTO ledger_postings (entry_id, holder_type, holder_id, amount) VALUES (?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < entry.holders.size(); i++) {
+                    pstmt.setLong(1, entryId);
+                    pstmt.setString(2, entry.holders.get(i)[0]);
+                    pstmt.setString(3, entry.holders.get(i)[1]);
+                    pstmt.setLong(4, entry.amounts.get(i));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+        }
+        return entryId;
+    }
+
+    /* ---------------------- Comprobación y reconstrucción ---------------------- */
+
+    // Diferencias entre los saldos guardados y la suma de sus apuntes; CAST(... AS CHAR) vale en MySQL y SQLite
+    private static String mismatchQuery(String table, String idColumn, String balanceColumn, String holderType) {
+        return "SELECT t." + idColumn + " AS id, t." + balanceColumn + " AS balance, COALESCE(SUM(p.amount), 0) AS journal "
+            + "FROM " + table + " t LEFT JOIN ledger_postings p ON p.holder_type = '" + holderType + "' "
+            + "AND p.holder_id = CAST(t." + idColumn + " AS CHAR) GROUP BY t." + idColumn + ", t." + balanceColumn
+            + " HAVING t." + balanceColumn + " <> COALESCE(SUM(p.amount), 0)";
+    }
+
+    private static String rebuildQuery(String table, String holderType) {
+        String journal = "COALESCE((SELECT SUM(p.amount) FROM ledger_postings p WHERE p.holder_type = '" + holderType
+            + "' AND p.holder_id = CAST(" + table + ".id AS CHAR)), 0)";
+        return "UPDATE " + table + " SET balance = " + journal + " WHERE balance <> " + journal;
+    }
+
+    // Informe para /terratale ledger: asientos descuadrados, saldos que no coinciden y totales por tipo
+    public static List<String> verify() {
+        List<String> lines = new ArrayList<>();
+        try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) AS entries FROM ledger_entries")) {
+                lines.add("Diario: " + (rs.next() ? rs.getLong("entries") : 0) + " asientos");
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT holder_type, SUM(amount) AS total FROM ledger_postings GROUP BY holder_type")) {
+                while (rs.next()) {
+                    lines.add("  " + describeHolderType(rs.getString("holder_type")) + ": " + Money.format(rs.getLong("total")));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) AS unbalanced FROM (SELECT entry_id FROM ledger_postings "
+                    + "GROUP BY entry_id HAVING SUM(amount) <> 0) u")) {
+                long unbalanced = rs.next() ? rs.getLong("unbalanced") : 0;
+                lines.add(unbalanced == 0 ? "Todos los asientos cuadran" : "[!!] Asientos descuadrados: " + unbalanced);
+            }
+            addMismatches(stmt, mismatchQuery("bank_accounts", "id", "balance", ACCOUNT), "bank_accounts", "Cuenta", lines);
+            addMismatches(stmt, mismatchQuery("banks", "id", "balance", BANK), "banks", "Banco", lines);
+            addMismatches(stmt, mismatchQuery("users", "uuid", "money", WALLET), "users", "Jugador", lines);
+        } catch (SQLException e) {
+            Model.logError("Failed to verify ledger: " + e.getMessage());
+            e.printStackTrace();
+            lines.add("Error al comprobar el diario: " + e.getMessage());
+        }
+        return lines;
+    }
+
+    private static void addMismatches(Statement stmt, String query, String table, String label, List<String> lines)
+            throws SQLException {
+        int count = 0;
+        try (ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                if (++count <= 10) {
+                    lines.add("[!!] " + label + " #" + rs.getString("id") + ": saldo " + Money.format(rs.getLong("balance"))
+                        + ", diario " + Money.format(rs.getLong("journal")));
+                }
+            }
+        }
+        lines.add(count == 0 ? "Saldos de " + table + " iguales al diario" : count + " saldos de " + table + " no coinciden con el diario");
+    }
+
+    /**
+     * Vuelve a calcular los saldos de cuentas, bancos y dinero en mano a partir del diario. Bloquea todas las
+     * transferencias mientras tanto. Devuelve cuántos saldos se han corregido.
+     *
+     * El dinero en mano se corrige con la diferencia (money + ?), no con el valor del diario: el flush de
+     * WalletCache escribe fila y apunte a la vez, así que la diferencia no cambia aunque escriba entretanto.
+     * Los monederos corregidos se fijan en la caché como en una transferencia y reciben la misma diferencia.
+     */
+    public static int rebuild() throws SQLException {
+        int fixed;
+        Map<UUID, Long> walletFixes = new LinkedHashMap<>();
+        WalletCache wallets = WalletCache.get();
+        try (StripedLocks.Held held = TransferEngine.getLocks().lockEverything(30000)) {
+            try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(mismatchQuery("users", "uuid", "money", WALLET))) {
+                while (rs.next()) {
+                    walletFixes.put(UUID.fromString(rs.getString("id")), Money.subtract(rs.getLong("journal"), rs.getLong("balance")));
+                }
+            }
+
+            List<UUID> pinned = new ArrayList<>();
+            try (MoneySupply.Section change = MoneySupply.change()) {
+                if (wallets != null) {
+                    for (UUID uuid : walletFixes.keySet()) {
+                        if (wallets.pin(uuid)) {
+                            pinned.add(uuid);
+                        }
+                    }
+                }
+                fixed = Model.inTransaction(conn -> {
+                    int rows;
+                    try (Statement stmt = conn.createStatement()) {
+                        rows = stmt.executeUpdate(rebuildQuery("bank_accounts", ACCOUNT))
+                            + stmt.executeUpdate(rebuildQuery("banks", BANK));
+                    }
+                    try (PreparedStatement pstmt = conn.prepareStatement("UPDATE users SET money = money + ? WHERE uuid = ?")) {
+                        Iterator<Map.Entry<UUID, Long>> it = walletFixes.entrySet().iterator();
+                        while (it.hasNext()) {
+                            Map.Entry<UUID, Long> fix = it.next();
+                            pstmt.setLong(1, fix.getValue());
+                            pstmt.setString(2, fix.getKey().toString());
+                            if (pstmt.executeUpdate() == 1) {
+                                rows++;
+                            } else {
+                                it.remove(); // usuario borrado entretanto
+                            }
+                        }
+                    }
+                    return rows;
+                });
+
+                long walletTotal = 0L;
+                for (Map.Entry<UUID, Long> fix : walletFixes.entrySet()) {
+                    if (wallets != null) {
+                        wallets.applyTransfer(fix.getKey(), fix.getValue());
+                    }
+                    walletTotal = Money.add(walletTotal, fix.getValue());
+                }
+                MoneySupply.adjust(walletTotal);
+            } finally {
+                for (UUID uuid : pinned) {
+                    wallets.unpin(uuid);
+                }
+            }
+        } finally {
+            EntityCache.invalidateAllCaches();
+        }
+
+        MoneySupply supply = MoneySupply.get();
+        if (supply != null && fixed > 0) {
+            supply.reconcile();
+        }
+        Model.logInfo("Ledger rebuild: " + fixed + " balance(s) corrected");
+        return fixed;
+    }
+
+    private static String describeHolderType(String holderType) {
+        return switch (holderType) {
+            case ACCOUNT -> "Cuentas";
+            case BANK -> "Bancos";
+            case WALLET -> "Dinero en mano";
+            case SYSTEM -> "Sistema (emitido)";
+            default -> holderType;
+        };
+    }
+}
@@ -0,0 +1,707 @@
+package terratale.economy;
+
+import terratale.Helpers.Money;
+import terratale.cache.WalletCache;
+import terratale.models.Model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Auditoría de conservación del dinero: compara cada saldo (bank_accounts, banks, users.money) con la suma
+ * de sus apuntes en el {@link Ledger}, busca asientos descuadrados, diario de titulares que ya no existen y
+ * filas inválidas en transactions/bank_transactions.
+ *
+ * La auditoría completa recorre las tablas en trozos (rangos de id, o de prefijo del uuid en users) que se
+ * reparten entre varios hilos, cada uno con su conexión; cada trozo se lee en streaming y solo se guardan
+ * los totales y los titulares desviados. Cada fila compara saldo y diario en la misma sentencia, así que la
+ * desviación de cada titular es exacta aunque haya transferencias en marcha.
+ *
+ * La incremental (la programada) solo vuelve a comprobar los titulares con apuntes desde la última
+ * auditoría, los que cambiaron de saldo según {@link BalanceSnapshots} (cubre los cambios hechos fuera del
+ * diario) y los que ya estaban desviados; cada {@code fullEvery} auditorías se hace una completa.
+ */
+public class MoneyAudit {
+
+    private static final int MAX_LISTED = 10;
+    private static final int MAX_TRACKED = 10000;
+    private static final int RECHECK_BATCH = 500;
+
+    private static MoneyAudit instance;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final int threads;
+    private final int chunkSize;
+    private final int fullEvery;
+    private volatile Report lastReport;
+    private int runsSinceFull = 0;
+
+    // Saldo de un titular distinto de la suma de sus apuntes
+    public static final class Drift {
+        public final String holderType;
+        public final String holderId;
+        public final long balance;
+        public final long journal;
+
+        Drift(String holderType, String holderId, long balance, long journal) {
+            this.holderType = holderType;
+            this.holderId = holderId;
+            this.balance = balance;
+            this.journal = journal;
+        }
+
+        public long amount() {
+            return Money.subtract(balance, journal);
+        }
+    }
+
+    // Totales de un tipo de titular: saldos reales, apuntes de los titulares existentes y apuntes de todo el diario
+    public static final class Totals {
+        public final long holders;
+        public final long balance;
+        public final long journal;
+        public final long ledger;
+
+        Totals(long holders, long balance, long journal, long ledger) {
+            this.holders = holders;
+            this.balance = balance;
+            this.journal = journal;
+            this.ledger = ledger;
+        }
+
+        // Apuntes de titulares que ya no existen
+        public long orphanJournal() {
+            return Money.subtract(ledger, journal);
+        }
+    }
+
+    public static final class Report {
+        public final boolean full;
+        public final long auditedAt;
+        public final long lastEntryId;
+        public final long lastSnapshotId;
+        public final long lastTransactionId;
+        public final long lastBankTransactionId;
+        public final long holdersChecked;
+        public final long entriesChecked;
+        public final long unbalancedEntries;
+        public final long invalidHistoryRows;
+        public final long issued;
+        public final Map<String, Totals> totals; // de la última auditoría completa
+        public final Map<String, Drift> drifts;  // "A:12" -> desviación
+        public final int newDrifts;
+        public final int resolvedDrifts;
+        public final long durationMs;
+
+        Report(boolean full, long auditedAt, long lastEntryId, long lastSnapshotId, long lastTransactionId,
+               long lastBankTransactionId, long holdersChecked, long entriesChecked, long unbalancedEntries,
+               long invalidHistoryRows, long issued, Map<String, Totals> totals, Map<String, Drift> drifts,
+               int newDrifts, int resolvedDrifts, long durationMs) {
+            this.full = full;
+            this.auditedAt = auditedAt;
+            this.lastEntryId = lastEntryId;
+            this.lastSnapshotId = lastSnapshotId;
+            this.lastTransactionId = lastTransactionId;
+            this.lastBankTransactionId = lastBankTransactionId;
+            this.holdersChecked = holdersChecked;
+            this.entriesChecked = entriesChecked;
+            this.unbalancedEntries = unbalancedEntries;
+            this.invalidHistoryRows = invalidHistoryRows;
+            this.issued = issued;
+            this.totals = totals;
+            this.drifts = drifts;
+            this.newDrifts = newDrifts;
+            this.resolvedDrifts = resolvedDrifts;
+            this.durationMs = durationMs;
+        }
+
+        // Dinero creado (positivo) o destruido fuera del diario en un tipo de titular
+        public long driftTotal(String holderType) {
+            long total = 0L;
+            for (Drift drift : drifts.values()) {
+                if (drift.holderType.equals(holderType)) {
+                    total = Money.add(total, drift.amount());
+                }
+            }
+            return total;
+        }
+
+        public int driftCount(String holderType) {
+            int count = 0;
+            for (Drift drift : drifts.values()) {
+                if (drift.holderType.equals(holderType)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // Hay algo que revisar
+        public boolean hasProblems() {
+            return unbalancedEntries > 0 || invalidHistoryRows > 0 || !drifts.isEmpty() || orphanJournal() != 0;
+        }
+
+        public long orphanJournal() {
+            long total = 0L;
+            for (String holderType : new String[] {Ledger.ACCOUNT, Ledger.BANK, Ledger.WALLET}) {
+                Totals t = totals.get(holderType);
+                if (t != null) {
+                    total = Money.add(total, t.orphanJournal());
+                }
+            }
+            return total;
+        }
+
+        public List<String> describe() {
+            List<String> lines = new ArrayList<>();
+            lines.add("Auditoría " + (full ? "completa" : "incremental") + " hasta el asiento #" + lastEntryId + ": "
+                + holdersChecked + " saldos y " + entriesChecked + " asientos comprobados (" + durationMs + "ms)");
+            lines.add("  Dinero emitido según el diario: " + Money.format(issued));
+
+            String suffix = full ? "" : " (última completa)";
+            describeTotals(lines, Ledger.ACCOUNT, "Cuentas", suffix);
+            describeTotals(lines, Ledger.BANK, "Bancos", suffix);
+            describeTotals(lines, Ledger.WALLET, "Dinero en mano", suffix);
+
+            lines.add(unbalancedEntries == 0 ? "Todos los asientos cuadran" : "[!!] Asientos descuadrados: " + unbalancedEntries);
+            long orphan = orphanJournal();
+            if (orphan != 0) {
+                lines.add("[!!] Apuntes de cuentas, bancos o jugadores que ya no existen: " + Money.format(orphan));
+            }
+            if (invalidHistoryRows > 0) {
+                lines.add("[!!] Historial: " + invalidHistoryRows + " filas con importe <= 0 o de cuentas/bancos inexistentes");
+            }
+
+            int listed = 0;
+            for (Drift drift : drifts.values()) {
+                if (++listed > MAX_LISTED) {
+                    break;
+                }
+                lines.add("[!!] " + describeHolder(drift.holderType) + " #" + drift.holderId
+                    + ": saldo " + Money.format(drift.balance) + ", diario " + Money.format(drift.journal)
+                    + " (" + (drift.amount() > 0 ? "+" : "") + Money.format(drift.amount()) + ")");
+            }
+            long driftTotal = Money.add(Money.add(driftTotal(Ledger.ACCOUNT), driftTotal(Ledger.BANK)), driftTotal(Ledger.WALLET));
+            lines.add(drifts.isEmpty() ? "Saldos de cuentas, bancos y dinero en mano iguales al diario"
+                : drifts.size() + " saldos desviados, " + Money.format(driftTotal) + " creados o destruidos fuera del diario");
+            if (newDrifts > 0 || resolvedDrifts > 0) {
+                lines.add("Desde la auditoría anterior: " + newDrifts + " desviaciones nuevas, " + resolvedDrifts + " corregidas");
+            }
+            return lines;
+        }
+
+        private void describeTotals(List<String> lines, String holderType, String label, String suffix) {
+            Totals t = totals.get(holderType);
+            if (t == null) {
+                return;
+            }
+            lines.add("  " + label + suffix + ": " + t.holders + " con saldo total " + Money.format(t.balance) + ", diario "
+                + Money.format(t.journal) + ", desviación " + Money.format(Money.subtract(t.balance, t.journal)));
+        }
+
+        private static String describeHolder(String holderType) {
+            return switch (holderType) {
+                case Ledger.ACCOUNT -> "Cuenta";
+                case Ledger.BANK -> "Banco";
+                default -> "Jugador";
+            };
+        }
+    }
+
+    private MoneyAudit(long intervalMs, int threads, int chunkSize, int fullEvery) {
+        // Deja al menos una conexión libre para el juego
+        int connections = Model.getPool() != null ? Model.getPool().getMaxSize() - 1 : threads;
+        this.threads = Math.max(1, Math.min(threads, connections));
+        this.chunkSize = Math.max(100, chunkSize);
+        this.fullEvery = Math.max(1, fullEvery);
+
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "TerraEconomy-money-audit-" + workerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TerraEconomy-money-audit");
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (intervalMs > 0) {
+            long interval = Math.max(60000L, intervalMs);
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    audit(false);
+                } catch (Exception e) {
+                    Model.logError("Failed to run money audit: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // intervalMs 0 = sin auditorías programadas (solo /terratale audit)
+    public static void start(long intervalMs, int threads, int chunkSize, int fullEvery) {
+        stop();
+        instance = new MoneyAudit(intervalMs, threads, chunkSize, fullEvery);
+    }
+
+    public static MoneyAudit get() {
+        return instance;
+    }
+
+    public static void stop() {
+        if (instance != null) {
+            instance.scheduler.shutdownNow();
+            instance.workers.shutdownNow();
+            instance = null;
+        }
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /* ---------------------- Auditoría ---------------------- */
+
+    // full = false hace una incremental si hay una auditoría anterior y toca (si no, completa)
+    public synchronized Report audit(boolean full) throws SQLException {
+        Report previous = lastReport;
+        boolean snapshots = BalanceSnapshots.get() != null;
+        if (previous == null || !snapshots || runsSinceFull + 1 >= fullEvery) {
+            full = true;
+        }
+
+        WalletCache wallets = WalletCache.get();
+        if (wallets != null) {
+            wallets.flush();
+        }
+
+        Report report = full ? fullAudit(previous) : incrementalAudit(previous);
+        runsSinceFull = full ? 0 : runsSinceFull + 1;
+        lastReport = report;
+
+        if (report.hasProblems()) {
+            Model.logError("Money audit found problems: " + report.unbalancedEntries + " unbalanced entries, "
+                + report.drifts.size() + " drifted balances ("
+                + report.newDrifts + " new), orphan journal " + Money.format(report.orphanJournal()) + ", "
+                + report.invalidHistoryRows + " invalid history rows");
+        } else {
+            Model.logInfo("Money audit (" + (report.full ? "full" : "incremental") + "): " + report.holdersChecked
+                + " balances and " + report.entriesChecked + " entries checked in " + report.durationMs + "ms, no problems");
+        }
+        return report;
+    }
+
+    private Report fullAudit(Report previous) throws SQLException {
+        long start = System.currentTimeMillis();
+        long lastEntryId = maxId("ledger_entries");
+        long lastSnapshotId = maxId("balance_snapshots");
+        long lastTransactionId = maxId("transactions");
+        long lastBankTransactionId = maxId("bank_transactions");
+
+        List<CompletableFuture<Tally>> tasks = new ArrayList<>();
+        for (HolderTable table : HolderTable.values()) {
+            for (Object[] range : table.ranges(this)) {
+                tasks.add(submit(() -> scanHolders(table, range, lastEntryId)));
+            }
+        }
+        for (long[] range : idRanges(1, lastEntryId)) {
+            tasks.add(submit(() -> scanEntries(range)));
+        }
+        for (long[] range : idRanges(1, lastTransactionId)) {
+            tasks.add(submit(() -> scanHistory(TRANSACTIONS_CHECK, range)));
+        }
+        for (long[] range : idRanges(1, lastBankTransactionId)) {
+            tasks.add(submit(() -> scanHistory(BANK_TRANSACTIONS_CHECK, range)));
+        }
+        Tally tally = join(tasks);
+
+        Map<String, Totals> totals = new HashMap<>();
+        for (HolderTable table : HolderTable.values()) {
+            String type = table.holderType;
+            totals.put(type, new Totals(tally.holders.getOrDefault(type, 0L), tally.balances.getOrDefault(type, 0L),
+                tally.journals.getOrDefault(type, 0L), tally.ledger.getOrDefault(type, 0L)));
+        }
+        long issued = -tally.ledger.getOrDefault(Ledger.SYSTEM, 0L);
+
+        return buildReport(true, start, lastEntryId, lastSnapshotId, lastTransactionId, lastBankTransactionId,
+            tally.holderRows, lastEntryId, tally.unbalancedEntries, tally.invalidHistoryRows, issued, totals,
+            tally.drifts, previous);
+    }
+
+    private Report incrementalAudit(Report previous) throws SQLException {
+        long start = System.currentTimeMillis();
+        long lastEntryId = maxId("ledger_entries");
+        long lastSnapshotId = maxId("balance_snapshots");
+        long lastTransactionId = maxId("transactions");
+        long lastBankTransactionId = maxId("bank_transactions");
+
+        // Titulares que pueden haber cambiado desde la auditoría anterior
+        Set<String> touched = new HashSet<>(previous.drifts.keySet());
+        try (Connection conn = Model.getConnection()) {
+            collectKeys(conn, "SELECT DISTINCT holder_type, holder_id FROM ledger_postings WHERE entry_id > ? AND entry_id <= ?",
+                previous.lastEntryId, lastEntryId, touched);
+            collectKeys(conn, "SELECT DISTINCT holder_type, holder_id FROM balance_snapshot_values WHERE snapshot_id > ? AND snapshot_id <= ?",
+                previous.lastSnapshotId, lastSnapshotId, touched);
+        }
+
+        List<CompletableFuture<Tally>> tasks = new ArrayList<>();
+        for (HolderTable table : HolderTable.values()) {
+            List<String> ids = new ArrayList<>();
+            for (String key : touched) {
+                if (key.startsWith(table.holderType + ":")) {
+                    ids.add(key.substring(2));
+                }
+            }
+            for (int i = 0; i < ids.size(); i += RECHECK_BATCH) {
+                List<String> batch = ids.subList(i, Math.min(ids.size(), i + RECHECK_BATCH));
+                tasks.add(submit(() -> recheckHolders(table, batch)));
+            }
+        }
+        for (long[] range : idRanges(previous.lastEntryId + 1, lastEntryId)) {
+            tasks.add(submit(() -> scanEntries(range)));
+        }
+        for (long[] range : idRanges(previous.lastTransactionId + 1, lastTransactionId)) {
+            tasks.add(submit(() -> scanHistory(TRANSACTIONS_CHECK, range)));
+        }
+        for (long[] range : idRanges(previous.lastBankTransactionId + 1, lastBankTransactionId)) {
+            tasks.add(submit(() -> scanHistory(BANK_TRANSACTIONS_CHECK, range)));
+        }
+        Tally tally = join(tasks);
+
+        // Las desviaciones anteriores que no se han vuelto a comprobar siguen igual; las comprobadas se sustituyen
+        Map<String, Drift> drifts = new HashMap<>(previous.drifts);
+        drifts.keySet().removeAll(touched);
+        drifts.putAll(tally.drifts);
+
+        long issued = Money.subtract(previous.issued, tally.ledger.getOrDefault(Ledger.SYSTEM, 0L));
+        long entriesChecked = Math.max(0, lastEntryId - previous.lastEntryId);
+
+        return buildReport(false, start, lastEntryId, lastSnapshotId, lastTransactionId, lastBankTransactionId,
+            tally.holderRows, entriesChecked, previous.unbalancedEntries + tally.unbalancedEntries,
+            previous.invalidHistoryRows + tally.invalidHistoryRows, issued, previous.totals, drifts, previous);
+    }
+
+    private Report buildReport(boolean full, long start, long lastEntryId, long lastSnapshotId, long lastTransactionId,
+                               long lastBankTransactionId, long holdersChecked, long entriesChecked, long unbalancedEntries,
+                               long invalidHistoryRows, long issued, Map<String, Totals> totals, Map<String, Drift> drifts,
+                               Report previous) {
+        int newDrifts = 0;
+        int resolvedDrifts = 0;
+        if (previous != null) {
+            for (String key : drifts.keySet()) {
+                if (!previous.drifts.containsKey(key)) {
+                    newDrifts++;
+                }
+            }
+            for (String key : previous.drifts.keySet()) {
+                if (!drifts.containsKey(key)) {
+                    resolvedDrifts++;
+                }
+            }
+        } else {
+            newDrifts = drifts.size();
+        }
+
+        return new Report(full, start, lastEntryId, lastSnapshotId, lastTransactionId, lastBankTransactionId,
+            holdersChecked, entriesChecked, unbalancedEntries, invalidHistoryRows, issued,
+            Collections.unmodifiableMap(totals), Collections.unmodifiableMap(drifts), newDrifts, resolvedDrifts,
+            System.currentTimeMillis() - start);
+    }
+
+    /* ---------------------- Trozos ---------------------- */
+
+    // Tablas de saldos y cómo se trocean: por rango de id o por prefijo hexadecimal del uuid
+    private enum HolderTable {
+        ACCOUNTS(Ledger.ACCOUNT, "bank_accounts", "id", "balance", true),
+        BANKS(Ledger.BANK, "banks", "id", "balance", true),
+        WALLETS(Ledger.WALLET, "users", "uuid", "money", false);
+
+        final String holderType;
+        final String table;
+        final String idColumn;
+        final String balanceColumn;
+        final boolean numeric;
+
+        HolderTable(String holderType, String table, String idColumn, String balanceColumn, boolean numeric) {
+            this.holderType = holderType;
+            this.table = table;
+            this.idColumn = idColumn;
+            this.balanceColumn = balanceColumn;
+            this.numeric = numeric;
+        }
+
+        // Saldo y apuntes de cada titular; CAST(... AS CHAR) vale en MySQL y SQLite
+        String query(String where) {
+            String holderId = numeric ? "CAST(t." + idColumn + " AS CHAR)" : "t." + idColumn;
+            return "SELECT t." + idColumn + " AS holder_id, t." + balanceColumn + " AS balance, "
+                + "COALESCE(SUM(p.amount), 0) AS journal, "
+                + "COALESCE(SUM(CASE WHEN p.entry_id <= ? THEN p.amount ELSE 0 END), 0) AS journal_cut "
+                + "FROM " + table + " t LEFT JOIN ledger_postings p ON p.holder_type = '" + holderType + "' "
+                + "AND p.holder_id = " + holderId + " WHERE " + where + " GROUP BY t." + idColumn + ", t." + balanceColumn;
+        }
+
+        List<Object[]> ranges(MoneyAudit audit) throws SQLException {
+            List<Object[]> ranges = new ArrayList<>();
+            if (numeric) {
+                long min;
+                long max;
+                try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT MIN(" + idColumn + ") AS min_id, MAX(" + idColumn + ") AS max_id FROM " + table)) {
+                    if (!rs.next() || rs.getObject("min_id") == null) {
+                        return ranges;
+                    }
+                    min = rs.getLong("min_id");
+                    max = rs.getLong("max_id");
+                }
+                for (long[] range : audit.idRanges(min, max)) {
+                    ranges.add(new Object[] {range[0], range[1]});
+                }
+                return ranges;
+            }
+
+            // Uno o dos dígitos hexadecimales de prefijo según el tamaño de la tabla
+            long rows;
+            try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) AS total FROM " + table)) {
+                rows = rs.next() ? rs.getLong("total") : 0;
+            }
+            int digits = rows > 16L * audit.chunkSize ? 2 : 1;
+            int prefixes = 1 << (4 * digits);
+            for (int i = 0; i < prefixes; i++) {
+                String from = i == 0 ? null : hexPrefix(i, digits);
+                String to = i == prefixes - 1 ? null : hexPrefix(i + 1, digits);
+                ranges.add(new Object[] {from, to});
+            }
+            return ranges;
+        }
+
+        private static String hexPrefix(int value, int digits) {
+            String hex = Integer.toHexString(value);
+            while (hex.length() < digits) {
+                hex = "0" + hex;
+            }
+            return hex;
+        }
+    }
+
+    // Comprobación de una tabla de historial: importes no positivos y filas de cuentas o bancos inexistentes
+    private static final String TRANSACTIONS_CHECK = "SELECT COUNT(*) AS invalid FROM transactions h "
+        + "LEFT JOIN bank_accounts a ON a.id = h.account_id WHERE h.id >= ? AND h.id <= ? "
+        + "AND (h.amount <= 0 OR (h.account_id IS NOT NULL AND a.id IS NULL))";
+    private static final String BANK_TRANSACTIONS_CHECK = "SELECT COUNT(*) AS invalid FROM bank_transactions h "
+        + "LEFT JOIN banks b ON b.id = h.bank_id WHERE h.id >= ? AND h.id <= ? "
+        + "AND (h.amount <= 0 OR (h.bank_id IS NOT NULL AND b.id IS NULL))";
+
+    // Resultado parcial de uno o varios trozos
+    private static final class Tally {
+        long holderRows;
+        long unbalancedEntries;
+        long invalidHistoryRows;
+        final Map<String, Long> holders = new HashMap<>();
+        final Map<String, Long> balances = new HashMap<>();
+        final Map<String, Long> journals = new HashMap<>(); // apuntes hasta el corte de los titulares existentes
+        final Map<String, Long> ledger = new HashMap<>();   // apuntes del diario por tipo de titular
+        final Map<String, Drift> drifts = new HashMap<>();
+
+        void merge(Tally other) {
+            holderRows += other.holderRows;
+            unbalancedEntries += other.unbalancedEntries;
+            invalidHistoryRows += other.invalidHistoryRows;
+            other.holders.forEach((k, v) -> holders.merge(k, v, Long::sum));
+            other.balances.forEach((k, v) -> balances.merge(k, v, Money::add));
+            other.journals.forEach((k, v) -> journals.merge(k, v, Money::add));
+            other.ledger.forEach((k, v) -> ledger.merge(k, v, Money::add));
+            for (Map.Entry<String, Drift> entry : other.drifts.entrySet()) {
+                if (drifts.size() < MAX_TRACKED) {
+                    drifts.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private interface Scan {
+        Tally run() throws SQLException;
+    }
+
+    private CompletableFuture<Tally> submit(Scan scan) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return scan.run();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, workers);
+    }
+
+    private static Tally join(List<CompletableFuture<Tally>> tasks) throws SQLException {
+        Tally total = new Tally();
+        try {
+            for (CompletableFuture<Tally> task : tasks) {
+                total.merge(task.join());
+            }
+        } catch (CompletionException e) {
+            for (CompletableFuture<Tally> task : tasks) {
+                task.cancel(true);
+            }
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw e;
+        }
+        return total;
+    }
+
+    // Rangos [desde, hasta] de chunkSize ids
+    private List<long[]> idRanges(long from, long to) {
+        List<long[]> ranges = new ArrayList<>();
+        for (long lo = from; lo <= to; lo += chunkSize) {
+            ranges.add(new long[] {lo, Math.min(to, lo + chunkSize - 1)});
+        }
+        return ranges;
+    }
+
+    private Tally scanHolders(HolderTable table, Object[] range, long lastEntryId) throws SQLException {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        params.add(lastEntryId);
+        if (range[0] != null) {
+            conditions.add("t." + table.idColumn + " >= ?");
+            params.add(range[0]);
+        }
+        if (range[1] != null) {
+            conditions.add("t." + table.idColumn + (table.numeric ? " <= ?" : " < ?"));
+            params.add(range[1]);
+        }
+        String where = conditions.isEmpty() ? "1 = 1" : String.join(" AND ", conditions);
+        return readHolders(table, table.query(where), params);
+    }
+
+    private Tally recheckHolders(HolderTable table, List<String> ids) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        params.add(Long.MAX_VALUE);
+        for (String id : ids) {
+            if (table.numeric) {
+                try {
+                    params.add(Long.parseLong(id));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+            } else {
+                params.add(id);
+            }
+        }
+        if (params.size() == 1) {
+            return new Tally();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(params.size() - 1, "?"));
+        return readHolders(table, table.query("t." + table.idColumn + " IN (" + placeholders + ")"), params);
+    }
+
+    private static Tally readHolders(HolderTable table, String sql, List<Object> params) throws SQLException {
+        Tally tally = new Tally();
+        long holders = 0;
+        long balances = 0L;
+        long journals = 0L;
+        try (Connection conn = Model.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long balance = rs.getLong("balance");
+                    long journal = rs.getLong("journal");
+                    holders++;
+                    balances = Money.add(balances, balance);
+                    journals = Money.add(journals, rs.getLong("journal_cut"));
+                    if (balance != journal && tally.drifts.size() < MAX_TRACKED) {
+                        String holderId = rs.getString("holder_id");
+                        tally.drifts.put(table.holderType + ":" + holderId, new Drift(table.holderType, holderId, balance, journal));
+                    }
+                }
+            }
+        }
+        tally.holderRows = holders;
+        tally.holders.put(table.holderType, holders);
+        tally.balances.put(table.holderType, balances);
+        tally.journals.put(table.holderType, journals);
+        return tally;
+    }
+
+    private static Tally scanEntries(long[] range) throws SQLException {
+        Tally tally = new Tally();
+        try (Connection conn = Model.getConnection()) {
+            String sql = "SELECT COUNT(*) AS unbalanced FROM (SELECT entry_id FROM ledger_postings "
+                + "WHERE entry_id >= ? AND entry_id <= ? GROUP BY entry_id HAVING SUM(amount) <> 0) u";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, range[0]);
+                pstmt.setLong(2, range[1]);
+                ResultSet rs = pstmt.executeQuery();
+                tally.unbalancedEntries = rs.next() ? rs.getLong("unbalanced") : 0;
+            }
+
+            sql = "SELECT holder_type, SUM(amount) AS total FROM ledger_postings WHERE entry_id >= ? AND entry_id <= ? "
+                + "GROUP BY holder_type";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, range[0]);
+                pstmt.setLong(2, range[1]);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    tally.ledger.merge(rs.getString("holder_type"), rs.getLong("total"), Money::add);
+                }
+            }
+        }
+        return tally;
+    }
+
+    private static Tally scanHistory(String sql, long[] range) throws SQLException {
+        Tally tally = new Tally();
+        try (Connection conn = Model.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, range[0]);
+            pstmt.setLong(2, range[1]);
+            ResultSet rs = pstmt.executeQuery();
+            tally.invalidHistoryRows = rs.next() ? rs.getLong("invalid") : 0;
+        }
+        return tally;
+    }
+
+    private static void collectKeys(Connection conn, String sql, long after, long upTo, Set<String> keys) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, after);
+            pstmt.setLong(2, upTo);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                String holderType = rs.getString("holder_type");
+                if (!Ledger.SYSTEM.equals(holderType)) {
+                    keys.add(holderType + ":" + rs.getString("holder_id"));
+                }
+            }
+        }
+    }
+
+    private static long maxId(String table) throws SQLException {
+        try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) AS last_id FROM " + table)) {
+            return rs.next() ? rs.getLong("last_id") : 0;
+        }
+    }
+}
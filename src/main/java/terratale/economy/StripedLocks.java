@@ -0,0 +1,167 @@
+package terratale.economy;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Locks en memoria repartidos en N franjas (potencia de 2) por clave de cuenta/banco/jugador.
+ *
+ * Una operación bloquea todas sus franjas de una vez y siempre en orden ascendente de índice, así que dos
+ * transferencias que tocan las mismas cuentas nunca se bloquean mutuamente, y las que tocan cuentas
+ * distintas casi nunca comparten franja y avanzan en paralelo.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong contended = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public StripedLocks(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, Math.min(stripeCount, 1 << 16)));
+        if (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public static String accountKey(int accountId) {
+        return "A:" + accountId;
+    }
+
+    public static String bankKey(int bankId) {
+        return "B:" + bankId;
+    }
+
+    public static String walletKey(Object uuid) {
+        return "U:" + uuid;
+    }
+
+    public static String invoiceKey(int invoiceId) {
+        return "I:" + invoiceId;
+    }
+
+    private int indexOf(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h * 0x9E3779B9) >>> 16 & mask;
+    }
+
+    /**
+     * Bloquea las franjas de todas las claves, en orden. Lanza TransferException si alguna no se consigue
+     * antes de {@code timeoutMs}; en ese caso no queda nada bloqueado.
+     */
+    public Held lockAll(Collection<String> keys, long timeoutMs) {
+        return lockIndexes(keys.stream().mapToInt(this::indexOf).distinct().sorted().toArray(), timeoutMs);
+    }
+
+    // Todas las franjas: para mantenimiento que no puede convivir con ninguna transferencia
+    public Held lockEverything(long timeoutMs) {
+        return lockIndexes(IntStream.range(0, stripes.length).toArray(), timeoutMs);
+    }
+
+    private Held lockIndexes(int[] indexes, long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int locked = 0;
+
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                acquisitions.incrementAndGet();
+                if (!lock.tryLock()) {
+                    contended.incrementAndGet();
+                    long start = System.nanoTime();
+                    boolean acquired = lock.tryLock(Math.max(0, deadline - start), TimeUnit.NANOSECONDS);
+                    recordWait(System.nanoTime() - start);
+                    if (!acquired) {
+                        timeouts.incrementAndGet();
+                        throw new TransferException("Las cuentas están ocupadas, inténtalo de nuevo.");
+                    }
+                }
+                locked++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(indexes, locked);
+            throw new TransferException("Operación interrumpida.");
+        } catch (RuntimeException e) {
+            unlock(indexes, locked);
+            throw e;
+        }
+
+        return new Held(indexes);
+    }
+
+    private void unlock(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, nanos)) {
+            // reintentar
+        }
+    }
+
+    // Franjas bloqueadas por una operación; se liberan con close()
+    public final class Held implements AutoCloseable {
+        private final int[] indexes;
+        private boolean released;
+
+        private Held(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                unlock(indexes, indexes.length);
+            }
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public long getContended() {
+        return contended.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public double getAverageWaitMs() {
+        long count = contended.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxWaitMs() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    public double getContentionRate() {
+        long total = acquisitions.get();
+        return total == 0 ? 0 : contended.get() / (double) total;
+    }
+}
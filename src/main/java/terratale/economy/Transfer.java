@@ -0,0 +1,162 @@
+package terratale.economy;
+
+import terratale.models.Model.SqlWork;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Conjunto de movimientos (cargo, abono, comisiones) que se aplican como una sola unidad.
+ *
+ * Se construye con los métodos encadenables y se ejecuta con {@link #execute()}: o se aplican todos los
+ * movimientos y sus registros de Transaction/BankTransaction, o ninguno.
+ *
+ * <pre>
+ * new Transfer(playerUUID)
+ *     .debitAccount(from.getId(), total, TransactionTypes.TRANSFER_WITHDRAWAL)
+ *     .creditAccount(to.getId(), amount, TransactionTypes.TRANSFER_DEPOSIT)
+ *     .creditBank(bank.getId(), fee, TransactionTypes.TRANSFER_FEE)
+ *     .execute();
+ * </pre>
+ */
+public class Transfer {
+
+    enum Target { ACCOUNT, BANK, WALLET, SWEEP, RECORD_ACCOUNT, RECORD_BANK, RECORD_BANK_SWEPT }
+
+    static final class Leg {
+        final Target target;
+        final int id;
+        final int toId; // solo SWEEP
+        final UUID uuid; // solo WALLET
+        final long delta;
+        final boolean checked;
+        final String type;
+
+        Leg(Target target, int id, int toId, UUID uuid, long delta, boolean checked, String type) {
+            this.target = target;
+            this.id = id;
+            this.toId = toId;
+            this.uuid = uuid;
+            this.delta = delta;
+            this.checked = checked;
+            this.type = type;
+        }
+    }
+
+    final String actor;
+    final List<Leg> legs = new ArrayList<>();
+    final List<SqlWork<?>> extraWork = new ArrayList<>();
+    final Set<String> lockKeys = new LinkedHashSet<>();
+
+    public Transfer(UUID actor) {
+        this.actor = actor != null ? actor.toString() : null;
+    }
+
+    /* ---------------------- Cuentas bancarias ---------------------- */
+
+    // Cargo con comprobación de saldo; type null = sin registro en transactions
+    public Transfer debitAccount(int accountId, long amount, String type) {
+        return addLeg(Target.ACCOUNT, accountId, 0, null, -positive(amount), true, type);
+    }
+
+    // Cargo que puede dejar la cuenta en negativo (cuenta del gobierno)
+    public Transfer debitAccountUnchecked(int accountId, long amount, String type) {
+        return addLeg(Target.ACCOUNT, accountId, 0, null, -positive(amount), false, type);
+    }
+
+    public Transfer creditAccount(int accountId, long amount, String type) {
+        return addLeg(Target.ACCOUNT, accountId, 0, null, positive(amount), false, type);
+    }
+
+    // Mueve todo el saldo (leído dentro de la transacción) de una cuenta a otra; type se registra en la destino
+    public Transfer sweepAccount(int fromAccountId, int toAccountId, String type) {
+        lockKeys.add(StripedLocks.accountKey(fromAccountId));
+        lockKeys.add(StripedLocks.accountKey(toAccountId));
+        legs.add(new Leg(Target.SWEEP, fromAccountId, toAccountId, null, 0, false, type));
+        return this;
+    }
+
+    // Solo registra una fila en transactions, sin mover saldo
+    public Transfer recordAccount(int accountId, String type, long amount) {
+        if (amount != 0) {
+            legs.add(new Leg(Target.RECORD_ACCOUNT, accountId, 0, null, positive(amount), false, type));
+        }
+        return this;
+    }
+
+    /* ---------------------- Bancos ---------------------- */
+
+    public Transfer debitBank(int bankId, long amount, String type) {
+        return addLeg(Target.BANK, bankId, 0, null, -positive(amount), true, type);
+    }
+
+    public Transfer creditBank(int bankId, long amount, String type) {
+        return addLeg(Target.BANK, bankId, 0, null, positive(amount), false, type);
+    }
+
+    // Solo registra una fila en bank_transactions, sin mover saldo
+    public Transfer recordBank(int bankId, String type, long amount) {
+        if (amount != 0) {
+            legs.add(new Leg(Target.RECORD_BANK, bankId, 0, null, positive(amount), false, type));
+        }
+        return this;
+    }
+
+    // Registra en bank_transactions el total movido por los sweepAccount anteriores (si es mayor que 0)
+    public Transfer recordSweptToBank(int bankId, String type) {
+        legs.add(new Leg(Target.RECORD_BANK_SWEPT, bankId, 0, null, 0, false, type));
+        return this;
+    }
+
+    /* ---------------------- Dinero en mano ---------------------- */
+
+    public Transfer debitWallet(UUID uuid, long amount) {
+        return addLeg(Target.WALLET, 0, 0, uuid, -positive(amount), true, null);
+    }
+
+    public Transfer creditWallet(UUID uuid, long amount) {
+        return addLeg(Target.WALLET, 0, 0, uuid, positive(amount), false, null);
+    }
+
+    /* ---------------------- Extras ---------------------- */
+
+    // Sentencias adicionales en la misma transacción (p. ej. marcar una factura como pagada)
+    public Transfer andThen(SqlWork<?> work) {
+        extraWork.add(work);
+        return this;
+    }
+
+    // Bloquear una clave adicional durante la operación (p. ej. StripedLocks.invoiceKey)
+    public Transfer lock(String key) {
+        lockKeys.add(key);
+        return this;
+    }
+
+    public TransferResult execute() {
+        return TransferEngine.execute(this);
+    }
+
+    private static long positive(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Negative amount: " + amount);
+        }
+        return amount;
+    }
+
+    private Transfer addLeg(Target target, int id, int toId, UUID uuid, long delta, boolean checked, String type) {
+        if (delta == 0) {
+            return this; // comisiones del 0%
+        }
+        switch (target) {
+            case ACCOUNT -> lockKeys.add(StripedLocks.accountKey(id));
+            case BANK -> lockKeys.add(StripedLocks.bankKey(id));
+            case WALLET -> lockKeys.add(StripedLocks.walletKey(uuid));
+            default -> { }
+        }
+        legs.add(new Leg(target, id, toId, uuid, delta, checked, type));
+        return this;
+    }
+}
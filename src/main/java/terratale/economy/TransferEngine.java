@@ -0,0 +1,357 @@
+package terratale.economy;
+
+import terratale.Helpers.Money;
+import terratale.cache.MoneySupply;
+import terratale.cache.WalletCache;
+import terratale.cache.WalletCache.WalletResult;
+import terratale.economy.Transfer.Leg;
+import terratale.economy.Transfer.Target;
+import terratale.models.Bank;
+import terratale.models.BankAccount;
+import terratale.models.BankTransaction;
+import terratale.models.Model;
+import terratale.models.Model.SqlWork;
+import terratale.models.Transaction;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ejecuta {@link Transfer}s: bloquea las cuentas implicadas (StripedLocks, orden fijo), aplica todos los
+ * movimientos y sus registros en una única transacción JDBC y, si algo falla, no deja nada a medias.
+ *
+ * Las cuentas, los bancos y el dinero en mano se actualizan con UPDATE relativos (balance = balance ± ?,
+ * money = money ± ?), así que no se pisan escrituras de otras operaciones aunque los objetos en memoria estén
+ * desactualizados. Con WalletCache arrancada el monedero se fija en memoria mientras dura la operación: los
+ * cargos se reservan en él antes de la transacción (es su comprobación de saldo) y se devuelven si falla,
+ * los abonos se aplican en él tras el commit.
+ *
+ * Cada operación añade además un asiento de partida doble al {@link Ledger} en la misma transacción.
+ */
+public final class TransferEngine {
+
+    private static volatile StripedLocks locks = new StripedLocks(256);
+    private static volatile long lockTimeoutMs = 5000;
+
+    private static final AtomicLong committed = new AtomicLong();
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final AtomicLong failed = new AtomicLong();
+    private static final AtomicLong totalNanos = new AtomicLong();
+    private static final AtomicLong maxNanos = new AtomicLong();
+
+    private TransferEngine() {
+    }
+
+    public static void configure(int stripes, long timeoutMs) {
+        locks = new StripedLocks(stripes);
+        lockTimeoutMs = Math.max(1, timeoutMs);
+    }
+
+    public static StripedLocks getLocks() {
+        return locks;
+    }
+
+    static TransferResult execute(Transfer transfer) {
+        if (Model.getPool() == null) {
+            throw new TransferException("La base de datos no está inicializada.");
+        }
+
+        long start = System.nanoTime();
+        try (StripedLocks.Held held = locks.lockAll(transfer.lockKeys, lockTimeoutMs)) {
+            try {
+                TransferResult result = apply(transfer);
+                committed.incrementAndGet();
+                return result;
+            } finally {
+                // Con los locks aún tomados: si no, otra operación podría volver a cachear el saldo anterior
+                invalidateCaches(transfer);
+            }
+        } catch (TransferException e) {
+            rejected.incrementAndGet();
+            throw e;
+        } catch (SQLException | RuntimeException e) {
+            failed.incrementAndGet();
+            Model.logError("Transfer failed and was rolled back: " + e.getMessage());
+            e.printStackTrace();
+            throw new TransferException("Error al procesar la operación. No se ha movido dinero.", e);
+        } finally {
+            recordLatency(System.nanoTime() - start);
+        }
+    }
+
+    // Los saldos se cambian con UPDATE relativos, así que las copias en caché de Bank/BankAccount quedan viejas
+    private static void invalidateCaches(Transfer transfer) {
+        for (Leg leg : transfer.legs) {
+            switch (leg.target) {
+                case ACCOUNT -> BankAccount.invalidateCache(leg.id);
+                case SWEEP -> {
+                    BankAccount.invalidateCache(leg.id);
+                    BankAccount.invalidateCache(leg.toId);
+                }
+                case BANK -> Bank.invalidateCache(leg.id);
+                default -> { }
+            }
+        }
+    }
+
+    private static TransferResult apply(Transfer transfer) throws SQLException {
+        WalletCache wallets = WalletCache.get();
+        TransferResult result = new TransferResult();
+        List<UUID> pinned = new ArrayList<>();
+        List<Leg> reserved = new ArrayList<>();
+
+        try {
+            // Cargos al dinero en mano primero: son los que más fallan y no necesitan la base de datos
+            if (wallets != null) {
+                for (Leg leg : transfer.legs) {
+                    if (leg.target != Target.WALLET) {
+                        continue;
+                    }
+                    if (!wallets.pin(leg.uuid)) {
+                        throw new TransferException("Usuario no encontrado.");
+                    }
+                    pinned.add(leg.uuid);
+                    if (leg.delta < 0) {
+                        WalletResult withdrawn = wallets.reserve(leg.uuid, -leg.delta);
+                        if (!withdrawn.success) {
+                            throw new TransferException("Account not found".equals(withdrawn.error)
+                                ? "Usuario no encontrado." : "No tienes suficiente dinero.");
+                        }
+                        reserved.add(leg);
+                    }
+                }
+            }
+
+            try (MoneySupply.Section change = MoneySupply.change()) {
+                long supplyDelta = Model.inTransaction(conn -> applyLegs(conn, transfer, wallets != null, result));
+
+                // Confirmado: aplicar los abonos al monedero en memoria
+                if (wallets != null) {
+                    for (Leg leg : transfer.legs) {
+                        if (leg.target != Target.WALLET) {
+                            continue;
+                        }
+                        Long balance = leg.delta > 0 ? wallets.applyTransfer(leg.uuid, leg.delta) : wallets.peek(leg.uuid);
+                        if (balance != null) {
+                            result.walletBalances.put(leg.uuid, balance);
+                        }
+                    }
+                }
+                MoneySupply.adjust(supplyDelta);
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            // Devolver lo que se reservó del dinero en mano
+            for (Leg leg : reserved) {
+                wallets.applyTransfer(leg.uuid, -leg.delta);
+            }
+            throw e;
+        } finally {
+            for (UUID uuid : pinned) {
+                wallets.unpin(uuid);
+            }
+        }
+    }
+
+    // Devuelve la variación del dinero en circulación que hay que registrar tras el commit
+    private static long applyLegs(Connection conn, Transfer transfer, boolean walletsCached, TransferResult result)
+            throws SQLException {
+        long supplyDelta = 0L;
+        Set<Integer> accounts = new LinkedHashSet<>();
+        Set<Integer> banks = new LinkedHashSet<>();
+        Set<UUID> users = new LinkedHashSet<>();
+        Ledger.Entry entry = new Ledger.Entry(entryType(transfer), transfer.actor);
+
+        for (Leg leg : transfer.legs) {
+            switch (leg.target) {
+                case ACCOUNT -> {
+                    updateBalance(conn, "bank_accounts", leg.id, leg.delta, leg.checked,
+                        "Saldo insuficiente en la cuenta.", "Cuenta no encontrada.");
+                    recordAccount(conn, leg.id, leg.type, Math.abs(leg.delta), transfer.actor);
+                    entry.account(leg.id, leg.delta);
+                    supplyDelta = Money.add(supplyDelta, leg.delta);
+                    accounts.add(leg.id);
+                }
+                case SWEEP -> {
+                    long amount = readBalance(conn, "bank_accounts", leg.id);
+                    if (amount > 0) {
+                        updateBalance(conn, "bank_accounts", leg.id, -amount, true,
+                            "Saldo insuficiente en la cuenta.", "Cuenta no encontrada.");
+                        updateBalance(conn, "bank_accounts", leg.toId, amount, false,
+                            null, "Cuenta destino no encontrada.");
+                        recordAccount(conn, leg.toId, leg.type, amount, transfer.actor);
+                        entry.account(leg.id, -amount).account(leg.toId, amount);
+                        result.swept.merge(leg.id, amount, Long::sum);
+                    }
+                    accounts.add(leg.id);
+                    accounts.add(leg.toId);
+                }
+                case BANK -> {
+                    updateBalance(conn, "banks", leg.id, leg.delta, leg.checked,
+                        "El banco no tiene suficientes fondos.", "Banco no encontrado.");
+                    recordBank(conn, leg.id, leg.type, Math.abs(leg.delta), transfer.actor);
+                    entry.bank(leg.id, leg.delta);
+                    banks.add(leg.id);
+                }
+                case WALLET -> {
+                    // Con la caché, el saldo ya se comprobó al reservar (la fila puede ir por detrás de la memoria)
+                    updateWallet(conn, leg.uuid, leg.delta, leg.checked && !walletsCached);
+                    entry.wallet(leg.uuid, leg.delta);
+                    supplyDelta = Money.add(supplyDelta, leg.delta);
+                    if (!walletsCached) {
+                        users.add(leg.uuid);
+                    }
+                }
+                case RECORD_ACCOUNT -> recordAccount(conn, leg.id, leg.type, leg.delta, transfer.actor);
+                case RECORD_BANK -> recordBank(conn, leg.id, leg.type, leg.delta, transfer.actor);
+                case RECORD_BANK_SWEPT -> recordBank(conn, leg.id, leg.type, result.totalSwept(), transfer.actor);
+            }
+        }
+
+        for (SqlWork<?> work : transfer.extraWork) {
+            work.run(conn);
+        }
+
+        // Un solo asiento por operación; lo que no cuadra es dinero creado o destruido
+        if (!entry.isEmpty()) {
+            Ledger.append(conn, entry.balanceWith(Ledger.ISSUANCE));
+        }
+
+        for (int id : accounts) {
+            result.accountBalances.put(id, readBalance(conn, "bank_accounts", id));
+        }
+        for (int id : banks) {
+            result.bankBalances.put(id, readBalance(conn, "banks", id));
+        }
+        for (UUID uuid : users) {
+            result.walletBalances.put(uuid, readWallet(conn, uuid));
+        }
+        return supplyDelta;
+    }
+
+    private static String entryType(Transfer transfer) {
+        for (Leg leg : transfer.legs) {
+            if (leg.type != null) {
+                return leg.type;
+            }
+        }
+        return "TRANSFER";
+    }
+
+    /* ---------------------- SQL ---------------------- */
+
+    private static void updateBalance(Connection conn, String table, int id, long delta, boolean checked,
+            String insufficientMessage, String notFoundMessage) throws SQLException {
+        boolean guard = checked && delta < 0;
+        String sql = "UPDATE " + table + " SET balance = balance + ? WHERE id = ?" + (guard ? " AND balance >= ?" : "");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, delta);
+            pstmt.setInt(2, id);
+            if (guard) {
+                pstmt.setLong(3, -delta);
+            }
+            if (pstmt.executeUpdate() == 1) {
+                return;
+            }
+        }
+
+        if (guard && exists(conn, table, id)) {
+            throw new TransferException(insufficientMessage);
+        }
+        throw new TransferException(notFoundMessage);
+    }
+
+    private static void updateWallet(Connection conn, UUID uuid, long delta, boolean checked) throws SQLException {
+        boolean guard = checked && delta < 0;
+        String sql = "UPDATE users SET money = money + ? WHERE uuid = ?" + (guard ? " AND money >= ?" : "");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, delta);
+            pstmt.setString(2, uuid.toString());
+            if (guard) {
+                pstmt.setLong(3, -delta);
+            }
+            if (pstmt.executeUpdate() == 1) {
+                return;
+            }
+        }
+        throw new TransferException(guard ? "No tienes suficiente dinero." : "Usuario no encontrado.");
+    }
+
+    private static boolean exists(Connection conn, String table, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM " + table + " WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next();
+        }
+    }
+
+    private static long readBalance(Connection conn, String table, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT balance FROM " + table + " WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong("balance");
+            }
+        }
+        throw new TransferException(table.equals("banks") ? "Banco no encontrado." : "Cuenta no encontrada.");
+    }
+
+    private static long readWallet(Connection conn, UUID uuid) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT money FROM users WHERE uuid = ?")) {
+            pstmt.setString(1, uuid.toString());
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong("money") : 0L;
+        }
+    }
+
+    private static void recordAccount(Connection conn, int accountId, String type, long amount, String actor)
+            throws SQLException {
+        if (type != null) {
+            new Transaction(accountId, type, amount, actor).save(conn);
+        }
+    }
+
+    private static void recordBank(Connection conn, int bankId, String type, long amount, String actor)
+            throws SQLException {
+        if (type != null && amount != 0) {
+            new BankTransaction(bankId, type, amount, actor).save(conn);
+        }
+    }
+
+    /* ---------------------- Métricas ---------------------- */
+
+    private static void recordLatency(long nanos) {
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // reintentar
+        }
+    }
+
+    public static List<String> describe() {
+        StripedLocks current = locks;
+        long total = committed.get() + rejected.get() + failed.get();
+        double averageMs = total == 0 ? 0 : totalNanos.get() / (double) total / 1_000_000.0;
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Transferencias: " + committed.get() + " confirmadas, " + rejected.get() + " rechazadas, "
+            + failed.get() + " con error (rollback)");
+        lines.add("  Latencia: media " + String.format("%.2f", averageMs) + "ms, máxima "
+            + String.format("%.2f", maxNanos.get() / 1_000_000.0) + "ms");
+        lines.add("Locks (" + current.getStripeCount() + " franjas): " + current.getAcquisitions() + " adquisiciones, "
+            + current.getContended() + " con espera (" + String.format("%.1f%%", current.getContentionRate() * 100) + ")");
+        lines.add("  Espera: media " + String.format("%.2f", current.getAverageWaitMs()) + "ms, máxima "
+            + String.format("%.2f", current.getMaxWaitMs()) + "ms, timeouts " + current.getTimeouts());
+        return lines;
+    }
+}
@@ -0,0 +1,13 @@
+package terratale.economy;
+
+// Error de negocio de una transferencia (saldo insuficiente, cuenta inexistente...). El mensaje es para el jugador.
+public class TransferException extends RuntimeException {
+
+    public TransferException(String message) {
+        super(message);
+    }
+
+    public TransferException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
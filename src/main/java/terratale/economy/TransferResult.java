@@ -0,0 +1,39 @@
+package terratale.economy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Saldos tras una transferencia confirmada, leídos dentro de la misma transacción
+public class TransferResult {
+
+    final Map<Integer, Long> accountBalances = new HashMap<>();
+    final Map<Integer, Long> bankBalances = new HashMap<>();
+    final Map<UUID, Long> walletBalances = new HashMap<>();
+    final Map<Integer, Long> swept = new HashMap<>();
+
+    public long accountBalance(int accountId) {
+        return accountBalances.getOrDefault(accountId, 0L);
+    }
+
+    public long bankBalance(int bankId) {
+        return bankBalances.getOrDefault(bankId, 0L);
+    }
+
+    public long walletBalance(UUID uuid) {
+        return walletBalances.getOrDefault(uuid, 0L);
+    }
+
+    // Cantidad movida por sweepAccount desde esa cuenta
+    public long sweptFrom(int accountId) {
+        return swept.getOrDefault(accountId, 0L);
+    }
+
+    public long totalSwept() {
+        long total = 0L;
+        for (long amount : swept.values()) {
+            total += amount;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,173 @@
+package terratale.metrics;
+
+import terratale.models.Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de métricas del plugin: contadores, indicadores y latencias ({@link Histogram}) por nombre.
+ *
+ * Los nombres llevan el prefijo de la capa que los mide: query.* (cada sentencia, por el nombre con que se
+ * registró en Model), command.*, vault.*, pool.*, statements.*, cache.*, wallet.* y writer.*. Se ven con
+ * /terratale stats [filtro] y, con {@link #start}, se vuelcan cada cierto tiempo a metrics.log en la carpeta
+ * de datos, que rota a metrics.1.log ... al pasar de {@code maxBytes}.
+ *
+ * Registrar un valor no bloquea (LongAdder, AtomicLongArray) y el registro no se vacía al parar, así que en
+ * los caminos calientes se guarda el contador o el histograma en un campo en vez de buscarlo cada vez.
+ */
+public final class Metrics {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final Map<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> TIMERS = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService dumper;
+    private static volatile RotatingFile file; // su propio lock, aparte del de start/stop (que espera al último volcado)
+
+    private Metrics() {
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /* ---------------------- Registro ---------------------- */
+
+    public static Counter counter(String name) {
+        Counter counter = COUNTERS.get(name);
+        return counter != null ? counter : COUNTERS.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public static Histogram timer(String name) {
+        Histogram timer = TIMERS.get(name);
+        return timer != null ? timer : TIMERS.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    // Valor que se lee al mostrar las métricas; registrarlo de nuevo (al reiniciar un servicio) reemplaza al anterior
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    /* ---------------------- Volcado a fichero ---------------------- */
+
+    public static synchronized void start(File dataFolder, long intervalMs, long maxFileBytes, int files) {
+        stop();
+        file = new RotatingFile(dataFolder, "metrics", maxFileBytes, files);
+        if (intervalMs <= 0) {
+            return;
+        }
+
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TerraEconomy-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleWithFixedDelay(Metrics::dump, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Para el volcado periódico y escribe un último volcado
+    public static synchronized void stop() {
+        if (dumper == null) {
+            return;
+        }
+        dumper.shutdown(); // sin interrumpir: un volcado a medias dejaría el fichero cortado
+        try {
+            dumper.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dumper = null;
+        dump();
+    }
+
+    static void dump() {
+        StringBuilder text = new StringBuilder();
+        text.append("=== ").append(LocalDateTime.now().format(TIMESTAMP)).append(" ===").append(System.lineSeparator());
+        for (String line : describe(null)) {
+            text.append(line).append(System.lineSeparator());
+        }
+
+        try {
+            file.append(text.toString());
+        } catch (IOException | RuntimeException e) {
+            Model.logError("Failed to write metrics file: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /* ---------------------- Consulta ---------------------- */
+
+    // Todas las métricas cuyo nombre empieza por el filtro (todas si es null), ordenadas por nombre
+    public static List<String> describe(String filter) {
+        Map<String, String> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : COUNTERS.entrySet()) {
+            if (matches(entry.getKey(), filter)) {
+                values.put(entry.getKey(), String.valueOf(entry.getValue().get()));
+            }
+        }
+        for (Map.Entry<String, LongSupplier> entry : GAUGES.entrySet()) {
+            if (matches(entry.getKey(), filter)) {
+                String value;
+                try {
+                    value = String.valueOf(entry.getValue().getAsLong());
+                } catch (RuntimeException e) {
+                    value = "error (" + e.getMessage() + ")";
+                }
+                values.put(entry.getKey(), value);
+            }
+        }
+        for (Map.Entry<String, Histogram> entry : TIMERS.entrySet()) {
+            if (matches(entry.getKey(), filter)) {
+                values.put(entry.getKey(), describeTimer(entry.getValue()));
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Métricas" + (filter != null ? " '" + filter + "*'" : "") + ": " + values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            lines.add("  " + entry.getKey() + ": " + entry.getValue());
+        }
+        return lines;
+    }
+
+    private static boolean matches(String name, String filter) {
+        return filter == null || filter.isEmpty() || name.startsWith(filter);
+    }
+
+    private static String describeTimer(Histogram timer) {
+        return timer.getCount() + " veces, media " + formatMs(timer.getMeanNanos()) + ", p50 "
+            + formatMs(timer.percentile(50)) + ", p99 " + formatMs(timer.percentile(99)) + ", p99.9 "
+            + formatMs(timer.percentile(99.9)) + ", máx " + formatMs(timer.getMaxNanos());
+    }
+
+    private static String formatMs(double nanos) {
+        return String.format("%.2fms", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,55 @@
+package terratale.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fichero de texto que se escribe añadiendo al final y rota al pasar de {@code maxBytes}: name.log pasa a
+ * name.1.log, name.1.log a name.2.log... y el más antiguo (name.(count-1).log) se pierde.
+ */
+public final class RotatingFile {
+
+    private final File directory;
+    private final String name;
+    private final long maxBytes;
+    private final int count;
+
+    public RotatingFile(File directory, String name, long maxBytes, int count) {
+        this.directory = directory;
+        this.name = name;
+        this.maxBytes = Math.max(1024, maxBytes);
+        this.count = Math.max(1, count);
+    }
+
+    public synchronized void append(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        Files.createDirectories(directory.toPath());
+        Path current = file(0);
+        if (Files.exists(current) && Files.size(current) + bytes.length > maxBytes) {
+            rotate();
+        }
+        Files.write(current, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void rotate() throws IOException {
+        if (count == 1) {
+            Files.delete(file(0));
+            return;
+        }
+        for (int i = count - 1; i >= 1; i--) {
+            Path older = file(i - 1);
+            if (Files.exists(older)) {
+                Files.move(older, file(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private Path file(int index) {
+        return new File(directory, index == 0 ? name + ".log" : name + "." + index + ".log").toPath();
+    }
+}
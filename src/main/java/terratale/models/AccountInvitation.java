@@ -7,6 +7,10 @@ import java.util.UUID;
 
 public class AccountInvitation extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND_BY_INVITED = registerQuery("AccountInvitation.findByInvitedUser",
+        "SELECT * FROM account_invitations WHERE invited_uuid = ?");
+    
     private Integer id;
     private int accountId;
     private UUID invitedUuid;
@@ -29,14 +33,14 @@ public class AccountInvitation extends Model {
     }
     
     public static AccountInvitation find(int id) {
-        if (connection == null) {
-            logError("Cannot find account invitation: connection is null");
+        if (pool == null) {
+            logError("Cannot find account invitation: database is not initialized");
             return null;
         }
         
         String sql = "SELECT * FROM account_invitations WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
             
@@ -60,14 +64,14 @@ public class AccountInvitation extends Model {
     public static List<AccountInvitation> findByAccount(int accountId) {
         List<AccountInvitation> invitations = new ArrayList<>();
         
-        if (connection == null) {
-            logError("Cannot find invitations by account: connection is null");
+        if (pool == null) {
+            logError("Cannot find invitations by account: database is not initialized");
             return invitations;
         }
         
         String sql = "SELECT * FROM account_invitations WHERE account_id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, accountId);
             ResultSet rs = pstmt.executeQuery();
             
@@ -91,14 +95,14 @@ public class AccountInvitation extends Model {
     public static List<AccountInvitation> findByInvitedUser(UUID invitedUuid) {
         List<AccountInvitation> invitations = new ArrayList<>();
         
-        if (connection == null) {
-            logError("Cannot find invitations by invited user: connection is null");
+        if (pool == null) {
+            logError("Cannot find invitations by invited user: database is not initialized");
             return invitations;
         }
         
-        String sql = "SELECT * FROM account_invitations WHERE invited_uuid = ?";
+        String sql = SQL_FIND_BY_INVITED;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, invitedUuid.toString());
             ResultSet rs = pstmt.executeQuery();
             
@@ -120,14 +124,14 @@ public class AccountInvitation extends Model {
     }
     
     public static AccountInvitation findPending(int accountId, UUID invitedUuid) {
-        if (connection == null) {
-            logError("Cannot find pending invitation: connection is null");
+        if (pool == null) {
+            logError("Cannot find pending invitation: database is not initialized");
             return null;
         }
         
         String sql = "SELECT * FROM account_invitations WHERE account_id = ? AND invited_uuid = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, accountId);
             pstmt.setString(2, invitedUuid.toString());
             ResultSet rs = pstmt.executeQuery();
@@ -150,8 +154,8 @@ public class AccountInvitation extends Model {
     }
     
     public void save() {
-        if (connection == null) {
-            logError("Cannot save account invitation: connection is null");
+        if (pool == null) {
+            logError("Cannot save account invitation: database is not initialized");
             return;
         }
         
@@ -162,17 +166,22 @@ public class AccountInvitation extends Model {
                 VALUES (?, ?, ?, ?)
             """;
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setInt(1, accountId);
-                pstmt.setString(2, invitedUuid.toString());
-                pstmt.setString(3, inviterUuid.toString());
-                pstmt.setLong(4, timestamp);
-                pstmt.executeUpdate();
+            try {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                        pstmt.setInt(1, accountId);
+                        pstmt.setString(2, invitedUuid.toString());
+                        pstmt.setString(3, inviterUuid.toString());
+                        pstmt.setLong(4, timestamp);
+                        pstmt.executeUpdate();
                 
-                ResultSet rs = pstmt.getGeneratedKeys();
-                if (rs.next()) {
-                    this.id = rs.getInt(1);
-                }
+                        ResultSet rs = pstmt.getGeneratedKeys();
+                        if (rs.next()) {
+                            this.id = rs.getInt(1);
+                        }
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to insert account invitation: " + e.getMessage());
                 e.printStackTrace();
@@ -185,13 +194,18 @@ public class AccountInvitation extends Model {
                 WHERE id = ?
             """;
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setInt(1, accountId);
-                pstmt.setString(2, invitedUuid.toString());
-                pstmt.setString(3, inviterUuid.toString());
-                pstmt.setLong(4, timestamp);
-                pstmt.setInt(5, id);
-                pstmt.executeUpdate();
+            try {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setInt(1, accountId);
+                        pstmt.setString(2, invitedUuid.toString());
+                        pstmt.setString(3, inviterUuid.toString());
+                        pstmt.setLong(4, timestamp);
+                        pstmt.setInt(5, id);
+                        pstmt.executeUpdate();
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to update account invitation: " + e.getMessage());
                 e.printStackTrace();
@@ -200,16 +214,21 @@ public class AccountInvitation extends Model {
     }
     
     public void delete() {
-        if (connection == null || id == null) {
-            logError("Cannot delete account invitation: connection is null or id is null");
+        if (pool == null || id == null) {
+            logError("Cannot delete account invitation: database is not initialized or id is null");
             return;
         }
         
         String sql = "DELETE FROM account_invitations WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete account invitation: " + e.getMessage());
             e.printStackTrace();
@@ -5,12 +5,25 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import terratale.Helpers.Money;
+import terratale.cache.EntityCache;
+
 public class Bank extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND = registerQuery("Bank.find",
+        "SELECT * FROM banks WHERE id = ?");
+    private static final String SQL_FIND_BY_OWNER = registerQuery("Bank.findByOwner",
+        "SELECT * FROM banks WHERE owner_uuid = ?");
+    private static final String SQL_FIND_BY_NAME = registerQuery("Bank.findByName",
+        "SELECT * FROM banks WHERE name = ?");
+    
+    private static final EntityCache<Bank> CACHE = new EntityCache<>("banks", Bank::getId, Bank::getName, Bank::copy);
+    
     private Integer id;
     private String name;
     private UUID ownerUuid;
-    private double balance;
+    private long balance;
     private double withdrawFee;
     private double depositFee;
     private double transactionsFee;
@@ -19,14 +32,14 @@ public class Bank extends Model {
     public Bank(String name, UUID ownerUuid) {
         this.name = name;
         this.ownerUuid = ownerUuid;
-        this.balance = 0.0;
+        this.balance = 0L;
         this.withdrawFee = 0.0;
         this.depositFee = 0.0;
         this.transactionsFee = 0.0;
         this.visibility = "public";
     }
     
-    private Bank(Integer id, String name, UUID ownerUuid, double balance, 
+    private Bank(Integer id, String name, UUID ownerUuid, long balance, 
                  double withdrawFee, double depositFee, double transactionsFee, String visibility) {
         this.id = id;
         this.name = name;
@@ -43,14 +56,18 @@ public class Bank extends Model {
     }
     
     public static Bank find(int id) {
-        if (connection == null) {
-            logError("Cannot find bank: connection is null");
+        return CACHE.getById(id, Bank::load);
+    }
+    
+    private static Bank load(int id) {
+        if (pool == null) {
+            logError("Cannot find bank: database is not initialized");
             return null;
         }
         
-        String sql = "SELECT * FROM banks WHERE id = ?";
+        String sql = SQL_FIND;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
             
@@ -59,7 +76,7 @@ public class Bank extends Model {
                     rs.getInt("id"),
                     rs.getString("name"),
                     UUID.fromString(rs.getString("owner_uuid")),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     rs.getDouble("withdraw_fee"),
                     rs.getDouble("deposit_fee"),
                     rs.getDouble("transactions_fee"),
@@ -76,14 +93,14 @@ public class Bank extends Model {
     
     public static List<Bank> findByOwner(UUID ownerUuid) {
         List<Bank> banks = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find banks: connection is null");
+        if (pool == null) {
+            logError("Cannot find banks: database is not initialized");
             return banks;
         }
         
-        String sql = "SELECT * FROM banks WHERE owner_uuid = ?";
+        String sql = SQL_FIND_BY_OWNER;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, ownerUuid.toString());
             ResultSet rs = pstmt.executeQuery();
             
@@ -92,7 +109,7 @@ public class Bank extends Model {
                     rs.getInt("id"),
                     rs.getString("name"),
                     UUID.fromString(rs.getString("owner_uuid")),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     rs.getDouble("withdraw_fee"),
                     rs.getDouble("deposit_fee"),
                     rs.getDouble("transactions_fee"),
@@ -108,14 +125,18 @@ public class Bank extends Model {
     }
 
     public static Bank findByName(String name) {
-        if (connection == null) {
-            logError("Cannot find banks: connection is null");
+        return CACHE.getByKey(name, Bank::loadByName);
+    }
+    
+    private static Bank loadByName(String name) {
+        if (pool == null) {
+            logError("Cannot find banks: database is not initialized");
             return null;
         }
         
-        String sql = "SELECT * FROM banks WHERE name = ?";
+        String sql = SQL_FIND_BY_NAME;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, name);
             ResultSet rs = pstmt.executeQuery();
             
@@ -124,7 +145,7 @@ public class Bank extends Model {
                     rs.getInt("id"),
                     rs.getString("name"),
                     UUID.fromString(rs.getString("owner_uuid")),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     rs.getDouble("withdraw_fee"),
                     rs.getDouble("deposit_fee"),
                     rs.getDouble("transactions_fee"),
@@ -143,14 +164,14 @@ public class Bank extends Model {
 
     public static List<Bank> findAll() {
         List<Bank> banks = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find banks: connection is null");
+        if (pool == null) {
+            logError("Cannot find banks: database is not initialized");
             return banks;
         }
         
         String sql = "SELECT * FROM banks";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -158,7 +179,7 @@ public class Bank extends Model {
                     rs.getInt("id"),
                     rs.getString("name"),
                     UUID.fromString(rs.getString("owner_uuid")),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     rs.getDouble("withdraw_fee"),
                     rs.getDouble("deposit_fee"),
                     rs.getDouble("transactions_fee"),
@@ -175,14 +196,14 @@ public class Bank extends Model {
 
     public static List<Bank> findAllPublics() {
         List<Bank> banks = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find banks: connection is null");
+        if (pool == null) {
+            logError("Cannot find banks: database is not initialized");
             return banks;
         }
         
         String sql = "SELECT * FROM banks WHERE visibility = 'public'";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -190,7 +211,7 @@ public class Bank extends Model {
                     rs.getInt("id"),
                     rs.getString("name"),
                     UUID.fromString(rs.getString("owner_uuid")),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     rs.getDouble("withdraw_fee"),
                     rs.getDouble("deposit_fee"),
                     rs.getDouble("transactions_fee"),
@@ -207,8 +228,8 @@ public class Bank extends Model {
     
     
     public void save() {
-        if (connection == null) {
-            logError("Cannot save bank: connection is null");
+        if (pool == null) {
+            logError("Cannot save bank: database is not initialized");
             return;
         }
         
@@ -219,52 +240,63 @@ public class Bank extends Model {
                 VALUES (?, ?, ?, ?, ?, ?, ?)
             """;
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setString(1, name);
-                pstmt.setString(2, ownerUuid.toString());
-                pstmt.setDouble(3, balance);
-                pstmt.setDouble(4, withdrawFee);
-                pstmt.setDouble(5, depositFee);
-                pstmt.setDouble(6, transactionsFee);
-                pstmt.setString(7, visibility);
-                pstmt.executeUpdate();
+            try {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                        pstmt.setString(1, name);
+                        pstmt.setString(2, ownerUuid.toString());
+                        pstmt.setLong(3, balance);
+                        pstmt.setDouble(4, withdrawFee);
+                        pstmt.setDouble(5, depositFee);
+                        pstmt.setDouble(6, transactionsFee);
+                        pstmt.setString(7, visibility);
+                        pstmt.executeUpdate();
                 
-                ResultSet rs = pstmt.getGeneratedKeys();
-                if (rs.next()) {
-                    this.id = rs.getInt(1);
-                }
+                        ResultSet rs = pstmt.getGeneratedKeys();
+                        if (rs.next()) {
+                            this.id = rs.getInt(1);
+                        }
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to insert bank: " + e.getMessage());
                 e.printStackTrace();
             }
         } else {
-            // Update
+            // Update (el saldo no se escribe aquí: solo lo cambia TransferEngine con UPDATE relativos)
             String sql = """
-                UPDATE banks SET name = ?, owner_uuid = ?, balance = ?, 
+                UPDATE banks SET name = ?, owner_uuid = ?, 
                 withdraw_fee = ?, deposit_fee = ?, transactions_fee = ?,
                 visibility = ? WHERE id = ?
             """;
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, name);
-                pstmt.setString(2, ownerUuid.toString());
-                pstmt.setDouble(3, balance);
-                pstmt.setDouble(4, withdrawFee);
-                pstmt.setDouble(5, depositFee);
-                pstmt.setDouble(6, transactionsFee);
-                pstmt.setString(7, visibility);
-                pstmt.setInt(8, id);
-                pstmt.executeUpdate();
+            try {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setString(1, name);
+                        pstmt.setString(2, ownerUuid.toString());
+                        pstmt.setDouble(3, withdrawFee);
+                        pstmt.setDouble(4, depositFee);
+                        pstmt.setDouble(5, transactionsFee);
+                        pstmt.setString(6, visibility);
+                        pstmt.setInt(7, id);
+                        pstmt.executeUpdate();
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to update bank: " + e.getMessage());
                 e.printStackTrace();
+            } finally {
+                CACHE.invalidate(id);
             }
         }
     }
     
     public void delete() {
-        if (connection == null) {
-            logError("Cannot delete bank: connection is null");
+        if (pool == null) {
+            logError("Cannot delete bank: database is not initialized");
             return;
         }
         
@@ -275,28 +307,44 @@ public class Bank extends Model {
         
         String sql = "DELETE FROM banks WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logInfo("Bank deleted successfully: " + id);
-            } else {
-                logError("No bank found with id: " + id);
-            }
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    int rowsAffected = pstmt.executeUpdate();
+                    if (rowsAffected > 0) {
+                        logInfo("Bank deleted successfully: " + id);
+                    } else {
+                        logError("No bank found with id: " + id);
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete bank: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            CACHE.invalidate(id);
         }
     }
     
+    // Para cuando el saldo cambia fuera de save() (TransferEngine)
+    public static void invalidateCache(int id) {
+        CACHE.invalidate(id);
+    }
+    
+    private Bank copy() {
+        return new Bank(id, name, ownerUuid, balance, withdrawFee, depositFee, transactionsFee, visibility);
+    }
+    
     // Getters y Setters
     public Integer getId() { return id; }
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     public UUID getOwnerUuid() { return ownerUuid; }
     public void setOwnerUuid(UUID ownerUuid) { this.ownerUuid = ownerUuid; }
-    public double getBalance() { return balance; }
-    public void setBalance(double balance) { this.balance = balance; }
+    public long getBalance() { return balance; }
+    public void setBalance(long balance) { this.balance = balance; }
     public double getWithdrawFee() { return withdrawFee; }
     public void setWithdrawFee(double withdrawFee) { this.withdrawFee = withdrawFee; }
     public double getDepositFee() { return depositFee; }
@@ -306,6 +354,6 @@ public class Bank extends Model {
     public String getVisibility() { return visibility; }
     public void setVisibility(String visibility) { this.visibility = visibility; }
     
-    public void addBalance(double amount) { this.balance += amount; }
-    public void removeBalance(double amount) { this.balance = Math.max(0, this.balance - amount); }
+    public void addBalance(long amount) { this.balance = Money.add(this.balance, amount); }
+    public void removeBalance(long amount) { this.balance = Math.max(0, Money.subtract(this.balance, amount)); }
 }
@@ -2,34 +2,62 @@ package terratale.models;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import terratale.Helpers.Money;
+import terratale.Helpers.TransactionTypes;
+import terratale.cache.EntityCache;
+import terratale.cache.MoneySupply;
+import terratale.cache.SessionManager;
+import terratale.economy.Ledger;
+import terratale.economy.StripedLocks;
+import terratale.economy.TransferEngine;
+import terratale.economy.TransferException;
 import terratale.models.Bank;
 
 public class BankAccount extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND = registerQuery("BankAccount.find",
+        "SELECT * FROM bank_accounts WHERE id = ?");
+    private static final String SQL_FIND_BY_NUMBER = registerQuery("BankAccount.findByAccountNumber",
+        "SELECT * FROM bank_accounts WHERE account_number = ?");
+    private static final String SQL_FIND_BY_BANK = registerQuery("BankAccount.findByBank",
+        "SELECT * FROM bank_accounts WHERE bank_id = ?");
+    private static final String SQL_FIND_BY_OWNER = registerQuery("BankAccount.getAllByOwner",
+        "SELECT * FROM bank_accounts JOIN bank_accounts_owners ON bank_accounts.id = bank_accounts_owners.account_id WHERE bank_accounts_owners.owner_uuid = ?");
+    
+    private static final EntityCache<BankAccount> CACHE =
+        new EntityCache<>("bank_accounts", BankAccount::getId, BankAccount::getAccountNumber, BankAccount::copy);
+    
     private Integer id;
     private int bankId;
-    private double balance;
+    private long balance;
     private Double withdrawFee;
     private Double depositFee;
     private String accountNumber;
     private Double transactionsFee;
+    private long persistedBalance; // último saldo escrito/leído, para el agregado de dinero total
     
     public BankAccount(int bankId) {
         this.bankId = bankId;
-        this.balance = 0.0;
+        this.balance = 0L;
         this.accountNumber = null;
         this.withdrawFee = null;
         this.depositFee = null;
         this.transactionsFee = null;
     }
     
-    private BankAccount(Integer id, int bankId, double balance, 
+    private BankAccount(Integer id, int bankId, long balance, 
                         Double withdrawFee, Double depositFee, Double transactionsFee, String accountNumber) {
         this.id = id;
         this.bankId = bankId;
         this.balance = balance;
+        this.persistedBalance = balance;
         this.accountNumber = accountNumber;
         this.withdrawFee = withdrawFee;
         this.depositFee = depositFee;
@@ -41,14 +69,18 @@ public class BankAccount extends Model {
     }
     
     public static BankAccount find(int id) {
-        if (connection == null) {
-            logError("Cannot find bank account: connection is null");
+        return CACHE.getById(id, BankAccount::load);
+    }
+    
+    private static BankAccount load(int id) {
+        if (pool == null) {
+            logError("Cannot find bank account: database is not initialized");
             return null;
         }
         
-        String sql = "SELECT * FROM bank_accounts WHERE id = ?";
+        String sql = SQL_FIND;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
             
@@ -65,7 +97,7 @@ public class BankAccount extends Model {
                 return new BankAccount(
                     rs.getInt("id"),
                     rs.getInt("bank_id"),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     withdrawFee,
                     depositFee,
                     transactionsFee,
@@ -81,14 +113,18 @@ public class BankAccount extends Model {
     }
 
     public static BankAccount findByAccountNumber(String accountNumber) {
-        if (connection == null) {
-            logError("Cannot find bank account: connection is null");
+        return CACHE.getByKey(accountNumber, BankAccount::loadByAccountNumber);
+    }
+    
+    private static BankAccount loadByAccountNumber(String accountNumber) {
+        if (pool == null) {
+            logError("Cannot find bank account: database is not initialized");
             return null;
         }
         
-        String sql = "SELECT * FROM bank_accounts WHERE account_number = ?";
+        String sql = SQL_FIND_BY_NUMBER;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, accountNumber);
             ResultSet rs = pstmt.executeQuery();
             
@@ -105,7 +141,7 @@ public class BankAccount extends Model {
                 return new BankAccount(
                     rs.getInt("id"),
                     rs.getInt("bank_id"),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     withdrawFee,
                     depositFee,
                     transactionsFee,
@@ -120,16 +156,48 @@ public class BankAccount extends Model {
         return null;
     }
     
+    // Cuáles de estos números de cuenta existen, con una sola consulta
+    public static Set<String> findExistingAccountNumbers(Collection<String> accountNumbers) {
+        Set<String> existing = new HashSet<>();
+        if (pool == null) {
+            logError("Cannot find bank accounts: database is not initialized");
+            return existing;
+        }
+        if (accountNumbers.isEmpty()) {
+            return existing;
+        }
+        
+        List<String> numbers = new ArrayList<>(accountNumbers);
+        String placeholders = String.join(", ", Collections.nCopies(numbers.size(), "?"));
+        String sql = "SELECT account_number FROM bank_accounts WHERE account_number IN (" + placeholders + ")";
+        
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < numbers.size(); i++) {
+                pstmt.setString(i + 1, numbers.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                existing.add(rs.getString("account_number"));
+            }
+        } catch (SQLException e) {
+            logError("Failed to find bank accounts by number: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return existing;
+    }
+    
     public static List<BankAccount> findByBank(int bankId) {
         List<BankAccount> accounts = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find bank accounts: connection is null");
+        if (pool == null) {
+            logError("Cannot find bank accounts: database is not initialized");
             return accounts;
         }
         
-        String sql = "SELECT * FROM bank_accounts WHERE bank_id = ?";
+        String sql = SQL_FIND_BY_BANK;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, bankId);
             ResultSet rs = pstmt.executeQuery();
             
@@ -146,7 +214,7 @@ public class BankAccount extends Model {
                 accounts.add(new BankAccount(
                     rs.getInt("id"),
                     rs.getInt("bank_id"),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     withdrawFee,
                     depositFee,
                     transactionsFee,
@@ -163,14 +231,14 @@ public class BankAccount extends Model {
 
     public static List<BankAccount> getAllByOwner( UUID ownerUUID ) {
         List<BankAccount> accounts = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find bank accounts: connection is null");
+        if (pool == null) {
+            logError("Cannot find bank accounts: database is not initialized");
             return accounts;
         }
         
-        String sql = "SELECT * FROM bank_accounts JOIN bank_accounts_owners ON bank_accounts.id = bank_accounts_owners.account_id WHERE bank_accounts_owners.owner_uuid = ?";
+        String sql = SQL_FIND_BY_OWNER;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setObject(1, ownerUUID.toString());
             ResultSet rs = pstmt.executeQuery();
             
@@ -187,7 +255,7 @@ public class BankAccount extends Model {
                 accounts.add(new BankAccount(
                     rs.getInt("id"),
                     rs.getInt("bank_id"),
-                    rs.getDouble("balance"),
+                    rs.getLong("balance"),
                     withdrawFee,
                     depositFee,
                     transactionsFee,
@@ -203,8 +271,8 @@ public class BankAccount extends Model {
     }
     
     public void save() {
-        if (connection == null) {
-            logError("Cannot save bank account: connection is null");
+        if (pool == null) {
+            logError("Cannot save bank account: database is not initialized");
             return;
         }
         
@@ -217,60 +285,74 @@ public class BankAccount extends Model {
 
             String accountNumber = generateAccountNumber(bankId);
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setInt(1, bankId);
-                pstmt.setDouble(2, balance);
-                pstmt.setObject(3, withdrawFee);
-                pstmt.setObject(4, depositFee);
-                pstmt.setObject(5, transactionsFee);
-                pstmt.setString(6, accountNumber);
-                pstmt.executeUpdate();
-                
-                ResultSet rs = pstmt.getGeneratedKeys();
-                if (rs.next()) {
-                    this.id = rs.getInt(1);
-                }
+            try (MoneySupply.Section change = MoneySupply.change()) {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                        pstmt.setInt(1, bankId);
+                        pstmt.setLong(2, balance);
+                        pstmt.setObject(3, withdrawFee);
+                        pstmt.setObject(4, depositFee);
+                        pstmt.setObject(5, transactionsFee);
+                        pstmt.setString(6, accountNumber);
+                        pstmt.executeUpdate();
+                        
+                        ResultSet rs = pstmt.getGeneratedKeys();
+                        if (rs.next()) {
+                            this.id = rs.getInt(1);
+                        }
+                    }
+                    return null;
+                });
+                // Tras el commit (con el escritor SQLite, el del grupo)
+                MoneySupply.adjust(balance);
+                persistedBalance = balance;
             } catch (SQLException e) {
                 logError("Failed to insert bank account: " + e.getMessage());
                 e.printStackTrace();
             }
         } else {
-            // Update
+            // Update (el saldo no se escribe aquí: solo lo cambia TransferEngine con UPDATE relativos)
             String sql = """
-                UPDATE bank_accounts SET bank_id = ?, balance = ?, 
+                UPDATE bank_accounts SET bank_id = ?, 
                 withdraw_fee = ?, deposit_fee = ?, transactions_fee = ?, account_number = ?
                 WHERE id = ?
             """;
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setInt(1, bankId);
-                pstmt.setDouble(2, balance);
-                pstmt.setObject(3, withdrawFee);
-                pstmt.setObject(4, depositFee);
-                pstmt.setObject(5, transactionsFee);
-                pstmt.setString(6, accountNumber);
-                pstmt.setInt(7, id);
-                pstmt.executeUpdate();
+            try {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setInt(1, bankId);
+                        pstmt.setObject(2, withdrawFee);
+                        pstmt.setObject(3, depositFee);
+                        pstmt.setObject(4, transactionsFee);
+                        pstmt.setString(5, accountNumber);
+                        pstmt.setInt(6, id);
+                        pstmt.executeUpdate();
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to update bank account: " + e.getMessage());
                 e.printStackTrace();
+            } finally {
+                CACHE.invalidate(id);
             }
         }
     }
 
-    public static double getAllAccountsMoney() {
-        double total = 0.0;
-        if (connection == null) {
-            logError("Cannot calculate total money: connection is null");
+    public static long getAllAccountsMoney() {
+        long total = 0L;
+        if (pool == null) {
+            logError("Cannot calculate total money: database is not initialized");
             return total;
         }
         
         String sql = "SELECT SUM(balance) AS total_balance FROM bank_accounts";
         
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
             ResultSet rs = stmt.executeQuery(sql);
             if (rs.next()) {
-                total = rs.getDouble("total_balance");
+                total = rs.getLong("total_balance");
             }
         } catch (SQLException e) {
             logError("Failed to calculate total money: " + e.getMessage());
@@ -294,29 +376,92 @@ public class BankAccount extends Model {
         return bankPrefix + formattedBankId + randomDigits;
     }
     
-    public void delete() {
-        if (connection == null || id == null) {
-            logError("Cannot delete bank account: connection is null or id is null");
-            return;
+    /**
+     * Borra la cuenta con sus owners e invitaciones si su saldo no es positivo; false si tiene fondos o no
+     * existe. El saldo se lee con la cuenta bloqueada como en una transferencia, así que ningún abono llega
+     * entre la comprobación y el borrado. Un saldo negativo se salda contra la emisión en el libro.
+     */
+    public boolean delete(UUID actor) {
+        if (pool == null || id == null) {
+            logError("Cannot delete bank account: database is not initialized or id is null");
+            return false;
         }
         
-        String sql = "DELETE FROM bank_accounts WHERE id = ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
+        String actorId = actor != null ? actor.toString() : null;
+        try (StripedLocks.Held held = TransferEngine.getLocks().lockAll(List.of(StripedLocks.accountKey(id)), 30000);
+             MoneySupply.Section change = MoneySupply.change()) {
+            Long closed = inTransaction(conn -> {
+                long current;
+                String sql = "SELECT balance FROM bank_accounts WHERE id = ?" + (isMySQL ? " FOR UPDATE" : "");
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    ResultSet rs = pstmt.executeQuery();
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    current = rs.getLong("balance");
+                }
+                if (current > 0) {
+                    return null;
+                }
+                
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM bank_accounts WHERE id = ? AND balance <= 0")) {
+                    pstmt.setInt(1, id);
+                    if (pstmt.executeUpdate() != 1) {
+                        return null;
+                    }
+                }
+                for (String child : new String[] {
+                    "DELETE FROM bank_accounts_owners WHERE account_id = ?",
+                    "DELETE FROM account_invitations WHERE account_id = ?",
+                }) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(child)) {
+                        pstmt.setInt(1, id);
+                        pstmt.executeUpdate();
+                    }
+                }
+                if (current != 0) {
+                    Ledger.append(conn, new Ledger.Entry(TransactionTypes.ACCOUNT_DELETION, actorId)
+                        .account(id, -current)
+                        .balanceWith(Ledger.ISSUANCE));
+                }
+                return current;
+            });
+            if (closed == null) {
+                return false;
+            }
+            // El saldo negativo deja de contar en el dinero en circulación
+            MoneySupply.adjust(-closed);
+            persistedBalance = 0L;
+            balance = 0L;
+            return true;
+        } catch (SQLException | TransferException e) {
             logError("Failed to delete bank account: " + e.getMessage());
             e.printStackTrace();
+            return false;
+        } finally {
+            CACHE.invalidate(id);
+            SessionManager.invalidateAccounts();
         }
     }
     
+    // Para cuando el saldo cambia fuera de save() (TransferEngine)
+    public static void invalidateCache(int id) {
+        CACHE.invalidate(id);
+    }
+    
+    private BankAccount copy() {
+        BankAccount copy = new BankAccount(id, bankId, balance, withdrawFee, depositFee, transactionsFee, accountNumber);
+        copy.persistedBalance = persistedBalance;
+        return copy;
+    }
+    
     // Getters y Setters
     public Integer getId() { return id; }
     public int getBankId() { return bankId; }
     public void setBankId(int bankId) { this.bankId = bankId; }
-    public double getBalance() { return balance; }
-    public void setBalance(double balance) { this.balance = balance; }
+    public long getBalance() { return balance; }
+    public void setBalance(long balance) { this.balance = balance; }
     public Double getWithdrawFee() { return withdrawFee; }
     public void setWithdrawFee(Double withdrawFee) { this.withdrawFee = withdrawFee; }
     public Double getDepositFee() { return depositFee; }
@@ -326,6 +471,6 @@ public class BankAccount extends Model {
     public String getAccountNumber() { return accountNumber; }
     public void setAccountNumber(String accountNumber) { this.accountNumber = accountNumber; }
     
-    public void addBalance(double amount) { this.balance += amount; }
-    public void removeBalance(double amount) { this.balance = Math.max(0, this.balance - amount); }
+    public void addBalance(long amount) { this.balance = Money.add(this.balance, amount); }
+    public void removeBalance(long amount) { this.balance = Math.max(0, Money.subtract(this.balance, amount)); }
 }
@@ -5,8 +5,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import terratale.cache.SessionManager;
+
 public class BankAccountOwner extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND_OWNERS = registerQuery("BankAccountOwner.getOwnersByAccount",
+        "SELECT owner_uuid FROM bank_accounts_owners WHERE account_id = ?");
+    private static final String SQL_FIND_ACCOUNTS = registerQuery("BankAccountOwner.getAccountsByOwner",
+        "SELECT account_id FROM bank_accounts_owners WHERE owner_uuid = ?");
+    
     private int accountId;
     private UUID ownerUuid;
     private String permission;
@@ -25,14 +33,14 @@ public class BankAccountOwner extends Model {
     
     public static List<UUID> getOwnersByAccount(int accountId) {
         List<UUID> owners = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find owners: connection is null");
+        if (pool == null) {
+            logError("Cannot find owners: database is not initialized");
             return owners;
         }
         
-        String sql = "SELECT owner_uuid FROM bank_accounts_owners WHERE account_id = ?";
+        String sql = SQL_FIND_OWNERS;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, accountId);
             ResultSet rs = pstmt.executeQuery();
             
@@ -49,14 +57,14 @@ public class BankAccountOwner extends Model {
     
     public static List<Integer> getAccountsByOwner(UUID ownerUuid) {
         List<Integer> accounts = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find accounts: connection is null");
+        if (pool == null) {
+            logError("Cannot find accounts: database is not initialized");
             return accounts;
         }
         
-        String sql = "SELECT account_id FROM bank_accounts_owners WHERE owner_uuid = ?";
+        String sql = SQL_FIND_ACCOUNTS;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, ownerUuid.toString());
             ResultSet rs = pstmt.executeQuery();
             
@@ -72,8 +80,8 @@ public class BankAccountOwner extends Model {
     }
     
     public void save() {
-        if (connection == null) {
-            logError("Cannot save bank account owner: connection is null");
+        if (pool == null) {
+            logError("Cannot save bank account owner: database is not initialized");
             return;
         }
         
@@ -83,50 +91,68 @@ public class BankAccountOwner extends Model {
             ON DUPLICATE KEY UPDATE permission = VALUES(permission)
         """;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, accountId);
-            pstmt.setString(2, ownerUuid.toString());
-            pstmt.setString(3, permission);
-            pstmt.executeUpdate();
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, accountId);
+                    pstmt.setString(2, ownerUuid.toString());
+                    pstmt.setString(3, permission);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to save bank account owner: " + e.getMessage());
             e.printStackTrace();
         }
+        SessionManager.invalidateAccounts();
     }
     
     public void delete() {
-        if (connection == null) {
-            logError("Cannot delete bank account owner: connection is null");
+        if (pool == null) {
+            logError("Cannot delete bank account owner: database is not initialized");
             return;
         }
         
         String sql = "DELETE FROM bank_accounts_owners WHERE account_id = ? AND owner_uuid = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, accountId);
-            pstmt.setString(2, ownerUuid.toString());
-            pstmt.executeUpdate();
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, accountId);
+                    pstmt.setString(2, ownerUuid.toString());
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete bank account owner: " + e.getMessage());
             e.printStackTrace();
         }
+        SessionManager.invalidateAccounts();
     }
     
     public static void deleteByAccount(int accountId) {
-        if (connection == null) {
-            logError("Cannot delete bank account owners: connection is null");
+        if (pool == null) {
+            logError("Cannot delete bank account owners: database is not initialized");
             return;
         }
         
         String sql = "DELETE FROM bank_accounts_owners WHERE account_id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, accountId);
-            pstmt.executeUpdate();
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, accountId);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete bank account owners: " + e.getMessage());
             e.printStackTrace();
         }
+        SessionManager.invalidateAccounts();
     }
     
     // Getters
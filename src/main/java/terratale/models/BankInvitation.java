@@ -6,6 +6,10 @@ import java.util.List;
 import java.util.UUID;
 
 public class BankInvitation extends Model {
+    
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND_BY_INVITED = registerQuery("BankInvitation.findByInvitedUuid",
+        "SELECT id, bank_id, invited_uuid FROM bank_invitations WHERE invited_uuid = ?");
 
     private Integer id;
     private int bankId;
@@ -24,14 +28,14 @@ public class BankInvitation extends Model {
 
     public static List<BankInvitation> findByBankId(int bankId) {
         List<BankInvitation> invitations = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find invitations: connection is null");
+        if (pool == null) {
+            logError("Cannot find invitations: database is not initialized");
             return invitations;
         }
 
         String sql = "SELECT id, bank_id, invited_uuid FROM bank_invitations WHERE bank_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, bankId);
             ResultSet rs = pstmt.executeQuery();
 
@@ -52,14 +56,14 @@ public class BankInvitation extends Model {
 
     public static List<BankInvitation> findByInvitedUuid(UUID invitedUuid) {
         List<BankInvitation> invitations = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find invitations: connection is null");
+        if (pool == null) {
+            logError("Cannot find invitations: database is not initialized");
             return invitations;
         }
 
-        String sql = "SELECT id, bank_id, invited_uuid FROM bank_invitations WHERE invited_uuid = ?";
+        String sql = SQL_FIND_BY_INVITED;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, invitedUuid.toString());
             ResultSet rs = pstmt.executeQuery();
 
@@ -79,14 +83,14 @@ public class BankInvitation extends Model {
     }
 
     public static BankInvitation findByBankAndUser(int bankId, UUID invitedUuid) {
-        if (connection == null) {
-            logError("Cannot find invitation: connection is null");
+        if (pool == null) {
+            logError("Cannot find invitation: database is not initialized");
             return null;
         }
 
         String sql = "SELECT id, bank_id, invited_uuid FROM bank_invitations WHERE bank_id = ? AND invited_uuid = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, bankId);
             pstmt.setString(2, invitedUuid.toString());
             ResultSet rs = pstmt.executeQuery();
@@ -107,8 +111,8 @@ public class BankInvitation extends Model {
     }
 
     public void save() {
-        if (connection == null) {
-            logError("Cannot save bank invitation: connection is null");
+        if (pool == null) {
+            logError("Cannot save bank invitation: database is not initialized");
             return;
         }
 
@@ -121,21 +125,26 @@ public class BankInvitation extends Model {
             sql = "INSERT INTO bank_invitations (bank_id, invited_uuid) VALUES (?, ?)";
         }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, isUpdate ? Statement.NO_GENERATED_KEYS : Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setInt(1, bankId);
-            pstmt.setString(2, invitedUuid.toString());
-
-            if (isUpdate) {
-                pstmt.setInt(3, id);
-                pstmt.executeUpdate();
-            } else {
-                pstmt.executeUpdate();
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        this.id = generatedKeys.getInt(1);
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, isUpdate ? Statement.NO_GENERATED_KEYS : Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, bankId);
+                    pstmt.setString(2, invitedUuid.toString());
+
+                    if (isUpdate) {
+                        pstmt.setInt(3, id);
+                        pstmt.executeUpdate();
+                    } else {
+                        pstmt.executeUpdate();
+                        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                            if (generatedKeys.next()) {
+                                this.id = generatedKeys.getInt(1);
+                            }
+                        }
                     }
                 }
-            }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to save bank invitation: " + e.getMessage());
             e.printStackTrace();
@@ -143,16 +152,21 @@ public class BankInvitation extends Model {
     }
 
     public void delete() {
-        if (connection == null) {
-            logError("Cannot delete bank invitation: connection is null");
+        if (pool == null) {
+            logError("Cannot delete bank invitation: database is not initialized");
             return;
         }
 
         String sql = "DELETE FROM bank_invitations WHERE id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete bank invitation: " + e.getMessage());
             e.printStackTrace();
@@ -160,16 +174,21 @@ public class BankInvitation extends Model {
     }
 
     public static void deleteByBankId(int bankId) {
-        if (connection == null) {
-            logError("Cannot delete bank invitations: connection is null");
+        if (pool == null) {
+            logError("Cannot delete bank invitations: database is not initialized");
             return;
         }
 
         String sql = "DELETE FROM bank_invitations WHERE bank_id = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, bankId);
-            pstmt.executeUpdate();
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, bankId);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete bank invitations: " + e.getMessage());
             e.printStackTrace();
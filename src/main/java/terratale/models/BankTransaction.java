@@ -6,14 +6,21 @@ import java.util.List;
 
 public class BankTransaction extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND_BY_BANK = registerQuery("BankTransaction.findByBank",
+        "SELECT * FROM bank_transactions WHERE bank_id = ? ORDER BY timestamp DESC");
+    private static final String SQL_PAGE_BY_BANK = registerQuery("BankTransaction.findByBankAfter",
+        "SELECT * FROM bank_transactions WHERE bank_id = ? AND timestamp <= ? AND (timestamp < ? OR id < ?) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT ?");
+    
     private Integer id;
     private int bankId;
     private String type;
-    private double amount;
+    private long amount;
     private String userUuid;
     private long timestamp;
     
-    public BankTransaction(int bankId, String type, double amount, String userUuid) {
+    public BankTransaction(int bankId, String type, long amount, String userUuid) {
         this.bankId = bankId;
         this.type = type;
         this.amount = amount;
@@ -21,7 +28,7 @@ public class BankTransaction extends Model {
         this.timestamp = System.currentTimeMillis();
     }
     
-    private BankTransaction(Integer id, int bankId, String type, double amount, String userUuid, long timestamp) {
+    private BankTransaction(Integer id, int bankId, String type, long amount, String userUuid, long timestamp) {
         this.id = id;
         this.bankId = bankId;
         this.type = type;
@@ -31,14 +38,14 @@ public class BankTransaction extends Model {
     }
     
     public static BankTransaction find(int id) {
-        if (connection == null) {
-            logError("Cannot find bank transaction: connection is null");
+        if (pool == null) {
+            logError("Cannot find bank transaction: database is not initialized");
             return null;
         }
         
         String sql = "SELECT * FROM bank_transactions WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
             
@@ -47,7 +54,7 @@ public class BankTransaction extends Model {
                     rs.getInt("id"),
                     rs.getInt("bank_id"),
                     rs.getString("type"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getString("user_uuid"),
                     rs.getLong("timestamp")
                 );
@@ -60,16 +67,17 @@ public class BankTransaction extends Model {
         return null;
     }
     
+    // Carga el historial completo: para historiales grandes usar findByBankAfter
     public static List<BankTransaction> findByBank(int bankId) {
         List<BankTransaction> transactions = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find bank transactions: connection is null");
+        if (pool == null) {
+            logError("Cannot find bank transactions: database is not initialized");
             return transactions;
         }
         
-        String sql = "SELECT * FROM bank_transactions WHERE bank_id = ? ORDER BY timestamp DESC";
+        String sql = SQL_FIND_BY_BANK;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, bankId);
             ResultSet rs = pstmt.executeQuery();
             
@@ -78,7 +86,7 @@ public class BankTransaction extends Model {
                     rs.getInt("id"),
                     rs.getInt("bank_id"),
                     rs.getString("type"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getString("user_uuid"),
                     rs.getLong("timestamp")
                 ));
@@ -91,31 +99,56 @@ public class BankTransaction extends Model {
         return transactions;
     }
     
+    /**
+     * Página del historial posterior a {@code after}, del más reciente al más antiguo. Usa el índice
+     * (bank_id, timestamp); el id de desempate ya va incluido en el índice como clave primaria.
+     */
+    public static List<BankTransaction> findByBankAfter(int bankId, HistoryCursor after, int limit) {
+        List<BankTransaction> transactions = new ArrayList<>();
+        if (pool == null) {
+            throw new IllegalStateException("Cannot find bank transactions: database is not initialized");
+        }
+        
+        String sql = SQL_PAGE_BY_BANK;
+        
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, bankId);
+            pstmt.setLong(2, after.getTimestamp());
+            pstmt.setLong(3, after.getTimestamp());
+            pstmt.setInt(4, after.getId());
+            pstmt.setInt(5, limit);
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                transactions.add(new BankTransaction(
+                    rs.getInt("id"),
+                    rs.getInt("bank_id"),
+                    rs.getString("type"),
+                    rs.getLong("amount"),
+                    rs.getString("user_uuid"),
+                    rs.getLong("timestamp")
+                ));
+            }
+        } catch (SQLException e) {
+            // Como en Transaction.findByAccountAfter: un error no se puede devolver como página vacía (fin)
+            throw new RuntimeException("Failed to find bank transactions page: " + e.getMessage(), e);
+        }
+        
+        return transactions;
+    }
+    
     public void save() {
-        if (connection == null) {
-            logError("Cannot save bank transaction: connection is null");
+        if (pool == null) {
+            logError("Cannot save bank transaction: database is not initialized");
             return;
         }
         
         if (id == null) {
-            // Insert
-            String sql = """
-                INSERT INTO bank_transactions (bank_id, type, amount, user_uuid, timestamp) 
-                VALUES (?, ?, ?, ?, ?)
-            """;
-            
-            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setInt(1, bankId);
-                pstmt.setString(2, type);
-                pstmt.setDouble(3, amount);
-                pstmt.setString(4, userUuid);
-                pstmt.setLong(5, timestamp);
-                pstmt.executeUpdate();
-                
-                ResultSet rs = pstmt.getGeneratedKeys();
-                if (rs.next()) {
-                    this.id = rs.getInt(1);
-                }
+            try {
+                write(conn -> {
+                    save(conn);
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to insert bank transaction: " + e.getMessage());
                 e.printStackTrace();
@@ -123,9 +156,35 @@ public class BankTransaction extends Model {
         }
     }
     
+    // Insertar usando una conexión ya abierta (dentro de una transacción)
+    public void save(Connection conn) throws SQLException {
+        if (id != null) {
+            return;
+        }
+        
+        String sql = """
+            INSERT INTO bank_transactions (bank_id, type, amount, user_uuid, timestamp) 
+            VALUES (?, ?, ?, ?, ?)
+        """;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, bankId);
+            pstmt.setString(2, type);
+            pstmt.setLong(3, amount);
+            pstmt.setString(4, userUuid);
+            pstmt.setLong(5, timestamp);
+            pstmt.executeUpdate();
+            
+            ResultSet rs = pstmt.getGeneratedKeys();
+            if (rs.next()) {
+                this.id = rs.getInt(1);
+            }
+        }
+    }
+    
     public void delete() {
-        if (connection == null) {
-            logError("Cannot delete bank transaction: connection is null");
+        if (pool == null) {
+            logError("Cannot delete bank transaction: database is not initialized");
             return;
         }
         
@@ -136,14 +195,19 @@ public class BankTransaction extends Model {
         
         String sql = "DELETE FROM bank_transactions WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logInfo("Bank transaction deleted successfully: " + id);
-            } else {
-                logError("No bank transaction found with id: " + id);
-            }
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    int rowsAffected = pstmt.executeUpdate();
+                    if (rowsAffected > 0) {
+                        logInfo("Bank transaction deleted successfully: " + id);
+                    } else {
+                        logError("No bank transaction found with id: " + id);
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete bank transaction: " + e.getMessage());
             e.printStackTrace();
@@ -154,6 +218,7 @@ public class BankTransaction extends Model {
     public Integer getId() { return id; }
     public int getBankId() { return bankId; }
     public String getType() { return type; }
-    public double getAmount() { return amount; }
+    public long getAmount() { return amount; }
     public long getTimestamp() { return timestamp; }
+    public HistoryCursor getCursor() { return new HistoryCursor(timestamp, id); }
 }
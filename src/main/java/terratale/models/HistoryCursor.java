@@ -0,0 +1,28 @@
+package terratale.models;
+
+/**
+ * Posición en un historial ordenado por (timestamp DESC, id DESC). La siguiente página empieza justo
+ * después de la última fila leída, así que no hace falta OFFSET y no se saltan ni repiten filas aunque se
+ * inserten movimientos nuevos mientras se recorre.
+ */
+public final class HistoryCursor {
+
+    // Antes de la primera fila: la primera página empieza por el movimiento más reciente
+    public static final HistoryCursor FIRST = new HistoryCursor(Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final long timestamp;
+    private final int id;
+
+    public HistoryCursor(long timestamp, int id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public long getTimestamp() { return timestamp; }
+    public int getId() { return id; }
+
+    @Override
+    public String toString() {
+        return timestamp + ":" + id;
+    }
+}
@@ -4,33 +4,51 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-
 import terratale.Helpers.InvoiceStatus;
+import terratale.cache.SessionManager;
 
 public class Invoice extends Model {
+    
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND = registerQuery("Invoice.find",
+        "SELECT * FROM invoices WHERE id = ?");
+    private static final String SQL_FIND_BY_RECEPTOR = registerQuery("Invoice.findByReceptorAccount",
+        "SELECT * FROM invoices WHERE receptor_account_number = ?");
+    private static final String SQL_FIND_BY_PAYER = registerQuery("Invoice.findByPayerAccount",
+        "SELECT * FROM invoices WHERE payer_account_number = ?");
+    private static final String SQL_FIND_BY_STATUS = registerQuery("Invoice.findByStatus",
+        "SELECT * FROM invoices WHERE status = ?");
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Quién genera las facturas de los pagos programados
+    public static final String GOVERNMENT_SYSTEM = "gouvernement_system";
 
     private Integer id;
     private String receptorAccountNumber;
     private String payerAccountNumber;
-    private double amount;
+    private long amount;
     private Date dueDate;
     private String description;
     private String status;
-    private String events;
+    private boolean generatedBySystem;
     private Timestamp createdAt;
+    private final List<InvoiceEvent> pendingEvents = new ArrayList<>(); // se insertan en el próximo save
 
     // Constructor para nueva factura
     public Invoice(String receptorAccountNumber,
                    String payerAccountNumber,
-                   double amount,
+                   long amount,
                    Date dueDate,
                    String description) {
+        this(receptorAccountNumber, payerAccountNumber, amount, dueDate, description, null);
+    }
+
+    // Nueva factura con el evento "generated_by" ya incluido
+    public Invoice(String receptorAccountNumber,
+                   String payerAccountNumber,
+                   long amount,
+                   Date dueDate,
+                   String description,
+                   String generatedBy) {
 
         this.receptorAccountNumber = receptorAccountNumber;
         this.payerAccountNumber = payerAccountNumber;
@@ -39,24 +57,16 @@ public class Invoice extends Model {
         this.description = description;
         this.status = InvoiceStatus.PENDING;
 
-        ObjectNode root = MAPPER.createObjectNode();
-        ArrayNode eventsArray = MAPPER.createArrayNode();
-
-        ObjectNode created = MAPPER.createObjectNode();
-        created.put("type", "created");
-        created.put("timestamp", System.currentTimeMillis());
-        created.put("by", "system");
-
-        eventsArray.add(created);
-        root.set("events", eventsArray);
-
-        this.events = root.toString();
+        addEvent("created", "system");
+        if (generatedBy != null) {
+            addEvent("generated_by", generatedBy);
+        }
     }
     
     // Constructor privado para cargar desde base de datos
     private Invoice(Integer id, String receptorAccountNumber, String payerAccountNumber, 
-                    double amount, Date dueDate, String description, String status, 
-                    String events, Timestamp createdAt) {
+                    long amount, Date dueDate, String description, String status, 
+                    boolean generatedBySystem, Timestamp createdAt) {
         this.id = id;
         this.receptorAccountNumber = receptorAccountNumber;
         this.payerAccountNumber = payerAccountNumber;
@@ -64,20 +74,20 @@ public class Invoice extends Model {
         this.dueDate = dueDate;
         this.description = description;
         this.status = status;
-        this.events = events;
+        this.generatedBySystem = generatedBySystem;
         this.createdAt = createdAt;
     }
     
     // Buscar factura por ID
     public static Invoice find(int id) {
-        if (connection == null) {
-            logError("Cannot find invoice: connection is null");
+        if (pool == null) {
+            logError("Cannot find invoice: database is not initialized");
             return null;
         }
         
-        String sql = "SELECT * FROM invoices WHERE id = ?";
+        String sql = SQL_FIND;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
             
@@ -86,11 +96,11 @@ public class Invoice extends Model {
                     rs.getInt("id"),
                     rs.getString("receptor_account_number"),
                     rs.getString("payer_account_number"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getDate("due_date"),
                     rs.getString("description"),
                     rs.getString("status"),
-                    rs.getString("events"),
+                    rs.getBoolean("generated_by_system"),
                     rs.getTimestamp("created_at")
                 );
             }
@@ -105,14 +115,14 @@ public class Invoice extends Model {
     // Buscar facturas por cuenta receptora
     public static List<Invoice> findByReceptorAccount(String accountNumber) {
         List<Invoice> invoices = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find invoices: connection is null");
+        if (pool == null) {
+            logError("Cannot find invoices: database is not initialized");
             return invoices;
         }
         
-        String sql = "SELECT * FROM invoices WHERE receptor_account_number = ?";
+        String sql = SQL_FIND_BY_RECEPTOR;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, accountNumber);
             ResultSet rs = pstmt.executeQuery();
             
@@ -121,11 +131,11 @@ public class Invoice extends Model {
                     rs.getInt("id"),
                     rs.getString("receptor_account_number"),
                     rs.getString("payer_account_number"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getDate("due_date"),
                     rs.getString("description"),
                     rs.getString("status"),
-                    rs.getString("events"),
+                    rs.getBoolean("generated_by_system"),
                     rs.getTimestamp("created_at")
                 ));
             }
@@ -140,14 +150,14 @@ public class Invoice extends Model {
     // Buscar facturas por cuenta pagadora
     public static List<Invoice> findByPayerAccount(String accountNumber) {
         List<Invoice> invoices = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find invoices: connection is null");
+        if (pool == null) {
+            logError("Cannot find invoices: database is not initialized");
             return invoices;
         }
         
-        String sql = "SELECT * FROM invoices WHERE payer_account_number = ?";
+        String sql = SQL_FIND_BY_PAYER;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, accountNumber);
             ResultSet rs = pstmt.executeQuery();
             
@@ -156,11 +166,11 @@ public class Invoice extends Model {
                     rs.getInt("id"),
                     rs.getString("receptor_account_number"),
                     rs.getString("payer_account_number"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getDate("due_date"),
                     rs.getString("description"),
                     rs.getString("status"),
-                    rs.getString("events"),
+                    rs.getBoolean("generated_by_system"),
                     rs.getTimestamp("created_at")
                 ));
             }
@@ -175,14 +185,14 @@ public class Invoice extends Model {
     // Buscar facturas por estado
     public static List<Invoice> findByStatus(String status) {
         List<Invoice> invoices = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find invoices: connection is null");
+        if (pool == null) {
+            logError("Cannot find invoices: database is not initialized");
             return invoices;
         }
         
-        String sql = "SELECT * FROM invoices WHERE status = ?";
+        String sql = SQL_FIND_BY_STATUS;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, status);
             ResultSet rs = pstmt.executeQuery();
             
@@ -191,11 +201,11 @@ public class Invoice extends Model {
                     rs.getInt("id"),
                     rs.getString("receptor_account_number"),
                     rs.getString("payer_account_number"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getDate("due_date"),
                     rs.getString("description"),
                     rs.getString("status"),
-                    rs.getString("events"),
+                    rs.getBoolean("generated_by_system"),
                     rs.getTimestamp("created_at")
                 ));
             }
@@ -207,104 +217,147 @@ public class Invoice extends Model {
         return invoices;
     }
     
+    // Facturas pendientes en las que paga o cobra alguna de las cuentas (para SessionManager)
+    public static List<Invoice> findPendingByAccounts(List<String> accountNumbers) {
+        List<Invoice> invoices = new ArrayList<>();
+        if (pool == null) {
+            logError("Cannot find invoices: database is not initialized");
+            return invoices;
+        }
+        if (accountNumbers.isEmpty()) {
+            return invoices;
+        }
+        
+        String placeholders = String.join(", ", java.util.Collections.nCopies(accountNumbers.size(), "?"));
+        String sql = "SELECT * FROM invoices WHERE status = ? AND (payer_account_number IN (" + placeholders
+            + ") OR receptor_account_number IN (" + placeholders + "))";
+        
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            pstmt.setString(index++, InvoiceStatus.PENDING);
+            for (int pass = 0; pass < 2; pass++) {
+                for (String accountNumber : accountNumbers) {
+                    pstmt.setString(index++, accountNumber);
+                }
+            }
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                invoices.add(new Invoice(
+                    rs.getInt("id"),
+                    rs.getString("receptor_account_number"),
+                    rs.getString("payer_account_number"),
+                    rs.getLong("amount"),
+                    rs.getDate("due_date"),
+                    rs.getString("description"),
+                    rs.getString("status"),
+                    rs.getBoolean("generated_by_system"),
+                    rs.getTimestamp("created_at")
+                ));
+            }
+        } catch (SQLException e) {
+            logError("Failed to find pending invoices by accounts: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return invoices;
+    }
+    
     // Guardar factura
     public void save() {
-        if (connection == null) {
-            logError("Cannot save invoice: connection is null");
+        if (pool == null) {
+            logError("Cannot save invoice: database is not initialized");
             return;
         }
         
         if (id == null) {
-            // Insertar nueva factura
-            String sql = """
-                INSERT INTO invoices (receptor_account_number, payer_account_number, amount, 
-                                      due_date, description, status, events) 
-                VALUES (?, ?, ?, ?, ?, ?, ?)
-            """;
-            
-            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setString(1, receptorAccountNumber);
-                pstmt.setString(2, payerAccountNumber);
-                pstmt.setDouble(3, amount);
-                pstmt.setDate(4, dueDate);
-                pstmt.setString(5, description);
-                pstmt.setString(6, status);
-                pstmt.setString(7, events);
-                
-                pstmt.executeUpdate();
-                
-                ResultSet rs = pstmt.getGeneratedKeys();
-                if (rs.next()) {
-                    this.id = rs.getInt(1);
-                }
+            // Insertar nueva factura con sus eventos
+            try {
+                inTransaction(conn -> {
+                    save(conn);
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to insert invoice: " + e.getMessage());
                 e.printStackTrace();
             }
         } else {
-            // Actualizar factura existente
+            // Actualizar factura existente y añadir los eventos nuevos
             String sql = """
                 UPDATE invoices 
                 SET receptor_account_number = ?, payer_account_number = ?, amount = ?,
-                    due_date = ?, description = ?, status = ?, events = ?
+                    due_date = ?, description = ?, status = ?, generated_by_system = ?
                 WHERE id = ?
             """;
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, receptorAccountNumber);
-                pstmt.setString(2, payerAccountNumber);
-                pstmt.setDouble(3, amount);
-                pstmt.setDate(4, dueDate);
-                pstmt.setString(5, description);
-                pstmt.setString(6, status);
-                pstmt.setString(7, events);
-                pstmt.setInt(8, id);
-                pstmt.executeUpdate();
+            try {
+                inTransaction(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setString(1, receptorAccountNumber);
+                        pstmt.setString(2, payerAccountNumber);
+                        pstmt.setLong(3, amount);
+                        pstmt.setDate(4, dueDate);
+                        pstmt.setString(5, description);
+                        pstmt.setString(6, status);
+                        pstmt.setBoolean(7, generatedBySystem);
+                        pstmt.setInt(8, id);
+                        pstmt.executeUpdate();
+                    }
+                    flushEvents(conn);
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to update invoice: " + e.getMessage());
                 e.printStackTrace();
             }
         }
+        SessionManager.invalidateInvoices();
     }
     
     // Eliminar factura
     public void delete() {
-        if (connection == null || id == null) {
-            logError("Cannot delete invoice: connection is null or id is null");
+        if (pool == null || id == null) {
+            logError("Cannot delete invoice: database is not initialized or id is null");
             return;
         }
         
-        String sql = "DELETE FROM invoices WHERE id = ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
+        // SQLite no aplica ON DELETE CASCADE sin PRAGMA foreign_keys, así que los eventos se borran a mano
+        try {
+            inTransaction(conn -> {
+                for (String sql : new String[] {"DELETE FROM invoice_events WHERE invoice_id = ?", "DELETE FROM invoices WHERE id = ?"}) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setInt(1, id);
+                        pstmt.executeUpdate();
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete invoice: " + e.getMessage());
             e.printStackTrace();
         }
+        SessionManager.invalidateInvoices();
     }
     
-    // Añadir un evento a la factura
+    // Añadir un evento a la factura (se guarda en invoice_events con el próximo save)
     public void addEvent(String eventType, String by) {
-        try {
-            JsonNode root = MAPPER.readTree(this.events);
-            ArrayNode eventsArray = (ArrayNode) root.get("events");
-            
-            ObjectNode newEvent = MAPPER.createObjectNode();
-            newEvent.put("type", eventType);
-            newEvent.put("timestamp", System.currentTimeMillis());
-            newEvent.put("by", by);
-            
-            eventsArray.add(newEvent);
-            
-            this.events = root.toString();
-        } catch (Exception e) {
-            logError("Failed to add event to invoice: " + e.getMessage());
-            e.printStackTrace();
+        pendingEvents.add(new InvoiceEvent(id, eventType, by));
+        if ("generated_by".equals(eventType) && GOVERNMENT_SYSTEM.equals(by)) {
+            this.generatedBySystem = true;
         }
     }
     
+    private void flushEvents(Connection conn) throws SQLException {
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+        for (InvoiceEvent event : pendingEvents) {
+            event.setInvoiceId(id);
+        }
+        InvoiceEvent.insertBatch(conn, pendingEvents);
+        pendingEvents.clear();
+    }
+    
     // Marcar como pagada
     public void markAsPaid(String paidBy) {
         this.status = InvoiceStatus.PAID;
@@ -312,6 +365,115 @@ public class Invoice extends Model {
         save();
     }
     
+    // Insertar usando una conexión ya abierta (dentro de una transacción). Quien la abre llama a
+    // SessionManager.invalidateInvoices() tras el commit, igual que en insertBatch y markAsPaid(conn).
+    public void save(Connection conn) throws SQLException {
+        if (id != null) {
+            return;
+        }
+        
+        String sql = """
+            INSERT INTO invoices (receptor_account_number, payer_account_number, amount, 
+                                  due_date, description, status, generated_by_system) 
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(pstmt);
+            pstmt.executeUpdate();
+            
+            ResultSet rs = pstmt.getGeneratedKeys();
+            if (rs.next()) {
+                this.id = rs.getInt(1);
+            }
+        }
+        flushEvents(conn);
+    }
+    
+    // Insertar varias facturas nuevas en una transacción ya abierta y asignarles su id.
+    // MySQL devuelve todas las claves de un executeBatch; el driver de SQLite solo la última, así que
+    // allí se reutiliza la misma sentencia fila a fila (sin red de por medio, dentro de la misma transacción).
+    public static void insertBatch(Connection conn, List<Invoice> invoices) throws SQLException {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        
+        String sql = """
+            INSERT INTO invoices (receptor_account_number, payer_account_number, amount, 
+                                  due_date, description, status, generated_by_system) 
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            if (isMySQL) {
+                for (Invoice invoice : invoices) {
+                    invoice.bindInsert(pstmt);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                
+                ResultSet rs = pstmt.getGeneratedKeys();
+                for (Invoice invoice : invoices) {
+                    if (!rs.next()) {
+                        throw new SQLException("Missing generated key for batched invoice insert");
+                    }
+                    invoice.id = rs.getInt(1);
+                }
+            } else {
+                for (Invoice invoice : invoices) {
+                    invoice.bindInsert(pstmt);
+                    pstmt.executeUpdate();
+                    
+                    ResultSet rs = pstmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        invoice.id = rs.getInt(1);
+                    }
+                }
+            }
+        }
+        
+        List<InvoiceEvent> events = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            for (InvoiceEvent event : invoice.pendingEvents) {
+                event.setInvoiceId(invoice.id);
+                events.add(event);
+            }
+        }
+        InvoiceEvent.insertBatch(conn, events);
+        for (Invoice invoice : invoices) {
+            invoice.pendingEvents.clear();
+        }
+    }
+    
+    private void bindInsert(PreparedStatement pstmt) throws SQLException {
+        pstmt.setString(1, receptorAccountNumber);
+        pstmt.setString(2, payerAccountNumber);
+        pstmt.setLong(3, amount);
+        pstmt.setDate(4, dueDate);
+        pstmt.setString(5, description);
+        pstmt.setString(6, status);
+        pstmt.setBoolean(7, generatedBySystem);
+    }
+    
+    // Marcar como pagada dentro de una transacción; false si otra operación ya la procesó
+    public boolean markAsPaid(Connection conn, String paidBy) throws SQLException {
+        String sql = "UPDATE invoices SET status = ? WHERE id = ? AND status = ?";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, InvoiceStatus.PAID);
+            pstmt.setInt(2, id);
+            pstmt.setString(3, InvoiceStatus.PENDING);
+            if (pstmt.executeUpdate() != 1) {
+                return false;
+            }
+        }
+        
+        this.status = InvoiceStatus.PAID;
+        addEvent("paid", paidBy);
+        flushEvents(conn);
+        return true;
+    }
+    
     // Marcar como cancelada
     public void markAsCancelled(String cancelledBy) {
         this.status = InvoiceStatus.CANCELLED;
@@ -327,43 +489,26 @@ public class Invoice extends Model {
         return new Date(System.currentTimeMillis()).after(dueDate);
     }
 
-    public JsonNode getJsonEvents() {
-        try {
-            return MAPPER.readTree(this.events);
-        } catch (Exception e) {
-            logError("Failed to parse events JSON: " + e.getMessage());
-            e.printStackTrace();
-            return MAPPER.createObjectNode();
-        }
-    }
-
+    // Columna desnormalizada de invoices; no hace falta leer los eventos
     public boolean hasGeneratedByGovernmentSystem() {
-        JsonNode root = getJsonEvents();
-
-        JsonNode eventsNode = root.get("events");
-        if (eventsNode == null || !eventsNode.isArray()) {
-            return false;
-        }
-
-        for (JsonNode event : eventsNode) {
-            if ("generated_by".equals(event.path("type").asText()) &&
-                "gouvernement_system".equals(event.path("by").asText())) {
-                return true;
-            }
-        }
-
-        return false;
+        return generatedBySystem;
+    }
+    
+    // Historial completo: lo guardado en invoice_events más lo pendiente de guardar
+    public List<InvoiceEvent> getEvents() {
+        List<InvoiceEvent> events = id != null ? InvoiceEvent.findByInvoice(id) : new ArrayList<>();
+        events.addAll(pendingEvents);
+        return events;
     }
     
     // Getters
     public Integer getId() { return id; }
     public String getReceptorAccountNumber() { return receptorAccountNumber; }
     public String getPayerAccountNumber() { return payerAccountNumber; }
-    public double getAmount() { return amount; }
+    public long getAmount() { return amount; }
     public Date getDueDate() { return dueDate; }
     public String getDescription() { return description; }
     public String getStatus() { return status; }
-    public String getEvents() { return events; }
     public Timestamp getCreatedAt() { return createdAt; }
     
     // Setters
@@ -373,7 +518,7 @@ public class Invoice extends Model {
     public void setPayerAccountNumber(String payerAccountNumber) { 
         this.payerAccountNumber = payerAccountNumber; 
     }
-    public void setAmount(double amount) { 
+    public void setAmount(long amount) { 
         this.amount = amount; 
     }
     public void setDueDate(Date dueDate) { 
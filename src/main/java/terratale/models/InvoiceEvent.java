@@ -0,0 +1,93 @@
+package terratale.models;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Evento del historial de una factura (creada, generada, pagada, cancelada). Solo se insertan, nunca se modifican.
+public class InvoiceEvent extends Model {
+    
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND_BY_INVOICE = registerQuery("InvoiceEvent.findByInvoice",
+        "SELECT * FROM invoice_events WHERE invoice_id = ? ORDER BY id");
+    
+    private Integer id;
+    private Integer invoiceId;
+    private String type;
+    private String actor;
+    private long timestamp;
+    
+    public InvoiceEvent(Integer invoiceId, String type, String actor) {
+        this(invoiceId, type, actor, System.currentTimeMillis());
+    }
+    
+    public InvoiceEvent(Integer invoiceId, String type, String actor, long timestamp) {
+        this.invoiceId = invoiceId;
+        this.type = type;
+        this.actor = actor;
+        this.timestamp = timestamp;
+    }
+    
+    private InvoiceEvent(Integer id, Integer invoiceId, String type, String actor, long timestamp) {
+        this(invoiceId, type, actor, timestamp);
+        this.id = id;
+    }
+    
+    public static List<InvoiceEvent> findByInvoice(int invoiceId) {
+        List<InvoiceEvent> events = new ArrayList<>();
+        if (pool == null) {
+            logError("Cannot find invoice events: database is not initialized");
+            return events;
+        }
+        
+        String sql = SQL_FIND_BY_INVOICE;
+        
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, invoiceId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                events.add(new InvoiceEvent(
+                    rs.getInt("id"),
+                    rs.getInt("invoice_id"),
+                    rs.getString("type"),
+                    rs.getString("actor"),
+                    rs.getLong("timestamp")
+                ));
+            }
+        } catch (SQLException e) {
+            logError("Failed to find invoice events: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return events;
+    }
+    
+    // Insertar varios eventos en una conexión ya abierta (dentro de una transacción)
+    public static void insertBatch(Connection conn, List<InvoiceEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        
+        String sql = "INSERT INTO invoice_events (invoice_id, type, actor, timestamp) VALUES (?, ?, ?, ?)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (InvoiceEvent event : events) {
+                pstmt.setInt(1, event.invoiceId);
+                pstmt.setString(2, event.type);
+                pstmt.setString(3, event.actor);
+                pstmt.setLong(4, event.timestamp);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    public Integer getId() { return id; }
+    public Integer getInvoiceId() { return invoiceId; }
+    public String getType() { return type; }
+    public String getActor() { return actor; }
+    public long getTimestamp() { return timestamp; }
+    
+    void setInvoiceId(int invoiceId) { this.invoiceId = invoiceId; }
+}
@@ -1,37 +1,63 @@
 package terratale.models;
 
+import terratale.Helpers.PluginConfig;
+import terratale.database.ConnectionPool;
+import terratale.database.MigrationRunner;
+import terratale.database.SqliteTuning;
+import terratale.database.SqliteWriter;
+import terratale.database.TimedConnection;
 import terratale.plugin.TerratalePlugin;
 import java.io.File;
-import java.io.InputStream;
+import java.lang.reflect.Method;
 import java.sql.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 public abstract class Model {
     
-    protected static Connection connection;
+    protected static ConnectionPool pool;
     protected static Object logger;
     public static boolean isMySQL = false;
+    private static final Map<String, Supplier<String>> QUERIES = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static Supplier<PluginConfig> configSource = () -> TerratalePlugin.get().config();
+    // Métodos at()/log() del logger por clase, para no buscarlos por reflexión en cada mensaje
+    private static final Map<Class<?>, Method> LOGGER_AT = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Method> LOGGER_LOG = new ConcurrentHashMap<>();
     
     public static void initialize(File dataFolder, Object loggerInstance) {
+        initialize(dataFolder, loggerInstance, () -> TerratalePlugin.get().config());
+    }
+    
+    // Sin el plugin (benchmarks, pruebas de carga): la configuración se pasa directamente
+    public static void initialize(File dataFolder, Object loggerInstance, Supplier<PluginConfig> source) {
         logger = loggerInstance;
+        configSource = source;
         
         try {
             // Verificar si la configuración de MySQL está completa
             boolean useMySQL = isMySQLConfigured();
+            PluginConfig config = config();
+            ConnectionPool.ConnectionFactory factory;
+            int maxSize;
             
             if (useMySQL) {
                 // Usar MySQL
                 Class.forName("com.mysql.cj.jdbc.Driver");
                 
-                String url = "jdbc:mysql://" + TerratalePlugin.get().config().sqlConnectionIp + 
-                           "/" + TerratalePlugin.get().config().sqlDatabaseName + 
+                String url = "jdbc:mysql://" + config.sqlConnectionIp + 
+                           "/" + config.sqlDatabaseName + 
                            "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
                 
-                logInfo("Connecting to MySQL database: " + TerratalePlugin.get().config().sqlConnectionIp + 
-                       "/" + TerratalePlugin.get().config().sqlDatabaseName);
-                connection = DriverManager.getConnection(url, 
-                    TerratalePlugin.get().config().sqlUsername, 
-                    TerratalePlugin.get().config().sqlPassword);
+                logInfo("Connecting to MySQL database: " + config.sqlConnectionIp + 
+                       "/" + config.sqlDatabaseName);
+                String username = config.sqlUsername;
+                String password = config.sqlPassword;
+                factory = () -> DriverManager.getConnection(url, username, password);
+                maxSize = config.sqlPoolMaxSize;
             } else {
                 // Usar SQLite como fallback
                 Class.forName("org.sqlite.JDBC");
@@ -45,15 +71,43 @@ public abstract class Model {
                 String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
                 
                 logInfo("Connecting to SQLite database: " + dbFile.getAbsolutePath());
-                connection = DriverManager.getConnection(url);
+                factory = () -> {
+                    Connection connection = DriverManager.getConnection(url);
+                    SqliteTuning.apply(connection, config);
+                    return connection;
+                };
+                maxSize = config.sqlitePoolMaxSize;
             }
             
-            if (connection != null) {
-                isMySQL = useMySQL;
-                logInfo("Database connection established!");
-                createTables();
-            } else {
-                logError("Failed to establish database connection!");
+            // Cada sentencia se mide en las métricas (query.*) y pasa por el registro de lentas, tanto en el pool
+            // como en el escritor SQLite
+            if (config.metricsEnabled || config.slowQueryLogEnabled) {
+                ConnectionPool.ConnectionFactory physical = factory;
+                factory = () -> TimedConnection.wrap(physical.create());
+            }
+            
+            pool = new ConnectionPool(
+                useMySQL ? "mysql" : "sqlite",
+                factory,
+                maxSize,
+                config.poolMinIdle,
+                config.poolBorrowTimeoutMs,
+                config.poolIdleTimeoutMs,
+                config.poolValidationIntervalMs,
+                config.poolLeakDetectionMs,
+                config.poolLeakStackTraces,
+                config.statementCacheSize
+            );
+            pool.warmUp();
+            
+            isMySQL = useMySQL;
+            logInfo("Database connection pool established! (max " + maxSize + " connections)");
+            createTables();
+
+            // SQLite: las transacciones pasan por un único hilo escritor que agrupa los commits
+            if (!useMySQL && config.sqliteWriterEnabled) {
+                SqliteWriter.start(factory, config.sqliteWriterMaxBatch);
+                logInfo("SQLite writer thread started (WAL " + (config.sqliteWalEnabled ? "on" : "off") + ")");
             }
         } catch (ClassNotFoundException e) {
             logError("Database JDBC driver not found: " + e.getMessage());
@@ -61,15 +115,19 @@ public abstract class Model {
         } catch (SQLException e) {
             logError("Failed to initialize database: " + e.getMessage());
             e.printStackTrace();
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
         }
     }
     
     private static boolean isMySQLConfigured() {
         try {
-            String ip = TerratalePlugin.get().config().sqlConnectionIp;
-            String dbName = TerratalePlugin.get().config().sqlDatabaseName;
-            String username = TerratalePlugin.get().config().sqlUsername;
-            String password = TerratalePlugin.get().config().sqlPassword;
+            String ip = config().sqlConnectionIp;
+            String dbName = config().sqlDatabaseName;
+            String username = config().sqlUsername;
+            String password = config().sqlPassword;
             
             // Verificar que todos los campos estén configurados (no null y no vacíos)
             return ip != null && !ip.trim().isEmpty() &&
@@ -83,136 +141,166 @@ public abstract class Model {
     }
     
     protected static void createTables() {
-        if (connection == null) {
-            logError("Cannot create tables: connection is null");
+        if (pool == null) {
+            logError("Cannot create tables: database is not initialized");
             return;
         }
         
-        // Ejecutar migraciones desde archivos
-        String dbType = isMySQL ? "mysql" : "sqlite";
-        String[] migrations = {
-            "users",
-            "banks", 
-            "bank_accounts",
-            "add_key_to_bank_accounts",
-            "bank_accounts_owners",
-            "transactions",
-            "bank_transactions",
-            "account_invitations",
-            "bank_invitations",
-            "invoices",
-            "schedule_payments",
-            "schedule_logs"
-        };
-        
-        for (String migration : migrations) {
-            executeMigration(dbType + "_" + migration + ".sql");
-        }
+        // Solo se ejecutan las migraciones que no figuran en schema_version
+        MigrationRunner.run(isMySQL);
     }
     
-    private static void executeMigration(String fileName) {
-        if (connection == null) {
-            logError("No hay conexión; no se puede ejecutar migración: " + fileName);
-            return;
-        }
-
-        String path = "/migrations/" + fileName;
-
-        try (InputStream is = Model.class.getResourceAsStream(path)) {
-            if (is == null) {
-                logError("Archivo de migración no encontrado: " + path);
-                return; // seguir con la siguiente
-            }
-
-            String content = new String(is.readAllBytes());
-
-            // Quitar comentarios de línea y líneas vacías
-            String[] lines = content.split("\n");
-            StringBuilder sqlBuilder = new StringBuilder();
-            for (String line : lines) {
-                line = line.trim();
-                if (!line.isEmpty() && !line.startsWith("--")) {
-                    sqlBuilder.append(line).append("\n");
-                }
-            }
-
-            String sql = sqlBuilder.toString().trim();
-            if (sql.isEmpty()) {
-                logInfo("Migración vacía (skip): " + fileName);
-                return;
-            }
-
-            boolean originalAutoCommit = connection.getAutoCommit();
-            connection.setAutoCommit(false);
-
-            try (Statement stmt = connection.createStatement()) {
-                logInfo("Ejecutando migración: " + fileName);
-                stmt.execute(sql);
-
-                connection.commit();
-                logInfo("Migración OK: " + fileName);
-
-            } catch (SQLException e) {
-                // rollback SOLO de esta migración
-                try { connection.rollback(); } catch (SQLException ignored) {}
-
-                // IMPORTANTE: no relanzar => no corta el resto
-                logError("Migración FALLÓ (se continúa): " + fileName + " -> " + e.getMessage());
-
-            } finally {
-                try { connection.setAutoCommit(originalAutoCommit); } catch (SQLException ignored) {}
-            }
-
-        } catch (Exception e) {
-            // También sin relanzar
-            logError("Error leyendo/ejecutando migración (se continúa): " + fileName + " -> " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    
     public static void close() {
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                logInfo("Database connection closed!");
+            SqliteWriter.stop();
+            if (pool != null) {
+                pool.close();
+                pool = null;
+                logInfo("Database connection pool closed!");
             }
-        } catch (SQLException e) {
+        } catch (Exception e) {
             logError("Failed to close database: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
-    protected static void logInfo(String message) {
-        if (logger == null) {
+    // Configuración actual (tras /terratale reload, la nueva)
+    public static PluginConfig config() {
+        return configSource.get();
+    }
+    
+    public static void logInfo(String message) {
+        if (!log(Level.INFO, message)) {
             System.out.println("[INFO] " + message);
-            return;
+        }
+    }
+    
+    public static void logError(String message) {
+        if (!log(Level.SEVERE, message)) {
+            System.err.println("[ERROR] " + message);
+        }
+    }
+    
+    // logger.at(level).log(message); false si no hay logger o no se pudo usar
+    private static boolean log(Level level, String message) {
+        Object current = logger;
+        if (current == null) {
+            return false;
         }
         
         try {
-            Object at = logger.getClass().getMethod("at", Level.class).invoke(logger, Level.INFO);
-            at.getClass().getMethod("log", String.class).invoke(at, message);
+            Object at = loggerMethod(LOGGER_AT, current.getClass(), "at", Level.class).invoke(current, level);
+            loggerMethod(LOGGER_LOG, at.getClass(), "log", String.class).invoke(at, message);
+            return true;
         } catch (Exception e) {
-            System.out.println("[INFO] " + message);
+            return false;
         }
     }
     
-    protected static void logError(String message) {
-        if (logger == null) {
-            System.err.println("[ERROR] " + message);
-            return;
+    private static Method loggerMethod(Map<Class<?>, Method> cache, Class<?> type, String name, Class<?> parameter)
+            throws NoSuchMethodException {
+        Method method = cache.get(type);
+        if (method == null) {
+            method = type.getMethod(name, parameter);
+            cache.put(type, method);
+        }
+        return method;
+    }
+    
+    // Pide una conexión al pool; close() la devuelve, así que usar siempre con try-with-resources
+    public static Connection getConnection() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Database is not initialized");
+        }
+        return pool.borrow();
+    }
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    // Ejecuta el trabajo en una única transacción: commit si termina, rollback si lanza cualquier excepción
+    public static <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        SqliteWriter writer = SqliteWriter.get();
+        if (writer != null) {
+            return writer.execute(work);
         }
         
-        try {
-            Object at = logger.getClass().getMethod("at", Level.class).invoke(logger, Level.SEVERE);
-            at.getClass().getMethod("log", String.class).invoke(at, message);
-        } catch (Exception e) {
-            System.err.println("[ERROR] " + message);
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                throw e;
+            } finally {
+                try { conn.setAutoCommit(true); } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    // Escritura suelta (save/delete de los modelos) en modo autocommit. Con el escritor SQLite activo va por él,
+    // como inTransaction: no compite con él por el fichero y, llamada desde el propio hilo escritor (dentro de
+    // otra transacción), se ejecuta ya en vez de esperar a un trabajo que nunca empezaría.
+    public static <T> T write(SqlWork<T> work) throws SQLException {
+        SqliteWriter writer = SqliteWriter.get();
+        if (writer != null) {
+            return writer.execute(work);
+        }
+        
+        try (Connection conn = getConnection()) {
+            return work.run(conn);
+        }
+    }
+
+    // Lecturas que tienen que ver un único estado de la base de datos (varios SUM, un escaneo y su marca): en
+    // MySQL con REPEATABLE READ, en SQLite una transacción de lectura. La instantánea la fija la primera lectura.
+    // Siempre hace rollback y no pasa por el escritor SQLite.
+    public static <T> T inReadTransaction(SqlWork<T> work) throws SQLException {
+        try (Connection conn = getConnection()) {
+            int isolation = conn.getTransactionIsolation();
+            if (isMySQL) {
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            }
+            conn.setAutoCommit(false);
+            try {
+                return work.run(conn);
+            } finally {
+                try { conn.rollback(); } catch (SQLException ignored) {}
+                try { conn.setAutoCommit(true); } catch (SQLException ignored) {}
+                if (isMySQL) {
+                    try { conn.setTransactionIsolation(isolation); } catch (SQLException ignored) {}
+                }
+            }
+        }
+    }
+
+    // Registra la consulta de un finder para /terratale explain y la devuelve tal cual
+    protected static String registerQuery(String name, String sql) {
+        QUERIES.put(name, () -> sql);
+        return sql;
+    }
+    
+    protected static void registerQuery(String name, Supplier<String> sql) {
+        QUERIES.put(name, sql);
+    }
+    
+    // Consultas registradas por nombre, en orden de registro
+    public static Map<String, String> getRegisteredQueries() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        synchronized (QUERIES) {
+            for (Map.Entry<String, Supplier<String>> entry : QUERIES.entrySet()) {
+                queries.put(entry.getKey(), entry.getValue().get());
+            }
         }
+        return queries;
     }
     
-    protected static Connection getConnection() {
-        return connection;
+    public static ConnectionPool getPool() {
+        return pool;
     }
 
     public static String getDatabaseTranslation (String key) {
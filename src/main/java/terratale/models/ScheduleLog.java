@@ -2,47 +2,65 @@ package terratale.models;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ScheduleLog extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND_BY_SCHEDULE = registerQuery("ScheduleLog.findBySchedulePayment",
+        "SELECT * FROM schedule_logs WHERE schedule_payment_id = ? ORDER BY executed_at DESC");
+    private static final String SQL_FIND_BY_INVOICE = registerQuery("ScheduleLog.findByInvoice",
+        "SELECT * FROM schedule_logs WHERE invoice_id = ? ORDER BY executed_at DESC");
+    
     private Integer id;
     private int schedulePaymentId;
     private Integer invoiceId;
     private String status;
     private String message;
     private Timestamp executedAt;
+    private String period; // "2026-03": mes al que corresponde la factura generada; null en logs de error
     
     // Constructor para nuevo log
     public ScheduleLog(int schedulePaymentId, Integer invoiceId, String status, String message) {
+        this(schedulePaymentId, invoiceId, status, message, null);
+    }
+    
+    public ScheduleLog(int schedulePaymentId, Integer invoiceId, String status, String message, String period) {
         this.schedulePaymentId = schedulePaymentId;
         this.invoiceId = invoiceId;
         this.status = status;
         this.message = message;
+        this.period = period;
         this.executedAt = new Timestamp(System.currentTimeMillis());
     }
     
     // Constructor privado para cargar desde base de datos
     private ScheduleLog(Integer id, int schedulePaymentId, Integer invoiceId, 
-                       String status, String message, Timestamp executedAt) {
+                       String status, String message, Timestamp executedAt, String period) {
         this.id = id;
         this.schedulePaymentId = schedulePaymentId;
         this.invoiceId = invoiceId;
         this.status = status;
         this.message = message;
         this.executedAt = executedAt;
+        this.period = period;
     }
     
     // Buscar log por ID
     public static ScheduleLog find(int id) {
-        if (connection == null) {
-            logError("Cannot find schedule log: connection is null");
+        if (pool == null) {
+            logError("Cannot find schedule log: database is not initialized");
             return null;
         }
         
         String sql = "SELECT * FROM schedule_logs WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
             
@@ -54,7 +72,8 @@ public class ScheduleLog extends Model {
                     invoiceId,
                     rs.getString("status"),
                     rs.getString("message"),
-                    rs.getTimestamp("executed_at")
+                    rs.getTimestamp("executed_at"),
+                    rs.getString("period")
                 );
             }
         } catch (SQLException e) {
@@ -68,14 +87,14 @@ public class ScheduleLog extends Model {
     // Buscar logs por pago programado
     public static List<ScheduleLog> findBySchedulePayment(int schedulePaymentId) {
         List<ScheduleLog> logs = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find schedule logs: connection is null");
+        if (pool == null) {
+            logError("Cannot find schedule logs: database is not initialized");
             return logs;
         }
         
-        String sql = "SELECT * FROM schedule_logs WHERE schedule_payment_id = ? ORDER BY executed_at DESC";
+        String sql = SQL_FIND_BY_SCHEDULE;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, schedulePaymentId);
             ResultSet rs = pstmt.executeQuery();
             
@@ -87,7 +106,8 @@ public class ScheduleLog extends Model {
                     invoiceId,
                     rs.getString("status"),
                     rs.getString("message"),
-                    rs.getTimestamp("executed_at")
+                    rs.getTimestamp("executed_at"),
+                    rs.getString("period")
                 ));
             }
         } catch (SQLException e) {
@@ -101,14 +121,14 @@ public class ScheduleLog extends Model {
     // Buscar logs por factura
     public static List<ScheduleLog> findByInvoice(int invoiceId) {
         List<ScheduleLog> logs = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find schedule logs: connection is null");
+        if (pool == null) {
+            logError("Cannot find schedule logs: database is not initialized");
             return logs;
         }
         
-        String sql = "SELECT * FROM schedule_logs WHERE invoice_id = ? ORDER BY executed_at DESC";
+        String sql = SQL_FIND_BY_INVOICE;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, invoiceId);
             ResultSet rs = pstmt.executeQuery();
             
@@ -120,7 +140,8 @@ public class ScheduleLog extends Model {
                     invId,
                     rs.getString("status"),
                     rs.getString("message"),
-                    rs.getTimestamp("executed_at")
+                    rs.getTimestamp("executed_at"),
+                    rs.getString("period")
                 ));
             }
         } catch (SQLException e) {
@@ -134,14 +155,14 @@ public class ScheduleLog extends Model {
     // Buscar logs por estado
     public static List<ScheduleLog> findByStatus(String status) {
         List<ScheduleLog> logs = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find schedule logs: connection is null");
+        if (pool == null) {
+            logError("Cannot find schedule logs: database is not initialized");
             return logs;
         }
         
         String sql = "SELECT * FROM schedule_logs WHERE status = ? ORDER BY executed_at DESC";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, status);
             ResultSet rs = pstmt.executeQuery();
             
@@ -153,7 +174,8 @@ public class ScheduleLog extends Model {
                     invoiceId,
                     rs.getString("status"),
                     rs.getString("message"),
-                    rs.getTimestamp("executed_at")
+                    rs.getTimestamp("executed_at"),
+                    rs.getString("period")
                 ));
             }
         } catch (SQLException e) {
@@ -167,14 +189,14 @@ public class ScheduleLog extends Model {
     // Obtener logs recientes (últimos N)
     public static List<ScheduleLog> getRecent(int limit) {
         List<ScheduleLog> logs = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot get schedule logs: connection is null");
+        if (pool == null) {
+            logError("Cannot get schedule logs: database is not initialized");
             return logs;
         }
         
         String sql = "SELECT * FROM schedule_logs ORDER BY executed_at DESC LIMIT ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, limit);
             ResultSet rs = pstmt.executeQuery();
             
@@ -186,7 +208,8 @@ public class ScheduleLog extends Model {
                     invoiceId,
                     rs.getString("status"),
                     rs.getString("message"),
-                    rs.getTimestamp("executed_at")
+                    rs.getTimestamp("executed_at"),
+                    rs.getString("period")
                 ));
             }
         } catch (SQLException e) {
@@ -200,14 +223,14 @@ public class ScheduleLog extends Model {
     // Obtener todos los logs
     public static List<ScheduleLog> all() {
         List<ScheduleLog> logs = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot get schedule logs: connection is null");
+        if (pool == null) {
+            logError("Cannot get schedule logs: database is not initialized");
             return logs;
         }
         
         String sql = "SELECT * FROM schedule_logs ORDER BY executed_at DESC";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -218,7 +241,8 @@ public class ScheduleLog extends Model {
                     invoiceId,
                     rs.getString("status"),
                     rs.getString("message"),
-                    rs.getTimestamp("executed_at")
+                    rs.getTimestamp("executed_at"),
+                    rs.getString("period")
                 ));
             }
         } catch (SQLException e) {
@@ -231,37 +255,18 @@ public class ScheduleLog extends Model {
     
     // Guardar log
     public void save() {
-        if (connection == null) {
-            logError("Cannot save schedule log: connection is null");
+        if (pool == null) {
+            logError("Cannot save schedule log: database is not initialized");
             return;
         }
         
         if (id == null) {
             // Insertar nuevo log
-            String sql = "INSERT INTO schedule_logs (schedule_payment_id, invoice_id, status, message, executed_at) " +
-                        "VALUES (?, ?, ?, ?, ?)";
-            
-            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setInt(1, schedulePaymentId);
-                if (invoiceId != null) {
-                    pstmt.setInt(2, invoiceId);
-                } else {
-                    pstmt.setNull(2, Types.INTEGER);
-                }
-                pstmt.setString(3, status);
-                pstmt.setString(4, message);
-                pstmt.setTimestamp(5, executedAt);
-                
-                int affectedRows = pstmt.executeUpdate();
-                
-                if (affectedRows > 0) {
-                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                        if (generatedKeys.next()) {
-                            this.id = generatedKeys.getInt(1);
-                            logInfo("Schedule log created with ID: " + id);
-                        }
-                    }
-                }
+            try {
+                write(conn -> {
+                    save(conn);
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to insert schedule log: " + e.getMessage());
                 e.printStackTrace();
@@ -271,19 +276,24 @@ public class ScheduleLog extends Model {
             String sql = "UPDATE schedule_logs SET schedule_payment_id = ?, invoice_id = ?, " +
                         "status = ?, message = ? WHERE id = ?";
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setInt(1, schedulePaymentId);
-                if (invoiceId != null) {
-                    pstmt.setInt(2, invoiceId);
-                } else {
-                    pstmt.setNull(2, Types.INTEGER);
-                }
-                pstmt.setString(3, status);
-                pstmt.setString(4, message);
-                pstmt.setInt(5, id);
+            try {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setInt(1, schedulePaymentId);
+                        if (invoiceId != null) {
+                            pstmt.setInt(2, invoiceId);
+                        } else {
+                            pstmt.setNull(2, Types.INTEGER);
+                        }
+                        pstmt.setString(3, status);
+                        pstmt.setString(4, message);
+                        pstmt.setInt(5, id);
                 
-                pstmt.executeUpdate();
-                logInfo("Schedule log updated: " + id);
+                        pstmt.executeUpdate();
+                        logInfo("Schedule log updated: " + id);
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to update schedule log: " + e.getMessage());
                 e.printStackTrace();
@@ -291,10 +301,169 @@ public class ScheduleLog extends Model {
         }
     }
     
+    // Insertar usando una conexión ya abierta. Con period, la clave única (schedule_payment_id, period)
+    // hace que un segundo intento para el mismo mes lance SQLException.
+    public void save(Connection conn) throws SQLException {
+        if (id != null) {
+            return;
+        }
+        
+        String sql = "INSERT INTO schedule_logs (schedule_payment_id, invoice_id, status, message, executed_at, period) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, schedulePaymentId);
+            if (invoiceId != null) {
+                pstmt.setInt(2, invoiceId);
+            } else {
+                pstmt.setNull(2, Types.INTEGER);
+            }
+            pstmt.setString(3, status);
+            pstmt.setString(4, message);
+            pstmt.setTimestamp(5, executedAt);
+            pstmt.setString(6, period);
+            
+            int affectedRows = pstmt.executeUpdate();
+            
+            if (affectedRows > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        this.id = generatedKeys.getInt(1);
+                    }
+                }
+            }
+        }
+    }
+    
+    // ¿Ya se generó la factura de ese mes? También cuenta los logs "success" anteriores a la columna period.
+    public static boolean existsForPeriod(Connection conn, int schedulePaymentId, String period, Timestamp periodStart)
+            throws SQLException {
+        String sql = "SELECT 1 FROM schedule_logs WHERE schedule_payment_id = ? AND " +
+                    "(period = ? OR (period IS NULL AND status = 'success' AND executed_at >= ?)) LIMIT 1";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, schedulePaymentId);
+            pstmt.setString(2, period);
+            pstmt.setTimestamp(3, periodStart);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next();
+        }
+    }
+    
+    // Insertar varios logs nuevos en una transacción ya abierta (sin recuperar sus ids)
+    public static void insertBatch(Connection conn, List<ScheduleLog> logs) throws SQLException {
+        if (logs.isEmpty()) {
+            return;
+        }
+        
+        String sql = "INSERT INTO schedule_logs (schedule_payment_id, invoice_id, status, message, executed_at, period) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (ScheduleLog log : logs) {
+                pstmt.setInt(1, log.schedulePaymentId);
+                if (log.invoiceId != null) {
+                    pstmt.setInt(2, log.invoiceId);
+                } else {
+                    pstmt.setNull(2, Types.INTEGER);
+                }
+                pstmt.setString(3, log.status);
+                pstmt.setString(4, log.message);
+                pstmt.setTimestamp(5, log.executedAt);
+                pstmt.setString(6, log.period);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    // Meses ya registrados (period) de varios pagos programados, en una sola consulta
+    public static Map<Integer, Set<String>> findPeriods(Connection conn, List<Integer> schedulePaymentIds)
+            throws SQLException {
+        Map<Integer, Set<String>> periods = new HashMap<>();
+        if (schedulePaymentIds.isEmpty()) {
+            return periods;
+        }
+        
+        String placeholders = String.join(", ", Collections.nCopies(schedulePaymentIds.size(), "?"));
+        String sql = "SELECT schedule_payment_id, period FROM schedule_logs " +
+                    "WHERE period IS NOT NULL AND schedule_payment_id IN (" + placeholders + ")";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < schedulePaymentIds.size(); i++) {
+                pstmt.setInt(i + 1, schedulePaymentIds.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                periods.computeIfAbsent(rs.getInt("schedule_payment_id"), k -> new HashSet<>())
+                    .add(rs.getString("period"));
+            }
+        }
+        
+        return periods;
+    }
+    
+    // Fecha del último log "success" sin period (anteriores a la columna) de varios pagos programados.
+    // Equivale a existsForPeriod: un mes cuenta como generado si hay uno posterior a su fecha de cobro.
+    public static Map<Integer, Timestamp> findLastLegacySuccess(Connection conn, List<Integer> schedulePaymentIds)
+            throws SQLException {
+        Map<Integer, Timestamp> executed = new HashMap<>();
+        if (schedulePaymentIds.isEmpty()) {
+            return executed;
+        }
+        
+        String placeholders = String.join(", ", Collections.nCopies(schedulePaymentIds.size(), "?"));
+        String sql = "SELECT schedule_payment_id, MAX(executed_at) AS last_executed FROM schedule_logs " +
+                    "WHERE period IS NULL AND status = 'success' AND schedule_payment_id IN (" + placeholders + ") " +
+                    "GROUP BY schedule_payment_id";
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < schedulePaymentIds.size(); i++) {
+                pstmt.setInt(i + 1, schedulePaymentIds.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                Timestamp lastExecuted = rs.getTimestamp("last_executed");
+                if (lastExecuted != null) {
+                    executed.put(rs.getInt("schedule_payment_id"), lastExecuted);
+                }
+            }
+        }
+        
+        return executed;
+    }
+    
+    // Último mes procesado de cada pago programado
+    public static Map<Integer, String> findLastPeriods() {
+        Map<Integer, String> periods = new HashMap<>();
+        if (pool == null) {
+            logError("Cannot get schedule periods: database is not initialized");
+            return periods;
+        }
+        
+        String sql = "SELECT schedule_payment_id, MAX(period) AS last_period FROM schedule_logs " +
+                    "WHERE period IS NOT NULL GROUP BY schedule_payment_id";
+        
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                periods.put(rs.getInt("schedule_payment_id"), rs.getString("last_period"));
+            }
+        } catch (SQLException e) {
+            logError("Failed to get schedule periods: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return periods;
+    }
+    
     // Eliminar log
     public void delete() {
-        if (connection == null) {
-            logError("Cannot delete schedule log: connection is null");
+        if (pool == null) {
+            logError("Cannot delete schedule log: database is not initialized");
             return;
         }
         
@@ -305,10 +474,15 @@ public class ScheduleLog extends Model {
         
         String sql = "DELETE FROM schedule_logs WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-            logInfo("Schedule log deleted: " + id);
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                    logInfo("Schedule log deleted: " + id);
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete schedule log: " + e.getMessage());
             e.printStackTrace();
@@ -336,6 +510,10 @@ public class ScheduleLog extends Model {
         return message;
     }
     
+    public String getPeriod() {
+        return period;
+    }
+    
     public Timestamp getExecutedAt() {
         return executedAt;
     }
@@ -2,16 +2,25 @@ package terratale.models;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class SchedulePayment extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND_BY_PAYER = registerQuery("SchedulePayment.findByPayerAccount",
+        "SELECT * FROM schedule_payments WHERE payer_account_number = ? ORDER BY day_of_month ASC");
+    private static final String SQL_FIND_BY_RECEPTOR = registerQuery("SchedulePayment.findByReceptorAccount",
+        "SELECT * FROM schedule_payments WHERE receptor_account_number = ? ORDER BY day_of_month ASC");
+    private static final String SQL_FIND_ACTIVE = registerQuery("SchedulePayment.findActive",
+        "SELECT * FROM schedule_payments WHERE status = 'active'");
+    
     private Integer id;
     private String receptorAccountNumber;
     private String payerAccountNumber;
     private String description;
     private int dueDays;
-    private double amount;
+    private long amount;
     private int dayOfMonth;
     private String status;
     private Timestamp createdAt;
@@ -21,7 +30,7 @@ public class SchedulePayment extends Model {
                           String payerAccountNumber, 
                           String description,
                           int dueDays,
-                          double amount,
+                          long amount,
                           int dayOfMonth) {
         this.receptorAccountNumber = receptorAccountNumber;
         this.payerAccountNumber = payerAccountNumber;
@@ -34,7 +43,7 @@ public class SchedulePayment extends Model {
     
     // Constructor privado para cargar desde base de datos
     private SchedulePayment(Integer id, String receptorAccountNumber, String payerAccountNumber,
-                           String description, int dueDays, double amount, int dayOfMonth,
+                           String description, int dueDays, long amount, int dayOfMonth,
                            String status, Timestamp createdAt) {
         this.id = id;
         this.receptorAccountNumber = receptorAccountNumber;
@@ -49,14 +58,14 @@ public class SchedulePayment extends Model {
     
     // Buscar pago programado por ID
     public static SchedulePayment find(int id) {
-        if (connection == null) {
-            logError("Cannot find schedule payment: connection is null");
+        if (pool == null) {
+            logError("Cannot find schedule payment: database is not initialized");
             return null;
         }
         
         String sql = "SELECT * FROM schedule_payments WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
             
@@ -67,7 +76,7 @@ public class SchedulePayment extends Model {
                     rs.getString("payer_account_number"),
                     rs.getString("description"),
                     rs.getInt("due_days"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getInt("day_of_month"),
                     rs.getString("status"),
                     rs.getTimestamp("created_at")
@@ -84,14 +93,14 @@ public class SchedulePayment extends Model {
     // Buscar pagos programados por cuenta pagadora
     public static List<SchedulePayment> findByPayerAccount(String payerAccountNumber) {
         List<SchedulePayment> schedulePayments = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find schedule payments: connection is null");
+        if (pool == null) {
+            logError("Cannot find schedule payments: database is not initialized");
             return schedulePayments;
         }
         
-        String sql = "SELECT * FROM schedule_payments WHERE payer_account_number = ? ORDER BY day_of_month ASC";
+        String sql = SQL_FIND_BY_PAYER;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, payerAccountNumber);
             ResultSet rs = pstmt.executeQuery();
             
@@ -102,7 +111,7 @@ public class SchedulePayment extends Model {
                     rs.getString("payer_account_number"),
                     rs.getString("description"),
                     rs.getInt("due_days"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getInt("day_of_month"),
                     rs.getString("status"),
                     rs.getTimestamp("created_at")
@@ -119,14 +128,14 @@ public class SchedulePayment extends Model {
     // Buscar pagos programados por cuenta receptora
     public static List<SchedulePayment> findByReceptorAccount(String receptorAccountNumber) {
         List<SchedulePayment> schedulePayments = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find schedule payments: connection is null");
+        if (pool == null) {
+            logError("Cannot find schedule payments: database is not initialized");
             return schedulePayments;
         }
         
-        String sql = "SELECT * FROM schedule_payments WHERE receptor_account_number = ? ORDER BY day_of_month ASC";
+        String sql = SQL_FIND_BY_RECEPTOR;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, receptorAccountNumber);
             ResultSet rs = pstmt.executeQuery();
             
@@ -137,7 +146,7 @@ public class SchedulePayment extends Model {
                     rs.getString("payer_account_number"),
                     rs.getString("description"),
                     rs.getInt("due_days"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getInt("day_of_month"),
                     rs.getString("status"),
                     rs.getTimestamp("created_at")
@@ -154,14 +163,14 @@ public class SchedulePayment extends Model {
     // Buscar pagos programados activos por día del mes
     public static List<SchedulePayment> findByDayOfMonth(int dayOfMonth) {
         List<SchedulePayment> schedulePayments = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find schedule payments: connection is null");
+        if (pool == null) {
+            logError("Cannot find schedule payments: database is not initialized");
             return schedulePayments;
         }
         
         String sql = "SELECT * FROM schedule_payments WHERE day_of_month = ? AND status = 'active' ORDER BY created_at DESC";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, dayOfMonth);
             ResultSet rs = pstmt.executeQuery();
             
@@ -172,7 +181,7 @@ public class SchedulePayment extends Model {
                     rs.getString("payer_account_number"),
                     rs.getString("description"),
                     rs.getInt("due_days"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getInt("day_of_month"),
                     rs.getString("status"),
                     rs.getTimestamp("created_at")
@@ -186,17 +195,92 @@ public class SchedulePayment extends Model {
         return schedulePayments;
     }
     
+    // Pagos programados activos (para indexarlos en el planificador)
+    public static List<SchedulePayment> findActive() {
+        List<SchedulePayment> schedulePayments = new ArrayList<>();
+        if (pool == null) {
+            logError("Cannot find schedule payments: database is not initialized");
+            return schedulePayments;
+        }
+        
+        String sql = SQL_FIND_ACTIVE;
+        
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                schedulePayments.add(new SchedulePayment(
+                    rs.getInt("id"),
+                    rs.getString("receptor_account_number"),
+                    rs.getString("payer_account_number"),
+                    rs.getString("description"),
+                    rs.getInt("due_days"),
+                    rs.getLong("amount"),
+                    rs.getInt("day_of_month"),
+                    rs.getString("status"),
+                    rs.getTimestamp("created_at")
+                ));
+            }
+        } catch (SQLException e) {
+            logError("Failed to find active schedule payments: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return schedulePayments;
+    }
+    
+    // Cargar varios pagos programados en una sola consulta
+    public static List<SchedulePayment> findByIds(List<Integer> ids) {
+        List<SchedulePayment> schedulePayments = new ArrayList<>();
+        if (pool == null) {
+            logError("Cannot find schedule payments: database is not initialized");
+            return schedulePayments;
+        }
+        if (ids.isEmpty()) {
+            return schedulePayments;
+        }
+        
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT * FROM schedule_payments WHERE id IN (" + placeholders + ")";
+        
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setInt(i + 1, ids.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                schedulePayments.add(new SchedulePayment(
+                    rs.getInt("id"),
+                    rs.getString("receptor_account_number"),
+                    rs.getString("payer_account_number"),
+                    rs.getString("description"),
+                    rs.getInt("due_days"),
+                    rs.getLong("amount"),
+                    rs.getInt("day_of_month"),
+                    rs.getString("status"),
+                    rs.getTimestamp("created_at")
+                ));
+            }
+        } catch (SQLException e) {
+            logError("Failed to find schedule payments by ids: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return schedulePayments;
+    }
+    
     // Obtener todos los pagos programados
     public static List<SchedulePayment> all() {
         List<SchedulePayment> schedulePayments = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot get schedule payments: connection is null");
+        if (pool == null) {
+            logError("Cannot get schedule payments: database is not initialized");
             return schedulePayments;
         }
         
         String sql = "SELECT * FROM schedule_payments ORDER BY day_of_month ASC, created_at DESC";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -206,7 +290,7 @@ public class SchedulePayment extends Model {
                     rs.getString("payer_account_number"),
                     rs.getString("description"),
                     rs.getInt("due_days"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getInt("day_of_month"),
                     rs.getString("status"),
                     rs.getTimestamp("created_at")
@@ -222,8 +306,8 @@ public class SchedulePayment extends Model {
     
     // Guardar pago programado
     public void save() {
-        if (connection == null) {
-            logError("Cannot save schedule payment: connection is null");
+        if (pool == null) {
+            logError("Cannot save schedule payment: database is not initialized");
             return;
         }
         
@@ -233,26 +317,31 @@ public class SchedulePayment extends Model {
                         "description, due_days, amount, day_of_month, status, created_at) " +
                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setString(1, receptorAccountNumber);
-                pstmt.setString(2, payerAccountNumber);
-                pstmt.setString(3, description);
-                pstmt.setInt(4, dueDays);
-                pstmt.setDouble(5, amount);
-                pstmt.setInt(6, dayOfMonth);
-                pstmt.setString(7, status);
-                pstmt.setTimestamp(8, new Timestamp(System.currentTimeMillis()));
+            try {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                        pstmt.setString(1, receptorAccountNumber);
+                        pstmt.setString(2, payerAccountNumber);
+                        pstmt.setString(3, description);
+                        pstmt.setInt(4, dueDays);
+                        pstmt.setLong(5, amount);
+                        pstmt.setInt(6, dayOfMonth);
+                        pstmt.setString(7, status);
+                        pstmt.setTimestamp(8, new Timestamp(System.currentTimeMillis()));
                 
-                int affectedRows = pstmt.executeUpdate();
+                        int affectedRows = pstmt.executeUpdate();
                 
-                if (affectedRows > 0) {
-                    try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                        if (generatedKeys.next()) {
-                            this.id = generatedKeys.getInt(1);
-                            logInfo("Schedule payment created with ID: " + id);
+                        if (affectedRows > 0) {
+                            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                                if (generatedKeys.next()) {
+                                    this.id = generatedKeys.getInt(1);
+                                    logInfo("Schedule payment created with ID: " + id);
+                                }
+                            }
                         }
                     }
-                }
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to insert schedule payment: " + e.getMessage());
                 e.printStackTrace();
@@ -262,18 +351,23 @@ public class SchedulePayment extends Model {
             String sql = "UPDATE schedule_payments SET receptor_account_number = ?, payer_account_number = ?, " +
                         "description = ?, due_days = ?, amount = ?, day_of_month = ?, status = ? WHERE id = ?";
             
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, receptorAccountNumber);
-                pstmt.setString(2, payerAccountNumber);
-                pstmt.setString(3, description);
-                pstmt.setInt(4, dueDays);
-                pstmt.setDouble(5, amount);
-                pstmt.setInt(6, dayOfMonth);
-                pstmt.setString(7, status);
-                pstmt.setInt(8, id);
+            try {
+                write(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setString(1, receptorAccountNumber);
+                        pstmt.setString(2, payerAccountNumber);
+                        pstmt.setString(3, description);
+                        pstmt.setInt(4, dueDays);
+                        pstmt.setLong(5, amount);
+                        pstmt.setInt(6, dayOfMonth);
+                        pstmt.setString(7, status);
+                        pstmt.setInt(8, id);
                 
-                pstmt.executeUpdate();
-                logInfo("Schedule payment updated: " + id);
+                        pstmt.executeUpdate();
+                        logInfo("Schedule payment updated: " + id);
+                    }
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to update schedule payment: " + e.getMessage());
                 e.printStackTrace();
@@ -283,8 +377,8 @@ public class SchedulePayment extends Model {
     
     // Eliminar pago programado
     public void delete() {
-        if (connection == null) {
-            logError("Cannot delete schedule payment: connection is null");
+        if (pool == null) {
+            logError("Cannot delete schedule payment: database is not initialized");
             return;
         }
         
@@ -295,10 +389,15 @@ public class SchedulePayment extends Model {
         
         String sql = "DELETE FROM schedule_payments WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            pstmt.executeUpdate();
-            logInfo("Schedule payment deleted: " + id);
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    pstmt.executeUpdate();
+                    logInfo("Schedule payment deleted: " + id);
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete schedule payment: " + e.getMessage());
             e.printStackTrace();
@@ -326,7 +425,7 @@ public class SchedulePayment extends Model {
         return dueDays;
     }
     
-    public double getAmount() {
+    public long getAmount() {
         return amount;
     }
     
@@ -359,7 +458,7 @@ public class SchedulePayment extends Model {
         this.dueDays = dueDays;
     }
     
-    public void setAmount(double amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
     
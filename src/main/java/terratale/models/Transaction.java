@@ -6,14 +6,21 @@ import java.util.List;
 
 public class Transaction extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND_BY_ACCOUNT = registerQuery("Transaction.findByAccount",
+        "SELECT * FROM transactions WHERE account_id = ? ORDER BY timestamp DESC");
+    private static final String SQL_PAGE_BY_ACCOUNT = registerQuery("Transaction.findByAccountAfter",
+        "SELECT * FROM transactions WHERE account_id = ? AND timestamp <= ? AND (timestamp < ? OR id < ?) "
+            + "ORDER BY timestamp DESC, id DESC LIMIT ?");
+    
     private Integer id;
     private int accountId;
     private String type;
-    private double amount;
+    private long amount;
     private long timestamp;
     private String userUuid;
     
-    public Transaction(int accountId, String type, double amount, String userUuid) {
+    public Transaction(int accountId, String type, long amount, String userUuid) {
         this.accountId = accountId;
         this.type = type;
         this.amount = amount;
@@ -21,7 +28,7 @@ public class Transaction extends Model {
         this.userUuid = userUuid;
     }
     
-    private Transaction(Integer id, int accountId, String type, double amount, long timestamp, String userUuid) {
+    private Transaction(Integer id, int accountId, String type, long amount, long timestamp, String userUuid) {
         this.id = id;
         this.accountId = accountId;
         this.type = type;
@@ -31,14 +38,14 @@ public class Transaction extends Model {
     }
     
     public static Transaction find(int id) {
-        if (connection == null) {
-            logError("Cannot find transaction: connection is null");
+        if (pool == null) {
+            logError("Cannot find transaction: database is not initialized");
             return null;
         }
         
         String sql = "SELECT * FROM transactions WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
             ResultSet rs = pstmt.executeQuery();
             
@@ -47,7 +54,7 @@ public class Transaction extends Model {
                     rs.getInt("id"),
                     rs.getInt("account_id"),
                     rs.getString("type"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getLong("timestamp"),
                     rs.getString("user_uuid")
                 );
@@ -60,16 +67,17 @@ public class Transaction extends Model {
         return null;
     }
     
+    // Carga el historial completo: para historiales grandes usar findByAccountAfter
     public static List<Transaction> findByAccount(int accountId) {
         List<Transaction> transactions = new ArrayList<>();
-        if (connection == null) {
-            logError("Cannot find transactions: connection is null");
+        if (pool == null) {
+            logError("Cannot find transactions: database is not initialized");
             return transactions;
         }
         
-        String sql = "SELECT * FROM transactions WHERE account_id = ? ORDER BY timestamp DESC";
+        String sql = SQL_FIND_BY_ACCOUNT;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, accountId);
             ResultSet rs = pstmt.executeQuery();
             
@@ -78,7 +86,7 @@ public class Transaction extends Model {
                     rs.getInt("id"),
                     rs.getInt("account_id"),
                     rs.getString("type"),
-                    rs.getDouble("amount"),
+                    rs.getLong("amount"),
                     rs.getLong("timestamp"),
                     rs.getString("user_uuid")
                 ));
@@ -91,31 +99,56 @@ public class Transaction extends Model {
         return transactions;
     }
     
+    /**
+     * Página del historial posterior a {@code after}, del más reciente al más antiguo. Usa el índice
+     * (account_id, timestamp); el id de desempate ya va incluido en el índice como clave primaria.
+     */
+    public static List<Transaction> findByAccountAfter(int accountId, HistoryCursor after, int limit) {
+        List<Transaction> transactions = new ArrayList<>();
+        if (pool == null) {
+            throw new IllegalStateException("Cannot find transactions: database is not initialized");
+        }
+        
+        String sql = SQL_PAGE_BY_ACCOUNT;
+        
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, accountId);
+            pstmt.setLong(2, after.getTimestamp());
+            pstmt.setLong(3, after.getTimestamp());
+            pstmt.setInt(4, after.getId());
+            pstmt.setInt(5, limit);
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                transactions.add(new Transaction(
+                    rs.getInt("id"),
+                    rs.getInt("account_id"),
+                    rs.getString("type"),
+                    rs.getLong("amount"),
+                    rs.getLong("timestamp"),
+                    rs.getString("user_uuid")
+                ));
+            }
+        } catch (SQLException e) {
+            // Una página vacía es el final del historial: un error no puede confundirse con eso
+            throw new RuntimeException("Failed to find transactions page: " + e.getMessage(), e);
+        }
+        
+        return transactions;
+    }
+    
     public void save() {
-        if (connection == null) {
-            logError("Cannot save transaction: connection is null");
+        if (pool == null) {
+            logError("Cannot save transaction: database is not initialized");
             return;
         }
         
         if (id == null) {
-            // Insert
-            String sql = """
-                INSERT INTO transactions (account_id, type, amount, timestamp, user_uuid) 
-                VALUES (?, ?, ?, ?, ?)
-            """;
-            
-            try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                pstmt.setInt(1, accountId);
-                pstmt.setString(2, type);
-                pstmt.setDouble(3, amount);
-                pstmt.setLong(4, timestamp);
-                pstmt.setString(5, userUuid);
-                pstmt.executeUpdate();
-                
-                ResultSet rs = pstmt.getGeneratedKeys();
-                if (rs.next()) {
-                    this.id = rs.getInt(1);
-                }
+            try {
+                write(conn -> {
+                    save(conn);
+                    return null;
+                });
             } catch (SQLException e) {
                 logError("Failed to insert transaction: " + e.getMessage());
                 e.printStackTrace();
@@ -123,9 +156,35 @@ public class Transaction extends Model {
         }
     }
     
+    // Insertar usando una conexión ya abierta (dentro de una transacción)
+    public void save(Connection conn) throws SQLException {
+        if (id != null) {
+            return;
+        }
+        
+        String sql = """
+            INSERT INTO transactions (account_id, type, amount, timestamp, user_uuid) 
+            VALUES (?, ?, ?, ?, ?)
+        """;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, accountId);
+            pstmt.setString(2, type);
+            pstmt.setLong(3, amount);
+            pstmt.setLong(4, timestamp);
+            pstmt.setString(5, userUuid);
+            pstmt.executeUpdate();
+            
+            ResultSet rs = pstmt.getGeneratedKeys();
+            if (rs.next()) {
+                this.id = rs.getInt(1);
+            }
+        }
+    }
+    
     public void delete() {
-        if (connection == null) {
-            logError("Cannot delete transaction: connection is null");
+        if (pool == null) {
+            logError("Cannot delete transaction: database is not initialized");
             return;
         }
         
@@ -136,14 +195,19 @@ public class Transaction extends Model {
         
         String sql = "DELETE FROM transactions WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                logInfo("Transaction deleted successfully: " + id);
-            } else {
-                logError("No transaction found with id: " + id);
-            }
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, id);
+                    int rowsAffected = pstmt.executeUpdate();
+                    if (rowsAffected > 0) {
+                        logInfo("Transaction deleted successfully: " + id);
+                    } else {
+                        logError("No transaction found with id: " + id);
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to delete transaction: " + e.getMessage());
             e.printStackTrace();
@@ -154,7 +218,8 @@ public class Transaction extends Model {
     public Integer getId() { return id; }
     public int getAccountId() { return accountId; }
     public String getType() { return type; }
-    public double getAmount() { return amount; }
+    public long getAmount() { return amount; }
     public String getUserUuid() { return userUuid; }
     public long getTimestamp() { return timestamp; }
+    public HistoryCursor getCursor() { return new HistoryCursor(timestamp, id); }
 }
@@ -7,25 +7,38 @@ import java.util.UUID;
 
 import com.hypixel.hytale.server.core.modules.accesscontrol.ban.Ban;
 
+import terratale.Helpers.Money;
 import terratale.Helpers.PorcentualHelper;
 import terratale.Helpers.TransactionTypes;
-import terratale.plugin.TerratalePlugin;
+import terratale.cache.MoneySupply;
+import terratale.cache.WalletCache;
+import terratale.cache.WalletCache.WalletResult;
+import terratale.economy.Ledger;
+import terratale.economy.Transfer;
+import terratale.economy.TransferException;
 
 public class User extends Model {
     
+    // Consultas de los finders (las revisa /terratale explain)
+    private static final String SQL_FIND = registerQuery("User.find",
+        "SELECT * FROM users WHERE uuid = ?");
+    static {
+        registerQuery("User.findByUsername", User::sqlFindByUsername);
+    }
+    
     private UUID uuid;
     private String username;
     private long lastLogin;
-    private double money;
+    private long money;
     
+    // El dinero inicial se abona aparte (findOrCreate), como cualquier otro movimiento del monedero
     public User(UUID uuid, String username) {
         this.uuid = uuid;
         this.username = username;
-        this.money = PorcentualHelper.calculatePorcentual(TerratalePlugin.get().config().initialMoney);
         this.lastLogin = System.currentTimeMillis();
     }
     
-    private User(UUID uuid, String username, double money, long lastLogin) {
+    private User(UUID uuid, String username, long money, long lastLogin) {
         this.uuid = uuid;
         this.username = username;
         this.money = money;
@@ -37,26 +50,27 @@ public class User extends Model {
         User user = find(uuid);
         
         if (user == null) {
-            String account = TerratalePlugin.get().config().gouvernmentNumberAccount;
+            String account = config().gouvernmentNumberAccount;
 
             BankAccount govAccount = BankAccount.findByAccountNumber(account);
 
             if (govAccount != null) {
                 user = new User(uuid, username);
-                user.save();
+                // Si otro hilo (precarga de sesión y primer comando) lo creó a la vez, el dinero inicial es suyo
+                if (!user.insertIfAbsent()) {
+                    return find(uuid);
+                }
                 
-                double initialMoney = PorcentualHelper.calculatePorcentual(TerratalePlugin.get().config().initialMoney);
-                govAccount.setBalance(govAccount.getBalance() - initialMoney);
-
-                Transaction transaction = new Transaction(
-                    govAccount.getId(),
-                    TransactionTypes.GOVERNMENT_DISTRIBUTION,
-                    initialMoney,
-                    user.getUuid().toString()
-                );
-
-                transaction.save();
-                govAccount.save();
+                long initialMoney = PorcentualHelper.calculatePorcentual(config().initialMoney);
+                try {
+                    new Transfer(user.getUuid())
+                        .debitAccountUnchecked(govAccount.getId(), initialMoney, TransactionTypes.GOVERNMENT_DISTRIBUTION)
+                        .creditWallet(user.getUuid(), initialMoney)
+                        .execute();
+                    user.money = initialMoney;
+                } catch (TransferException e) {
+                    logError("Failed to charge initial money to the government account: " + e.getMessage());
+                }
             } else {
                 logError("Government account not found: " + account);
             }
@@ -72,24 +86,24 @@ public class User extends Model {
     
     // Buscar un usuario por UUID
     public static User find(UUID uuid) {
-        if (connection == null) {
-            logError("Cannot find user: connection is null");
+        if (pool == null) {
+            logError("Cannot find user: database is not initialized");
             return null;
         }
         
-        String sql = "SELECT * FROM users WHERE uuid = ?";
+        String sql = SQL_FIND;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, uuid.toString());
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
-                return new User(
+                return withCachedMoney(new User(
                     UUID.fromString(rs.getString("uuid")),
                     rs.getString("username"),
-                    rs.getDouble("money"),
+                    rs.getLong("money"),
                     rs.getLong("last_login")
-                );
+                ));
             }
         } catch (SQLException e) {
             logError("Failed to find user: " + e.getMessage());
@@ -99,26 +113,31 @@ public class User extends Model {
         return null;
     }
     
+    // La collation depende del dialecto, que no se conoce hasta Model.initialize
+    private static String sqlFindByUsername() {
+        return "SELECT * FROM users WHERE username = ? COLLATE " + Model.getDatabaseTranslation("utf8mb4_general_ci");
+    }
+    
     // Buscar un usuario por username
     public static User findByUsername(String username) {
-        if (connection == null) {
-            logError("Cannot find user: connection is null");
+        if (pool == null) {
+            logError("Cannot find user: database is not initialized");
             return null;
         }
         
-        String sql = "SELECT * FROM users WHERE username = ? COLLATE " + Model.getDatabaseTranslation("utf8mb4_general_ci");
+        String sql = sqlFindByUsername();
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, username);
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
-                return new User(
+                return withCachedMoney(new User(
                     UUID.fromString(rs.getString("uuid")),
                     rs.getString("username"),
-                    rs.getDouble("money"),
+                    rs.getLong("money"),
                     rs.getLong("last_login")
-                );
+                ));
             }
         } catch (SQLException e) {
             logError("Failed to find user by username: " + e.getMessage());
@@ -128,77 +147,261 @@ public class User extends Model {
         return null;
     }
     
-    // Guardar o actualizar el usuario
+    // Si el monedero está en caché, su saldo es el autoritativo (puede no estar aún en la base de datos)
+    private static User withCachedMoney(User user) {
+        WalletCache wallets = WalletCache.get();
+        if (wallets != null) {
+            Long cached = wallets.peek(user.uuid);
+            if (cached != null) {
+                user.money = cached;
+            }
+        }
+        return user;
+    }
+    
+    // Guardar o actualizar el usuario. El dinero no se escribe aquí: solo cambia con movimientos relativos
+    // (deposit/withdraw/setBalance o TransferEngine), así que una copia vieja no pisa el saldo real.
     public void save() {
-        if (connection == null) {
-            logError("Cannot save user: connection is null");
+        if (pool == null) {
+            logError("Cannot save user: database is not initialized");
             return;
         }
         
         String sql;
         if (isMySQL) {
             sql = """
-                INSERT INTO users (uuid, username, money, last_login) 
-                VALUES (?, ?, ?, ?)
+                INSERT INTO users (uuid, username, last_login) 
+                VALUES (?, ?, ?)
                 ON DUPLICATE KEY UPDATE 
                     username = VALUES(username),
-                    money = VALUES(money),
                     last_login = VALUES(last_login)
             """;
         } else {
             sql = """
-                INSERT INTO users (uuid, username, money, last_login) 
-                VALUES (?, ?, ?, ?)
+                INSERT INTO users (uuid, username, last_login) 
+                VALUES (?, ?, ?)
                 ON CONFLICT(uuid) DO UPDATE SET 
                     username = excluded.username,
-                    money = excluded.money,
                     last_login = excluded.last_login
             """;
         }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            pstmt.setString(2, username);
-            pstmt.setDouble(3, money);
-            pstmt.setLong(4, lastLogin);
-            pstmt.executeUpdate();
+        try {
+            write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, uuid.toString());
+                    pstmt.setString(2, username);
+                    pstmt.setLong(3, lastLogin);
+                    pstmt.executeUpdate();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             logError("Failed to save user: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
-    // Guardar cambios en el dinero del usuario
-    public void saveMoney() {
-        if (connection == null) {
-            logError("Cannot save user money: connection is null");
-            return;
+    // true solo si esta llamada ha creado la fila
+    private boolean insertIfAbsent() {
+        if (pool == null) {
+            logError("Cannot save user: database is not initialized");
+            return false;
         }
         
-        String sql = "UPDATE users SET money = ? WHERE uuid = ?";
+        String sql;
+        if (isMySQL) {
+            sql = "INSERT IGNORE INTO users (uuid, username, last_login) VALUES (?, ?, ?)";
+        } else {
+            sql = "INSERT INTO users (uuid, username, last_login) VALUES (?, ?, ?) ON CONFLICT(uuid) DO NOTHING";
+        }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDouble(1, money);
-            pstmt.setString(2, uuid.toString());
-            pstmt.executeUpdate();
+        try {
+            int inserted = write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, uuid.toString());
+                    pstmt.setString(2, username);
+                    pstmt.setLong(3, lastLogin);
+                    return pstmt.executeUpdate();
+                }
+            });
+            return inserted == 1;
         } catch (SQLException e) {
-            logError("Failed to save user money: " + e.getMessage());
+            logError("Failed to save user: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
     
-    public void delete() {
-        if (connection == null) {
-            logError("Cannot delete user: connection is null");
-            return;
+    /* ---------------------- Dinero en mano ---------------------- */
+    
+    // Con la caché de monederos arrancada pasan por ella; si no, UPDATE relativos sobre users.money con su
+    // asiento en el diario en la misma transacción (el dinero se crea o se destruye: contra la emisión)
+    
+    public static WalletResult deposit(UUID uuid, long amount) {
+        WalletCache wallets = WalletCache.get();
+        if (wallets != null) {
+            return wallets.deposit(uuid, amount);
+        }
+        if (amount < 0) {
+            return new WalletResult(false, 0, "Amount must be positive");
+        }
+        return addMoney(uuid, amount, false);
+    }
+    
+    public static WalletResult withdraw(UUID uuid, long amount) {
+        WalletCache wallets = WalletCache.get();
+        if (wallets != null) {
+            return wallets.withdraw(uuid, amount);
+        }
+        if (amount < 0) {
+            return new WalletResult(false, 0, "Amount must be positive");
+        }
+        return addMoney(uuid, -amount, true);
+    }
+    
+    // Fija el saldo (/money set) aplicando la diferencia con el saldo actual
+    public static WalletResult setBalance(UUID uuid, long money) {
+        WalletCache wallets = WalletCache.get();
+        if (wallets != null) {
+            return wallets.set(uuid, money);
+        }
+        if (money < 0) {
+            return new WalletResult(false, 0, "Amount must be positive");
+        }
+        if (pool == null) {
+            return new WalletResult(false, 0, "Database is not initialized");
         }
         
-        String sql = "DELETE FROM users WHERE uuid = ?";
+        // Compare-and-set: si otra operación cambia el saldo entre la lectura y el UPDATE, se vuelve a calcular
+        while (true) {
+            Long current = readMoney(uuid);
+            if (current == null) {
+                return new WalletResult(false, 0, "Account not found");
+            }
+            
+            String sql = "UPDATE users SET money = money + ? WHERE uuid = ? AND money = ?";
+            long delta = Money.subtract(money, current);
+            
+            try (MoneySupply.Section change = MoneySupply.change()) {
+                boolean updated = inTransaction(conn -> {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setLong(1, delta);
+                        pstmt.setString(2, uuid.toString());
+                        pstmt.setLong(3, current);
+                        if (pstmt.executeUpdate() == 0) {
+                            return false;
+                        }
+                    }
+                    postWallet(conn, uuid, delta, TransactionTypes.WALLET_ADJUSTMENT);
+                    return true;
+                });
+                if (updated) {
+                    MoneySupply.adjust(delta);
+                    return new WalletResult(true, money, null);
+                }
+            } catch (SQLException e) {
+                logError("Failed to set user money: " + e.getMessage());
+                e.printStackTrace();
+                return new WalletResult(false, current, "Database error");
+            }
+        }
+    }
+    
+    private static WalletResult addMoney(UUID uuid, long delta, boolean checked) {
+        if (pool == null) {
+            return new WalletResult(false, 0, "Database is not initialized");
+        }
+        
+        boolean guard = checked && delta < 0;
+        String sql = "UPDATE users SET money = money + ? WHERE uuid = ?" + (guard ? " AND money >= ?" : "");
+        
+        boolean updated;
+        try (MoneySupply.Section change = MoneySupply.change()) {
+            updated = inTransaction(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setLong(1, delta);
+                    pstmt.setString(2, uuid.toString());
+                    if (guard) {
+                        pstmt.setLong(3, -delta);
+                    }
+                    if (pstmt.executeUpdate() == 0) {
+                        return false;
+                    }
+                }
+                postWallet(conn, uuid, delta, TransactionTypes.WALLET_ADJUSTMENT);
+                return true;
+            });
+            if (updated) {
+                MoneySupply.adjust(delta);
+            }
+        } catch (SQLException e) {
+            logError("Failed to update user money: " + e.getMessage());
+            e.printStackTrace();
+            return new WalletResult(false, 0, "Database error");
+        }
+        
+        Long balance = readMoney(uuid);
+        if (balance == null) {
+            return new WalletResult(false, 0, "Account not found");
+        }
+        return updated ? new WalletResult(true, balance, null) : new WalletResult(false, balance, "Insufficient funds");
+    }
+    
+    private static void postWallet(Connection conn, UUID uuid, long delta, String type) throws SQLException {
+        if (delta != 0) {
+            Ledger.append(conn, new Ledger.Entry(type, null).wallet(uuid, delta).balanceWith(Ledger.ISSUANCE));
+        }
+    }
+    
+    private static Long readMoney(UUID uuid) {
+        String sql = "SELECT money FROM users WHERE uuid = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, uuid.toString());
-            int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong("money");
+            }
+        } catch (SQLException e) {
+            logError("Failed to read user money: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+    
+    public void delete() {
+        if (pool == null) {
+            logError("Cannot delete user: database is not initialized");
+            return;
+        }
+        
+        // Con el monedero en caché, su saldo incluye lo que aún no se había escrito en la fila
+        try (MoneySupply.Section change = MoneySupply.change()) {
+            WalletCache wallets = WalletCache.get();
+            Long cached = wallets != null ? wallets.evict(uuid) : null;
+            
+            Long stored = inTransaction(conn -> {
+                Long money = null;
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT money FROM users WHERE uuid = ?")) {
+                    pstmt.setString(1, uuid.toString());
+                    ResultSet rs = pstmt.executeQuery();
+                    if (rs.next()) {
+                        money = rs.getLong("money");
+                    }
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM users WHERE uuid = ?")) {
+                    pstmt.setString(1, uuid.toString());
+                    if (pstmt.executeUpdate() == 0) {
+                        return null;
+                    }
+                }
+                // Lo escrito en la fila es lo que tiene apuntado; lo pendiente de la caché no llegó al diario
+                postWallet(conn, uuid, money != null ? -money : 0L, TransactionTypes.USER_DELETION);
+                return money;
+            });
+            if (stored != null) {
+                MoneySupply.adjust(-(cached != null ? cached : stored));
                 logInfo("User deleted successfully: " + uuid);
             } else {
                 logError("No user found with uuid: " + uuid);
@@ -224,26 +427,32 @@ public class User extends Model {
         return accounts;
     }
 
-    public static Double getAllMoney () {
-        if (connection == null) {
-            logError("Cannot get all money: connection is null");
-            return 0.0;
+    public static long getAllMoney () {
+        if (pool == null) {
+            logError("Cannot get all money: database is not initialized");
+            return 0L;
+        }
+
+        // Los cambios pendientes de la caché tienen que estar en la tabla antes de sumar
+        WalletCache wallets = WalletCache.get();
+        if (wallets != null) {
+            wallets.flush();
         }
 
         String sql = "SELECT SUM(money) as total_money FROM users";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return rs.getDouble("total_money");
+                return rs.getLong("total_money");
             }
         } catch (SQLException e) {
             logError("Failed to get all money: " + e.getMessage());
             e.printStackTrace();
         }
 
-        return 0.0;
+        return 0L;
     }
     
     // Obtener bancos del usuario
@@ -252,12 +461,12 @@ public class User extends Model {
     }
     
     // Calcular balance total del usuario (suma de todas sus cuentas)
-    public double getTotalBalance() {
-        double total = 0.0;
+    public long getTotalBalance() {
+        long total = 0L;
         List<BankAccount> accounts = getBankAccounts();
         
         for (BankAccount account : accounts) {
-            total += account.getBalance();
+            total = Money.add(total, account.getBalance());
         }
         
         return total;
@@ -276,11 +485,11 @@ public class User extends Model {
         this.username = username;
     }
 
-    public double getMoney() {
+    public long getMoney() {
         return money;
     }
 
-    public void setMoney(double money) {
+    public void setMoney(long money) {
         this.money = money;
     }
     
@@ -15,6 +15,7 @@ import com.hypixel.hytale.server.core.ui.builder.UIEventBuilder;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
+import terratale.Helpers.Money;
 import terratale.models.BankAccount;
 
 import java.util.List;
@@ -45,7 +46,7 @@ public class AccountsPage extends InteractiveCustomUIPage<AccountsPage.BindingDa
             uiCommandBuilder.append("#ContentList", "Pages/Account.ui");
             System.out.println("Adding account to UI: " + accounts.get(i).getAccountNumber());
             uiCommandBuilder.set("#ContentList[" + i + "] #AccountLabel.Value", accounts.get(i).getAccountNumber());
-            uiCommandBuilder.set("#ContentList[" + i + "] #AccountText.Text", " - Banco: " + accounts.get(i).getBank().getName() + " - Saldo: " + String.format("%.2f", accounts.get(i).getBalance()) + " Liras");
+            uiCommandBuilder.set("#ContentList[" + i + "] #AccountText.Text", " - Banco: " + accounts.get(i).getBank().getName() + " - Saldo: " + Money.format(accounts.get(i).getBalance()) + " Liras");
         }
     }
 
@@ -16,8 +16,10 @@ import com.hypixel.hytale.server.core.ui.builder.UIEventBuilder;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
+import terratale.Helpers.Money;
 import terratale.Helpers.InvoiceHelper;
 import terratale.Helpers.InvoiceStatus;
+import terratale.cache.SessionManager;
 import terratale.models.BankAccount;
 import terratale.models.Invoice;
 
@@ -159,7 +161,7 @@ public class InvoicesPage extends InteractiveCustomUIPage<InvoicesPage.UIEventPa
                 .limit(20)
                 .collect(Collectors.toList());
 
-        List<BankAccount> accounts = BankAccount.getAllByOwner(playerUUID);
+        List<BankAccount> accounts = SessionManager.accounts(playerUUID);
 
         List<String> accountNumbers = accounts.stream()
                 .map(BankAccount::getAccountNumber)
@@ -202,7 +204,7 @@ public class InvoicesPage extends InteractiveCustomUIPage<InvoicesPage.UIEventPa
             if (invoice.isOverdue()) status += " [VENCIDA]";
             uiCommandBuilder.set("#ContentList[" + i + "] #Status.Text", status);
 
-            uiCommandBuilder.set("#ContentList[" + i + "] #Amount.Text", String.format("$%.2f", invoice.getAmount()));
+            uiCommandBuilder.set("#ContentList[" + i + "] #Amount.Text", "$" + Money.format(invoice.getAmount()));
 
             uiCommandBuilder.set("#ContentList[" + i + "] #From.Text", "De: " + invoice.getReceptorAccountNumber() + 
                     (accountNumbers.contains(invoice.getReceptorAccountNumber()) ? " (Tu)" : ""));
@@ -2,21 +2,35 @@ package terratale.plugin;
 
 import terratale.Helpers.ConfigManager;
 import terratale.Helpers.PluginConfig;
+import terratale.cache.EntityCache;
+import terratale.cache.MoneySupply;
+import terratale.cache.SessionManager;
+import terratale.cache.WalletCache;
 import terratale.commands.AccountCommand;
 import terratale.commands.BankCommand;
 import terratale.commands.BanksCommand;
 import terratale.commands.CheckPorcentualCommand;
+import terratale.commands.CommandExecutor;
 import terratale.commands.InvoiceCommand;
 import terratale.commands.InvoicesCommand;
 import terratale.commands.MoneyCommand;
 import terratale.commands.SchedulePaymentCommand;
 import terratale.commands.TerrataleCommand;
+import terratale.database.SlowQueryLog;
+import terratale.economy.BalanceSnapshots;
+import terratale.economy.BankDeletionJob;
+import terratale.economy.MoneyAudit;
+import terratale.economy.TransferEngine;
+import terratale.metrics.Metrics;
 import terratale.models.Model;
 import terratale.plugin.integrations.vaultUnlocked.TerrataleVaultEconomy;
+import terratale.scheduler.PaymentScheduler;
 
 import com.hypixel.hytale.common.plugin.PluginIdentifier;
 import com.hypixel.hytale.common.semver.SemverRange;
 import com.hypixel.hytale.server.core.HytaleServer;
+import com.hypixel.hytale.server.core.event.events.player.PlayerConnectEvent;
+import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
 
@@ -60,7 +74,55 @@ public class TerratalePlugin extends JavaPlugin {
         PluginFolders.setup(this);
         configManager = new ConfigManager(getDataDirectory().toFile());
         configManager.load();
+        startSlowQueryLog();
         Model.initialize(getDataDirectory().toFile(), getLogger());
+        if (config().metricsEnabled) {
+            Metrics.start(getDataDirectory().toFile(), config().metricsDumpIntervalMs,
+                config().metricsFileMaxKb * 1024L, config().metricsFileCount);
+        }
+
+        if (Model.getPool() != null) {
+            WalletCache.start(config().walletFlushIntervalMs, config().walletIdleEvictMs, config().walletFlushBatchSize);
+            MoneySupply.start(config().moneySupplyReconcileIntervalMs, config().moneySupplyPersistIntervalMs);
+            EntityCache.configure(config().entityCacheEnabled, config().entityCacheMaxEntries, config().entityCacheTtlMs);
+            TransferEngine.configure(config().transferLockStripes, config().transferLockTimeoutMs);
+            SessionManager.start();
+            CommandExecutor.start(Model.getPool().getMaxSize(), config().commandQueueTimeoutMs, config().commandTimeoutMs);
+            if (config().balanceSnapshotsEnabled) {
+                BalanceSnapshots.start(config().balanceSnapshotIntervalMs);
+            }
+            MoneyAudit.start(config().moneyAuditEnabled ? config().moneyAuditIntervalMs : 0,
+                config().moneyAuditThreads, config().moneyAuditChunkSize, config().moneyAuditFullEvery);
+            if (config().scheduledPaymentsEnabled) {
+                PaymentScheduler.start(config().scheduleTickMs, config().scheduleWorkers,
+                    config().scheduleBatchSize, config().scheduleCatchUpDays);
+            }
+
+            getEventRegistry().register(PlayerConnectEvent.class, event -> {
+                WalletCache wallets = WalletCache.get();
+                if (wallets != null) {
+                    wallets.onPlayerJoin(event.getPlayerRef().getUuid());
+                }
+                SessionManager sessions = SessionManager.get();
+                if (sessions != null) {
+                    sessions.onPlayerJoin(event.getPlayerRef().getUuid(), event.getPlayerRef().getUsername());
+                }
+            });
+            getEventRegistry().register(PlayerDisconnectEvent.class, event -> {
+                WalletCache wallets = WalletCache.get();
+                if (wallets != null) {
+                    wallets.onPlayerLeave(event.getPlayerRef().getUuid());
+                }
+                SessionManager sessions = SessionManager.get();
+                if (sessions != null) {
+                    sessions.onPlayerLeave(event.getPlayerRef().getUuid());
+                }
+                CommandExecutor commands = CommandExecutor.get();
+                if (commands != null) {
+                    commands.onPlayerLeave(event.getPlayerRef().getUuid());
+                }
+            });
+        }
 
         getCommandRegistry().registerCommand(new MoneyCommand());
         getCommandRegistry().registerCommand(new BankCommand());
@@ -75,6 +137,17 @@ public class TerratalePlugin extends JavaPlugin {
         getLogger().at(Level.INFO).log("Plugin setup complete!");
     }
 
+    // También desde /terratale reload; la conexión medida solo se pone si estaba activo al arrancar
+    public void startSlowQueryLog() {
+        if (!config().slowQueryLogEnabled) {
+            SlowQueryLog.stop();
+            return;
+        }
+        SlowQueryLog.start(getDataDirectory().toFile(), config().slowQueryThresholdMs, config().slowQuerySampleIntervalMs,
+            config().slowQueryRedactUuids, config().slowQueryRedactAmounts, config().slowQueryExplain,
+            config().slowQueryFileMaxKb * 1024L, config().slowQueryFileCount);
+    }
+
     public PluginConfig config() {
         return configManager.getConfig();
     }
@@ -85,6 +158,16 @@ public class TerratalePlugin extends JavaPlugin {
 
     @Override
     protected void shutdown() {
+        CommandExecutor.stop();
+        PaymentScheduler.stop();
+        BankDeletionJob.stop();
+        MoneyAudit.stop();
+        BalanceSnapshots.stop();
+        SessionManager.stop();
+        WalletCache.stop();
+        MoneySupply.stop();
+        Metrics.stop();
+        SlowQueryLog.stop();
         Model.close();
         getLogger().at(Level.INFO).log("Plugin shutting down!");
     }
@@ -3,6 +3,10 @@ package terratale.plugin.integrations.vaultUnlocked;
 import net.milkbowl.vault2.economy.AccountPermission;
 import net.milkbowl.vault2.economy.Economy;
 import net.milkbowl.vault2.economy.EconomyResponse;
+import terratale.Helpers.Money;
+import terratale.cache.WalletCache;
+import terratale.metrics.Histogram;
+import terratale.metrics.Metrics;
 import terratale.models.User;
 
 import java.math.BigDecimal;
@@ -13,6 +17,12 @@ import java.util.UUID;
 
 public class TerrataleVaultEconomy implements Economy {
 
+    // Latencia de cada operación que llega de otros plugins (/terratale stats vault.)
+    private static final Histogram BALANCE_TIMER = Metrics.timer("vault.getBalance");
+    private static final Histogram HAS_TIMER = Metrics.timer("vault.has");
+    private static final Histogram WITHDRAW_TIMER = Metrics.timer("vault.withdraw");
+    private static final Histogram DEPOSIT_TIMER = Metrics.timer("vault.deposit");
+
     @Override
     public String getName() {
         return "TerrataleVaultEconomy";
@@ -30,11 +40,7 @@ public class TerrataleVaultEconomy implements Economy {
 
     @Override
     public BigDecimal getBalance(String name, UUID uuid) {
-        User user = User.find(uuid);
-        if (user == null) {
-            return BigDecimal.ZERO;
-        }
-        return BigDecimal.valueOf(user.getMoney());
+        return balanceOf(uuid);
     }
 
     @Override
@@ -162,128 +168,66 @@ public class TerrataleVaultEconomy implements Economy {
 
     @Override
     public  BigDecimal getBalance( String pluginName,  UUID accountID,  String world) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return BigDecimal.ZERO;
-        }
-        return BigDecimal.valueOf(user.getMoney());
+        return balanceOf(accountID);
     }
 
     @Override
     public  BigDecimal getBalance( String pluginName,  UUID accountID,  String world,
              String currency) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return BigDecimal.ZERO;
-        }
-        return BigDecimal.valueOf(user.getMoney());
+        return balanceOf(accountID);
     }
 
     @Override
     public boolean has( String pluginName,  UUID accountID,  BigDecimal amount) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return false;
-        }
-        return user.getMoney() >= amount.doubleValue();
+        return hasAmount(accountID, amount);
     }
 
     @Override
     public boolean has( String pluginName,  UUID accountID,  String worldName,
              BigDecimal amount) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return false;
-        }
-        return user.getMoney() >= amount.doubleValue();
+        return hasAmount(accountID, amount);
     }
 
     @Override
     public boolean has( String pluginName,  UUID accountID,  String worldName,
              String currency,  BigDecimal amount) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return false;
-        }
-        return user.getMoney() >= amount.doubleValue();
+        return hasAmount(accountID, amount);
     }
 
     @Override
     public  EconomyResponse withdraw( String pluginName,  UUID accountID,
              BigDecimal amount) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return new EconomyResponse(new BigDecimal(0), new BigDecimal(0), EconomyResponse.ResponseType.FAILURE, "Account not found");
-        }
-        if (user.getMoney() < amount.doubleValue()) {
-            return new EconomyResponse(new BigDecimal(0), new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.FAILURE, "Insufficient funds");
-        }
-        user.setMoney(user.getMoney() - amount.doubleValue());
-        return new EconomyResponse(amount, new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.SUCCESS, null);
+        return withdrawAmount(accountID, amount);
     }
 
     @Override
     public  EconomyResponse withdraw( String pluginName,  UUID accountID,
              String worldName,  BigDecimal amount) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return new EconomyResponse(new BigDecimal(0), new BigDecimal(0), EconomyResponse.ResponseType.FAILURE, "Account not found");
-        }
-        if (user.getMoney() < amount.doubleValue()) {
-            return new EconomyResponse(new BigDecimal(0), new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.FAILURE, "Insufficient funds");
-        }
-        user.setMoney(user.getMoney() - amount.doubleValue());
-        return new EconomyResponse(amount, new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.SUCCESS, null);
+        return withdrawAmount(accountID, amount);
     }
 
     @Override
     public  EconomyResponse withdraw( String pluginName,  UUID accountID,
              String worldName,  String currency,  BigDecimal amount) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return new EconomyResponse(new BigDecimal(0), new BigDecimal(0), EconomyResponse.ResponseType.FAILURE, "Account not found");
-        }
-        if (user.getMoney() < amount.doubleValue()) {
-            return new EconomyResponse(new BigDecimal(0), new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.FAILURE, "Insufficient funds");
-        }
-        user.setMoney(user.getMoney() - amount.doubleValue());
-        return new EconomyResponse(amount, new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.SUCCESS, null);
+        return withdrawAmount(accountID, amount);
     }
 
     @Override
     public  EconomyResponse deposit( String pluginName,  UUID accountID,
              BigDecimal amount) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return new EconomyResponse(new BigDecimal(0), new BigDecimal(0), EconomyResponse.ResponseType.FAILURE, "Account not found");
-        }
-
-        user.setMoney(user.getMoney() + amount.doubleValue());
-        return new EconomyResponse(amount, new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.SUCCESS, null);
+        return depositAmount(accountID, amount);
     }
 
     @Override
     public  EconomyResponse deposit( String pluginName,  UUID accountID,
              String worldName,  BigDecimal amount) {
-        User user = User.find(accountID);
-        if (user == null) {
-            return new EconomyResponse(new BigDecimal(0), new BigDecimal(0), EconomyResponse.ResponseType.FAILURE, "Account not found");
-        }
-
-        user.setMoney(user.getMoney() + amount.doubleValue());
-        return new EconomyResponse(amount, new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.SUCCESS, null);
+        return depositAmount(accountID, amount);
     }
 
     @Override
     public  EconomyResponse deposit( String pluginName,  UUID accountID,
              String worldName,  String currency,  BigDecimal amount) {
-            User user = User.find(accountID);
-            if (user == null) {
-                return new EconomyResponse(new BigDecimal(0), new BigDecimal(0), EconomyResponse.ResponseType.FAILURE, "Account not found");
-            }
-
-            user.setMoney(user.getMoney() + amount.doubleValue());
-            return new EconomyResponse(amount, new BigDecimal(user.getMoney()), EconomyResponse.ResponseType.SUCCESS, null);
+        return depositAmount(accountID, amount);
     }
 
     @Override
@@ -343,4 +287,74 @@ public class TerrataleVaultEconomy implements Economy {
         // TODO Auto-generated method stub
         throw new UnsupportedOperationException("Unimplemented method 'updateAccountPermission'");
     }
+
+    /* ---------------------- Operaciones sobre el monedero ---------------------- */
+
+    // Todas las operaciones pasan por la caché de monederos; sin ella se lee el usuario y los cambios se aplican
+    // con UPDATE relativos (User.withdraw/deposit)
+
+    private BigDecimal balanceOf(UUID accountID) {
+        long start = System.nanoTime();
+        try {
+            WalletCache wallets = WalletCache.get();
+            if (wallets != null) {
+                Long balance = wallets.getBalance(accountID);
+                return balance == null ? BigDecimal.ZERO : Money.toBigDecimal(balance);
+            }
+
+            User user = User.find(accountID);
+            if (user == null) {
+                return BigDecimal.ZERO;
+            }
+            return Money.toBigDecimal(user.getMoney());
+        } finally {
+            BALANCE_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    private boolean hasAmount(UUID accountID, BigDecimal amount) {
+        long start = System.nanoTime();
+        try {
+            long minor = Money.fromBigDecimal(amount);
+            WalletCache wallets = WalletCache.get();
+            if (wallets != null) {
+                return wallets.has(accountID, minor);
+            }
+
+            User user = User.find(accountID);
+            if (user == null) {
+                return false;
+            }
+            return user.getMoney() >= minor;
+        } finally {
+            HAS_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    private EconomyResponse withdrawAmount(UUID accountID, BigDecimal amount) {
+        long start = System.nanoTime();
+        try {
+            long minor = Money.fromBigDecimal(amount);
+            return toResponse(amount, User.withdraw(accountID, minor));
+        } finally {
+            WITHDRAW_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    private EconomyResponse depositAmount(UUID accountID, BigDecimal amount) {
+        long start = System.nanoTime();
+        try {
+            long minor = Money.fromBigDecimal(amount);
+            return toResponse(amount, User.deposit(accountID, minor));
+        } finally {
+            DEPOSIT_TIMER.record(System.nanoTime() - start);
+        }
+    }
+
+    private EconomyResponse toResponse(BigDecimal amount, WalletCache.WalletResult result) {
+        if (!result.success) {
+            return new EconomyResponse(BigDecimal.ZERO, Money.toBigDecimal(result.balance), EconomyResponse.ResponseType.FAILURE, result.error);
+        }
+        return new EconomyResponse(amount, Money.toBigDecimal(result.balance), EconomyResponse.ResponseType.SUCCESS, null);
+    }
 }
@@ -0,0 +1,54 @@
+package terratale.responses;
+
+import terratale.models.Bank;
+import terratale.models.BankAccount;
+
+public class AccountOperationResponse {
+
+    private BankAccount account;
+    private Bank bank;
+    private Bank targetBank;
+    private long amount;
+    private double feePercent;
+    private long feeAmount;
+    private long newBalance;
+
+    public AccountOperationResponse(BankAccount account, Bank bank, Bank targetBank, long amount, double feePercent, long feeAmount, long newBalance) {
+        this.account = account;
+        this.bank = bank;
+        this.targetBank = targetBank;
+        this.amount = amount;
+        this.feePercent = feePercent;
+        this.feeAmount = feeAmount;
+        this.newBalance = newBalance;
+    }
+
+    public BankAccount getAccount() {
+        return account;
+    }
+
+    public Bank getBank() {
+        return bank;
+    }
+
+    // Banco de la cuenta destino (solo en transferencias)
+    public Bank getTargetBank() {
+        return targetBank;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public double getFeePercent() {
+        return feePercent;
+    }
+
+    public long getFeeAmount() {
+        return feeAmount;
+    }
+
+    public long getNewBalance() {
+        return newBalance;
+    }
+}
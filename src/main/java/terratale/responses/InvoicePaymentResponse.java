@@ -5,12 +5,12 @@ import terratale.models.Invoice;
 public class InvoicePaymentResponse {
     
     private Invoice invoice;
-    private double totalDeducted;
-    private double bankTransferFee;
-    private double governmentFee;
-    private double newBalance;
+    private long totalDeducted;
+    private long bankTransferFee;
+    private long governmentFee;
+    private long newBalance;
 
-    public InvoicePaymentResponse(Invoice invoice, double totalDeducted, double bankTransferFee, double governmentFee, double newBalance) {
+    public InvoicePaymentResponse(Invoice invoice, long totalDeducted, long bankTransferFee, long governmentFee, long newBalance) {
         this.invoice = invoice;
         this.totalDeducted = totalDeducted;
         this.bankTransferFee = bankTransferFee;
@@ -22,19 +22,19 @@ public class InvoicePaymentResponse {
         return invoice;
     }
 
-    public double getTotalDeducted() {
+    public long getTotalDeducted() {
         return totalDeducted;
     }
 
-    public double getBankTransferFee() {
+    public long getBankTransferFee() {
         return bankTransferFee;
     }
 
-    public double getGovernmentFee() {
+    public long getGovernmentFee() {
         return governmentFee;
     }
 
-    public double getNewBalance() {
+    public long getNewBalance() {
         return newBalance;
     }
 }
@@ -0,0 +1,535 @@
+package terratale.scheduler;
+
+import terratale.Helpers.Money;
+import terratale.cache.SessionManager;
+import terratale.models.BankAccount;
+import terratale.models.Invoice;
+import terratale.models.Model;
+import terratale.models.ScheduleLog;
+import terratale.models.SchedulePayment;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Genera automáticamente las facturas de los pagos programados.
+ *
+ * Los pagos activos se indexan en una {@link TimingWheel} por su próxima fecha de cobro (día del mes a las
+ * 00:00, hora del servidor). Cuando vencen se procesan en lotes en un pool de hilos acotado. Al arrancar
+ * se recuperan los meses que no se cobraron mientras el servidor estaba apagado (hasta
+ * {@code catchUpDays} atrás). Cada (pago, mes) se genera como mucho una vez: la factura y su log con
+ * {@code period} se insertan en la misma transacción, protegidos por la clave única de schedule_logs.
+ */
+public class PaymentScheduler {
+
+    private static PaymentScheduler instance;
+
+    private final ScheduledExecutorService ticker; // único hilo que toca la rueda
+    private final ThreadPoolExecutor workers;
+    private final TimingWheel wheel;
+    private final int batchSize;
+    private final int catchUpDays;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<Integer, YearMonth> lastPeriods = new ConcurrentHashMap<>();
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLongArray stageNanos = new AtomicLongArray(STAGES.length);
+    private volatile long lastFireAt = 0;
+
+    // Etapas del procesado por lotes, para los tiempos de /schedulepayment process y /terratale scheduler
+    private static final String[] STAGES = {"carga", "prefetch", "construcción", "inserción", "commit"};
+    private static final int LOAD = 0, PREFETCH = 1, BUILD = 2, INSERT = 3, COMMIT = 4;
+
+    // SQLite admite 999 parámetros por consulta y el prefetch usa dos por pago (cuenta receptora y pagadora)
+    private static final int MAX_BATCH_SIZE = 400;
+
+    // Resultado de una pasada
+    public static class Summary {
+        public final int generated;
+        public final int skipped;
+        public final int failed;
+        final long[] stageNanos;
+
+        Summary(int generated, int skipped, int failed) {
+            this(generated, skipped, failed, new long[STAGES.length]);
+        }
+
+        Summary(int generated, int skipped, int failed, long[] stageNanos) {
+            this.generated = generated;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.stageNanos = stageNanos;
+        }
+
+        Summary plus(Summary other) {
+            long[] nanos = new long[STAGES.length];
+            for (int i = 0; i < nanos.length; i++) {
+                nanos[i] = stageNanos[i] + other.stageNanos[i];
+            }
+            return new Summary(generated + other.generated, skipped + other.skipped, failed + other.failed, nanos);
+        }
+
+        // Tiempo por etapa sumado entre lotes (los lotes van en paralelo, no es tiempo de reloj)
+        public String timings() {
+            return formatTimings(stageNanos);
+        }
+    }
+
+    private PaymentScheduler(long tickMs, int workerCount, int batchSize, int catchUpDays) {
+        this.batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        this.catchUpDays = Math.max(0, catchUpDays);
+        this.wheel = new TimingWheel(tickMs, System.currentTimeMillis());
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TerraEconomy-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, workerCount);
+        // Cola acotada: si se llena, el hilo del planificador procesa el lote él mismo y deja de encolar
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * 4),
+            r -> {
+                Thread t = new Thread(r, "TerraEconomy-scheduler-worker-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+        ticker.execute(this::loadAll);
+        long interval = Math.max(1000L, tickMs);
+        ticker.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static void start(long tickMs, int workers, int batchSize, int catchUpDays) {
+        stop();
+        instance = new PaymentScheduler(tickMs, workers, batchSize, catchUpDays);
+    }
+
+    // null si el planificador no está arrancado
+    public static PaymentScheduler get() {
+        return instance;
+    }
+
+    public static void stop() {
+        if (instance != null) {
+            instance.ticker.shutdownNow();
+            instance.workers.shutdown();
+            try {
+                instance.workers.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            instance = null;
+        }
+    }
+
+    /* ---------------------- Cambios desde comandos ---------------------- */
+
+    public void onScheduleSaved(SchedulePayment schedulePayment) {
+        ticker.execute(() -> {
+            if ("active".equals(schedulePayment.getStatus())) {
+                schedule(schedulePayment.getId(), nextFire(schedulePayment));
+            } else {
+                wheel.cancel(schedulePayment.getId());
+            }
+        });
+    }
+
+    public void onScheduleDeleted(int schedulePaymentId) {
+        ticker.execute(() -> {
+            wheel.cancel(schedulePaymentId);
+            lastPeriods.remove(schedulePaymentId);
+        });
+    }
+
+    // Vuelve a revisar todos los pagos activos y genera lo pendiente (/schedulepayment process)
+    public CompletableFuture<Summary> runNow() {
+        return CompletableFuture.supplyAsync(this::loadAll, ticker).thenCompose(future -> future);
+    }
+
+    /* ---------------------- Planificación ---------------------- */
+
+    private CompletableFuture<Summary> loadAll() {
+        try {
+            for (Map.Entry<Integer, String> entry : ScheduleLog.findLastPeriods().entrySet()) {
+                lastPeriods.merge(entry.getKey(), YearMonth.parse(entry.getValue()),
+                    (a, b) -> a.isAfter(b) ? a : b);
+            }
+
+            List<Integer> due = new ArrayList<>();
+            List<SchedulePayment> active = SchedulePayment.findActive();
+            for (SchedulePayment schedulePayment : active) {
+                wheel.schedule(schedulePayment.getId(), nextFire(schedulePayment), due);
+            }
+            Model.logInfo("Scheduler: " + active.size() + " scheduled payment(s) indexed, " + due.size() + " due now");
+            return dispatch(due);
+        } catch (Exception e) {
+            Model.logError("Scheduler failed to load scheduled payments: " + e.getMessage());
+            e.printStackTrace();
+            return CompletableFuture.completedFuture(new Summary(0, 0, 0));
+        }
+    }
+
+    private void tick() {
+        try {
+            dispatch(wheel.advance(System.currentTimeMillis()));
+        } catch (Exception e) {
+            Model.logError("Scheduler tick failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void schedule(int id, long fireAt) {
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(id, fireAt, due);
+        dispatch(due);
+    }
+
+    private CompletableFuture<Summary> dispatch(List<Integer> due) {
+        if (due.isEmpty()) {
+            return CompletableFuture.completedFuture(new Summary(0, 0, 0));
+        }
+        lastFireAt = System.currentTimeMillis();
+
+        CompletableFuture<Summary> total = CompletableFuture.completedFuture(new Summary(0, 0, 0));
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Integer> batch = new ArrayList<>(due.subList(from, Math.min(due.size(), from + batchSize)));
+            CompletableFuture<Summary> result = CompletableFuture.supplyAsync(() -> processBatch(batch), workers);
+            total = total.thenCombine(result, Summary::plus);
+        }
+        return total;
+    }
+
+    // Un vencimiento pendiente de un lote
+    private static final class Due {
+        final SchedulePayment schedulePayment;
+        final YearMonth period;
+        final long fireAt;
+
+        Due(SchedulePayment schedulePayment, YearMonth period, long fireAt) {
+            this.schedulePayment = schedulePayment;
+            this.period = period;
+            this.fireAt = fireAt;
+        }
+    }
+
+    /*
+     * Un lote se procesa en etapas: carga de los pagos (1 consulta), prefetch de las cuentas (1 consulta
+     * IN), construcción de las facturas en memoria y una única transacción con los meses ya generados
+     * (2 consultas IN), las facturas y los logs insertados por lotes. Si la transacción falla (p. ej. la
+     * clave única porque otro proceso generó el mismo mes) el lote se repite pago a pago con generate().
+     */
+    private Summary processBatch(List<Integer> ids) {
+        long[] nanos = new long[STAGES.length];
+        long stageStart = System.nanoTime();
+
+        List<SchedulePayment> schedules = new ArrayList<>();
+        for (SchedulePayment schedulePayment : SchedulePayment.findByIds(ids)) {
+            if ("active".equals(schedulePayment.getStatus())) {
+                schedules.add(schedulePayment); // pausado o desactivado: no se vuelve a programar
+            }
+        }
+        stageStart = lap(nanos, LOAD, stageStart);
+
+        Set<String> accountNumbers = new HashSet<>();
+        for (SchedulePayment schedulePayment : schedules) {
+            accountNumbers.add(schedulePayment.getReceptorAccountNumber());
+            accountNumbers.add(schedulePayment.getPayerAccountNumber());
+        }
+        Set<String> existingAccounts = BankAccount.findExistingAccountNumbers(accountNumbers);
+        stageStart = lap(nanos, PREFETCH, stageStart);
+
+        // Meses vencidos de cada pago y próxima fecha de cobro
+        long now = System.currentTimeMillis();
+        List<Due> pending = new ArrayList<>();
+        List<Integer> pendingIds = new ArrayList<>();
+        Map<Integer, Long> nextFires = new HashMap<>();
+        for (SchedulePayment schedulePayment : schedules) {
+            YearMonth period = firstPendingPeriod(schedulePayment);
+            long fireAt = fireTime(schedulePayment, period);
+            if (fireAt <= now) {
+                pendingIds.add(schedulePayment.getId());
+            }
+            while (fireAt <= now) {
+                pending.add(new Due(schedulePayment, period, fireAt));
+                period = period.plusMonths(1);
+                fireAt = fireTime(schedulePayment, period);
+            }
+            nextFires.put(schedulePayment.getId(), fireAt);
+        }
+        stageStart = lap(nanos, BUILD, stageStart);
+
+        int batchGenerated = 0;
+        int batchSkipped = 0;
+        int batchFailed = 0;
+
+        if (!pending.isEmpty()) {
+            LocalDate today = LocalDate.now(zone);
+            long[] insideNanos = new long[STAGES.length];
+            long transactionStart = System.nanoTime();
+
+            try {
+                int[] counts = Model.inTransaction(conn -> {
+                    long inside = System.nanoTime();
+                    Map<Integer, Set<String>> donePeriods = ScheduleLog.findPeriods(conn, pendingIds);
+                    Map<Integer, Timestamp> legacySuccess = ScheduleLog.findLastLegacySuccess(conn, pendingIds);
+                    inside = lap(insideNanos, PREFETCH, inside);
+
+                    List<Invoice> invoices = new ArrayList<>();
+                    List<Due> invoiced = new ArrayList<>();
+                    List<ScheduleLog> logs = new ArrayList<>();
+                    int skippedCount = 0;
+                    for (Due due : pending) {
+                        SchedulePayment schedulePayment = due.schedulePayment;
+                        int id = schedulePayment.getId();
+                        String periodKey = due.period.toString();
+                        Timestamp legacy = legacySuccess.get(id);
+
+                        if (donePeriods.getOrDefault(id, Set.of()).contains(periodKey)
+                                || (legacy != null && legacy.getTime() >= due.fireAt)) {
+                            skippedCount++;
+                        } else if (!existingAccounts.contains(schedulePayment.getReceptorAccountNumber())
+                                || !existingAccounts.contains(schedulePayment.getPayerAccountNumber())) {
+                            logs.add(new ScheduleLog(id, null, "failed",
+                                "Una o ambas cuentas no existen (" + periodKey + ")"));
+                        } else {
+                            invoices.add(new Invoice(
+                                schedulePayment.getReceptorAccountNumber(),
+                                schedulePayment.getPayerAccountNumber(),
+                                schedulePayment.getAmount(),
+                                Date.valueOf(today.plusDays(schedulePayment.getDueDays())),
+                                schedulePayment.getDescription(),
+                                Invoice.GOVERNMENT_SYSTEM
+                            ));
+                            invoiced.add(due);
+                        }
+                    }
+                    int failedCount = logs.size();
+                    inside = lap(insideNanos, BUILD, inside);
+
+                    Invoice.insertBatch(conn, invoices);
+                    for (int i = 0; i < invoices.size(); i++) {
+                        Invoice invoice = invoices.get(i);
+                        Due due = invoiced.get(i);
+                        String periodKey = due.period.toString();
+                        String message = "Factura #" + invoice.getId() + " creada exitosamente (" + periodKey + ", $"
+                            + Money.format(due.schedulePayment.getAmount()) + ")";
+                        logs.add(new ScheduleLog(due.schedulePayment.getId(), invoice.getId(), "success", message, periodKey));
+                    }
+                    ScheduleLog.insertBatch(conn, logs);
+                    lap(insideNanos, INSERT, inside);
+
+                    return new int[] {invoices.size(), skippedCount, failedCount};
+                });
+                if (counts[0] > 0) {
+                    SessionManager.invalidateInvoices();
+                }
+
+                long transactionNanos = System.nanoTime() - transactionStart;
+                for (int stage : new int[] {PREFETCH, BUILD, INSERT}) {
+                    nanos[stage] += insideNanos[stage];
+                    transactionNanos -= insideNanos[stage];
+                }
+                nanos[COMMIT] += Math.max(0, transactionNanos);
+
+                batchGenerated = counts[0];
+                batchSkipped = counts[1];
+                batchFailed = counts[2];
+                for (Due due : pending) {
+                    lastPeriods.merge(due.schedulePayment.getId(), due.period, (a, b) -> a.isAfter(b) ? a : b);
+                }
+            } catch (Exception e) {
+                Model.logError("Scheduler batch of " + pending.size() + " period(s) failed, retrying one by one: "
+                    + e.getMessage());
+                for (Due due : pending) {
+                    switch (generate(due.schedulePayment, due.period)) {
+                        case GENERATED -> batchGenerated++;
+                        case SKIPPED -> batchSkipped++;
+                        case FAILED -> batchFailed++;
+                    }
+                }
+                lap(nanos, INSERT, transactionStart);
+            }
+        }
+
+        if (!ticker.isShutdown()) {
+            ticker.execute(() -> nextFires.forEach(this::schedule));
+        }
+
+        generated.addAndGet(batchGenerated);
+        skipped.addAndGet(batchSkipped);
+        failed.addAndGet(batchFailed);
+        for (int i = 0; i < nanos.length; i++) {
+            stageNanos.addAndGet(i, nanos[i]);
+        }
+        return new Summary(batchGenerated, batchSkipped, batchFailed, nanos);
+    }
+
+    private static long lap(long[] nanos, int stage, long since) {
+        long now = System.nanoTime();
+        nanos[stage] += now - since;
+        return now;
+    }
+
+    private static String formatTimings(long[] nanos) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < STAGES.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(STAGES[i]).append(' ').append(String.format("%.1f", nanos[i] / 1_000_000.0)).append("ms");
+        }
+        return builder.toString();
+    }
+
+    private enum Outcome { GENERATED, SKIPPED, FAILED }
+
+    private Outcome generate(SchedulePayment schedulePayment, YearMonth period) {
+        int id = schedulePayment.getId();
+        String periodKey = period.toString();
+        Timestamp periodStart = new Timestamp(fireTime(schedulePayment, period));
+
+        try {
+            // Verificar que las cuentas aún existan
+            if (BankAccount.findByAccountNumber(schedulePayment.getReceptorAccountNumber()) == null
+                    || BankAccount.findByAccountNumber(schedulePayment.getPayerAccountNumber()) == null) {
+                new ScheduleLog(id, null, "failed", "Una o ambas cuentas no existen (" + periodKey + ")").save();
+                lastPeriods.merge(id, period, (a, b) -> a.isAfter(b) ? a : b);
+                return Outcome.FAILED;
+            }
+
+            LocalDate dueDate = LocalDate.now(zone).plusDays(schedulePayment.getDueDays());
+
+            Integer invoiceId = Model.inTransaction(conn -> {
+                if (ScheduleLog.existsForPeriod(conn, id, periodKey, periodStart)) {
+                    return null;
+                }
+
+                Invoice invoice = new Invoice(
+                    schedulePayment.getReceptorAccountNumber(),
+                    schedulePayment.getPayerAccountNumber(),
+                    schedulePayment.getAmount(),
+                    Date.valueOf(dueDate),
+                    schedulePayment.getDescription(),
+                    Invoice.GOVERNMENT_SYSTEM
+                );
+                invoice.save(conn);
+
+                String message = "Factura #" + invoice.getId() + " creada exitosamente (" + periodKey + ", $"
+                    + Money.format(schedulePayment.getAmount()) + ")";
+                new ScheduleLog(id, invoice.getId(), "success", message, periodKey).save(conn);
+                return invoice.getId();
+            });
+            if (invoiceId != null) {
+                SessionManager.invalidateInvoices();
+            }
+
+            lastPeriods.merge(id, period, (a, b) -> a.isAfter(b) ? a : b);
+            return invoiceId != null ? Outcome.GENERATED : Outcome.SKIPPED;
+        } catch (SQLException e) {
+            // Otro proceso pudo insertar el mismo (pago, mes) a la vez: la clave única lo rechaza
+            if (alreadyGenerated(id, periodKey, periodStart)) {
+                lastPeriods.merge(id, period, (a, b) -> a.isAfter(b) ? a : b);
+                return Outcome.SKIPPED;
+            }
+            Model.logError("Scheduled payment " + id + " (" + periodKey + ") failed: " + e.getMessage());
+            new ScheduleLog(id, null, "failed", "Error al procesar " + periodKey + ": " + e.getMessage()).save();
+            return Outcome.FAILED;
+        } catch (Exception e) {
+            Model.logError("Scheduled payment " + id + " (" + periodKey + ") failed: " + e.getMessage());
+            e.printStackTrace();
+            new ScheduleLog(id, null, "failed", "Error al procesar " + periodKey + ": " + e.getMessage()).save();
+            return Outcome.FAILED;
+        }
+    }
+
+    private static boolean alreadyGenerated(int id, String periodKey, Timestamp periodStart) {
+        try (Connection conn = Model.getConnection()) {
+            return ScheduleLog.existsForPeriod(conn, id, periodKey, periodStart);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /* ---------------------- Fechas ---------------------- */
+
+    // Fecha de cobro de un mes; si el día no existe (31 en abril) se cobra el último día del mes
+    private long fireTime(SchedulePayment schedulePayment, YearMonth period) {
+        int day = Math.max(1, Math.min(schedulePayment.getDayOfMonth(), period.lengthOfMonth()));
+        return period.atDay(day).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    // Primer mes que falta por cobrar: no antes de la creación del pago ni de la ventana de recuperación
+    private YearMonth firstPendingPeriod(SchedulePayment schedulePayment) {
+        LocalDate today = LocalDate.now(zone);
+        LocalDate windowStart = today.minusDays(catchUpDays);
+        Timestamp createdAt = schedulePayment.getCreatedAt();
+        if (createdAt != null) {
+            LocalDate created = createdAt.toInstant().atZone(zone).toLocalDate();
+            if (created.isAfter(windowStart)) {
+                windowStart = created;
+            }
+        } else {
+            windowStart = today;
+        }
+
+        YearMonth period = YearMonth.from(windowStart);
+        long windowStartMs = windowStart.atStartOfDay(zone).toInstant().toEpochMilli();
+        if (fireTime(schedulePayment, period) < windowStartMs) {
+            period = period.plusMonths(1);
+        }
+
+        YearMonth last = lastPeriods.get(schedulePayment.getId());
+        if (last != null && !last.isBefore(period)) {
+            period = last.plusMonths(1);
+        }
+        return period;
+    }
+
+    private long nextFire(SchedulePayment schedulePayment) {
+        return fireTime(schedulePayment, firstPendingPeriod(schedulePayment));
+    }
+
+    /* ---------------------- Estado ---------------------- */
+
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Planificador: " + wheel.size() + " pagos programados en espera, " + workers.getActiveCount()
+            + " lotes en curso, " + workers.getQueue().size() + " en cola");
+        lines.add("  Facturas generadas: " + generated.get() + " | ya existentes: " + skipped.get()
+            + " | fallidas: " + failed.get());
+        long[] nanos = new long[STAGES.length];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = stageNanos.get(i);
+        }
+        lines.add("  Tiempo por etapa: " + formatTimings(nanos));
+        lines.add("  Última ejecución: " + (lastFireAt == 0 ? "nunca" : new Timestamp(lastFireAt).toString()));
+        return lines;
+    }
+}
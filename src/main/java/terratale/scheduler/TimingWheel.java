@@ -0,0 +1,143 @@
+package terratale.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rueda de tiempo jerárquica: {@code LEVELS} niveles de {@code SLOTS} casillas cada uno. El nivel 0 avanza
+ * una casilla por tick, el nivel 1 una por cada vuelta del nivel 0, etc. Cada entrada se guarda en el
+ * nivel más bajo que la contiene y baja de nivel (cascada) cuando se acerca su hora, así que programar,
+ * reprogramar y avanzar cuestan O(1) amortizado sin importar cuántos pagos haya.
+ *
+ * Con tick de 1 minuto cubre ~2000 años. No es thread-safe: la usa solo el hilo del planificador.
+ */
+class TimingWheel {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+
+    // Si el reloj salta más que esto (servidor suspendido...), se reconstruye en vez de avanzar tick a tick
+    private static final long MAX_STEP_TICKS = (long) SLOTS * SLOTS;
+
+    private static final class Entry {
+        final int id;
+        final long tick;
+
+        Entry(int id, long tick) {
+            this.id = id;
+            this.tick = tick;
+        }
+    }
+
+    private final long tickMs;
+    @SuppressWarnings("unchecked")
+    private final List<Entry>[][] wheels = new List[LEVELS][SLOTS];
+    private final Map<Integer, Long> scheduled = new HashMap<>(); // id -> tick vigente (las demás entradas son obsoletas)
+    private long currentTick;
+
+    TimingWheel(long tickMs, long nowMs) {
+        this.tickMs = Math.max(1, tickMs);
+        this.currentTick = nowMs / this.tickMs;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheels[level][slot] = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * Programa (o reprograma) un id para {@code fireAtMs}. Si ya ha vencido se añade a {@code due}
+     * para que el llamador lo ejecute ya.
+     */
+    void schedule(int id, long fireAtMs, List<Integer> due) {
+        long tick = Math.max(fireAtMs / tickMs, 0);
+        scheduled.put(id, tick);
+        place(new Entry(id, tick), due);
+    }
+
+    void cancel(int id) {
+        scheduled.remove(id);
+    }
+
+    boolean isScheduled(int id) {
+        return scheduled.containsKey(id);
+    }
+
+    int size() {
+        return scheduled.size();
+    }
+
+    // Avanza hasta nowMs y devuelve los ids vencidos
+    List<Integer> advance(long nowMs) {
+        List<Integer> due = new ArrayList<>();
+        long targetTick = nowMs / tickMs;
+
+        if (targetTick - currentTick > MAX_STEP_TICKS) {
+            rebuild(targetTick, due);
+            return due;
+        }
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Bajar de nivel las casillas que empiezan en este tick, de arriba abajo
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                long lowerBits = currentTick & ((1L << (BITS * level)) - 1);
+                if (lowerBits == 0) {
+                    int slot = (int) ((currentTick >>> (BITS * level)) & MASK);
+                    cascade(wheels[level][slot], due);
+                }
+            }
+            cascade(wheels[0][(int) (currentTick & MASK)], due);
+        }
+        return due;
+    }
+
+    private void cascade(List<Entry> bucket, List<Integer> due) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(bucket);
+        bucket.clear();
+        for (Entry entry : entries) {
+            place(entry, due);
+        }
+    }
+
+    private void place(Entry entry, List<Integer> due) {
+        Long current = scheduled.get(entry.id);
+        if (current == null || current != entry.tick) {
+            return; // cancelada o reprogramada
+        }
+
+        if (entry.tick <= currentTick) {
+            scheduled.remove(entry.id);
+            due.add(entry.id);
+            return;
+        }
+
+        // Nivel más bajo en el que la entrada y el tick actual comparten los bits superiores
+        int level = 0;
+        while (level < LEVELS - 1 && (entry.tick >>> (BITS * (level + 1))) != (currentTick >>> (BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((entry.tick >>> (BITS * level)) & MASK);
+        wheels[level][slot].add(entry);
+    }
+
+    private void rebuild(long targetTick, List<Integer> due) {
+        for (List<Entry>[] level : wheels) {
+            for (List<Entry> bucket : level) {
+                bucket.clear();
+            }
+        }
+        currentTick = targetTick;
+        for (Map.Entry<Integer, Long> entry : new ArrayList<>(scheduled.entrySet())) {
+            place(new Entry(entry.getKey(), entry.getValue()), due);
+        }
+    }
+}
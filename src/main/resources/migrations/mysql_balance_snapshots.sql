@@ -0,0 +1,19 @@
+-- MySQL migration for periodic balance snapshots
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    taken_at BIGINT NOT NULL,
+    last_entry_id BIGINT NOT NULL,
+    holders INT NOT NULL,
+    changed INT NOT NULL,
+    INDEX idx_balance_snapshots_taken (taken_at)
+);
+
+-- Solo los titulares cuyo saldo cambió desde la instantánea anterior
+CREATE TABLE IF NOT EXISTS balance_snapshot_values (
+    snapshot_id BIGINT NOT NULL,
+    holder_type CHAR(1) NOT NULL,
+    holder_id VARCHAR(64) NOT NULL,
+    balance BIGINT NOT NULL,
+    PRIMARY KEY (holder_type, holder_id, snapshot_id),
+    FOREIGN KEY(snapshot_id) REFERENCES balance_snapshots(id)
+);
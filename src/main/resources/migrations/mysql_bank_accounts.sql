@@ -3,7 +3,7 @@ CREATE TABLE IF NOT EXISTS bank_accounts (
     id INT AUTO_INCREMENT PRIMARY KEY,
     bank_id INT NOT NULL,
     account_number VARCHAR(50),
-    balance DECIMAL(15,2) DEFAULT 0.00 NOT NULL,
+    balance BIGINT DEFAULT 0 NOT NULL,
     withdraw_fee DECIMAL(15,2),
     deposit_fee DECIMAL(15,2),
     transactions_fee DECIMAL(15,2),
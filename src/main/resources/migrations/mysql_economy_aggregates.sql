@@ -0,0 +1,6 @@
+-- MySQL migration for economy_aggregates table
+CREATE TABLE IF NOT EXISTS economy_aggregates (
+    name VARCHAR(64) PRIMARY KEY,
+    value BIGINT NOT NULL,
+    updated_at BIGINT
+);
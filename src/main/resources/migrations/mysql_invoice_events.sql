@@ -0,0 +1,10 @@
+-- MySQL migration for invoice_events table
+CREATE TABLE IF NOT EXISTS invoice_events (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    invoice_id INT NOT NULL,
+    type VARCHAR(32) NOT NULL,
+    actor VARCHAR(255),
+    timestamp BIGINT NOT NULL,
+    INDEX idx_invoice_events_invoice (invoice_id),
+    FOREIGN KEY(invoice_id) REFERENCES invoices(id) ON DELETE CASCADE
+);
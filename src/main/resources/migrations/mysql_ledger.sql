@@ -0,0 +1,19 @@
+-- MySQL migration for the double-entry ledger (ledger_entries + ledger_postings)
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    type VARCHAR(50) NOT NULL,
+    actor VARCHAR(36),
+    created_at BIGINT NOT NULL
+);
+
+-- holder_type: A = cuenta bancaria, B = banco, U = dinero en mano, S = sistema (emisión, ajustes)
+CREATE TABLE IF NOT EXISTS ledger_postings (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entry_id BIGINT NOT NULL,
+    holder_type CHAR(1) NOT NULL,
+    holder_id VARCHAR(64) NOT NULL,
+    amount BIGINT NOT NULL,
+    INDEX idx_ledger_postings_entry (entry_id),
+    INDEX idx_ledger_postings_holder (holder_type, holder_id),
+    FOREIGN KEY(entry_id) REFERENCES ledger_entries(id)
+);
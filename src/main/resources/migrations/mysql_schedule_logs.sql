@@ -5,10 +5,12 @@ CREATE TABLE IF NOT EXISTS schedule_logs (
     status VARCHAR(50) NOT NULL,
     message TEXT,
     executed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    period VARCHAR(7) NULL,
     INDEX idx_schedule_payment (schedule_payment_id),
     INDEX idx_invoice (invoice_id),
     INDEX idx_status (status),
     INDEX idx_executed_at (executed_at),
+    UNIQUE KEY uq_schedule_period (schedule_payment_id, period),
     FOREIGN KEY (schedule_payment_id) REFERENCES schedule_payments(id) ON DELETE CASCADE,
     FOREIGN KEY (invoice_id) REFERENCES invoices(id) ON DELETE SET NULL
 );
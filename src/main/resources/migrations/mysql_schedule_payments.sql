@@ -4,7 +4,7 @@ CREATE TABLE IF NOT EXISTS schedule_payments (
     payer_account_number VARCHAR(255) NOT NULL,
     description TEXT,
     due_days INT NOT NULL,
-    amount DOUBLE NOT NULL,
+    amount BIGINT NOT NULL,
     day_of_month INT NOT NULL,
     status VARCHAR(50) DEFAULT 'active',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
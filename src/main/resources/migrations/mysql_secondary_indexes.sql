@@ -0,0 +1,14 @@
+-- MySQL: índices para los filtros de los finders más usados (/terratale explain los comprueba).
+-- bank_accounts.account_number ya es único por add_key_to_bank_accounts.
+CREATE INDEX idx_bank_accounts_bank ON bank_accounts(bank_id);
+CREATE INDEX idx_bank_accounts_owners_owner ON bank_accounts_owners(owner_uuid);
+CREATE INDEX idx_transactions_account_time ON transactions(account_id, timestamp);
+CREATE INDEX idx_bank_transactions_bank_time ON bank_transactions(bank_id, timestamp);
+CREATE INDEX idx_invoices_payer ON invoices(payer_account_number);
+CREATE INDEX idx_invoices_receptor ON invoices(receptor_account_number);
+CREATE INDEX idx_invoices_status ON invoices(status);
+CREATE INDEX idx_users_username ON users(username);
+CREATE INDEX idx_banks_owner ON banks(owner_uuid);
+CREATE INDEX idx_banks_name ON banks(name);
+CREATE INDEX idx_account_invitations_invited ON account_invitations(invited_uuid);
+CREATE INDEX idx_bank_invitations_invited ON bank_invitations(invited_uuid);
@@ -4,7 +4,7 @@ CREATE TABLE IF NOT EXISTS transactions (
     user_uuid VARCHAR(36),
     account_id INT,
     type VARCHAR(20) NOT NULL,
-    amount DECIMAL(15,2) NOT NULL,
+    amount BIGINT NOT NULL,
     timestamp BIGINT,
     FOREIGN KEY(account_id) REFERENCES bank_accounts(id),
     FOREIGN KEY(user_uuid) REFERENCES users(uuid)
@@ -2,6 +2,6 @@
 CREATE TABLE IF NOT EXISTS users (
     uuid VARCHAR(36) PRIMARY KEY,
     username VARCHAR(255) NOT NULL,
-    money DECIMAL(15,2) DEFAULT 0.00 NOT NULL,
+    money BIGINT DEFAULT 0 NOT NULL,
     last_login BIGINT
 );
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- SQLite no admite ALTER TABLE ... ADD UNIQUE KEY: el índice único tiene el mismo efecto
+CREATE UNIQUE INDEX IF NOT EXISTS uq_bank_accounts_account_number ON bank_accounts(account_number);
@@ -0,0 +1,19 @@
+-- SQLite migration for periodic balance snapshots
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    taken_at INTEGER NOT NULL,
+    last_entry_id INTEGER NOT NULL,
+    holders INTEGER NOT NULL,
+    changed INTEGER NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_balance_snapshots_taken ON balance_snapshots(taken_at);
+
+-- Solo los titulares cuyo saldo cambió desde la instantánea anterior
+CREATE TABLE IF NOT EXISTS balance_snapshot_values (
+    snapshot_id INTEGER NOT NULL,
+    holder_type TEXT NOT NULL,
+    holder_id TEXT NOT NULL,
+    balance INTEGER NOT NULL,
+    PRIMARY KEY (holder_type, holder_id, snapshot_id),
+    FOREIGN KEY(snapshot_id) REFERENCES balance_snapshots(id)
+) WITHOUT ROWID;
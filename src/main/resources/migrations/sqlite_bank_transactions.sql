@@ -3,7 +3,7 @@ CREATE TABLE IF NOT EXISTS bank_transactions (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     bank_id INTEGER,
     type TEXT NOT NULL,
-    amount REAL NOT NULL,
+    amount INTEGER NOT NULL,
     user_uuid TEXT NOT NULL,
     timestamp INTEGER,
     FOREIGN KEY(bank_id) REFERENCES banks(id),
@@ -0,0 +1,6 @@
+-- SQLite migration for economy_aggregates table
+CREATE TABLE IF NOT EXISTS economy_aggregates (
+    name TEXT PRIMARY KEY,
+    value INTEGER NOT NULL,
+    updated_at INTEGER
+);
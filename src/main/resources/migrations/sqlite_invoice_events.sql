@@ -0,0 +1,9 @@
+-- SQLite migration for invoice_events table (el índice lo crea InvoiceEventsMigration)
+CREATE TABLE IF NOT EXISTS invoice_events (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    invoice_id INTEGER NOT NULL,
+    type TEXT NOT NULL,
+    actor TEXT,
+    timestamp INTEGER NOT NULL,
+    FOREIGN KEY(invoice_id) REFERENCES invoices(id) ON DELETE CASCADE
+);
@@ -0,0 +1,15 @@
+-- SQLite migration for invoices table
+CREATE TABLE IF NOT EXISTS invoices (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    receptor_account_number TEXT NOT NULL,
+    payer_account_number TEXT NOT NULL,
+    amount INTEGER NOT NULL,
+    description TEXT,
+    due_date DATE,
+    status TEXT,
+    events TEXT,
+    generated_by_system INTEGER NOT NULL DEFAULT 0,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY(receptor_account_number) REFERENCES bank_accounts(account_number),
+    FOREIGN KEY(payer_account_number) REFERENCES bank_accounts(account_number)
+);
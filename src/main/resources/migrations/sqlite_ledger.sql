@@ -0,0 +1,19 @@
+-- SQLite migration for the double-entry ledger (ledger_entries + ledger_postings)
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    type TEXT NOT NULL,
+    actor TEXT,
+    created_at INTEGER NOT NULL
+);
+
+-- holder_type: A = cuenta bancaria, B = banco, U = dinero en mano, S = sistema (emisión, ajustes)
+CREATE TABLE IF NOT EXISTS ledger_postings (
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    entry_id INTEGER NOT NULL,
+    holder_type TEXT NOT NULL,
+    holder_id TEXT NOT NULL,
+    amount INTEGER NOT NULL,
+    FOREIGN KEY(entry_id) REFERENCES ledger_entries(id)
+);
+CREATE INDEX IF NOT EXISTS idx_ledger_postings_entry ON ledger_postings(entry_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_postings_holder ON ledger_postings(holder_type, holder_id);
@@ -5,6 +5,7 @@ CREATE TABLE IF NOT EXISTS schedule_logs (
     status TEXT NOT NULL,
     message TEXT,
     executed_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    period TEXT NULL,
     FOREIGN KEY (schedule_payment_id) REFERENCES schedule_payments(id) ON DELETE CASCADE,
     FOREIGN KEY (invoice_id) REFERENCES invoices(id) ON DELETE SET NULL
 );
@@ -13,3 +14,4 @@ CREATE INDEX IF NOT EXISTS idx_schedule_payment ON schedule_logs(schedule_paymen
 CREATE INDEX IF NOT EXISTS idx_invoice ON schedule_logs(invoice_id);
 CREATE INDEX IF NOT EXISTS idx_status ON schedule_logs(status);
 CREATE INDEX IF NOT EXISTS idx_executed_at ON schedule_logs(executed_at);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_schedule_period ON schedule_logs(schedule_payment_id, period);
@@ -4,7 +4,7 @@ CREATE TABLE IF NOT EXISTS schedule_payments (
     payer_account_number TEXT NOT NULL,
     description TEXT,
     due_days INTEGER NOT NULL,
-    amount REAL NOT NULL,
+    amount INTEGER NOT NULL,
     day_of_month INTEGER NOT NULL,
     status TEXT DEFAULT 'active',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP
@@ -0,0 +1,17 @@
+-- SQLite: índices para los filtros de los finders más usados (/terratale explain los comprueba).
+-- bank_accounts.account_number ya es único por add_key_to_bank_accounts.
+CREATE INDEX IF NOT EXISTS idx_bank_accounts_bank ON bank_accounts(bank_id);
+CREATE INDEX IF NOT EXISTS idx_bank_accounts_owners_owner ON bank_accounts_owners(owner_uuid);
+CREATE INDEX IF NOT EXISTS idx_transactions_account_time ON transactions(account_id, timestamp);
+CREATE INDEX IF NOT EXISTS idx_bank_transactions_bank_time ON bank_transactions(bank_id, timestamp);
+CREATE INDEX IF NOT EXISTS idx_invoices_payer ON invoices(payer_account_number);
+CREATE INDEX IF NOT EXISTS idx_invoices_receptor ON invoices(receptor_account_number);
+CREATE INDEX IF NOT EXISTS idx_invoices_status ON invoices(status);
+-- findByUsername compara con COLLATE NOCASE: el índice tiene que usar la misma
+CREATE INDEX IF NOT EXISTS idx_users_username ON users(username COLLATE NOCASE);
+CREATE INDEX IF NOT EXISTS idx_banks_owner ON banks(owner_uuid);
+CREATE INDEX IF NOT EXISTS idx_banks_name ON banks(name);
+CREATE INDEX IF NOT EXISTS idx_account_invitations_invited ON account_invitations(invited_uuid);
+CREATE INDEX IF NOT EXISTS idx_bank_invitations_invited ON bank_invitations(invited_uuid);
+-- idx_status ya lo usa schedule_payments en SQLite (los nombres de índice son globales)
+CREATE INDEX IF NOT EXISTS idx_schedule_logs_status ON schedule_logs(status);
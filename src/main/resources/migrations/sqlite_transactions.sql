@@ -4,7 +4,7 @@ CREATE TABLE IF NOT EXISTS transactions (
     user_uuid TEXT,
     account_id INTEGER,
     type TEXT NOT NULL,
-    amount REAL NOT NULL,
+    amount INTEGER NOT NULL,
     timestamp INTEGER,
     FOREIGN KEY(account_id) REFERENCES bank_accounts(id),
     FOREIGN KEY(user_uuid) REFERENCES users(uuid)
@@ -2,6 +2,6 @@
 CREATE TABLE IF NOT EXISTS users (
     uuid TEXT PRIMARY KEY,
     username TEXT NOT NULL,
-    money REAL DEFAULT 0.0 NOT NULL,
+    money INTEGER DEFAULT 0 NOT NULL,
     last_login INTEGER
 );
\ No newline at end of file
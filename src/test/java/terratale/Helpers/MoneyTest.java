@@ -0,0 +1,125 @@
+package terratale.Helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void arithmeticThrowsOnOverflow() {
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.multiply(Long.MAX_VALUE / 2 + 1, 2));
+        assertThrows(ArithmeticException.class, () -> Money.percentage(Long.MAX_VALUE, 10.0));
+        assertThrows(ArithmeticException.class, () -> Money.percentage(Long.MAX_VALUE, 10));
+
+        assertEquals(Long.MAX_VALUE, Money.add(Long.MAX_VALUE - 1, 1));
+        assertEquals(Long.MIN_VALUE, Money.subtract(Long.MIN_VALUE + 1, 1));
+    }
+
+    @Test
+    void percentagesRoundHalfUp() {
+        assertEquals(1, Money.percentage(5, 10.0));   // 0.5
+        assertEquals(0, Money.percentage(4, 10.0));   // 0.4
+        assertEquals(-1, Money.percentage(-5, 10.0)); // -0.5, lejos del cero
+        assertEquals(25, Money.percentage(1000, 2.5));
+        assertEquals(2, Money.percentage(15, 10));    // 1.5
+        assertEquals(0, Money.percentage(5, 10.0, RoundingMode.DOWN));
+    }
+
+    @Test
+    void percentagesUseBasisPoints() {
+        // 0.1 + 0.2 no es exactamente 0.3 como double, pero son los mismos 30 puntos básicos
+        assertEquals(Money.percentage(100000, 0.3), Money.percentage(100000, 0.1 + 0.2));
+        assertEquals(300, Money.percentage(100000, 0.1 + 0.2));
+        assertEquals(1, Money.percentage(1000, 0.125)); // 0.125% -> 13 puntos básicos -> 1.3
+    }
+
+    @Test
+    void feeOfMissingPercentIsZero() {
+        assertEquals(0, Money.fee(1000, null));
+        assertEquals(0, Money.fee(1000, 0.0));
+        assertEquals(13, Money.fee(1250, 1.0)); // 12.5 -> 13
+    }
+
+    @Test
+    void divideMatchesBigDecimalRounding() {
+        for (RoundingMode rounding : RoundingMode.values()) {
+            if (rounding == RoundingMode.UNNECESSARY) {
+                continue;
+            }
+            for (long dividend = -30; dividend <= 30; dividend++) {
+                for (long divisor = -7; divisor <= 7; divisor++) {
+                    if (divisor == 0) {
+                        continue;
+                    }
+                    long expected = BigDecimal.valueOf(dividend).divide(BigDecimal.valueOf(divisor), 0, rounding)
+                        .longValueExact();
+                    assertEquals(expected, Money.divide(dividend, divisor, rounding),
+                        dividend + " / " + divisor + " " + rounding);
+                }
+            }
+        }
+    }
+
+    @Test
+    void divideHalfEvenAndNegatives() {
+        assertEquals(2, Money.divide(25, 10, RoundingMode.HALF_EVEN));
+        assertEquals(4, Money.divide(35, 10, RoundingMode.HALF_EVEN));
+        assertEquals(-2, Money.divide(-25, 10, RoundingMode.HALF_EVEN));
+        assertEquals(-4, Money.divide(-7, 2, RoundingMode.FLOOR));
+        assertEquals(-3, Money.divide(-7, 2, RoundingMode.CEILING));
+        assertEquals(-4, Money.divide(7, -2, RoundingMode.HALF_UP));
+        assertEquals(-3, Money.divide(7, -2, RoundingMode.HALF_DOWN));
+    }
+
+    @Test
+    void divideUnnecessaryThrowsOnlyWithRemainder() {
+        assertEquals(3, Money.divide(9, 3, RoundingMode.UNNECESSARY));
+        assertThrows(ArithmeticException.class, () -> Money.divide(10, 3, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    void parsesUpToTwoDecimals() {
+        assertEquals(1200, Money.parse("12"));
+        assertEquals(1250, Money.parse("12.5"));
+        assertEquals(1250, Money.parse(" 12.50 "));
+        assertEquals(-5, Money.parse("-0.05"));
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+
+        assertThrows(NumberFormatException.class, () -> Money.parse("12.345"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(null));
+    }
+
+    @Test
+    void formatsWithTwoDecimals() {
+        assertEquals("12.50", Money.format(1250));
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.07", Money.format(7));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-12.34", Money.format(-1234));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+    }
+
+    @Test
+    void convertsFromDoubleAndBigDecimal() {
+        assertEquals(30, Money.fromDouble(0.1 + 0.2));
+        assertEquals(1999, Money.fromDouble(19.99));
+        assertEquals(-1999, Money.fromDouble(-19.99));
+        assertThrows(ArithmeticException.class, () -> Money.fromDouble(Double.NaN));
+        assertThrows(ArithmeticException.class, () -> Money.fromDouble(Double.POSITIVE_INFINITY));
+        assertThrows(ArithmeticException.class, () -> Money.fromDouble(1e17));
+
+        assertEquals(1235, Money.fromBigDecimal(new BigDecimal("12.345")));
+        assertEquals(-1235, Money.fromBigDecimal(new BigDecimal("-12.345")));
+        assertEquals(new BigDecimal("12.50"), Money.toBigDecimal(1250));
+    }
+}
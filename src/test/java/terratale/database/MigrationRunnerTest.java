@@ -0,0 +1,75 @@
+package terratale.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MigrationRunnerTest {
+
+    @Test
+    void splitsOnSemicolons() {
+        assertEquals(List.of("CREATE TABLE a (id INT)", "CREATE TABLE b (id INT)"),
+            MigrationRunner.splitStatements("CREATE TABLE a (id INT);\nCREATE TABLE b (id INT);"));
+    }
+
+    @Test
+    void keepsLastStatementWithoutSemicolon() {
+        assertEquals(List.of("SELECT 1", "SELECT 2"), MigrationRunner.splitStatements("SELECT 1;\nSELECT 2"));
+    }
+
+    @Test
+    void dropsEmptyStatements() {
+        assertEquals(List.of(), MigrationRunner.splitStatements(";;\n ; "));
+        assertEquals(List.of("SELECT 1"), MigrationRunner.splitStatements(";SELECT 1;;"));
+    }
+
+    @Test
+    void ignoresSemicolonsInsideStringLiterals() {
+        assertEquals(List.of("INSERT INTO t VALUES ('a;b')", "SELECT 1"),
+            MigrationRunner.splitStatements("INSERT INTO t VALUES ('a;b'); SELECT 1"));
+    }
+
+    @Test
+    void keepsDoubledQuotesInsideLiterals() {
+        assertEquals(List.of("INSERT INTO t VALUES ('it''s; ok')"),
+            MigrationRunner.splitStatements("INSERT INTO t VALUES ('it''s; ok');"));
+    }
+
+    @Test
+    void ignoresSemicolonsInsideQuotedIdentifiers() {
+        assertEquals(List.of("CREATE TABLE `a;b` (\"c;d\" INT)"),
+            MigrationRunner.splitStatements("CREATE TABLE `a;b` (\"c;d\" INT);"));
+    }
+
+    @Test
+    void stripsLineComments() {
+        assertEquals(List.of("SELECT 1", "SELECT 2"),
+            MigrationRunner.splitStatements("-- comentario; con punto y coma\nSELECT 1; -- fin\nSELECT 2"));
+    }
+
+    @Test
+    void stripsBlockComments() {
+        assertEquals(List.of("SELECT   1", "SELECT 2"),
+            MigrationRunner.splitStatements("SELECT /* a; b */ 1;\n/* cabecera;\n */SELECT 2;"));
+    }
+
+    @Test
+    void commentMarkersInsideLiteralsAreText() {
+        assertEquals(List.of("INSERT INTO t VALUES ('-- no; /* es */ comentario')"),
+            MigrationRunner.splitStatements("INSERT INTO t VALUES ('-- no; /* es */ comentario');"));
+    }
+
+    @Test
+    void keepsUnterminatedLiteralAsLastStatement() {
+        assertEquals(List.of("SELECT 1", "SELECT 'abc;"), MigrationRunner.splitStatements("SELECT 1; SELECT 'abc;"));
+    }
+
+    @Test
+    void commentRightAfterSemicolon() {
+        String sql = "ALTER TABLE t ADD c INT;-- SQLite no admite ADD UNIQUE KEY\nCREATE UNIQUE INDEX IF NOT EXISTS i ON t(c);";
+        assertEquals(List.of("ALTER TABLE t ADD c INT", "CREATE UNIQUE INDEX IF NOT EXISTS i ON t(c)"),
+            MigrationRunner.splitStatements(sql));
+    }
+}
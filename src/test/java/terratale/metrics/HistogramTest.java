@@ -0,0 +1,88 @@
+package terratale.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    private static final int LAST_BUCKET = (64 - 4) * 16 - 1;
+
+    @Test
+    void smallValuesHaveTheirOwnBucket() {
+        for (int nanos = 0; nanos < 16; nanos++) {
+            assertEquals(nanos, Histogram.index(nanos));
+            assertEquals(nanos, Histogram.upperBound(nanos));
+        }
+        assertEquals(31, Histogram.index(31));
+        assertEquals(32, Histogram.index(32)); // desde 32 cada cubo cubre más de un valor
+        assertEquals(32, Histogram.index(33));
+        assertEquals(33, Histogram.index(34));
+    }
+
+    @Test
+    void bucketsAreContiguous() {
+        // Cada cubo termina justo antes de donde empieza el siguiente, sin huecos ni solapes
+        for (int i = 0; i < LAST_BUCKET; i++) {
+            long upper = Histogram.upperBound(i);
+            assertEquals(i, Histogram.index(upper), "upper bound of bucket " + i);
+            assertEquals(i + 1, Histogram.index(upper + 1), "value after bucket " + i);
+        }
+    }
+
+    @Test
+    void lastBucketEndsAtLongMax() {
+        assertEquals(LAST_BUCKET, Histogram.index(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(LAST_BUCKET));
+    }
+
+    @Test
+    void upperBoundIsWithinRelativeError() {
+        for (long nanos = 1; nanos > 0 && nanos < Long.MAX_VALUE / 3; nanos = nanos * 3 + 1) {
+            long upper = Histogram.upperBound(Histogram.index(nanos));
+            assertTrue(upper >= nanos, nanos + " above its bucket");
+            assertTrue(upper - nanos < Math.max(1, nanos / 16), nanos + " rounded to " + upper);
+        }
+    }
+
+    @Test
+    void percentilesNeverExceedTheMax() {
+        Histogram histogram = new Histogram();
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos);
+        }
+        histogram.record(-5); // se cuenta como 0
+
+        assertEquals(1001, histogram.getCount());
+        assertEquals(1000, histogram.getMaxNanos());
+        assertEquals(0, histogram.percentile(0.01));
+        assertEquals(1000, histogram.percentile(100));
+
+        long median = histogram.percentile(50);
+        assertTrue(median >= 500 && median < 500 + 500 / 16, "median " + median);
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.getMaxNanos());
+        assertTrue(histogram.getMeanNanos() == 0);
+    }
+
+    @Test
+    void addMergesCounts() {
+        Histogram a = new Histogram();
+        Histogram b = new Histogram();
+        a.record(10);
+        b.record(20);
+        b.record(5000);
+        a.add(b);
+
+        assertEquals(3, a.getCount());
+        assertEquals(5000, a.getMaxNanos());
+        assertEquals(10, a.percentile(33));
+        assertEquals(5000, a.percentile(100));
+    }
+}
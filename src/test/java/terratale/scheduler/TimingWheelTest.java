@@ -0,0 +1,145 @@
+package terratale.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    // Avanza de step en step (sin saltos que reconstruyan la rueda) y junta lo vencido
+    private static List<Integer> advanceBy(TimingWheel wheel, long from, long to, long step) {
+        List<Integer> due = new ArrayList<>();
+        for (long now = from + step; now < to; now += step) {
+            due.addAll(wheel.advance(now));
+        }
+        due.addAll(wheel.advance(to));
+        return due;
+    }
+
+    @Test
+    void firesOnItsTickAndNotBefore() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, 10, due);
+
+        assertEquals(List.of(), due);
+        assertEquals(List.of(), wheel.advance(9));
+        assertEquals(List.of(1), wheel.advance(10));
+        assertFalse(wheel.isScheduled(1));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void roundsDownToTheTick() {
+        TimingWheel wheel = new TimingWheel(60000, 0);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, 119999, due);
+
+        assertEquals(List.of(), wheel.advance(59999));
+        assertEquals(List.of(1), wheel.advance(60000));
+    }
+
+    @Test
+    void pastTimesAreDueImmediately() {
+        TimingWheel wheel = new TimingWheel(1, 1000);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, 1000, due);
+        wheel.schedule(2, 5, due);
+        wheel.schedule(3, -50, due);
+
+        assertEquals(List.of(1, 2, 3), due);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledEntriesDoNotFire() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, 100, due);
+        wheel.schedule(2, 5000, due);
+        wheel.cancel(1);
+        wheel.cancel(2);
+
+        assertEquals(List.of(), advanceBy(wheel, 0, 10000, 1000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rescheduledEntriesFireOnlyAtTheNewTime() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, 100, due);
+        wheel.schedule(1, 5000, due);
+
+        assertEquals(List.of(), advanceBy(wheel, 0, 4999, 500));
+        assertTrue(wheel.isScheduled(1));
+        assertEquals(List.of(1), wheel.advance(5000));
+
+        wheel.schedule(2, 9000, due);
+        wheel.schedule(2, 6000, due);
+        assertEquals(List.of(2), advanceBy(wheel, 5000, 6000, 100));
+        assertEquals(List.of(), advanceBy(wheel, 6000, 10000, 1000));
+    }
+
+    @Test
+    void cascadesFromLevelOne() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, 4101, due); // 64 * 64 + 5: nivel 2, baja a 1 y a 0
+
+        assertEquals(List.of(), advanceBy(wheel, 0, 4100, 1000));
+        assertEquals(List.of(1), wheel.advance(4101));
+    }
+
+    @Test
+    void cascadesFromLevelThree() {
+        long fireAt = 64L * 64 * 64 + 7;
+        TimingWheel wheel = new TimingWheel(1, 0);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, fireAt, due);
+        wheel.schedule(2, fireAt + 64, due);
+
+        assertEquals(List.of(), advanceBy(wheel, 0, fireAt - 1, 4000));
+        assertEquals(List.of(1), wheel.advance(fireAt));
+        assertEquals(List.of(), wheel.advance(fireAt + 63));
+        assertEquals(List.of(2), wheel.advance(fireAt + 64));
+    }
+
+    @Test
+    void keepsEntriesBeyondTheWheelSpan() {
+        // Más allá de 64^5 ticks la entrada se queda en el último nivel; cuando su casilla baja antes de
+        // tiempo debe volver a colocarse, no dispararse
+        long start = (1L << 24) - 10;
+        long fireAt = (1L << 30) + (1L << 24) + 5;
+        TimingWheel wheel = new TimingWheel(1, start);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, fireAt, due);
+
+        assertEquals(List.of(), advanceBy(wheel, start, (1L << 24) + 10, 1));
+        assertTrue(wheel.isScheduled(1));
+
+        assertEquals(List.of(), wheel.advance(fireAt - 1));
+        assertTrue(wheel.isScheduled(1));
+        assertEquals(List.of(1), wheel.advance(fireAt));
+    }
+
+    @Test
+    void largeClockJumpsFireEverythingOverdue() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        List<Integer> due = new ArrayList<>();
+        wheel.schedule(1, 10, due);
+        wheel.schedule(2, 500000, due);
+        wheel.schedule(3, 2000000, due);
+
+        List<Integer> fired = wheel.advance(1000000);
+        fired.sort(null);
+        assertEquals(List.of(1, 2), fired);
+        assertTrue(wheel.isScheduled(3));
+        assertEquals(List.of(3), wheel.advance(2000000));
+    }
+}
@@ -0,0 +1,230 @@
+package terratale.database;
+
+import terratale.Helpers.InvoiceStatus;
+import terratale.economy.Ledger;
+import terratale.models.Model;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Rellena una base de datos vacía con datos sintéticos para benchmarks y pruebas de carga.
+ *
+ * Todo es determinista a partir del índice: el jugador i tiene el UUID {@link #userId(int)}, una cuenta
+ * con el número {@link #accountNumber(int)} (id i + 2) y es dueño de ella. Los bancos agrupan
+ * {@code usersPerBank} cuentas y la cuenta del gobierno (id 1) está en el banco 1. Las facturas
+ * pendientes unen cuentas al azar (con {@code randomSeed}). Los saldos se apuntan en el diario en un
+ * asiento "SEED", así que /terratale ledger cuadra desde el principio.
+ *
+ * Las filas se insertan por lotes de {@code BATCH} en una transacción cada uno.
+ */
+public final class DataSeeder {
+
+    private static final int BATCH = 10000;
+
+    private DataSeeder() {
+    }
+
+    public static final class Summary {
+        public final int users;
+        public final int banks;
+        public final int invoices;
+        public final long durationMs;
+
+        Summary(int users, int banks, int invoices, long durationMs) {
+            this.users = users;
+            this.banks = banks;
+            this.invoices = invoices;
+            this.durationMs = durationMs;
+        }
+    }
+
+    public static UUID userId(int index) {
+        return UUID.nameUUIDFromBytes(("terratale-seed-user-" + index).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int accountId(int index) {
+        return index + 2;
+    }
+
+    public static String accountNumber(int index) {
+        return String.format("%010d", index + 1000000); // no coincide con la cuenta del gobierno
+    }
+
+    // Jugadores ya sembrados (0 si la base de datos está vacía)
+    public static int countUsers() throws SQLException {
+        try (Connection conn = Model.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) AS total FROM users")) {
+            return rs.next() ? rs.getInt("total") : 0;
+        }
+    }
+
+    /**
+     * Siembra {@code users} jugadores, cada uno con {@code money} en mano y {@code balance} en su cuenta.
+     * Solo sobre una base de datos sin jugadores: los ids de cuentas y bancos se fijan aquí.
+     */
+    public static Summary seed(int users, long money, long balance, int usersPerBank, double invoicesPerUser,
+                               long randomSeed) throws SQLException {
+        long start = System.currentTimeMillis();
+        if (countUsers() > 0) {
+            throw new SQLException("DataSeeder only seeds an empty database");
+        }
+
+        String governmentAccount = Model.config().gouvernmentNumberAccount;
+        int perBank = Math.max(1, usersPerBank);
+        int banks = Math.max(1, (users + perBank - 1) / perBank);
+        long now = System.currentTimeMillis();
+
+        Model.logInfo("Seeding " + users + " users in " + banks + " banks...");
+        for (int from = 0; from < users; from += BATCH) {
+            int to = Math.min(users, from + BATCH);
+            int first = from;
+            Model.inTransaction(conn -> {
+                insertUsers(conn, first, to, money, now);
+                return null;
+            });
+        }
+
+        Model.inTransaction(conn -> {
+            String sql = "INSERT INTO banks (id, name, owner_uuid, balance, withdraw_fee, deposit_fee, transactions_fee, visibility) "
+                + "VALUES (?, ?, ?, 0, 1.0, 1.0, 1.0, 'public')";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int bank = 0; bank < banks; bank++) {
+                    pstmt.setInt(1, bank + 1);
+                    pstmt.setString(2, "Banco " + (bank + 1));
+                    pstmt.setString(3, userId(Math.min(users - 1, bank * perBank)).toString());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+
+            // Cuenta del gobierno: paga el dinero inicial de los jugadores nuevos y cobra impuestos
+            sql = "INSERT INTO bank_accounts (id, bank_id, account_number, balance) VALUES (1, 1, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, governmentAccount);
+                pstmt.setLong(2, Math.max(balance, 1L) * Math.max(users, 1));
+                pstmt.executeUpdate();
+            }
+            return null;
+        });
+
+        for (int from = 0; from < users; from += BATCH) {
+            int to = Math.min(users, from + BATCH);
+            int first = from;
+            Model.inTransaction(conn -> {
+                insertAccounts(conn, first, to, perBank, balance);
+                return null;
+            });
+        }
+
+        int invoices = (int) Math.min(Integer.MAX_VALUE, Math.round(users * invoicesPerUser));
+        if (users > 1) {
+            Random random = new Random(randomSeed);
+            for (int from = 0; from < invoices; from += BATCH) {
+                int to = Math.min(invoices, from + BATCH);
+                int first = from;
+                Model.inTransaction(conn -> {
+                    insertInvoices(conn, first, to, users, random);
+                    return null;
+                });
+            }
+        } else {
+            invoices = 0;
+        }
+
+        Model.inTransaction(conn -> {
+            openLedger(conn);
+            return null;
+        });
+
+        long durationMs = System.currentTimeMillis() - start;
+        Model.logInfo("Seeded " + users + " users, " + banks + " banks and " + invoices + " invoices in " + durationMs + "ms");
+        return new Summary(users, banks, invoices, durationMs);
+    }
+
+    private static void insertUsers(Connection conn, int from, int to, long money, long now) throws SQLException {
+        String sql = "INSERT INTO users (uuid, username, money, last_login) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = from; i < to; i++) {
+                pstmt.setString(1, userId(i).toString());
+                pstmt.setString(2, "player" + i);
+                pstmt.setLong(3, money);
+                pstmt.setLong(4, now);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void insertAccounts(Connection conn, int from, int to, int perBank, long balance) throws SQLException {
+        String accounts = "INSERT INTO bank_accounts (id, bank_id, account_number, balance) VALUES (?, ?, ?, ?)";
+        String owners = "INSERT INTO bank_accounts_owners (account_id, owner_uuid, permission) VALUES (?, ?, 'owner')";
+        try (PreparedStatement accountStmt = conn.prepareStatement(accounts);
+             PreparedStatement ownerStmt = conn.prepareStatement(owners)) {
+            for (int i = from; i < to; i++) {
+                accountStmt.setInt(1, accountId(i));
+                accountStmt.setInt(2, i / perBank + 1);
+                accountStmt.setString(3, accountNumber(i));
+                accountStmt.setLong(4, balance);
+                accountStmt.addBatch();
+
+                ownerStmt.setInt(1, accountId(i));
+                ownerStmt.setString(2, userId(i).toString());
+                ownerStmt.addBatch();
+            }
+            accountStmt.executeBatch();
+            ownerStmt.executeBatch();
+        }
+    }
+
+    private static void insertInvoices(Connection conn, int from, int to, int users, Random random) throws SQLException {
+        String sql = "INSERT INTO invoices (receptor_account_number, payer_account_number, amount, due_date, description, status, generated_by_system) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 0)";
+        Date dueDate = new Date(System.currentTimeMillis() + 30L * 24 * 60 * 60 * 1000);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = from; i < to; i++) {
+                int payer = random.nextInt(users);
+                int receptor = (payer + 1 + random.nextInt(users - 1)) % users;
+                pstmt.setString(1, accountNumber(receptor));
+                pstmt.setString(2, accountNumber(payer));
+                pstmt.setLong(3, 100 + random.nextInt(10000));
+                pstmt.setDate(4, dueDate);
+                pstmt.setString(5, "Factura de prueba #" + i);
+                pstmt.setString(6, InvoiceStatus.PENDING);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // Mismo asiento que LedgerOpeningMigration, pero con los saldos sembrados
+    private static void openLedger(Connection conn) throws SQLException {
+        long entryId = Ledger.append(conn, new Ledger.Entry("SEED", null));
+        String insert = "INSERT INTO ledger_postings (entry_id, holder_type, holder_id, amount) "
+            + "SELECT ?, ?, CAST(id AS CHAR), balance FROM %s WHERE balance <> 0";
+        for (String[] table : new String[][] {{"bank_accounts", Ledger.ACCOUNT}, {"banks", Ledger.BANK}}) {
+            try (PreparedStatement pstmt = conn.prepareStatement(String.format(insert, table[0]))) {
+                pstmt.setLong(1, entryId);
+                pstmt.setString(2, table[1]);
+                pstmt.executeUpdate();
+            }
+        }
+
+        String counter = "INSERT INTO ledger_postings (entry_id, holder_type, holder_id, amount) "
+            + "SELECT ?, ?, ?, -COALESCE(SUM(amount), 0) FROM ledger_postings WHERE entry_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(counter)) {
+            pstmt.setLong(1, entryId);
+            pstmt.setString(2, Ledger.SYSTEM);
+            pstmt.setString(3, "opening");
+            pstmt.setLong(4, entryId);
+            pstmt.executeUpdate();
+        }
+    }
+}